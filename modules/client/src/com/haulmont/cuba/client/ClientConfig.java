@@ -436,4 +436,44 @@ public interface ClientConfig extends Config {
     @Source(type = SourceType.DATABASE)
     @DefaultBoolean(true)
     boolean getReloadUnfetchedAttributesFromLookupScreens();
-}
\ No newline at end of file
+
+    /**
+     * @return minimal number of items for which table aggregations are calculated in parallel.
+     * Zero disables parallel aggregation.
+     */
+    @Property("cuba.gui.aggregationParallelThreshold")
+    @DefaultInt(0)
+    int getAggregationParallelThreshold();
+
+    /**
+     * If true, standard aggregations of tables bound to containers loaded by a {@code CollectionLoader} are
+     * calculated by an aggregate query, as long as the container holds exactly the result of the loader's query and
+     * the data context has no changes.
+     */
+    @Property("cuba.gui.aggregationInDatabase")
+    @DefaultBoolean(false)
+    boolean getAggregationInDatabase();
+
+    /**
+     * @return number of entities loaded by one query when {@code CsvExporter} exports all entities of a loader
+     */
+    @Property("cuba.gui.exportPageSize")
+    @DefaultInt(1000)
+    int getExportPageSize();
+
+    /**
+     * @return timeout in seconds of the background task exporting a list component by {@code CsvExporter}
+     */
+    @Property("cuba.gui.exportTimeoutSec")
+    @DefaultInt(3600)
+    int getExportTimeoutSec();
+
+    /**
+     * @return period in seconds before the latest loaded {@code updateTs} from which a delta load of a
+     * {@code CollectionLoader} reads updated entities again. It covers transactions committed after the previous
+     * load and clock differences between middleware nodes.
+     */
+    @Property("cuba.gui.deltaLoadSafetyWindowSec")
+    @DefaultInt(60)
+    int getDeltaLoadSafetyWindowSec();
+}
@@ -36,6 +36,7 @@ import java.util.concurrent.ConcurrentHashMap;
 @Component(Configuration.NAME)
 public class ConfigurationClientImpl implements ClientConfiguration {
     protected Map<Class, ConfigHandler> handlersCache = new ConcurrentHashMap<>();
+    protected Map<Class, Config> proxiesCache = new ConcurrentHashMap<>();
     protected ConfigStorageService configStorageCache;
 
     @Inject
@@ -45,14 +46,18 @@ public class ConfigurationClientImpl implements ClientConfiguration {
 
     @Override
     public <T extends Config> T getConfig(Class<T> configInterface) {
-        ConfigHandler handler = handlersCache.get(configInterface);
-        if (handler == null) {
-            handler = new ConfigHandler(createConfigPersister(false), configInterface);
-            handlersCache.put(configInterface, handler);
+        Config config = proxiesCache.get(configInterface);
+        if (config == null) {
+            ConfigHandler handler = handlersCache.get(configInterface);
+            if (handler == null) {
+                handler = new ConfigHandler(createConfigPersister(false), configInterface);
+                handlersCache.put(configInterface, handler);
+            }
+            ClassLoader classLoader = configInterface.getClassLoader();
+            config = (Config) Proxy.newProxyInstance(classLoader, new Class[]{configInterface}, handler);
+            proxiesCache.put(configInterface, config);
         }
-        ClassLoader classLoader = configInterface.getClassLoader();
-        Object proxy = Proxy.newProxyInstance(classLoader, new Class[]{configInterface}, handler);
-        return configInterface.cast(proxy);
+        return configInterface.cast(config);
     }
 
     @Override
@@ -26,6 +26,7 @@ import javax.persistence.LockModeType;
 import javax.persistence.TemporalType;
 import java.util.List;
 import java.util.Date;
+import java.util.function.Consumer;
 
 /**
  * Interface used to control query execution.
@@ -59,6 +60,16 @@ public interface Query {
     @CheckReturnValue
     List getResultList();
 
+    /**
+     * Execute a SELECT query reading the results through a database cursor and pass them to the action in chunks.
+     * Only one chunk is kept in memory at a time. The query cache is not used.
+     *
+     * @param chunkSize maximum number of results in a chunk, also used as the JDBC fetch size
+     * @param action    action invoked for each chunk inside the current transaction
+     * @throws IllegalStateException if called for a Java Persistence query language UPDATE or DELETE statement
+     */
+    void forEachChunk(int chunkSize, Consumer<List> action);
+
     /**
      * Execute a SELECT query that returns a single result.
      *
@@ -66,4 +66,42 @@ public interface ClusterConfig extends Config {
     @Property("cuba.cluster.messageSendingQueueCapacity")
     @DefaultInt(Integer.MAX_VALUE)
     int getClusterMessageSendingQueueCapacity();
+
+    /**
+     * @return time window in milliseconds during which asynchronously sent messages are collected and sent to the
+     * cluster members in a single frame. Zero disables batching.
+     */
+    @Property("cuba.cluster.messageBatchingWindow")
+    @DefaultInt(0)
+    int getMessageBatchingWindow();
+
+    /**
+     * @return maximum number of messages packed in a single frame when batching is enabled
+     */
+    @Property("cuba.cluster.messageBatchMaxSize")
+    @DefaultInt(100)
+    int getMessageBatchMaxSize();
+
+    /**
+     * @return size of a batched frame in bytes above which the frame is compressed. Zero disables compression.
+     */
+    @Property("cuba.cluster.messageCompressionThreshold")
+    @DefaultInt(8192)
+    int getMessageCompressionThreshold();
+
+    /**
+     * @return whether received messages are passed to listeners by per-message-class executors instead of the
+     * JGroups delivery thread. The order of processing is preserved only for messages of the same class.
+     */
+    @Property("cuba.cluster.asyncMessageDispatch")
+    @DefaultBoolean(false)
+    boolean getAsyncMessageDispatch();
+
+    /**
+     * @return maximum number of received messages of a single class waiting to be passed to the listener when
+     * asynchronous dispatch is enabled. Messages exceeding it are discarded.
+     */
+    @Property("cuba.cluster.messageDispatchQueueCapacity")
+    @DefaultInt(10000)
+    int getMessageDispatchQueueCapacity();
 }
@@ -38,15 +38,18 @@ import org.springframework.context.event.EventListener;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.management.MBeanServer;
 import java.io.*;
 import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.LongAdder;
 
 /**
@@ -65,6 +68,18 @@ public class ClusterManager implements ClusterManagerAPI {
 
     protected ThreadPoolExecutor executor;
 
+    protected BlockingQueue<Serializable> batchQueue;
+
+    protected ScheduledExecutorService batchSender;
+
+    protected int batchMaxSize;
+
+    protected AtomicBoolean batchFlushScheduled = new AtomicBoolean();
+
+    protected boolean asyncDispatch;
+
+    protected Map<String, ThreadPoolExecutor> dispatchExecutors = new ConcurrentHashMap<>();
+
     @Inject
     protected Resources resources;
 
@@ -79,6 +94,8 @@ public class ClusterManager implements ClusterManagerAPI {
 
     protected static final String STATE_MAGIC = "CUBA_STATE";
 
+    protected static final String BATCHED_MESSAGES = "batched messages";
+
     public JChannel getChannel() {
         return channel;
     }
@@ -93,6 +110,17 @@ public class ClusterManager implements ClusterManagerAPI {
                     SendMessageRunnable sendMessageRunnable = (SendMessageRunnable) r;
                     log.info("Queue capacity is exceeded. Message: {}: {}", sendMessageRunnable.message.getClass(), sendMessageRunnable.message);
                 });
+
+        int batchingWindow = clusterConfig.getMessageBatchingWindow();
+        if (batchingWindow > 0) {
+            batchMaxSize = Math.max(clusterConfig.getMessageBatchMaxSize(), 1);
+            batchQueue = new LinkedBlockingQueue<>(clusterConfig.getClusterMessageSendingQueueCapacity());
+            batchSender = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("ClusterManagerBatchSender-%d").build());
+            batchSender.scheduleWithFixedDelay(this::flushBatch, batchingWindow, batchingWindow, TimeUnit.MILLISECONDS);
+        }
+        asyncDispatch = clusterConfig.getAsyncMessageDispatch();
+        messagesStat.put(ClusterMessagePack.class.getName(), new MessageStat());
     }
 
     @EventListener(AppContextInitializedEvent.class)
@@ -106,7 +134,14 @@ public class ClusterManager implements ClusterManagerAPI {
     @EventListener(AppContextStoppedEvent.class)
     protected void applicationStopped() {
         executor.shutdown();
+        if (batchSender != null) {
+            batchSender.shutdown();
+            flushBatch();
+        }
         stop();
+        for (ThreadPoolExecutor dispatchExecutor : dispatchExecutors.values()) {
+            dispatchExecutor.shutdown();
+        }
     }
 
     @Override
@@ -117,6 +152,13 @@ public class ClusterManager implements ClusterManagerAPI {
         Boolean sync = forceSyncSending.get();
         if (sync != null && sync) {
             internalSend(message, true);
+        } else if (batchQueue != null) {
+            log.trace("Adding message: {}: {} to the batch", message.getClass(), message);
+            if (!batchQueue.offer(message)) {
+                log.info("Queue capacity is exceeded. Message: {}: {}", message.getClass(), message);
+            } else if (batchQueue.size() >= batchMaxSize && batchFlushScheduled.compareAndSet(false, true)) {
+                batchSender.execute(this::flushBatch);
+            }
         } else {
             log.trace("Submitting message: {}: {} to send asynchronously", message.getClass(), message);
             executor.execute(new SendMessageRunnable(message));
@@ -134,28 +176,91 @@ public class ClusterManager implements ClusterManagerAPI {
     protected void internalSend(Serializable message, boolean sync) {
         StopWatch sw = new Slf4JStopWatch(String.format("sendClusterMessage(%s)", message.getClass().getSimpleName()));
         try {
-            byte[] bytes;
-            try {
-                bytes = SerializationSupport.serialize(message);
-            } catch (Exception e) {
-                log.error("Cluster message serialization error", e);
-                throw new RuntimeException("Cluster message serialization error", e);
+            sendBytes(serializeMessage(message), sync);
+        } finally {
+            sw.stop();
+        }
+    }
+
+    protected byte[] serializeMessage(Serializable message) {
+        byte[] bytes;
+        try {
+            bytes = SerializationSupport.serialize(message);
+        } catch (Exception e) {
+            log.error("Cluster message serialization error", e);
+            throw new RuntimeException("Cluster message serialization error", e);
+        }
+        log.debug("Sending message: {}: {} ({} bytes)", message.getClass(), message, bytes.length);
+        MessageStat stat = messagesStat.get(message.getClass().getName());
+        if (stat != null) {
+            stat.updateSent(bytes.length);
+            if (message instanceof ClusterMessageBatch) {
+                ClusterMessageBatch batch = (ClusterMessageBatch) message;
+                stat.updateReplaced(batch.getReplacedMessageClass().getName(), batch.getReplacedMessagesCount());
             }
-            log.debug("Sending message: {}: {} ({} bytes)", message.getClass(), message, bytes.length);
-            MessageStat stat = messagesStat.get(message.getClass().getName());
-            if (stat != null) {
-                stat.updateSent(bytes.length);
+        }
+        return bytes;
+    }
+
+    protected void sendBytes(byte[] bytes, boolean sync) {
+        Message msg = new Message()
+                .setBuffer(bytes);
+        if (sync) {
+            msg.setFlag(Message.Flag.RSVP);
+        }
+        try {
+            channel.send(msg);
+        } catch (Exception e) {
+            log.error("Error sending message", e);
+        }
+    }
+
+    /**
+     * Sends messages collected during the batching window, packing up to
+     * {@link ClusterConfig#getMessageBatchMaxSize()} messages into one frame.
+     */
+    protected void flushBatch() {
+        // messages added from now on are sent by this flush or require a new one
+        batchFlushScheduled.set(false);
+        if (channel == null) {
+            batchQueue.clear();
+            return;
+        }
+        try {
+            List<Serializable> messages = new ArrayList<>(batchMaxSize);
+            while (batchQueue.drainTo(messages, batchMaxSize) > 0) {
+                sendBatch(messages);
+                messages.clear();
             }
-            Message msg = new Message()
-                    .setBuffer(bytes);
-            if (sync) {
-                msg.setFlag(Message.Flag.RSVP);
+        } catch (Exception e) {
+            // the exception must not cancel the scheduled task
+            log.error("Error sending batched messages", e);
+        }
+    }
+
+    protected void sendBatch(List<Serializable> messages) {
+        if (messages.size() == 1) {
+            internalSend(messages.get(0), false);
+            return;
+        }
+        StopWatch sw = new Slf4JStopWatch(String.format("sendClusterMessageBatch(%s)", messages.size()));
+        try {
+            List<byte[]> serializedMessages = new ArrayList<>(messages.size());
+            for (Serializable message : messages) {
+                try {
+                    serializedMessages.add(serializeMessage(message));
+                } catch (RuntimeException e) {
+                    // already logged, skip the message and send the rest of the batch
+                }
             }
-            try {
-                channel.send(msg);
-            } catch (Exception e) {
-                log.error("Error sending message", e);
+            ClusterMessagePack pack = ClusterMessagePack.pack(serializedMessages,
+                    clusterConfig.getMessageCompressionThreshold());
+            byte[] bytes = serializeMessage(pack);
+            MessageStat stat = messagesStat.get(ClusterMessagePack.class.getName());
+            if (stat != null) {
+                stat.updateReplaced(BATCHED_MESSAGES, pack.getCount());
             }
+            sendBytes(bytes, false);
         } finally {
             sw.stop();
         }
@@ -275,7 +380,7 @@ public class ClusterManager implements ClusterManagerAPI {
 
     @Override
     public int getMessagesCount() {
-        return executor.getQueue().size();
+        return executor.getQueue().size() + (batchQueue != null ? batchQueue.size() : 0);
     }
 
     @Override
@@ -345,11 +450,114 @@ public class ClusterManager implements ClusterManagerAPI {
                         .append(String.format("Class: %s; received: %s, %s bytes; sent: %s, %s bytes\n",
                                 entry.getKey(), stat.getReceivedMessages(), stat.getReceivedBytes(),
                                 stat.getSentMessages(), stat.getSentBytes()));
+                if (stat.getReplacedMessages() > 0) {
+                    messagesStats.append(printBatchSavings(stat));
+                }
+                if (stat.getProcessedMessages() > 0) {
+                    messagesStats.append(printDispatchStat(entry.getKey(), stat));
+                }
             }
         }
         return messagesStats.toString();
     }
 
+    protected String printBatchSavings(MessageStat stat) {
+        long savedMessages = stat.getReplacedMessages() - stat.getSentMessages();
+        MessageStat replacedStat = messagesStat.get(stat.getReplacedClassName());
+        if (replacedStat == null || replacedStat.getSentMessages() == 0) {
+            return String.format("  batches replaced: %s messages of %s, saved: %s messages\n",
+                    stat.getReplacedMessages(), stat.getReplacedClassName(), savedMessages);
+        }
+        long avgReplacedBytes = replacedStat.getSentBytes() / replacedStat.getSentMessages();
+        long savedBytes = stat.getReplacedMessages() * avgReplacedBytes - stat.getSentBytes();
+        return String.format("  batches replaced: %s messages of %s, saved: %s messages, ~%s bytes\n",
+                stat.getReplacedMessages(), stat.getReplacedClassName(), savedMessages, savedBytes);
+    }
+
+    protected String printDispatchStat(String className, MessageStat stat) {
+        ThreadPoolExecutor dispatchExecutor = dispatchExecutors.get(className);
+        int queueDepth = dispatchExecutor != null ? dispatchExecutor.getQueue().size() : 0;
+        long processed = stat.getProcessedMessages();
+        return String.format("  dispatch queue: %s, avg wait: %.3f ms, avg processing: %.3f ms\n",
+                queueDepth,
+                stat.getQueueWaitNanos() / 1_000_000.0 / processed,
+                stat.getProcessingNanos() / 1_000_000.0 / processed);
+    }
+
+    protected Serializable deserializeMessage(byte[] bytes) {
+        try {
+            return (Serializable) SerializationSupport.deserialize(bytes);
+        } catch (Exception e) {
+            log.error("Cluster message deserialization error", e);
+            throw new RuntimeException("Cluster message deserialization error", e);
+        }
+    }
+
+    protected void receiveMessage(Serializable data, int size) {
+        String className = data.getClass().getName();
+        log.debug("Received message: {}: {} ({} bytes)", data.getClass(), data, size);
+        MessageStat stat = messagesStat.get(className);
+        if (stat != null) {
+            stat.updateReceived(size);
+        }
+        if (data instanceof ClusterMessagePack) {
+            for (byte[] bytes : ((ClusterMessagePack) data).unpack()) {
+                try {
+                    receiveMessage(deserializeMessage(bytes), bytes.length);
+                } catch (RuntimeException e) {
+                    log.error("Error receiving batched message", e);
+                }
+            }
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        ClusterListener<Serializable> listener = listeners.get(className);
+        if (listener != null) {
+            if (asyncDispatch) {
+                dispatchAsync(className, listener, data, stat);
+            } else {
+                invokeListener(listener, data, stat, System.nanoTime());
+            }
+        }
+    }
+
+    /**
+     * Passes the message to the listener in the executor dedicated to the message class, so a slow listener does
+     * not delay messages of other classes. Messages of the same class are processed in the order of receiving.
+     */
+    protected void dispatchAsync(String className, ClusterListener<Serializable> listener, Serializable data,
+                                 @Nullable MessageStat stat) {
+        ThreadPoolExecutor dispatchExecutor = dispatchExecutors.computeIfAbsent(className, this::createDispatchExecutor);
+        long queuedAt = System.nanoTime();
+        dispatchExecutor.execute(() -> {
+            try {
+                invokeListener(listener, data, stat, queuedAt);
+            } catch (Exception e) {
+                log.error("Error processing cluster message: {}: {}", data.getClass(), data, e);
+            }
+        });
+    }
+
+    protected ThreadPoolExecutor createDispatchExecutor(String className) {
+        String simpleClassName = className.substring(className.lastIndexOf('.') + 1);
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(clusterConfig.getMessageDispatchQueueCapacity()),
+                new ThreadFactoryBuilder().setNameFormat("ClusterMessageDispatcher-" + simpleClassName + "-%d").build(),
+                (r, executor) -> log.warn("Dispatch queue capacity is exceeded, message of class {} is discarded", className));
+    }
+
+    protected void invokeListener(ClusterListener<Serializable> listener, Serializable data,
+                                  @Nullable MessageStat stat, long queuedAt) {
+        long startedAt = System.nanoTime();
+        try {
+            listener.receive(data);
+        } finally {
+            if (stat != null) {
+                stat.updateProcessed(startedAt - queuedAt, System.nanoTime() - startedAt);
+            }
+        }
+    }
+
     @Override
     public long getSentMessages(String className) {
         Preconditions.checkNotNullArgument(className, "Message class is null");
@@ -402,25 +610,9 @@ public class ClusterManager implements ClusterManagerAPI {
             StopWatch sw = new Slf4JStopWatch();
             String simpleClassName = null;
             try {
-                Serializable data;
-                try {
-                    data = (Serializable) SerializationSupport.deserialize(bytes);
-                } catch (Exception e) {
-                    log.error("Cluster message deserialization error", e);
-                    throw new RuntimeException("Cluster message deserialization error", e);
-                }
-                String className = data.getClass().getName();
+                Serializable data = deserializeMessage(bytes);
                 simpleClassName = data.getClass().getSimpleName();
-                log.debug("Received message: {}: {} ({} bytes)", data.getClass(), data, bytes.length);
-                MessageStat stat = messagesStat.get(className);
-                if (stat != null) {
-                    stat.updateReceived(bytes.length);
-                }
-                @SuppressWarnings("unchecked")
-                ClusterListener<Serializable> listener = listeners.get(className);
-                if (listener != null) {
-                    listener.receive(data);
-                }
+                receiveMessage(data, bytes.length);
             } finally {
                 sw.stop(String.format("receiveClusterMessage(%s)", simpleClassName));
             }
@@ -537,6 +729,11 @@ public class ClusterManager implements ClusterManagerAPI {
         protected LongAdder receivedBytes = new LongAdder();
         protected LongAdder receivedMessages = new LongAdder();
         protected LongAdder sentMessages = new LongAdder();
+        protected LongAdder replacedMessages = new LongAdder();
+        protected volatile String replacedClassName;
+        protected LongAdder processedMessages = new LongAdder();
+        protected LongAdder queueWaitNanos = new LongAdder();
+        protected LongAdder processingNanos = new LongAdder();
 
         public void updateReceived(int bytes) {
             receivedMessages.increment();
@@ -548,10 +745,41 @@ public class ClusterManager implements ClusterManagerAPI {
             sentBytes.add(bytes);
         }
 
+        public void updateReplaced(String className, int messages) {
+            replacedClassName = className;
+            replacedMessages.add(messages);
+        }
+
+        public void updateProcessed(long waitNanos, long processingNanos) {
+            processedMessages.increment();
+            queueWaitNanos.add(waitNanos);
+            this.processingNanos.add(processingNanos);
+        }
+
+        public long getProcessedMessages() {
+            return processedMessages.longValue();
+        }
+
+        public long getQueueWaitNanos() {
+            return queueWaitNanos.longValue();
+        }
+
+        public long getProcessingNanos() {
+            return processingNanos.longValue();
+        }
+
         public long getSentBytes() {
             return sentBytes.longValue();
         }
 
+        public long getReplacedMessages() {
+            return replacedMessages.longValue();
+        }
+
+        public String getReplacedClassName() {
+            return replacedClassName;
+        }
+
         public long getSentMessages() {
             return sentMessages.longValue();
         }
@@ -118,7 +118,7 @@ public interface ClusterManagerAPI {
     String printSharedStateStat();
 
     /**
-     * Sent/received messages statistics
+     * Sent/received messages statistics, including messages saved by sending {@link ClusterMessageBatch}es
      *
      * @return statistics
      */
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.core.app;
+
+import java.io.Serializable;
+
+/**
+ * Interface to be implemented by cluster messages that replace a number of individual messages sent before. Used by
+ * {@link ClusterManagerAPI#printMessagesStat()} to report the number of messages and bytes saved by batching.
+ */
+public interface ClusterMessageBatch {
+
+    /**
+     * @return class of individual messages replaced by this batch
+     */
+    Class<? extends Serializable> getReplacedMessageClass();
+
+    /**
+     * @return number of individual messages replaced by this batch
+     */
+    int getReplacedMessagesCount();
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.app;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Cluster frame containing several serialized messages collected by {@link ClusterManager} during the batching
+ * window. The content is compressed if its size exceeds the configured threshold.
+ *
+ * @see ClusterConfig#getMessageBatchingWindow()
+ */
+public class ClusterMessagePack implements Serializable {
+
+    private static final long serialVersionUID = -3360315632411264532L;
+
+    protected int count;
+
+    protected boolean compressed;
+
+    protected byte[] data;
+
+    /**
+     * Packs the serialized messages into a frame.
+     *
+     * @param messages              serialized messages
+     * @param compressionThreshold  size in bytes above which the content is compressed, 0 to disable compression
+     */
+    public static ClusterMessagePack pack(List<byte[]> messages, int compressionThreshold) {
+        ClusterMessagePack pack = new ClusterMessagePack();
+        pack.count = messages.size();
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                for (byte[] message : messages) {
+                    out.writeInt(message.length);
+                    out.write(message);
+                }
+            }
+            pack.data = bytes.toByteArray();
+
+            if (compressionThreshold > 0 && pack.data.length > compressionThreshold) {
+                ByteArrayOutputStream compressedBytes = new ByteArrayOutputStream(pack.data.length / 2);
+                Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+                try (DeflaterOutputStream out = new DeflaterOutputStream(compressedBytes, deflater)) {
+                    out.write(pack.data);
+                } finally {
+                    deflater.end();
+                }
+                if (compressedBytes.size() < pack.data.length) {
+                    pack.data = compressedBytes.toByteArray();
+                    pack.compressed = true;
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error packing cluster messages", e);
+        }
+        return pack;
+    }
+
+    /**
+     * @return serialized messages contained in this frame, in the order they were sent
+     */
+    public List<byte[]> unpack() {
+        List<byte[]> messages = new ArrayList<>(count);
+        InputStream input = new ByteArrayInputStream(data);
+        if (compressed) {
+            input = new InflaterInputStream(input);
+        }
+        try (DataInputStream in = new DataInputStream(input)) {
+            for (int i = 0; i < count; i++) {
+                byte[] message = new byte[in.readInt()];
+                in.readFully(message);
+                messages.add(message);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error unpacking cluster messages", e);
+        }
+        return messages;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    @Override
+    public String toString() {
+        return "ClusterMessagePack{" +
+                "count=" + count +
+                ", compressed=" + compressed +
+                ", size=" + data.length +
+                '}';
+    }
+}
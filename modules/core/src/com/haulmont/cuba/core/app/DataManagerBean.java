@@ -17,6 +17,7 @@
 
 package com.haulmont.cuba.core.app;
 
+import com.haulmont.bali.util.Preconditions;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.cuba.core.entity.*;
@@ -32,6 +33,7 @@ import javax.inject.Inject;
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Component(DataManager.NAME)
 public class DataManagerBean implements DataManager {
@@ -80,6 +82,20 @@ public class DataManagerBean implements DataManager {
         return entities;
     }
 
+    @Override
+    public <E extends Entity> void forEachChunk(LoadContext<E> context, int chunkSize, Consumer<List<E>> action) {
+        Preconditions.checkNotNullArgument(action, "action is null");
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("chunkSize must be positive");
+
+        MetaClass metaClass = metadata.getClassNN(context.getMetaClass());
+        DataStore storage = storeFactory.get(getStoreName(metaClass));
+        storage.forEachChunk(context, chunkSize, chunk -> {
+            readCrossDataStoreReferences(chunk, context.getView(), metaClass, context.isJoinTransaction());
+            action.accept(chunk);
+        });
+    }
+
     @Override
     public long getCount(LoadContext<? extends Entity> context) {
         MetaClass metaClass = metadata.getClassNN(context.getMetaClass());
@@ -265,6 +281,7 @@ public class DataManagerBean implements DataManager {
         newCtx.setDiscardCommitted(context.isDiscardCommitted());
         newCtx.setAuthorizationRequired(context.isAuthorizationRequired());
         newCtx.setJoinTransaction(context.isJoinTransaction());
+        newCtx.setBulkMode(context.isBulkMode());
         newCtx.setValidationMode(context.getValidationMode());
         newCtx.setValidationGroups(context.getValidationGroups());
         return newCtx;
@@ -398,6 +415,12 @@ public class DataManagerBean implements DataManager {
             return dataManager.loadList(context);
         }
 
+        @Override
+        public <E extends Entity> void forEachChunk(LoadContext<E> context, int chunkSize, Consumer<List<E>> action) {
+            context.setAuthorizationRequired(true);
+            dataManager.forEachChunk(context, chunkSize, action);
+        }
+
         @Override
         public List<KeyValueEntity> loadValues(ValueLoadContext context) {
             context.setAuthorizationRequired(true);
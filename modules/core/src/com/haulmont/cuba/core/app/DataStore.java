@@ -16,6 +16,7 @@
 
 package com.haulmont.cuba.core.app;
 
+import com.google.common.collect.Lists;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.entity.KeyValueEntity;
 import com.haulmont.cuba.core.global.CommitContext;
@@ -25,6 +26,7 @@ import com.haulmont.cuba.core.global.ValueLoadContext;
 import javax.annotation.Nullable;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Interface defining methods for storing and loading entities in a persistent storage.
@@ -47,6 +49,18 @@ public interface DataStore {
      */
     <E extends Entity> List<E> loadList(LoadContext<E> context);
 
+    /**
+     * Loads collection of entity instances and passes them to the action in chunks.
+     * <p>
+     * The default implementation loads the whole list and then splits it. Implementations supporting database cursors
+     * should keep only one chunk in memory at a time.
+     */
+    default <E extends Entity> void forEachChunk(LoadContext<E> context, int chunkSize, Consumer<List<E>> action) {
+        for (List<E> chunk : Lists.partition(loadList(context), chunkSize)) {
+            action.accept(chunk);
+        }
+    }
+
     /**
      * Returns the number of entity instances for the given query passed in the {@link LoadContext}.
      * @return number of instances in the storage
@@ -67,6 +67,8 @@ public class JpqlQueryBuilder {
     protected boolean previousResults;
     protected UUID sessionId;
     protected int queryKey;
+    protected List<?> previousResultIds;
+    protected int previousResultIdsBatchSize;
 
     protected String resultQuery;
     protected Map<String, Object> resultParameters;
@@ -143,6 +145,19 @@ public class JpqlQueryBuilder {
         return this;
     }
 
+    /**
+     * Restricts the query by the given identifiers of previous query results instead of joining the SYS_QUERY_RESULT
+     * table.
+     *
+     * @param ids       identifiers of previous query results
+     * @param batchSize maximum number of identifiers in a single "in" condition
+     */
+    public JpqlQueryBuilder setPreviousResultIds(List<?> ids, int batchSize) {
+        this.previousResultIds = ids;
+        this.previousResultIdsBatchSize = batchSize;
+        return this;
+    }
+
     public String getResultQueryString() {
         if (resultQuery == null) {
             buildResultQuery();
@@ -257,6 +272,29 @@ public class JpqlQueryBuilder {
 
             this.resultQuery = transformer.getResult();
             this.resultParameters.put("_qr_sessionId", sessionId);
+        } else if (previousResultIds != null) {
+            String primaryKeyName = getPrimaryKeyProperty().getName();
+            Map<String, Object> parameters = new HashMap<>(resultParameters);
+            String where;
+            if (previousResultIds.isEmpty()) {
+                where = String.format("{E}.%s is null", primaryKeyName);
+            } else {
+                List<String> conditions = new ArrayList<>();
+                for (int i = 0; i * previousResultIdsBatchSize < previousResultIds.size(); i++) {
+                    String paramName = "_qr_ids" + i;
+                    int from = i * previousResultIdsBatchSize;
+                    int to = Math.min(from + previousResultIdsBatchSize, previousResultIds.size());
+                    conditions.add(String.format("{E}.%s in :%s", primaryKeyName, paramName));
+                    parameters.put(paramName, previousResultIds.subList(from, to));
+                }
+                where = conditions.size() == 1 ? conditions.get(0) : "(" + String.join(" or ", conditions) + ")";
+            }
+
+            QueryTransformer transformer = queryTransformerFactory.transformer(resultQuery);
+            transformer.addWhere(where);
+
+            this.resultQuery = transformer.getResult();
+            this.resultParameters = parameters;
         }
     }
 
@@ -42,6 +42,8 @@ public class MiddlewareStatisticsAccumulator extends StatisticsAccumulator {
     protected AtomicLong middlewareRequestsCount = new AtomicLong();
     protected AtomicLong cubaScheduledTasksCount = new AtomicLong();
     protected AtomicLong implicitFlushCount = new AtomicLong();
+    protected AtomicLong bulkCommitBatchesCount = new AtomicLong();
+    protected AtomicLong bulkCommitEntitiesCount = new AtomicLong();
 
     protected Parameter dbConnectionPoolNumActive = new Parameter();
     protected Parameter dbConnectionPoolNumIdle = new Parameter();
@@ -82,6 +84,8 @@ public class MiddlewareStatisticsAccumulator extends StatisticsAccumulator {
         middlewareRequestsCount.set(0);
         cubaScheduledTasksCount.set(0);
         implicitFlushCount.set(0);
+        bulkCommitBatchesCount.set(0);
+        bulkCommitEntitiesCount.set(0);
     }
 
     protected String getAppName() {
@@ -112,6 +116,11 @@ public class MiddlewareStatisticsAccumulator extends StatisticsAccumulator {
         implicitFlushCount.incrementAndGet();
     }
 
+    public void incBulkCommitBatchesCount(int batchSize) {
+        bulkCommitBatchesCount.incrementAndGet();
+        bulkCommitEntitiesCount.addAndGet(batchSize);
+    }
+
     public Long getActiveTransactionsCount() {
         return (startedTransactionsCount.get() - committedTransactionsCount.get() - rolledBackTransactionsCount.get());
     }
@@ -140,6 +149,19 @@ public class MiddlewareStatisticsAccumulator extends StatisticsAccumulator {
         return implicitFlushCount.get();
     }
 
+    public Long getBulkCommitBatchesCount() {
+        return bulkCommitBatchesCount.get();
+    }
+
+    public Long getBulkCommitEntitiesCount() {
+        return bulkCommitEntitiesCount.get();
+    }
+
+    public double getAvgBulkCommitBatchSize() {
+        long batches = bulkCommitBatchesCount.get();
+        return batches == 0 ? 0 : (double) bulkCommitEntitiesCount.get() / batches;
+    }
+
     public double getCubaScheduledTasksPerSecond() {
         return getCubaScheduledTasksCount() / ((System.currentTimeMillis() - startTime) / 1000.0);
     }
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.core.app;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.SecurityContext;
+import com.haulmont.cuba.core.sys.events.AppContextStoppedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Executes parts of a data loading operation concurrently, each part in its own transaction and connection.
+ * <p>
+ * The number of threads is defined by {@link ServerConfig#getParallelLoadThreads()} and limits the number of
+ * connections taken by all concurrent loading operations. Parts exceeding it wait in the queue, they are never
+ * executed in the calling thread. The security context of the calling thread is passed to the executing threads.
+ */
+@Component(ParallelLoadExecutor.NAME)
+public class ParallelLoadExecutor {
+
+    public static final String NAME = "cuba_ParallelLoadExecutor";
+
+    @Inject
+    protected ServerConfig serverConfig;
+
+    protected volatile ThreadPoolExecutor executor;
+
+    protected volatile boolean stopped;
+
+    protected ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    int nThreads = serverConfig.getParallelLoadThreads();
+                    executor = new ThreadPoolExecutor(nThreads, nThreads,
+                            0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                            new ThreadFactoryBuilder().setNameFormat("ParallelLoad-%d").setDaemon(true).build());
+                }
+            }
+        }
+        return executor;
+    }
+
+    @EventListener(AppContextStoppedEvent.class)
+    protected void applicationStopped() {
+        stopped = true;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return true if parallel loading is enabled
+     */
+    public boolean isEnabled() {
+        return !stopped && serverConfig.getParallelLoadThreads() > 0;
+    }
+
+    /**
+     * Executes the tasks and returns their results in the same order.
+     *
+     * @throws RuntimeException thrown by any of the tasks; the remaining tasks are cancelled in this case
+     */
+    public <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Parallel loading is disabled");
+        }
+
+        SecurityContext securityContext = AppContext.getSecurityContext();
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        try {
+            for (Callable<T> task : tasks) {
+                futures.add(getExecutor().submit(() -> {
+                    SecurityContext previousContext = AppContext.getSecurityContext();
+                    AppContext.setSecurityContext(securityContext);
+                    try {
+                        return task.call();
+                    } finally {
+                        AppContext.setSecurityContext(previousContext);
+                    }
+                }));
+            }
+
+            List<T> results = new ArrayList<>(tasks.size());
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while loading data", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException("Error loading data", cause);
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+}
@@ -30,8 +30,10 @@ import com.haulmont.cuba.core.app.queryresults.QueryResultsManagerAPI;
 import com.haulmont.cuba.core.entity.*;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.EntityFetcher;
+import com.haulmont.cuba.core.sys.listener.EntityListenerManager;
 import com.haulmont.cuba.core.sys.persistence.DbmsSpecificFactory;
 import com.haulmont.cuba.core.sys.persistence.EntityChangedEventManager;
+import com.haulmont.cuba.core.sys.persistence.PersistenceImplSupport;
 import com.haulmont.cuba.security.entity.ConstraintOperationType;
 import com.haulmont.cuba.security.entity.EntityAttrAccess;
 import com.haulmont.cuba.security.entity.EntityOp;
@@ -46,6 +48,8 @@ import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.persistence.NoResultException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -104,6 +108,18 @@ public class RdbmsStore implements DataStore {
     @Inject
     protected EntityChangedEventManager entityChangedEventManager;
 
+    @Inject
+    protected ParallelLoadExecutor parallelLoadExecutor;
+
+    @Inject
+    protected EntityListenerManager entityListenerManager;
+
+    @Inject
+    protected MiddlewareStatisticsAccumulator statisticsAccumulator;
+
+    @Inject
+    protected PersistenceImplSupport persistenceImplSupport;
+
     protected String storeName;
 
     public RdbmsStore(String storeName) {
@@ -206,6 +222,15 @@ public class RdbmsStore implements DataStore {
 
         List<E> resultList;
         boolean needToApplyInMemoryReadConstraints = needToApplyInMemoryReadConstraints(context);
+        Integer maxIdsBatchSize = getMaxIdsBatchSize();
+
+        List<E> parallelLoadedEntities = null;
+        if (isParallelLoadApplicable(context, metaClass, maxIdsBatchSize, needToApplyInMemoryReadConstraints)) {
+            // loaded before the transaction is started, so the current thread does not hold a connection
+            // while the batches wait for connections
+            parallelLoadedEntities = loadListByParallelBatchesOfIds(context, createRestrictedView(context), maxIdsBatchSize);
+        }
+
         try (Transaction tx = getLoadTransaction(context.isJoinTransaction())) {
             EntityManager em = persistence.getEntityManager(storeName);
             em.setSoftDeletion(context.isSoftDeletion());
@@ -222,9 +247,14 @@ public class RdbmsStore implements DataStore {
             View view = createRestrictedView(context);
 
             List<E> entities;
-            Integer maxIdsBatchSize = DbmsSpecificFactory.getDbmsFeatures(storeName).getMaxIdsBatchSize();
-            if (!context.getIds().isEmpty() && entityHasEmbeddedId(metaClass)) {
-                entities = loadListBySingleIds(context, em, view);
+            if (parallelLoadedEntities != null) {
+                entities = parallelLoadedEntities;
+            } else if (!context.getIds().isEmpty() && entityHasEmbeddedId(metaClass)) {
+                if (getEmbeddedIdProperties(metaClass) != null) {
+                    entities = loadListByBatchesOfEmbeddedIds(context, em, view);
+                } else {
+                    entities = loadListBySingleIds(context, em, view);
+                }
             } else if (!context.getIds().isEmpty() && maxIdsBatchSize != null && context.getIds().size() > maxIdsBatchSize) {
                 entities = loadListByBatchesOfIds(context, em, view, maxIdsBatchSize);
             } else {
@@ -271,6 +301,74 @@ public class RdbmsStore implements DataStore {
         return resultList;
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public <E extends Entity> void forEachChunk(LoadContext<E> context, int chunkSize, Consumer<List<E>> action) {
+        if (log.isDebugEnabled())
+            log.debug("forEachChunk: metaClass=" + context.getMetaClass() + ", view=" + context.getView()
+                    + (context.getPrevQueries().isEmpty() ? "" : ", from selected")
+                    + ", query=" + context.getQuery() + ", chunkSize=" + chunkSize);
+
+        MetaClass metaClass = metadata.getClassNN(context.getMetaClass());
+
+        if (isAuthorizationRequired(context) && !isEntityOpPermitted(metaClass, EntityOp.READ)) {
+            log.debug("reading of {} not permitted, returning nothing", metaClass);
+            return;
+        }
+
+        if (!context.getIds().isEmpty()) {
+            // the number of instances is already limited by the list of ids
+            for (List<E> chunk : Lists.partition(loadList(context), chunkSize)) {
+                action.accept(chunk);
+            }
+            return;
+        }
+
+        queryResultsManager.savePreviousQueryResults(context);
+
+        boolean needToApplyInMemoryReadConstraints = needToApplyInMemoryReadConstraints(context);
+        try (Transaction tx = getLoadTransaction(context.isJoinTransaction())) {
+            EntityManager em = persistence.getEntityManager(storeName);
+            em.setSoftDeletion(context.isSoftDeletion());
+
+            View view = createRestrictedView(context);
+            Query query = createQuery(em, context, false, false);
+            query.setView(view);
+
+            query.forEachChunk(chunkSize, list -> {
+                List<E> chunk = (List<E>) list;
+
+                if (!chunk.isEmpty() && chunk.get(0) instanceof BaseGenericIdEntity && context.isLoadDynamicAttributes()) {
+                    dynamicAttributesManagerAPI.fetchDynamicAttributes((List<BaseGenericIdEntity>) chunk,
+                            collectEntityClassesWithDynamicAttributes(context.getView()));
+                }
+
+                if (needToApplyInMemoryReadConstraints) {
+                    security.calculateFilteredData((Collection<Entity>) chunk);
+                }
+
+                attributeSecurity.onLoad(chunk, view);
+
+                // release processed instances from the persistence context to keep memory consumption constant
+                for (E entity : chunk) {
+                    detachEntity(em, entity, view);
+                }
+
+                if (needToApplyInMemoryReadConstraints) {
+                    security.applyConstraints((Collection<Entity>) chunk);
+                }
+
+                if (isAuthorizationRequired(context)) {
+                    attributeSecurity.afterLoad(chunk);
+                }
+
+                action.accept(chunk);
+            });
+
+            tx.commit();
+        }
+    }
+
     protected boolean entityHasEmbeddedId(MetaClass metaClass) {
         MetaProperty pkProperty = metadataTools.getPrimaryKeyProperty(metaClass);
         return pkProperty == null || pkProperty.getRange().isClass();
@@ -322,6 +420,144 @@ public class RdbmsStore implements DataStore {
         return entities;
     }
 
+    /**
+     * @return maximum number of identifiers in a single query, or null if it is not limited
+     */
+    @Nullable
+    protected Integer getMaxIdsBatchSize() {
+        Integer maxIdsBatchSize = DbmsSpecificFactory.getDbmsFeatures(storeName).getMaxIdsBatchSize();
+        int configuredBatchSize = serverConfig.getLoadByIdsBatchSize();
+        if (configuredBatchSize > 0) {
+            return maxIdsBatchSize != null ? Math.min(maxIdsBatchSize, configuredBatchSize) : configuredBatchSize;
+        }
+        return maxIdsBatchSize;
+    }
+
+    /**
+     * Entities loaded in parallel are detached when their transactions end, so parallel loading is not used if the
+     * entities must stay in the current transaction or be processed by in-memory constraints. It is not used inside
+     * an active transaction either, because the transaction holds a connection while the batches need their own.
+     */
+    protected boolean isParallelLoadApplicable(LoadContext<?> context, MetaClass metaClass,
+                                               @Nullable Integer maxIdsBatchSize,
+                                               boolean needToApplyInMemoryReadConstraints) {
+        return !context.getIds().isEmpty()
+                && maxIdsBatchSize != null
+                && context.getIds().size() > maxIdsBatchSize
+                && !entityHasEmbeddedId(metaClass)
+                && !context.isJoinTransaction()
+                && !needToApplyInMemoryReadConstraints
+                && !persistence.isInTransaction()
+                && parallelLoadExecutor.isEnabled();
+    }
+
+    @SuppressWarnings("unchecked")
+    protected <E extends Entity> List<E> loadListByParallelBatchesOfIds(LoadContext<E> context, View view, int batchSize) {
+        List<List<Object>> partitions = Lists.partition((List<Object>) context.getIds(), batchSize);
+
+        List<Callable<List<E>>> tasks = new ArrayList<>(partitions.size());
+        for (List partition : partitions) {
+            LoadContext<E> contextCopy = (LoadContext<E>) context.copy();
+            contextCopy.setIds(partition);
+            tasks.add(() -> loadBatchInNewTransaction(contextCopy, view));
+        }
+
+        List<E> entities = new ArrayList<>(context.getIds().size());
+        for (List<E> list : parallelLoadExecutor.invokeAll(tasks)) {
+            entities.addAll(list);
+        }
+        return entities;
+    }
+
+    protected <E extends Entity> List<E> loadBatchInNewTransaction(LoadContext<E> context, View view) {
+        try (Transaction tx = getLoadTransaction(false)) {
+            EntityManager em = persistence.getEntityManager(storeName);
+            em.setSoftDeletion(context.isSoftDeletion());
+
+            Query query = createQuery(em, context, false, false);
+            query.setView(view);
+            List<E> list = executeQuery(query, false);
+
+            tx.commit();
+            return list;
+        }
+    }
+
+    /**
+     * @return attributes of the embedded primary key if the entity can be loaded by comparing them in a query,
+     * null otherwise
+     */
+    @Nullable
+    protected List<MetaProperty> getEmbeddedIdProperties(MetaClass metaClass) {
+        MetaProperty pkProperty = metadataTools.getPrimaryKeyProperty(metaClass);
+        if (pkProperty == null || !pkProperty.getRange().isClass()) {
+            return null;
+        }
+        List<MetaProperty> properties = new ArrayList<>();
+        for (MetaProperty property : pkProperty.getRange().asClass().getProperties()) {
+            if (metadataTools.isPersistent(property)) {
+                if (!property.getRange().isDatatype() && !property.getRange().isEnum()) {
+                    return null;
+                }
+                properties.add(property);
+            }
+        }
+        return properties.isEmpty() ? null : properties;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected <E extends Entity> List<E> loadListByBatchesOfEmbeddedIds(LoadContext<E> context, EntityManager em, View view) {
+        MetaClass metaClass = metadata.getClassNN(context.getMetaClass());
+        int batchSize = Math.max(serverConfig.getEmbeddedIdsBatchSize(), 1);
+
+        List<E> entities = new ArrayList<>(context.getIds().size());
+        for (List partition : Lists.partition((List<Object>) context.getIds(), batchSize)) {
+            LoadContext<E> contextCopy = (LoadContext<E>) context.copy();
+            contextCopy.setIds(Collections.emptyList());
+            contextCopy.setQuery(createEmbeddedIdsQuery(metaClass, partition));
+
+            Query query = createQuery(em, contextCopy, false, false);
+            query.setView(view);
+            List<E> list = executeQuery(query, false);
+            entities.addAll(list);
+        }
+        return entities;
+    }
+
+    /**
+     * Creates a query selecting entities by a list of embedded ids:
+     * {@code select e from ... e where (e.id.a = :_id0_0 and e.id.b = :_id0_1) or (e.id.a = :_id1_0 and ...)}
+     */
+    protected LoadContext.Query createEmbeddedIdsQuery(MetaClass metaClass, List<?> ids) {
+        MetaProperty pkProperty = metadataTools.getPrimaryKeyProperty(metaClass);
+        List<MetaProperty> idProperties = getEmbeddedIdProperties(metaClass);
+        if (pkProperty == null || idProperties == null) {
+            throw new IllegalStateException("Entity " + metaClass.getName() + " has no suitable embedded id");
+        }
+
+        Map<String, Object> parameters = new HashMap<>();
+        StringBuilder sb = new StringBuilder("select e from ").append(metaClass.getName()).append(" e where ");
+        for (int i = 0; i < ids.size(); i++) {
+            Entity id = (Entity) ids.get(i);
+            if (i > 0) {
+                sb.append(" or ");
+            }
+            sb.append("(");
+            for (int j = 0; j < idProperties.size(); j++) {
+                String propertyName = idProperties.get(j).getName();
+                String paramName = "_id" + i + "_" + j;
+                if (j > 0) {
+                    sb.append(" and ");
+                }
+                sb.append("e.").append(pkProperty.getName()).append(".").append(propertyName)
+                        .append(" = :").append(paramName);
+                parameters.put(paramName, id.getValue(propertyName));
+            }
+            sb.append(")");
+        }
+        return LoadContext.createQuery(sb.toString()).setParameters(parameters);
+    }
+
     @Override
     public long getCount(LoadContext<? extends Entity> context) {
         if (log.isDebugEnabled())
@@ -415,6 +651,10 @@ public class RdbmsStore implements DataStore {
 
             List<BaseGenericIdEntity> entitiesToStoreDynamicAttributes = new ArrayList<>();
 
+            List<Entity> bulkBatch = context.isBulkMode() ? new ArrayList<>() : null;
+            Set<Entity> bulkFlushed = new HashSet<>();
+            int bulkBatchSize = Math.max(serverConfig.getBulkCommitBatchSize(), 1);
+
             // persist new
             for (Entity entity : context.getCommitInstances()) {
                 if (entityStates.isNew(entity)) {
@@ -441,12 +681,26 @@ public class RdbmsStore implements DataStore {
                             entitiesToStoreDynamicAttributes.add((BaseGenericIdEntity) entity);
                         }
                     }
+
+                    if (bulkBatch != null) {
+                        bulkBatch.add(entity);
+                        if (bulkBatch.size() >= bulkBatchSize) {
+                            flushBulkBatch(em, bulkBatch);
+                            bulkFlushed.addAll(bulkBatch);
+                            bulkBatch.clear();
+                        }
+                    }
                 }
             }
+            if (bulkBatch != null && !bulkBatch.isEmpty()) {
+                flushBulkBatch(em, bulkBatch);
+                bulkFlushed.addAll(bulkBatch);
+            }
 
-            // merge the rest - instances can be detached or not
+            // merge the rest - instances can be detached or not; new instances flushed in the bulk mode are
+            // detached too, but they are already saved
             for (Entity entity : context.getCommitInstances()) {
-                if (!entityStates.isNew(entity)) {
+                if (!entityStates.isNew(entity) && !bulkFlushed.contains(entity)) {
                     if (isAuthorizationRequired(context)) {
                         security.assertToken(entity);
                     }
@@ -654,6 +908,26 @@ public class RdbmsStore implements DataStore {
         return entities;
     }
 
+    /**
+     * Flushes a batch of new instances committed in the bulk mode and detaches them, so that the following flushes do
+     * not process them again. The detached instances stay registered with the transaction for query cache invalidation
+     * and transaction listeners.
+     */
+    protected void flushBulkBatch(EntityManager em, List<Entity> batch) {
+        entityListenerManager.fireBulkBeforeInsertListeners(batch, storeName);
+        try {
+            List<EntityChangedEvent> events = entityChangedEventManager.collect(batch);
+            em.flush();
+            for (Entity entity : batch) {
+                persistenceImplSupport.detachFlushed(em, entity);
+            }
+            entityChangedEventManager.publish(events);
+        } finally {
+            entityListenerManager.clearBulkInserts();
+        }
+        statisticsAccumulator.incBulkCommitBatchesCount(batch.size());
+    }
+
     protected View getViewFromContext(CommitContext context, Entity entity) {
         View view = context.getViews().get(entity);
         if (view == null) {
@@ -707,7 +981,7 @@ public class RdbmsStore implements DataStore {
 
         if (!context.getPrevQueries().isEmpty()) {
             log.debug("Restrict query by previous results");
-            queryBuilder.setPreviousResults(userSessionSource.getUserSession().getId(), context.getQueryKey());
+            queryResultsManager.restrictByPreviousResults(queryBuilder, context);
         }
 
         Query query = queryBuilder.getQuery(em);
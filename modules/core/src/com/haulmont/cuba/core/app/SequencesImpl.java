@@ -37,8 +37,12 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Pattern;
@@ -51,6 +55,7 @@ public class SequencesImpl implements Sequences {
 
     protected ReadWriteLock lock = new ReentrantReadWriteLock();
     protected Set<String> existingSequences = ConcurrentHashMap.newKeySet();
+    protected ConcurrentMap<String, LongAdder> roundTrips = new ConcurrentHashMap<>();
 
     protected static final Pattern SEQ_PATTERN = Pattern.compile("[a-zA-Z0-9_]+");
 
@@ -125,6 +130,15 @@ public class SequencesImpl implements Sequences {
         existingSequences.clear();
     }
 
+    /**
+     * @return number of requests of sequence values to the database by sequence names
+     */
+    public Map<String, Long> getRoundTrips() {
+        Map<String, Long> result = new TreeMap<>();
+        roundTrips.forEach((name, count) -> result.put(name, count.sum()));
+        return result;
+    }
+
     protected long getResult(Sequence sequence, String sqlScript) {
         lock.readLock().lock();
         try {
@@ -132,6 +146,7 @@ public class SequencesImpl implements Sequences {
             try {
                 checkSequenceExists(sequence);
                 Object value = executeScript(sequence, sqlScript);
+                roundTrips.computeIfAbsent(sequence.getName(), name -> new LongAdder()).increment();
                 tx.commit();
                 if (value instanceof Long)
                     return (Long) value;
@@ -21,8 +21,14 @@ import com.haulmont.cuba.core.config.Property;
 import com.haulmont.cuba.core.config.Source;
 import com.haulmont.cuba.core.config.SourceType;
 import com.haulmont.cuba.core.config.defaults.*;
+import com.haulmont.cuba.core.config.type.CommaSeparatedStringListStringify;
+import com.haulmont.cuba.core.config.type.CommaSeparatedStringListTypeFactory;
+import com.haulmont.cuba.core.config.type.Factory;
+import com.haulmont.cuba.core.config.type.Stringify;
 import com.haulmont.cuba.security.app.UserSessionsAPI;
 
+import java.util.List;
+
 /**
  * Configuration parameters interface used by the CORE layer.
  */
@@ -102,6 +108,31 @@ public interface ServerConfig extends Config {
     @DefaultInt(1)
     int getUserSessionTouchTimeoutSec();
 
+    /**
+     * If true, {@link UserSessionsAPI} collects refreshed sessions and sends their last used timestamps to the cluster
+     * in a single message periodically (see {@link #getUserSessionBatchPropagationInterval()}) instead of sending
+     * each session separately.
+     */
+    @Property("cuba.userSessionBatchPropagation")
+    @DefaultBoolean(false)
+    boolean getUserSessionBatchPropagation();
+
+    /**
+     * Interval in milliseconds between messages sending the last used timestamps of sessions collected by the
+     * batch propagation, see {@link #getUserSessionBatchPropagation()}. Read by the scheduler on startup.
+     */
+    @Property("cuba.userSessionBatchPropagationInterval")
+    @DefaultLong(1000)
+    long getUserSessionBatchPropagationInterval();
+
+    /**
+     * If true, {@link UserSessionsAPI} keeps sessions in buckets by their expiration time and checks only the
+     * sessions of expired buckets on eviction instead of all sessions in the cache.
+     */
+    @Property("cuba.userSessionExpirationWheel")
+    @DefaultBoolean(false)
+    boolean getUserSessionExpirationWheel();
+
     /**
      * @return DB scripts directory.
      * Does not end with "/"
@@ -131,6 +162,25 @@ public interface ServerConfig extends Config {
     @DefaultBoolean(true)
     boolean getImmutableFileStorage();
 
+    /**
+     * A content-addressed file storage keeps a single copy of equal files and replicates them to secondary
+     * storage directories through a persistent queue. The property is read on startup.
+     *
+     * @return whether {@link FileStorageAPI} stores files by content hash
+     * @see com.haulmont.cuba.core.app.filestorage.ContentAddressedFileStorage
+     */
+    @Property("cuba.contentAddressedFileStorage")
+    @DefaultBoolean(false)
+    boolean getContentAddressedFileStorage();
+
+    /**
+     * @return minimal size of a collection for which in-memory security constraints are evaluated in parallel.
+     * Zero disables parallel evaluation. Constraint scripts must be thread-safe to use it.
+     */
+    @Property("cuba.inMemoryConstraintsParallelThreshold")
+    @DefaultInt(0)
+    int getInMemoryConstraintsParallelThreshold();
+
     /**
      * @return Scheduled tasks execution control.
      */
@@ -324,4 +374,74 @@ public interface ServerConfig extends Config {
      */
     @Property("cuba.disableEntityEnhancementCheck")
     boolean getDisableEntityEnhancementCheck();
-}
\ No newline at end of file
+
+    /**
+     * Data stores for which identifiers of previous query results ("search in results") are kept in memory of the
+     * middleware instead of the SYS_QUERY_RESULT table. Use {@code _MAIN_} for the main data store.
+     */
+    @Property("cuba.queryResults.inMemoryStores")
+    @Source(type = SourceType.DATABASE)
+    @Factory(factory = CommaSeparatedStringListTypeFactory.class)
+    @Stringify(stringify = CommaSeparatedStringListStringify.class)
+    List<String> getQueryResultsInMemoryStores();
+
+    /**
+     * Maximum total number of identifiers of previous query results kept in memory of the middleware.
+     */
+    @Property("cuba.queryResults.inMemoryMaxIds")
+    @DefaultInt(1000000)
+    int getQueryResultsInMemoryMaxIds();
+
+    /**
+     * Maximum number of identifiers of previous query results passed to a query in "in" conditions. If there are more
+     * identifiers kept in memory for the main data store, they are inserted into the SYS_QUERY_RESULT table.
+     */
+    @Property("cuba.queryResults.maxIdsInCondition")
+    @Source(type = SourceType.DATABASE)
+    @DefaultInt(5000)
+    int getQueryResultsMaxIdsInCondition();
+
+    /**
+     * Number of threads used to load partitions of large lists of identifiers concurrently, each in its own
+     * transaction. 0 means the partitions are loaded sequentially in the current transaction.
+     * <p>
+     * Each thread takes a connection from the data source, so the value must be less than the connection pool size.
+     */
+    @Property("cuba.parallelLoadThreads")
+    @DefaultInt(0)
+    int getParallelLoadThreads();
+
+    /**
+     * Maximum number of identifiers loaded by a single query when entities are loaded by a list of identifiers.
+     * 0 means the limit of the database is used.
+     */
+    @Property("cuba.loadByIdsBatchSize")
+    @Source(type = SourceType.DATABASE)
+    @DefaultInt(0)
+    int getLoadByIdsBatchSize();
+
+    /**
+     * Maximum number of composite identifiers of entities with embedded primary keys loaded by a single query.
+     */
+    @Property("cuba.embeddedIdsBatchSize")
+    @Source(type = SourceType.DATABASE)
+    @DefaultInt(100)
+    int getEmbeddedIdsBatchSize();
+
+    /**
+     * Number of new instances flushed to the database at once when committing in the bulk mode.
+     *
+     * @see com.haulmont.cuba.core.global.CommitContext#setBulkMode(boolean)
+     */
+    @Property("cuba.bulkCommitBatchSize")
+    @DefaultInt(1000)
+    int getBulkCommitBatchSize();
+
+    /**
+     * Maximum number of fetch group descriptions calculated for combinations of query strings and views and kept in
+     * memory. 0 means the descriptions are calculated for each query.
+     */
+    @Property("cuba.fetchGroupCacheSize")
+    @DefaultInt(1000)
+    int getFetchGroupCacheSize();
+}
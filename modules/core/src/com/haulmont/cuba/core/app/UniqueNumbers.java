@@ -16,12 +16,19 @@
  */
 package com.haulmont.cuba.core.app;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.haulmont.cuba.core.global.Stores;
+import com.haulmont.cuba.core.sys.SequenceBlockAllocator;
 import org.apache.commons.lang3.StringUtils;
 
 import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Provides unique numbers based on database sequences.
@@ -32,8 +39,18 @@ public class UniqueNumbers implements UniqueNumbersAPI {
     @Inject
     protected Sequences sequences;
 
+    protected ConcurrentMap<String, SequenceBlockAllocator> allocators = new ConcurrentHashMap<>();
+
+    protected ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("UniqueNumbersPrefetch-%d").setDaemon(true).build());
+
     @Override
     public long getNextNumber(String domain) {
+        int blockSize = getBlockSize(domain);
+        if (blockSize > 1) {
+            return allocators.computeIfAbsent(domain, d -> createAllocator(d, blockSize)).next();
+        }
+
         Sequence sequence = Sequence.withName(getSequenceName(domain))
                 .setStore(getDataStore(domain))
                 .setStartValue(1)
@@ -53,6 +70,7 @@ public class UniqueNumbers implements UniqueNumbersAPI {
         Sequence sequence = Sequence.withName(getSequenceName(domain))
                 .setStore(getDataStore(domain));
         sequences.setCurrentValue(sequence, value);
+        allocators.remove(domain);
     }
 
     @Override
@@ -60,6 +78,40 @@ public class UniqueNumbers implements UniqueNumbersAPI {
         Sequence sequence = Sequence.withName(getSequenceName(domain))
                 .setStore(getDataStore(domain));
         sequences.deleteSequence(sequence);
+        allocators.remove(domain);
+    }
+
+    /**
+     * @return allocators of domains using blocks of numbers, used for statistics
+     */
+    public Collection<SequenceBlockAllocator> getAllocators() {
+        return allocators.values();
+    }
+
+    protected SequenceBlockAllocator createAllocator(String domain, int blockSize) {
+        Sequence sequence = Sequence.withName(getSequenceName(domain))
+                .setStore(getDataStore(domain))
+                .setStartValue(0)
+                .setIncrement(blockSize);
+        return new SequenceBlockAllocator(sequence.getName(), blockSize,
+                SequenceBlockAllocator.DEFAULT_PREFETCH_THRESHOLD,
+                () -> sequences.createNextValue(sequence),
+                prefetchExecutor);
+    }
+
+    /**
+     * Override this method if you want to hand out numbers of a particular domain from blocks reserved in the
+     * database instead of requesting the database for each number. The numbers are unique but can be not sequential
+     * across middleware nodes and restarts.
+     * <p>
+     * The sequence of the domain is created with the increment equal to the block size, so the block mode should be
+     * enabled only for domains whose sequences do not exist yet.
+     *
+     * @param domain    sequence identifier passed to the interface methods
+     * @return          number of values in a block, 0 or 1 to request the database for each number (default)
+     */
+    protected int getBlockSize(String domain) {
+        return 0;
     }
 
     /**
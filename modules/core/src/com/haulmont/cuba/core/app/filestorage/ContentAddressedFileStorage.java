@@ -0,0 +1,501 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.app.filestorage;
+
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.haulmont.cuba.core.app.FileStorageAPI;
+import com.haulmont.cuba.core.app.ServerConfig;
+import com.haulmont.cuba.core.entity.FileDescriptor;
+import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.sys.ConditionalOnAppProperty;
+import com.haulmont.cuba.security.global.UserSession;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
+import static com.haulmont.bali.util.Preconditions.checkNotNullArgument;
+
+/**
+ * {@link FileStorageAPI} implementation which stores files in the local file system by the SHA-256 hash of their
+ * content, so equal files uploaded many times occupy the space once. Enabled by the
+ * {@code cuba.contentAddressedFileStorage} application property.
+ * <p>
+ * Layout of a storage directory:
+ * <ul>
+ *     <li>{@code blobs/ab/cd/<hash>} - file content</li>
+ *     <li>{@code blobs/ab/cd/<hash>.refs/<fileId>} - references to the content; the content is removed together
+ *     with the last reference</li>
+ *     <li>{@code refs/<fileId prefix>/<fileId>} - hash of the file denoted by a {@link FileDescriptor}</li>
+ *     <li>{@code replication/*.task} - pending replication of the primary directory to the secondary ones
+ *     (primary directory only). The tasks are processed in order and are retried after restart.</li>
+ *     <li>{@code storage.log} - operation log</li>
+ * </ul>
+ */
+@Component(FileStorageAPI.NAME)
+@ConditionalOnAppProperty(property = "cuba.contentAddressedFileStorage", value = "true")
+public class ContentAddressedFileStorage implements FileStorageAPI {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentAddressedFileStorage.class);
+
+    protected static final String HASH_ALGORITHM = "SHA-256";
+
+    protected static final String COPY_TASK = "COPY";
+    protected static final String REMOVE_TASK = "REMOVE";
+
+    @Inject
+    protected UserSessionSource userSessionSource;
+
+    @Inject
+    protected TimeSource timeSource;
+
+    @Inject
+    protected Configuration configuration;
+
+    protected boolean isImmutableFileStorage;
+
+    protected volatile File[] storageRoots;
+
+    protected Striped<Lock> contentLocks = Striped.lock(64);
+
+    protected Map<File, FileStorageLog> logs = new ConcurrentHashMap<>();
+
+    protected AtomicLong taskCounter = new AtomicLong();
+
+    protected ScheduledExecutorService replicationExecutor;
+
+    protected ScheduledExecutorService logExecutor;
+
+    protected long replicationRetryInterval = 10000;
+
+    protected long logFlushInterval = 500;
+
+    @PostConstruct
+    public void init() {
+        this.isImmutableFileStorage = configuration.getConfig(ServerConfig.class).getImmutableFileStorage();
+
+        replicationExecutor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("FileStorageReplicator-%d").build());
+        replicationExecutor.scheduleWithFixedDelay(this::processReplicationQueue,
+                0, replicationRetryInterval, TimeUnit.MILLISECONDS);
+
+        logExecutor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("FileStorageLogWriter-%d").setDaemon(true).build());
+        logExecutor.scheduleWithFixedDelay(this::flushLogs, logFlushInterval, logFlushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * INTERNAL. Don't use in application code.
+     */
+    public File[] getStorageRoots() {
+        if (storageRoots == null) {
+            String conf = configuration.getConfig(ServerConfig.class).getFileStorageDir();
+            if (StringUtils.isBlank(conf)) {
+                String dataDir = configuration.getConfig(GlobalConfig.class).getDataDir();
+                File dir = new File(dataDir, "filestorage");
+                dir.mkdirs();
+                storageRoots = new File[]{dir};
+            } else {
+                List<File> list = new ArrayList<>();
+                for (String str : conf.split(",")) {
+                    str = str.trim();
+                    if (!StringUtils.isEmpty(str)) {
+                        File file = new File(str);
+                        if (!list.contains(file))
+                            list.add(file);
+                    }
+                }
+                storageRoots = list.toArray(new File[list.size()]);
+            }
+        }
+        return storageRoots;
+    }
+
+    @Override
+    public long saveStream(FileDescriptor fileDescr, InputStream inputStream) throws FileStorageException {
+        checkFileDescriptor(fileDescr);
+
+        File[] roots = getStorageRoots();
+        checkStorageDefined(roots, fileDescr);
+        checkPrimaryStorageAccessible(roots, fileDescr);
+
+        File root = roots[0];
+        File refFile = getRefFile(root, fileDescr.getId());
+        if (refFile.exists() && isImmutableFileStorage)
+            throw new FileStorageException(FileStorageException.Type.FILE_ALREADY_EXISTS, refFile.getAbsolutePath());
+
+        File tempFile = null;
+        try {
+            tempFile = createTempFile(root);
+            MessageDigest digest = createDigest();
+            long size;
+            try (OutputStream os = new DigestOutputStream(FileUtils.openOutputStream(tempFile), digest)) {
+                size = IOUtils.copyLarge(inputStream, os);
+            }
+            String hash = Hex.encodeHexString(digest.digest());
+
+            if (refFile.exists()) {
+                removeReference(root, fileDescr.getId());
+            }
+            addReference(root, fileDescr.getId(), hash, tempFile, true);
+
+            if (roots.length > 1) {
+                enqueueReplication(root, COPY_TASK, fileDescr.getId(), hash);
+            }
+            return size;
+        } catch (IOException e) {
+            throw new FileStorageException(FileStorageException.Type.IO_EXCEPTION, refFile.getAbsolutePath(), e);
+        } finally {
+            FileUtils.deleteQuietly(tempFile);
+        }
+    }
+
+    @Override
+    public void saveFile(FileDescriptor fileDescr, byte[] data) throws FileStorageException {
+        checkNotNullArgument(data, "File content is null");
+        saveStream(fileDescr, new ByteArrayInputStream(data));
+    }
+
+    @Override
+    public void removeFile(FileDescriptor fileDescr) throws FileStorageException {
+        checkFileDescriptor(fileDescr);
+
+        File[] roots = getStorageRoots();
+        if (roots.length == 0) {
+            log.error("No storage directories defined");
+            return;
+        }
+
+        try {
+            removeReference(roots[0], fileDescr.getId());
+            if (roots.length > 1) {
+                enqueueReplication(roots[0], REMOVE_TASK, fileDescr.getId(), "");
+            }
+        } catch (IOException e) {
+            throw new FileStorageException(FileStorageException.Type.IO_EXCEPTION,
+                    "Unable to delete file " + fileDescr.getId(), e);
+        }
+    }
+
+    @Override
+    public InputStream openStream(FileDescriptor fileDescr) throws FileStorageException {
+        File file = findFile(fileDescr);
+        if (file == null)
+            throw new FileStorageException(FileStorageException.Type.FILE_NOT_FOUND, fileDescr.getId().toString());
+        try {
+            return FileUtils.openInputStream(file);
+        } catch (IOException e) {
+            log.error("Error opening input stream for " + file, e);
+            throw new FileStorageException(FileStorageException.Type.FILE_NOT_FOUND, fileDescr.getId().toString());
+        }
+    }
+
+    @Override
+    public byte[] loadFile(FileDescriptor fileDescr) throws FileStorageException {
+        InputStream inputStream = openStream(fileDescr);
+        try {
+            return IOUtils.toByteArray(inputStream);
+        } catch (IOException e) {
+            throw new FileStorageException(FileStorageException.Type.IO_EXCEPTION, fileDescr.getId().toString(), e);
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+    }
+
+    @Override
+    public boolean fileExists(FileDescriptor fileDescr) {
+        return findFile(fileDescr) != null;
+    }
+
+    /**
+     * INTERNAL. Returns the content of the file denoted by the file descriptor in the first storage directory
+     * containing it, or null if the file doesn't exist.
+     */
+    @Nullable
+    public File findFile(FileDescriptor fileDescr) {
+        checkFileDescriptor(fileDescr);
+
+        for (File root : getStorageRoots()) {
+            File refFile = getRefFile(root, fileDescr.getId());
+            if (!refFile.exists())
+                continue;
+            try {
+                File blobFile = getBlobFile(root, readHash(refFile));
+                if (blobFile.exists())
+                    return blobFile;
+                log.error("File {} referenced by {} not found", blobFile, refFile);
+            } catch (IOException e) {
+                log.error("Error reading " + refFile, e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return number of files referencing the same content as the given file in the primary storage directory
+     */
+    public int getReferencesCount(FileDescriptor fileDescr) throws FileStorageException {
+        File blobFile = findFile(fileDescr);
+        if (blobFile == null)
+            throw new FileStorageException(FileStorageException.Type.FILE_NOT_FOUND, fileDescr.getId().toString());
+        String[] refs = getRefsDir(blobFile).list();
+        return refs != null ? refs.length : 0;
+    }
+
+    /**
+     * Stores the reference to the content in the storage directory. If the directory doesn't contain the content
+     * yet, it is moved or copied from the source file.
+     */
+    protected void addReference(File root, UUID fileId, String hash, File source, boolean moveSource)
+            throws IOException {
+        File blobFile = getBlobFile(root, hash);
+        Lock lock = contentLocks.get(hash);
+        lock.lock();
+        try {
+            if (!blobFile.exists()) {
+                FileUtils.forceMkdir(blobFile.getParentFile());
+                File tempFile = source;
+                if (!moveSource) {
+                    tempFile = createTempFile(root);
+                    FileUtils.copyFile(source, tempFile, true);
+                }
+                try {
+                    Files.move(tempFile.toPath(), blobFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    if (!moveSource) {
+                        FileUtils.deleteQuietly(tempFile);
+                    }
+                }
+                writeLog(root, blobFile, false);
+            }
+            File refsDir = getRefsDir(blobFile);
+            FileUtils.forceMkdir(refsDir);
+            new File(refsDir, fileId.toString()).createNewFile();
+        } finally {
+            lock.unlock();
+        }
+
+        File refFile = getRefFile(root, fileId);
+        FileUtils.writeStringToFile(refFile, hash, StandardCharsets.UTF_8);
+        writeLog(root, refFile, false);
+    }
+
+    /**
+     * Removes the reference to the content from the storage directory. The content is removed if it is not
+     * referenced anymore.
+     */
+    protected void removeReference(File root, UUID fileId) throws IOException {
+        File refFile = getRefFile(root, fileId);
+        if (!refFile.exists())
+            return;
+
+        String hash = readHash(refFile);
+        Files.delete(refFile.toPath());
+        writeLog(root, refFile, true);
+
+        File blobFile = getBlobFile(root, hash);
+        Lock lock = contentLocks.get(hash);
+        lock.lock();
+        try {
+            File refsDir = getRefsDir(blobFile);
+            new File(refsDir, fileId.toString()).delete();
+            String[] refs = refsDir.list();
+            if (refs == null || refs.length == 0) {
+                refsDir.delete();
+                if (blobFile.delete()) {
+                    writeLog(root, blobFile, true);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Persists a replication task in the primary storage directory and schedules its processing.
+     */
+    protected void enqueueReplication(File primaryRoot, String operation, UUID fileId, String hash)
+            throws IOException {
+        File dir = new File(primaryRoot, "replication");
+        FileUtils.forceMkdir(dir);
+        String name = String.format("%013d-%09d", timeSource.currentTimeMillis(), taskCounter.incrementAndGet());
+        File tempFile = new File(dir, name + ".tmp");
+        FileUtils.writeStringToFile(tempFile, operation + " " + fileId + " " + hash, StandardCharsets.UTF_8);
+        Files.move(tempFile.toPath(), new File(dir, name + ".task").toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+        replicationExecutor.execute(this::processReplicationQueue);
+    }
+
+    /**
+     * Processes the pending replication tasks in order. Stops on the first failure; the failed task is retried
+     * on the next run.
+     */
+    protected void processReplicationQueue() {
+        File[] roots = getStorageRoots();
+        if (roots.length == 0)
+            return;
+
+        File[] tasks = new File(roots[0], "replication").listFiles((dir, name) -> name.endsWith(".task"));
+        if (tasks == null || tasks.length == 0)
+            return;
+        Arrays.sort(tasks);
+
+        for (File task : tasks) {
+            try {
+                String[] parts = FileUtils.readFileToString(task, StandardCharsets.UTF_8).trim().split(" ");
+                replicate(roots, parts[0], UUID.fromString(parts[1]), parts.length > 2 ? parts[2] : null);
+                Files.delete(task.toPath());
+            } catch (Exception e) {
+                log.warn("Unable to replicate {}, will retry in {} ms: {}", task, replicationRetryInterval, e.toString());
+                break;
+            }
+        }
+    }
+
+    protected void replicate(File[] roots, String operation, UUID fileId, @Nullable String hash) throws IOException {
+        File source = hash != null ? getBlobFile(roots[0], hash) : null;
+        if (COPY_TASK.equals(operation) && (source == null || !source.exists())) {
+            // removed from the primary storage before replication, the removal task follows
+            return;
+        }
+        for (int i = 1; i < roots.length; i++) {
+            if (!roots[i].exists()) {
+                log.error("Error replicating {} into {} : directory doesn't exist", fileId, roots[i]);
+                continue;
+            }
+            if (COPY_TASK.equals(operation)) {
+                File refFile = getRefFile(roots[i], fileId);
+                if (refFile.exists() && !hash.equals(readHash(refFile))) {
+                    removeReference(roots[i], fileId);
+                }
+                addReference(roots[i], fileId, hash, source, false);
+            } else if (REMOVE_TASK.equals(operation)) {
+                removeReference(roots[i], fileId);
+            }
+        }
+    }
+
+    protected void writeLog(File root, File file, boolean remove) {
+        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(df.format(timeSource.currentTimestamp())).append(" ");
+
+        if (userSessionSource.checkCurrentUserSession()) {
+            UserSession userSession = userSessionSource.getUserSession();
+            sb.append("[").append(userSession.getUser().getLogin())
+                    .append("--").append(userSession.getUser().getId()).append("] ");
+        } else {
+            sb.append("[system] ");
+        }
+        sb.append(remove ? "REMOVE" : "CREATE").append(" ");
+        sb.append("\"").append(file.getAbsolutePath()).append("\"");
+
+        logs.computeIfAbsent(root, r -> new FileStorageLog(new File(r, "storage.log"))).append(sb.toString());
+    }
+
+    protected void flushLogs() {
+        for (FileStorageLog storageLog : logs.values()) {
+            storageLog.flush();
+        }
+    }
+
+    protected File getBlobFile(File root, String hash) {
+        return new File(root, "blobs/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash);
+    }
+
+    protected File getRefsDir(File blobFile) {
+        return new File(blobFile.getParentFile(), blobFile.getName() + ".refs");
+    }
+
+    protected File getRefFile(File root, UUID fileId) {
+        String id = fileId.toString();
+        return new File(root, "refs/" + id.substring(0, 2) + "/" + id);
+    }
+
+    protected String readHash(File refFile) throws IOException {
+        return FileUtils.readFileToString(refFile, StandardCharsets.UTF_8).trim();
+    }
+
+    protected File createTempFile(File root) throws IOException {
+        File dir = new File(root, "tmp");
+        FileUtils.forceMkdir(dir);
+        return File.createTempFile("upload", ".tmp", dir);
+    }
+
+    protected MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Unable to create message digest", e);
+        }
+    }
+
+    protected void checkFileDescriptor(FileDescriptor fd) {
+        if (fd == null || fd.getId() == null) {
+            throw new IllegalArgumentException("A FileDescriptor instance with populated 'id' attribute must be provided");
+        }
+    }
+
+    protected void checkPrimaryStorageAccessible(File[] roots, FileDescriptor fileDescr) throws FileStorageException {
+        if (!roots[0].exists()) {
+            log.error("Inaccessible primary storage at {}", roots[0]);
+            throw new FileStorageException(FileStorageException.Type.STORAGE_INACCESSIBLE, fileDescr.getId().toString());
+        }
+    }
+
+    protected void checkStorageDefined(File[] roots, FileDescriptor fileDescr) throws FileStorageException {
+        if (roots.length == 0) {
+            log.error("No storage directories defined");
+            throw new FileStorageException(FileStorageException.Type.STORAGE_INACCESSIBLE, fileDescr.getId().toString());
+        }
+    }
+
+    @PreDestroy
+    protected void stop() {
+        replicationExecutor.shutdown();
+        logExecutor.shutdown();
+        for (FileStorageLog storageLog : logs.values()) {
+            storageLog.close();
+        }
+    }
+}
@@ -22,6 +22,7 @@ import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.entity.FileDescriptor;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.ConditionalOnAppProperty;
 import com.haulmont.cuba.core.sys.SecurityContext;
 import com.haulmont.cuba.security.global.UserSession;
 import org.apache.commons.io.FileUtils;
@@ -31,6 +32,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
@@ -46,6 +48,7 @@ import java.util.concurrent.Executors;
 import static com.haulmont.bali.util.Preconditions.checkNotNullArgument;
 
 @Component(FileStorageAPI.NAME)
+@ConditionalOnAppProperty(property = "cuba.contentAddressedFileStorage", value = "false", defaultValue = "false")
 public class FileStorage implements FileStorageAPI {
 
     private static final Logger log = LoggerFactory.getLogger(FileStorage.class);
@@ -301,6 +304,15 @@ public class FileStorage implements FileStorageAPI {
 
     @Override
     public boolean fileExists(FileDescriptor fileDescr) {
+        return findFile(fileDescr) != null;
+    }
+
+    /**
+     * INTERNAL. Returns the file denoted by the file descriptor in the first storage root containing it, or null
+     * if the file doesn't exist. Used to transfer the file content without copying it through the heap.
+     */
+    @Nullable
+    public File findFile(FileDescriptor fileDescr) {
         checkFileDescriptor(fileDescr);
 
         File[] roots = getStorageRoots();
@@ -308,10 +320,10 @@ public class FileStorage implements FileStorageAPI {
             File dir = getStorageDir(root, fileDescr);
             File file = new File(dir, getFileName(fileDescr));
             if (file.exists()) {
-                return true;
+                return file;
             }
         }
-        return false;
+        return null;
     }
 
     /**
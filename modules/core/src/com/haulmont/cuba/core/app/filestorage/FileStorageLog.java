@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.app.filestorage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Operation log of a file storage directory ({@code storage.log}).
+ * <p>
+ * Writing threads only add lines to a non-blocking queue; the lines are written by {@link #flush()} invoked
+ * periodically by a single thread, through a writer which is kept open between flushes.
+ */
+public class FileStorageLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(FileStorageLog.class);
+
+    protected final File logFile;
+
+    protected final Queue<String> pendingLines = new ConcurrentLinkedQueue<>();
+
+    protected Writer writer;
+
+    public FileStorageLog(File logFile) {
+        this.logFile = logFile;
+    }
+
+    /**
+     * Adds a line to the log. Doesn't block and doesn't perform I/O.
+     */
+    public void append(String line) {
+        pendingLines.add(line);
+    }
+
+    /**
+     * Writes the lines appended since the previous flush.
+     */
+    public synchronized void flush() {
+        if (pendingLines.isEmpty()) {
+            return;
+        }
+        try {
+            if (writer == null) {
+                writer = new BufferedWriter(new OutputStreamWriter(
+                        new FileOutputStream(logFile, true), StandardCharsets.UTF_8));
+            }
+            String line;
+            while ((line = pendingLines.poll()) != null) {
+                writer.write(line);
+                writer.write('\n');
+            }
+            writer.flush();
+        } catch (IOException e) {
+            log.error("Unable to write log {}", logFile, e);
+            closeWriter();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        flush();
+        closeWriter();
+    }
+
+    protected void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.warn("Unable to close log {}", logFile, e);
+            }
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.core.app.queryresults;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.haulmont.cuba.core.app.ServerConfig;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Keeps identifiers of previous query results in memory of the middleware node for the data stores listed in
+ * {@link ServerConfig#getQueryResultsInMemoryStores()}.
+ * <p>
+ * The total number of kept identifiers is bounded by {@link ServerConfig#getQueryResultsInMemoryMaxIds()}; the least
+ * recently used results are discarded first and loaded again by {@link QueryResultsManager} when needed.
+ */
+@Component(InMemoryQueryResults.NAME)
+public class InMemoryQueryResults {
+
+    public static final String NAME = "cuba_InMemoryQueryResults";
+
+    @Inject
+    protected ServerConfig serverConfig;
+
+    protected Cache<Key, Entry> cache;
+
+    @PostConstruct
+    protected void init() {
+        cache = CacheBuilder.newBuilder()
+                .maximumWeight(serverConfig.getQueryResultsInMemoryMaxIds())
+                .weigher((Key key, Entry entry) -> 1 + entry.getIds().size())
+                .build();
+    }
+
+    @Nullable
+    public Entry get(UUID sessionId, int queryKey) {
+        return cache.getIfPresent(new Key(sessionId, queryKey));
+    }
+
+    /**
+     * Saves identifiers of query results replacing the previously saved ones.
+     *
+     * @return false if the identifiers are not saved because their number exceeds the maximum
+     */
+    public boolean put(UUID sessionId, int queryKey, Entry entry) {
+        Key key = new Key(sessionId, queryKey);
+        if (entry.getIds().size() >= serverConfig.getQueryResultsInMemoryMaxIds()) {
+            cache.invalidate(key);
+            return false;
+        }
+        cache.put(key, entry);
+        return true;
+    }
+
+    public void remove(UUID sessionId, int queryKey) {
+        cache.invalidate(new Key(sessionId, queryKey));
+    }
+
+    public void removeForSession(UUID sessionId) {
+        cache.asMap().keySet().removeIf(key -> key.sessionId.equals(sessionId));
+    }
+
+    public void removeForInactiveSessions(Set<UUID> activeSessionIds) {
+        cache.asMap().keySet().removeIf(key -> !activeSessionIds.contains(key.sessionId));
+    }
+
+    /**
+     * @return number of saved query results
+     */
+    public long getSize() {
+        return cache.size();
+    }
+
+    /**
+     * @return total number of saved identifiers
+     */
+    public long getIdsCount() {
+        return cache.asMap().values().stream()
+                .mapToLong(entry -> entry.getIds().size())
+                .sum();
+    }
+
+    public static class Entry {
+        protected final QueryResultIds ids;
+        protected volatile boolean savedToDatabase;
+
+        public Entry(QueryResultIds ids) {
+            this.ids = ids;
+        }
+
+        /**
+         * @return entry without identifiers, marking the results which are kept in SYS_QUERY_RESULT table only
+         */
+        public static Entry savedToDatabase() {
+            Entry entry = new Entry(QueryResultIds.of(Collections.emptyList()));
+            entry.savedToDatabase = true;
+            return entry;
+        }
+
+        public QueryResultIds getIds() {
+            return ids;
+        }
+
+        /**
+         * @return true if the identifiers are also inserted into SYS_QUERY_RESULT table
+         */
+        public boolean isSavedToDatabase() {
+            return savedToDatabase;
+        }
+
+        public void setSavedToDatabase(boolean savedToDatabase) {
+            this.savedToDatabase = savedToDatabase;
+        }
+    }
+
+    protected static class Key {
+        protected final UUID sessionId;
+        protected final int queryKey;
+
+        public Key(UUID sessionId, int queryKey) {
+            this.sessionId = sessionId;
+            this.queryKey = queryKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return queryKey == key.queryKey && sessionId.equals(key.sessionId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sessionId, queryKey);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.core.app.queryresults;
+
+import java.util.*;
+
+/**
+ * Compact immutable set of identifiers of query results.
+ * <p>
+ * Identifiers are kept in sorted primitive arrays: two {@code long} arrays for UUIDs, a {@code long} array for
+ * integer and long identifiers, and a sorted array for strings.
+ */
+public abstract class QueryResultIds {
+
+    /**
+     * Creates the set from identifiers of the same type.
+     *
+     * @param ids list of UUID, Long, Integer or String identifiers
+     * @throws IllegalArgumentException if the identifiers are of unsupported type
+     */
+    public static QueryResultIds of(List<?> ids) {
+        if (ids.isEmpty()) {
+            return new LongIds(new long[0], Long.class);
+        }
+        Object first = ids.get(0);
+        if (first instanceof UUID) {
+            return UuidIds.create(ids);
+        } else if (first instanceof Long || first instanceof Integer) {
+            return LongIds.create(ids, first.getClass());
+        } else if (first instanceof String) {
+            return StringIds.create(ids);
+        }
+        throw new IllegalArgumentException("Unsupported identifier type: " + first.getClass());
+    }
+
+    /**
+     * @return number of identifiers in the set
+     */
+    public abstract int size();
+
+    /**
+     * @return true if the set contains the identifier
+     */
+    public abstract boolean contains(Object id);
+
+    /**
+     * @return identifiers from {@code fromIndex}, inclusive, to {@code toIndex}, exclusive, in the sorted order
+     */
+    public abstract List<Object> getIds(int fromIndex, int toIndex);
+
+    /**
+     * @return all identifiers in the sorted order
+     */
+    public List<Object> getIds() {
+        return getIds(0, size());
+    }
+
+    /**
+     * @return approximate memory footprint in bytes
+     */
+    public abstract long getMemorySize();
+
+    protected static class UuidIds extends QueryResultIds {
+        protected final long[] mostSigBits;
+        protected final long[] leastSigBits;
+
+        protected static UuidIds create(List<?> ids) {
+            UUID[] uuids = new UUID[ids.size()];
+            for (int i = 0; i < uuids.length; i++) {
+                uuids[i] = (UUID) ids.get(i);
+            }
+            Arrays.sort(uuids);
+            int size = 0;
+            long[] mostSigBits = new long[uuids.length];
+            long[] leastSigBits = new long[uuids.length];
+            for (UUID uuid : uuids) {
+                if (size > 0 && mostSigBits[size - 1] == uuid.getMostSignificantBits()
+                        && leastSigBits[size - 1] == uuid.getLeastSignificantBits()) {
+                    continue;
+                }
+                mostSigBits[size] = uuid.getMostSignificantBits();
+                leastSigBits[size] = uuid.getLeastSignificantBits();
+                size++;
+            }
+            return new UuidIds(Arrays.copyOf(mostSigBits, size), Arrays.copyOf(leastSigBits, size));
+        }
+
+        protected UuidIds(long[] mostSigBits, long[] leastSigBits) {
+            this.mostSigBits = mostSigBits;
+            this.leastSigBits = leastSigBits;
+        }
+
+        @Override
+        public int size() {
+            return mostSigBits.length;
+        }
+
+        @Override
+        public boolean contains(Object id) {
+            if (!(id instanceof UUID)) {
+                return false;
+            }
+            UUID uuid = (UUID) id;
+            // same ordering as UUID.compareTo: signed comparison of the most, then the least significant bits
+            int low = 0;
+            int high = mostSigBits.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = Long.compare(mostSigBits[mid], uuid.getMostSignificantBits());
+                if (cmp == 0) {
+                    cmp = Long.compare(leastSigBits[mid], uuid.getLeastSignificantBits());
+                }
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public List<Object> getIds(int fromIndex, int toIndex) {
+            List<Object> ids = new ArrayList<>(toIndex - fromIndex);
+            for (int i = fromIndex; i < toIndex; i++) {
+                ids.add(new UUID(mostSigBits[i], leastSigBits[i]));
+            }
+            return ids;
+        }
+
+        @Override
+        public long getMemorySize() {
+            return 16L * mostSigBits.length;
+        }
+    }
+
+    protected static class LongIds extends QueryResultIds {
+        protected final long[] values;
+        protected final Class<?> idClass;
+
+        protected static LongIds create(List<?> ids, Class<?> idClass) {
+            long[] values = new long[ids.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = ((Number) ids.get(i)).longValue();
+            }
+            Arrays.sort(values);
+            int size = 0;
+            for (int i = 0; i < values.length; i++) {
+                if (size == 0 || values[size - 1] != values[i]) {
+                    values[size++] = values[i];
+                }
+            }
+            return new LongIds(Arrays.copyOf(values, size), idClass);
+        }
+
+        protected LongIds(long[] values, Class<?> idClass) {
+            this.values = values;
+            this.idClass = idClass;
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public boolean contains(Object id) {
+            return (id instanceof Long || id instanceof Integer)
+                    && Arrays.binarySearch(values, ((Number) id).longValue()) >= 0;
+        }
+
+        @Override
+        public List<Object> getIds(int fromIndex, int toIndex) {
+            List<Object> ids = new ArrayList<>(toIndex - fromIndex);
+            for (int i = fromIndex; i < toIndex; i++) {
+                ids.add(Integer.class.equals(idClass) ? (Object) (int) values[i] : (Object) values[i]);
+            }
+            return ids;
+        }
+
+        @Override
+        public long getMemorySize() {
+            return 8L * values.length;
+        }
+    }
+
+    protected static class StringIds extends QueryResultIds {
+        protected final String[] values;
+
+        protected static StringIds create(List<?> ids) {
+            SortedSet<String> values = new TreeSet<>();
+            for (Object id : ids) {
+                values.add((String) id);
+            }
+            return new StringIds(values.toArray(new String[0]));
+        }
+
+        protected StringIds(String[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public boolean contains(Object id) {
+            return id instanceof String && Arrays.binarySearch(values, id) >= 0;
+        }
+
+        @Override
+        public List<Object> getIds(int fromIndex, int toIndex) {
+            return new ArrayList<>(Arrays.asList(values).subList(fromIndex, toIndex));
+        }
+
+        @Override
+        public long getMemorySize() {
+            long size = 8L * values.length;
+            for (String value : values) {
+                size += 40 + 2L * value.length();
+            }
+            return size;
+        }
+    }
+}
@@ -21,19 +21,23 @@ import com.haulmont.bali.db.QueryRunner;
 import com.haulmont.cuba.core.*;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
 import com.haulmont.cuba.core.app.JpqlQueryBuilder;
+import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.QueryHolder;
 import com.haulmont.cuba.core.sys.persistence.DbTypeConverter;
+import com.haulmont.cuba.core.sys.persistence.DbmsSpecificFactory;
 import com.haulmont.cuba.security.app.UserSessionsAPI;
 import com.haulmont.cuba.security.global.UserSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -62,6 +66,9 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
     @Inject
     protected Metadata metadata;
 
+    @Inject
+    protected InMemoryQueryResults inMemoryQueryResults;
+
     protected static final int BATCH_SIZE = 100;
 
     protected static final int DELETE_BATCH_SIZE = 100;
@@ -83,13 +90,176 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
 
         int queryKey = loadContext.getQueryKey();
 
+        String storeName = metadata.getTools().getStoreName(metadata.getClassNN(entityName));
+        if (isInMemoryStore(storeName)) {
+            savePreviousQueryResultsInMemory(loadContext, storeName);
+            return;
+        }
+
         if (resultsAlreadySaved(queryKey, contextQuery))
             return;
 
+        UUID sessionId = userSessionSource.getUserSession().getId();
+        List idList = loadPreviousQueryIds(loadContext, contextQuery, Stores.MAIN,
+                prevQueries.size() > 1 ? queryBuilder -> queryBuilder.setPreviousResults(sessionId, queryKey) : null);
+
+        delete(queryKey);
+        insert(queryKey, idList);
+    }
+
+    @Override
+    public void restrictByPreviousResults(JpqlQueryBuilder queryBuilder, LoadContext loadContext) {
+        UUID sessionId = userSessionSource.getUserSession().getId();
+        int queryKey = loadContext.getQueryKey();
+
+        String storeName = metadata.getTools().getStoreName(metadata.getClassNN(loadContext.getMetaClass()));
+        if (isInMemoryStore(storeName)) {
+            InMemoryQueryResults.Entry entry = inMemoryQueryResults.get(sessionId, queryKey);
+            if (entry == null) {
+                log.debug("Query results for {} / {} are not found in memory, load them again", sessionId, queryKey);
+                entry = loadPreviousQueryResultsInMemory(loadContext, storeName, null);
+            }
+            if (!entry.isSavedToDatabase() && !Stores.isMain(storeName)
+                    && entry.getIds().size() > getMaxIdsInCondition()) {
+                // too many identifiers for a single query: narrow them down to the results of the current query,
+                // which are loaded by several queries
+                entry = new InMemoryQueryResults.Entry(QueryResultIds.of(
+                        loadQueryIds(loadContext, loadContext.getQuery(), storeName, entry, queryKey)));
+                if (entry.getIds().size() > getMaxIdsInCondition()) {
+                    throw new IllegalStateException(String.format("Query results of store %s contain %d entities, " +
+                                    "more than cuba.queryResults.maxIdsInCondition=%d allows to search in",
+                            storeName, entry.getIds().size(), getMaxIdsInCondition()));
+                }
+            }
+            restrictByIds(queryBuilder, entry, storeName, queryKey);
+        } else {
+            queryBuilder.setPreviousResults(sessionId, queryKey);
+        }
+    }
+
+    protected boolean isInMemoryStore(@Nullable String storeName) {
+        return storeName != null
+                && configuration.getConfig(ServerConfig.class).getQueryResultsInMemoryStores().contains(storeName);
+    }
+
+    protected void savePreviousQueryResultsInMemory(LoadContext loadContext, String storeName) {
+        List<LoadContext.Query> prevQueries = loadContext.getPrevQueries();
+        LoadContext.Query contextQuery = prevQueries.get(prevQueries.size() - 1);
+        UUID sessionId = userSessionSource.getUserSession().getId();
+        int queryKey = loadContext.getQueryKey();
+
+        boolean alreadySaved = resultsAlreadySaved(queryKey, contextQuery);
+        InMemoryQueryResults.Entry entry = inMemoryQueryResults.get(sessionId, queryKey);
+        if (alreadySaved && entry != null)
+            return;
+
+        // if the query is already saved but the results are missing (e.g. discarded or saved on another
+        // middleware node), the whole chain of previous queries is executed again
+        loadPreviousQueryResultsInMemory(loadContext, storeName, alreadySaved ? null : entry);
+    }
+
+    /**
+     * Loads identifiers of previous query results and keeps them in memory.
+     *
+     * @param prefixEntry results of all previous queries except the last one, or null to execute all of them
+     * @return results of the last previous query
+     */
+    protected InMemoryQueryResults.Entry loadPreviousQueryResultsInMemory(LoadContext loadContext, String storeName,
+                                                                         @Nullable InMemoryQueryResults.Entry prefixEntry) {
+        List<LoadContext.Query> prevQueries = loadContext.getPrevQueries();
+        UUID sessionId = userSessionSource.getUserSession().getId();
+        int queryKey = loadContext.getQueryKey();
+        int last = prevQueries.size() - 1;
+
+        InMemoryQueryResults.Entry entry = last > 0 ? prefixEntry : null;
+        for (int i = entry != null ? last : 0; i <= last; i++) {
+            List idList = loadQueryIds(loadContext, prevQueries.get(i), storeName, entry, queryKey);
+            entry = new InMemoryQueryResults.Entry(QueryResultIds.of(idList));
+        }
+
+        if (!inMemoryQueryResults.put(sessionId, queryKey, entry)) {
+            log.debug("Too many query results to keep in memory: {} / {}, size {}",
+                    sessionId, queryKey, entry.getIds().size());
+            if (Stores.isMain(storeName)) {
+                // keep the results in SYS_QUERY_RESULT table only, so the queries are not executed again
+                delete(queryKey);
+                insert(queryKey, entry.getIds().getIds());
+                entry = InMemoryQueryResults.Entry.savedToDatabase();
+                inMemoryQueryResults.put(sessionId, queryKey, entry);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Loads identifiers of the query results restricted by the given identifiers. If the identifiers of a data store
+     * other than the main one do not fit into a single query, the query is executed for each part of them.
+     */
+    protected List loadQueryIds(LoadContext loadContext, LoadContext.Query contextQuery, String storeName,
+                                @Nullable InMemoryQueryResults.Entry restriction, int queryKey) {
+        if (restriction == null) {
+            return loadPreviousQueryIds(loadContext, contextQuery, storeName, null);
+        }
+
+        List<?> ids = restriction.getIds().getIds();
+        int maxIdsInCondition = getMaxIdsInCondition();
+        if (restriction.isSavedToDatabase() || Stores.isMain(storeName) || ids.size() <= maxIdsInCondition) {
+            return loadPreviousQueryIds(loadContext, contextQuery, storeName,
+                    queryBuilder -> restrictByIds(queryBuilder, restriction, storeName, queryKey));
+        }
+
+        List<Object> result = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += maxIdsInCondition) {
+            List<?> part = ids.subList(i, Math.min(i + maxIdsInCondition, ids.size()));
+            result.addAll(loadPreviousQueryIds(loadContext, contextQuery, storeName,
+                    queryBuilder -> queryBuilder.setPreviousResultIds(part, getIdsBatchSize(storeName))));
+        }
+        return result;
+    }
+
+    protected int getMaxIdsInCondition() {
+        return Math.max(configuration.getConfig(ServerConfig.class).getQueryResultsMaxIdsInCondition(), 1);
+    }
+
+    protected int getIdsBatchSize(String storeName) {
+        int maxIdsInCondition = getMaxIdsInCondition();
+        Integer maxIdsBatchSize = DbmsSpecificFactory.getDbmsFeatures(storeName).getMaxIdsBatchSize();
+        return Math.max(maxIdsBatchSize != null ? Math.min(maxIdsBatchSize, maxIdsInCondition) : maxIdsInCondition, 1);
+    }
+
+    /**
+     * Restricts the query by identifiers kept in memory. Passes the identifiers as parameters of "in" conditions if
+     * their number allows, otherwise inserts them into SYS_QUERY_RESULT table once and joins it if the entity is in
+     * the main data store. Identifiers of other data stores must not exceed
+     * {@link ServerConfig#getQueryResultsMaxIdsInCondition()}, see {@link #loadQueryIds}.
+     */
+    protected void restrictByIds(JpqlQueryBuilder queryBuilder, InMemoryQueryResults.Entry entry,
+                                 String storeName, int queryKey) {
+        List<?> ids = entry.getIds().getIds();
+        int maxIdsInCondition = getMaxIdsInCondition();
+        if (entry.isSavedToDatabase()) {
+            queryBuilder.setPreviousResults(userSessionSource.getUserSession().getId(), queryKey);
+        } else if (ids.size() > maxIdsInCondition) {
+            if (!Stores.isMain(storeName)) {
+                throw new IllegalStateException(String.format("Too many identifiers of store %s for a single query: %d",
+                        storeName, ids.size()));
+            }
+            delete(queryKey);
+            insert(queryKey, ids);
+            entry.setSavedToDatabase(true);
+            queryBuilder.setPreviousResults(userSessionSource.getUserSession().getId(), queryKey);
+        } else {
+            queryBuilder.setPreviousResultIds(ids, getIdsBatchSize(storeName));
+        }
+    }
+
+    protected List loadPreviousQueryIds(LoadContext loadContext, LoadContext.Query contextQuery, String storeName,
+                                        @Nullable Consumer<JpqlQueryBuilder> restriction) {
+        String entityName = loadContext.getMetaClass();
         List idList;
-        Transaction tx = persistence.createTransaction();
+        Transaction tx = persistence.createTransaction(storeName);
         try {
-            EntityManager em = persistence.getEntityManager();
+            EntityManager em = persistence.getEntityManager(storeName);
             em.setSoftDeletion(loadContext.isSoftDeletion());
 
             QueryTransformer transformer = QueryTransformerFactory.createTransformer(contextQuery.getQueryString());
@@ -106,8 +276,8 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
                     .setQueryParameters(contextQuery.getParameters())
                     .setNoConversionParams(contextQuery.getNoConversionParams());
 
-            if (prevQueries.size() > 1) {
-                queryBuilder.setPreviousResults(userSessionSource.getUserSession().getId(), loadContext.getQueryKey());
+            if (restriction != null) {
+                restriction.accept(queryBuilder);
             }
             Query query = queryBuilder.getQuery(em);
 
@@ -122,9 +292,7 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
         } finally {
             tx.end();
         }
-
-        delete(queryKey);
-        insert(queryKey, idList);
+        return idList;
     }
 
     protected boolean resultsAlreadySaved(Integer queryKey, LoadContext.Query query) {
@@ -231,6 +399,7 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
             String userSessionIdStr = converter.getSqlObject(userSessionId).toString();
             runner.update("delete from SYS_QUERY_RESULT where SESSION_ID = '"
                     + userSessionIdStr + "'");
+            inMemoryQueryResults.removeForSession(userSessionId);
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -238,8 +407,16 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
 
     @Override
     public void deleteForInactiveSessions() {
-        if (!AppContext.isStarted() || !clusterManager.isMaster()
-                || !configuration.getConfig(GlobalConfig.class).getAllowQueryFromSelected())
+        if (!AppContext.isStarted() || !configuration.getConfig(GlobalConfig.class).getAllowQueryFromSelected())
+            return;
+
+        // results kept in memory are local to each middleware node
+        if (inMemoryQueryResults.getSize() > 0) {
+            Set<UUID> sessionIds = userSessions.getUserSessionsStream().map(UserSession::getId).collect(Collectors.toSet());
+            inMemoryQueryResults.removeForInactiveSessions(sessionIds);
+        }
+
+        if (!clusterManager.isMaster())
             return;
 
         internalDeleteForInactiveSessions();
@@ -17,6 +17,7 @@
 
 package com.haulmont.cuba.core.app.queryresults;
 
+import com.haulmont.cuba.core.app.JpqlQueryBuilder;
 import com.haulmont.cuba.core.global.LoadContext;
 
 import java.util.List;
@@ -32,6 +33,11 @@ public interface QueryResultsManagerAPI {
 
     void savePreviousQueryResults(LoadContext loadContext);
 
+    /**
+     * Restricts the query by results of previous queries saved by {@link #savePreviousQueryResults(LoadContext)}.
+     */
+    void restrictByPreviousResults(JpqlQueryBuilder queryBuilder, LoadContext loadContext);
+
     void insert(int queryKey, List idList);
 
     void delete(int queryKey);
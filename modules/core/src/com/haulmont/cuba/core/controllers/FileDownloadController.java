@@ -19,15 +19,17 @@ package com.haulmont.cuba.core.controllers;
 import com.haulmont.bali.util.URLEncodeUtils;
 import com.haulmont.cuba.core.app.DataService;
 import com.haulmont.cuba.core.app.FileStorageAPI;
+import com.haulmont.cuba.core.app.filestorage.ContentAddressedFileStorage;
+import com.haulmont.cuba.core.app.filestorage.FileStorage;
 import com.haulmont.cuba.core.entity.FileDescriptor;
 import com.haulmont.cuba.core.global.FileStorageException;
 import com.haulmont.cuba.core.global.FileTypesHelper;
 import com.haulmont.cuba.core.global.LoadContext;
 import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.SecurityContext;
+import com.haulmont.cuba.core.sys.servlet.HttpRanges;
 import com.haulmont.cuba.security.app.UserSessionsAPI;
 import com.haulmont.cuba.security.global.UserSession;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,6 +37,7 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
@@ -85,12 +88,29 @@ public class FileDownloadController {
             response.setIntHeader("Expires", -1);
             response.setHeader("Content-Type", FileTypesHelper.DEFAULT_MIME_TYPE);
 
-            InputStream is = null;
             ServletOutputStream os = null;
             try {
-                is = fd != null ? fileStorage.openStream(fd) : FileUtils.openInputStream(file);
+                File localFile = fd != null ? findLocalFile(fd) : file;
+                HttpRanges.Range range;
+                if (fd != null) {
+                    long length = localFile != null ? localFile.length() : (fd.getSize() != null ? fd.getSize() : -1);
+                    range = HttpRanges.prepareResponse(request, response, HttpRanges.createETag(fd),
+                            fd.getCreateDate() != null ? fd.getCreateDate().getTime() : 0, length);
+                } else {
+                    range = HttpRanges.prepareResponse(request, response, HttpRanges.createETag(file),
+                            file.lastModified(), file.length());
+                }
+                if (range == null)
+                    return;
+
                 os = response.getOutputStream();
-                IOUtils.copy(is, os);
+                if (localFile != null) {
+                    HttpRanges.transfer(localFile, os, range);
+                } else {
+                    try (InputStream is = fileStorage.openStream(fd)) {
+                        HttpRanges.copy(is, os, range);
+                    }
+                }
                 os.flush();
             } catch (FileStorageException e) {
                 log.error("Unable to download file", e);
@@ -99,7 +119,6 @@ public class FileDownloadController {
                 log.error("Unable to download file", ex);
                 response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             } finally {
-                IOUtils.closeQuietly(is);
                 IOUtils.closeQuietly(os);
             }
         } finally {
@@ -107,6 +126,21 @@ public class FileDownloadController {
         }
     }
 
+    /**
+     * @return the file in the local file system storage, or null if the content must be read by
+     * {@link FileStorageAPI#openStream(FileDescriptor)}
+     */
+    @Nullable
+    protected File findLocalFile(FileDescriptor fd) {
+        if (fileStorage instanceof FileStorage) {
+            return ((FileStorage) fileStorage).findFile(fd);
+        }
+        if (fileStorage instanceof ContentAddressedFileStorage) {
+            return ((ContentAddressedFileStorage) fileStorage).findFile(fd);
+        }
+        return null;
+    }
+
     protected UserSession getSession(HttpServletRequest request, HttpServletResponse response) throws IOException {
         UUID sessionId;
         try {
@@ -16,6 +16,7 @@
  */
 package com.haulmont.cuba.core.jmx;
 
+import com.google.common.cache.CacheStats;
 import com.haulmont.cuba.core.app.ConfigStorageAPI;
 import com.haulmont.cuba.core.app.dynamicattributes.DynamicAttributesManagerAPI;
 import com.haulmont.cuba.core.global.Messages;
@@ -23,6 +24,7 @@ import com.haulmont.cuba.core.global.Scripting;
 import com.haulmont.cuba.core.global.ViewRepository;
 import com.haulmont.cuba.core.sys.AbstractViewRepository;
 import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.jpql.QueryTreeCache;
 import com.haulmont.cuba.security.app.EntityLogAPI;
 
 import org.springframework.stereotype.Component;
@@ -49,6 +51,9 @@ public class CachingFacade implements CachingFacadeMBean {
     @Inject
     protected DynamicAttributesManagerAPI dynamicAttributesManagerAPI;
 
+    @Inject
+    protected QueryTreeCache queryTreeCache;
+
     @Override
     public int getMessagesCacheSize() {
         return messages.getCacheSize();
@@ -84,6 +89,18 @@ public class CachingFacade implements CachingFacadeMBean {
         AppContext.Internals.getAppProperties().initSystemProperties();
     }
 
+    @Override
+    public String getJpqlTreeCacheStatistics() {
+        CacheStats stats = queryTreeCache.getStats();
+        return String.format("size: %d, hits: %d, misses: %d, hit rate: %.2f",
+                queryTreeCache.getSize(), stats.hitCount(), stats.missCount(), stats.hitRate());
+    }
+
+    @Override
+    public void clearJpqlTreeCache() {
+        queryTreeCache.clear();
+    }
+
     @Override
     public void clearViewRepositoryCache() {
         ((AbstractViewRepository) viewRepository).reset();
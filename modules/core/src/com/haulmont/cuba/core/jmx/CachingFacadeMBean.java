@@ -33,4 +33,8 @@ public interface CachingFacadeMBean {
     void clearDynamicAttributesCache();
 
     void clearSystemPropertiesCache();
+
+    String getJpqlTreeCacheStatistics();
+
+    void clearJpqlTreeCache();
 }
\ No newline at end of file
@@ -20,6 +20,7 @@ import com.google.common.base.Strings;
 import com.haulmont.cuba.core.global.UuidProvider;
 import com.haulmont.cuba.core.sys.entitycache.QueryCache;
 import com.haulmont.cuba.core.sys.entitycache.QueryCacheManager;
+import com.haulmont.cuba.core.sys.entitycache.QueryCacheStatistics;
 import com.haulmont.cuba.core.sys.entitycache.QueryKey;
 import com.haulmont.cuba.core.sys.entitycache.QueryResult;
 import org.springframework.stereotype.Component;
@@ -45,6 +46,26 @@ public class QueryCacheSupport implements QueryCacheSupportMBean {
         return queryCache.size();
     }
 
+    @Override
+    public long getMaxWeight() {
+        return queryCache.getMaxWeight();
+    }
+
+    @Override
+    public long getWeight() {
+        return queryCache.getWeight();
+    }
+
+    @Override
+    public long getIdIndexSize() {
+        return queryCache.getIdIndexSize();
+    }
+
+    @Override
+    public long getPrunedKeysCount() {
+        return queryCache.getPrunedKeysCount();
+    }
+
     @Override
     public String evictAll() {
         queryCacheMgr.invalidateAll(true);
@@ -89,6 +110,40 @@ public class QueryCacheSupport implements QueryCacheSupportMBean {
         return builder.toString();
     }
 
+    @Override
+    public String printTypeIndex() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : queryCache.getTypeIndexSizes().entrySet()) {
+            builder.append(entry.getKey())
+                    .append(": ")
+                    .append(entry.getValue())
+                    .append("\n");
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String printStatistics() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, QueryCacheStatistics.TypeStat> entry : queryCacheMgr.getStatistics().entrySet()) {
+            QueryCacheStatistics.TypeStat stat = entry.getValue();
+            builder.append(entry.getKey())
+                    .append(": hits=").append(stat.getHits())
+                    .append(", misses=").append(stat.getMisses())
+                    .append(String.format(", hitRate=%.2f", stat.getHitRate()))
+                    .append(String.format(", avgLoadTimeMs=%.2f", stat.getAverageLoadTime()))
+                    .append(", evictions=").append(stat.getEvictions())
+                    .append("\n");
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String resetStatistics() {
+        queryCacheMgr.resetStatistics();
+        return "Done";
+    }
+
     @Override
     public String printQueryResultsByQueryId(String queryId) {
         if (Strings.isNullOrEmpty(queryId)) {
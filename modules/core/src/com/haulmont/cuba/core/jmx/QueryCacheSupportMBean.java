@@ -27,6 +27,18 @@ public interface QueryCacheSupportMBean {
     @ManagedAttribute(description = "Current number of cached queries")
     long getSize();
 
+    @ManagedAttribute(description = "Maximum total number of identifiers in cached query results, 0 if not bounded by weight")
+    long getMaxWeight();
+
+    @ManagedAttribute(description = "Current total number of identifiers in cached query results")
+    long getWeight();
+
+    @ManagedAttribute(description = "Number of queries indexed by query identifier")
+    long getIdIndexSize();
+
+    @ManagedAttribute(description = "Number of query keys removed from the indexes after eviction or invalidation")
+    long getPrunedKeysCount();
+
     @ManagedOperation(description = "Discard all query results in the cache")
     String evictAll();
 
@@ -45,6 +57,15 @@ public interface QueryCacheSupportMBean {
     @ManagedOperation(description = "Print all cached queries (query id, string and count of returned objects)")
     String printCacheContent();
 
+    @ManagedOperation(description = "Print number of cached queries indexed for each entity")
+    String printTypeIndex();
+
+    @ManagedOperation(description = "Print hit, miss, load time and eviction statistics for each entity")
+    String printStatistics();
+
+    @ManagedOperation(description = "Reset collected statistics")
+    String resetStatistics();
+
     @ManagedOperation(description = "Print cached results for query")
     @ManagedOperationParameters({
             @ManagedOperationParameter(name = "id", description = "query identifier")
@@ -106,6 +106,16 @@ public class StatisticsCounter implements StatisticsCounterMBean {
         return accumulator.getImplicitFlushCount();
     }
 
+    @Override
+    public Long getBulkCommitBatchesCount() {
+        return accumulator.getBulkCommitBatchesCount();
+    }
+
+    @Override
+    public double getAvgBulkCommitBatchSize() {
+        return accumulator.getAvgBulkCommitBatchSize();
+    }
+
     @Override
     public int getDbConnectionPoolNumActive() {
         connectionPoolInfo = getConnectionPoolInfo();
@@ -47,6 +47,10 @@ public interface StatisticsCounterMBean {
 
     Long getImplicitFlushCount();
 
+    Long getBulkCommitBatchesCount();
+
+    double getAvgBulkCommitBatchSize();
+
     int getDbConnectionPoolNumActive();
 
     int getDbConnectionPoolNumIdle();
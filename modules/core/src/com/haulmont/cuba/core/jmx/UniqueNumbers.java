@@ -17,7 +17,11 @@
 
 package com.haulmont.cuba.core.jmx;
 
+import com.haulmont.cuba.core.app.Sequences;
+import com.haulmont.cuba.core.app.SequencesImpl;
 import com.haulmont.cuba.core.app.UniqueNumbersAPI;
+import com.haulmont.cuba.core.sys.NumberIdCache;
+import com.haulmont.cuba.core.sys.SequenceBlockAllocator;
 
 import org.springframework.stereotype.Component;
 import javax.inject.Inject;
@@ -28,6 +32,12 @@ public class UniqueNumbers implements UniqueNumbersMBean {
     @Inject
     protected UniqueNumbersAPI uniqueNumbers;
 
+    @Inject
+    protected Sequences sequences;
+
+    @Inject
+    protected NumberIdCache numberIdCache;
+
     @Override
     public long getCurrentNumber(String domain) {
         return uniqueNumbers.getCurrentNumber(domain);
@@ -42,4 +52,25 @@ public class UniqueNumbers implements UniqueNumbersMBean {
     public long getNextNumber(String domain) {
         return uniqueNumbers.getNextNumber(domain);
     }
-}
\ No newline at end of file
+
+    @Override
+    public String printSequenceStatistics() {
+        StringBuilder sb = new StringBuilder();
+        if (sequences instanceof SequencesImpl) {
+            sb.append("Database requests:\n");
+            ((SequencesImpl) sequences).getRoundTrips().forEach((name, count) ->
+                    sb.append("  ").append(name).append(": ").append(count).append("\n"));
+        }
+        sb.append("Entity id blocks:\n");
+        for (SequenceBlockAllocator allocator : numberIdCache.getAllocators()) {
+            sb.append("  ").append(allocator).append("\n");
+        }
+        if (uniqueNumbers instanceof com.haulmont.cuba.core.app.UniqueNumbers) {
+            sb.append("Unique number blocks:\n");
+            for (SequenceBlockAllocator allocator : ((com.haulmont.cuba.core.app.UniqueNumbers) uniqueNumbers).getAllocators()) {
+                sb.append("  ").append(allocator).append("\n");
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -16,6 +16,7 @@
  */
 package com.haulmont.cuba.core.jmx;
 
+import org.springframework.jmx.export.annotation.ManagedOperation;
 import org.springframework.jmx.export.annotation.ManagedOperationParameter;
 import org.springframework.jmx.export.annotation.ManagedOperationParameters;
 
@@ -36,4 +37,7 @@ public interface UniqueNumbersMBean {
 
     @ManagedOperationParameters({@ManagedOperationParameter(name = "domain", description = "")})
     long getNextNumber(String domain);
+
+    @ManagedOperation(description = "Print numbers of database requests and reserved blocks of sequences")
+    String printSequenceStatistics();
 }
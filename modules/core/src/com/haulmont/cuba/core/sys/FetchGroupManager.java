@@ -17,11 +17,14 @@
 
 package com.haulmont.cuba.core.sys;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.chile.core.model.MetaPropertyPath;
 import com.haulmont.chile.core.model.Range;
+import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.entity.BaseUuidEntity;
 import com.haulmont.cuba.core.entity.EmbeddableEntity;
 import com.haulmont.cuba.core.entity.Entity;
@@ -39,6 +42,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.ClassUtils;
 
 import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import java.lang.reflect.Method;
 import java.util.*;
@@ -60,6 +64,20 @@ public class FetchGroupManager {
     @Inject
     private ViewRepository viewRepository;
 
+    @Inject
+    private ServerConfig serverConfig;
+
+    private Cache<FetchGroupKey, FetchGroupDescription> descriptionsCache;
+
+    private volatile long viewsChangeCount;
+
+    @PostConstruct
+    protected void init() {
+        descriptionsCache = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(serverConfig.getFetchGroupCacheSize(), 0))
+                .build();
+    }
+
     public void setView(JpaQuery query, String queryString, @Nullable View view, boolean singleResultExpected) {
         Preconditions.checkNotNullArgument(query, "query is null");
         if (view != null) {
@@ -128,10 +146,64 @@ public class FetchGroupManager {
         }
     }
 
+    /**
+     * Returns the description of fetch group and fetch hints for the query and view. The descriptions are cached
+     * by the query string and the view structure until views are redeployed.
+     */
     public FetchGroupDescription calculateFetchGroup(String queryString,
                                                      View view,
                                                      boolean singleResultExpected,
                                                      boolean useFetchGroup) {
+        if (serverConfig.getFetchGroupCacheSize() <= 0) {
+            return doCalculateFetchGroup(queryString, view, singleResultExpected, useFetchGroup);
+        }
+
+        if (viewRepository instanceof AbstractViewRepository) {
+            long changeCount = ((AbstractViewRepository) viewRepository).getChangeCount();
+            if (changeCount != viewsChangeCount) {
+                descriptionsCache.invalidateAll();
+                viewsChangeCount = changeCount;
+            }
+        }
+
+        FetchGroupKey key = new FetchGroupKey(queryString, getViewSignature(view), singleResultExpected, useFetchGroup);
+        FetchGroupDescription description = descriptionsCache.getIfPresent(key);
+        if (description == null) {
+            description = doCalculateFetchGroup(queryString, view, singleResultExpected, useFetchGroup);
+            descriptionsCache.put(key, description);
+        }
+        return description;
+    }
+
+    private String getViewSignature(View view) {
+        StringBuilder sb = new StringBuilder();
+        appendViewSignature(view, sb);
+        return sb.toString();
+    }
+
+    private void appendViewSignature(View view, StringBuilder sb) {
+        sb.append(view.getEntityClass().getName());
+        if (view.loadPartialEntities()) {
+            sb.append('!');
+        }
+        sb.append('{');
+        for (ViewProperty property : view.getProperties()) {
+            sb.append(property.getName());
+            if (property.getFetchMode() != FetchMode.AUTO) {
+                sb.append(':').append(property.getFetchMode().name());
+            }
+            if (property.getView() != null) {
+                appendViewSignature(property.getView(), sb);
+            }
+            sb.append(',');
+        }
+        sb.append('}');
+    }
+
+    private FetchGroupDescription doCalculateFetchGroup(String queryString,
+                                                        View view,
+                                                        boolean singleResultExpected,
+                                                        boolean useFetchGroup) {
         Set<FetchGroupField> fetchGroupFields = new LinkedHashSet<>();
         processView(view, null, fetchGroupFields, useFetchGroup);
 
@@ -501,4 +573,40 @@ public class FetchGroupManager {
             return path();
         }
     }
-}
\ No newline at end of file
+
+    protected static class FetchGroupKey {
+        private final String queryString;
+        private final String viewSignature;
+        private final boolean singleResultExpected;
+        private final boolean useFetchGroup;
+
+        public FetchGroupKey(String queryString, String viewSignature, boolean singleResultExpected, boolean useFetchGroup) {
+            this.queryString = queryString;
+            this.viewSignature = viewSignature;
+            this.singleResultExpected = singleResultExpected;
+            this.useFetchGroup = useFetchGroup;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            FetchGroupKey that = (FetchGroupKey) o;
+
+            return singleResultExpected == that.singleResultExpected
+                    && useFetchGroup == that.useFetchGroup
+                    && queryString.equals(that.queryString)
+                    && viewSignature.equals(that.viewSignature);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = queryString.hashCode();
+            result = 31 * result + viewSignature.hashCode();
+            result = 31 * result + (singleResultExpected ? 1 : 0);
+            result = 31 * result + (useFetchGroup ? 1 : 0);
+            return result;
+        }
+    }
+}
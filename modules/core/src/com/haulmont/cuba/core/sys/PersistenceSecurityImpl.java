@@ -28,6 +28,7 @@ import com.haulmont.cuba.core.Persistence;
 import com.haulmont.cuba.core.PersistenceSecurity;
 import com.haulmont.cuba.core.Query;
 import com.haulmont.cuba.core.app.AttributeSecuritySupport;
+import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.entity.*;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.jpql.JpqlSyntaxException;
@@ -36,10 +37,13 @@ import com.haulmont.cuba.security.entity.EntityOp;
 import com.haulmont.cuba.security.global.UserSession;
 import com.haulmont.cuba.security.group.ConstraintValidationResult;
 import com.haulmont.cuba.security.group.JpqlAccessConstraint;
+import groovy.lang.Binding;
+import groovy.lang.Script;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.runtime.InvokerHelper;
 import org.codehaus.groovy.runtime.MethodClosure;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,6 +55,7 @@ import java.util.*;
 import java.util.function.BiPredicate;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static java.lang.String.format;
 
@@ -76,6 +81,10 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
     @Inject
     protected EntityStates entityStates;
 
+    protected static final Predicate<Entity> PERMIT_ALL = entity -> true;
+
+    protected MethodClosure parseClosure = new MethodClosure(this, "parseValue");
+
     @Override
     public boolean applyConstraints(Query query) {
         QueryParser parser = QueryTransformerFactory.createParser(query.getQueryString());
@@ -136,10 +145,52 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
 
     @Override
     public boolean filterByConstraints(Collection<Entity> entities) {
+        Map<MetaClass, Predicate<Entity>> predicates = new HashMap<>();
+        int parallelThreshold = configuration.getConfig(ServerConfig.class).getInMemoryConstraintsParallelThreshold();
+        if (parallelThreshold > 0 && entities.size() >= parallelThreshold) {
+            return filterByConstraintsInParallel(entities, predicates);
+        }
+
         boolean filtered = false;
         for (Iterator<Entity> iterator = entities.iterator(); iterator.hasNext(); ) {
             Entity entity = iterator.next();
-            if (isNotPermittedInMemory(entity)) {
+            if (isNotPermittedInMemory(entity, predicates)) {
+                //we ignore situations when the collection is immutable
+                iterator.remove();
+                filtered = true;
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * Evaluates the constraints for the elements of a large collection in the common fork-join pool, then removes
+     * not permitted elements in the original order.
+     */
+    protected boolean filterByConstraintsInParallel(Collection<Entity> entities, Map<MetaClass, Predicate<Entity>> predicates) {
+        List<Entity> list = new ArrayList<>(entities);
+        // resolve predicates in the current thread, so the workers only read the map
+        for (Entity entity : list) {
+            getInMemoryReadPredicate(entity.getMetaClass(), predicates);
+        }
+
+        SecurityContext securityContext = AppContext.getSecurityContext();
+        boolean[] notPermitted = new boolean[list.size()];
+        IntStream.range(0, list.size()).parallel().forEach(i -> {
+            SecurityContext previousContext = AppContext.getSecurityContext();
+            AppContext.setSecurityContext(securityContext);
+            try {
+                notPermitted[i] = isNotPermittedInMemory(list.get(i), predicates);
+            } finally {
+                AppContext.setSecurityContext(previousContext);
+            }
+        });
+
+        boolean filtered = false;
+        int i = 0;
+        for (Iterator<Entity> iterator = entities.iterator(); iterator.hasNext(); i++) {
+            iterator.next();
+            if (notPermitted[i]) {
                 //we ignore situations when the collection is immutable
                 iterator.remove();
                 filtered = true;
@@ -166,13 +217,14 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
 
     @Override
     public void calculateFilteredData(Entity entity) {
-        calculateFilteredData(entity, new HashSet<>(), false);
+        calculateFilteredData(entity, new HashSet<>(), false, new HashMap<>());
     }
 
     @Override
     public void calculateFilteredData(Collection<Entity> entities) {
         Set<EntityId> handled = new LinkedHashSet<>();
-        entities.forEach(entity -> calculateFilteredData(entity, handled, false));
+        Map<MetaClass, Predicate<Entity>> predicates = new HashMap<>();
+        entities.forEach(entity -> calculateFilteredData(entity, handled, false, predicates));
     }
 
     @Override
@@ -342,13 +394,18 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
         }
     }
 
-    @SuppressWarnings("unchecked")
     protected boolean calculateFilteredData(Entity entity, Set<EntityId> handled, boolean checkPermitted) {
+        return calculateFilteredData(entity, handled, checkPermitted, new HashMap<>());
+    }
+
+    @SuppressWarnings("unchecked")
+    protected boolean calculateFilteredData(Entity entity, Set<EntityId> handled, boolean checkPermitted,
+                                            Map<MetaClass, Predicate<Entity>> predicates) {
         if (referenceToEntitySupport.getReferenceId(entity) == null) {
             return false;
         }
         MetaClass metaClass = entity.getMetaClass();
-        if (isNotPermittedInMemory(entity) && checkPermitted) {
+        if (checkPermitted && isNotPermittedInMemory(entity, predicates)) {
             return true;
         }
         EntityId entityId = new EntityId(referenceToEntitySupport.getReferenceId(entity), metaClass.getName());
@@ -364,7 +421,7 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
                     if (value instanceof Collection) {
                         Set filtered = new LinkedHashSet();
                         for (Entity item : (Collection<Entity>) value) {
-                            if (calculateFilteredData(item, handled, true)) {
+                            if (calculateFilteredData(item, handled, true, predicates)) {
                                 filtered.add(referenceToEntitySupport.getReferenceId(item));
                             }
                         }
@@ -373,7 +430,7 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
                         }
                     } else if (value instanceof Entity) {
                         Entity valueEntity = (Entity) value;
-                        if (calculateFilteredData(valueEntity, handled, true)) {
+                        if (calculateFilteredData(valueEntity, handled, true, predicates)) {
                             securityTokenManager.addFiltered(baseGenericIdEntity, property.getName(),
                                     referenceToEntitySupport.getReferenceId(valueEntity));
                         }
@@ -412,10 +469,45 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
     }
 
     protected boolean isNotPermittedInMemory(Entity entity) {
-        //noinspection unchecked
-        return !getConstraints(entity.getMetaClass())
-                .filter(c -> c.isInMemory() && c.getOperation() == EntityOp.READ)
-                .allMatch(c -> ((Predicate<Entity>) c.getPredicate()).test(entity));
+        return isNotPermittedInMemory(entity, new HashMap<>());
+    }
+
+    /**
+     * @param predicates in-memory READ predicates resolved during the current operation, by entity meta-class
+     */
+    protected boolean isNotPermittedInMemory(Entity entity, Map<MetaClass, Predicate<Entity>> predicates) {
+        return !getInMemoryReadPredicate(entity.getMetaClass(), predicates).test(entity);
+    }
+
+    /**
+     * Combines in-memory READ constraints of the meta-class into a single predicate, so the constraints of the current
+     * user session are looked up once per meta-class instead of once per entity.
+     */
+    protected Predicate<Entity> getInMemoryReadPredicate(MetaClass metaClass, Map<MetaClass, Predicate<Entity>> predicates) {
+        Predicate<Entity> predicate = predicates.get(metaClass);
+        if (predicate == null) {
+            //noinspection unchecked
+            List<Predicate<Entity>> constraintPredicates = getConstraints(metaClass)
+                    .filter(c -> c.isInMemory() && c.getOperation() == EntityOp.READ)
+                    .map(c -> (Predicate<Entity>) c.getPredicate())
+                    .collect(Collectors.toList());
+            if (constraintPredicates.isEmpty()) {
+                predicate = PERMIT_ALL;
+            } else if (constraintPredicates.size() == 1) {
+                predicate = constraintPredicates.get(0);
+            } else {
+                predicate = entity -> {
+                    for (Predicate<Entity> constraintPredicate : constraintPredicates) {
+                        if (!constraintPredicate.test(entity)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                };
+            }
+            predicates.put(metaClass, predicate);
+        }
+        return predicate;
     }
 
     @Override
@@ -456,10 +548,16 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
     protected Object runGroovyScript(Entity entity, String groovyScript) {
         Map<String, Object> context = new HashMap<>();
         context.put("__entity__", entity);
-        context.put("parse", new MethodClosure(this, "parseValue"));
+        context.put("parse", parseClosure);
         context.put("userSession", userSessionSource.getUserSession());
         fillGroovyConstraintsContext(context);
-        return scripting.evaluateGroovy(groovyScript.replace("{E}", "__entity__"), context);
+        String script = StringUtils.replace(groovyScript, "{E}", "__entity__");
+        if (scripting instanceof AbstractScripting) {
+            Class<? extends Script> scriptClass = ((AbstractScripting) scripting).compileGroovy(script);
+            // a new script instance for each evaluation, so the script can be run concurrently
+            return InvokerHelper.createScript(scriptClass, new Binding(context)).run();
+        }
+        return scripting.evaluateGroovy(script, context);
     }
 
     /**
@@ -45,6 +45,7 @@ import org.eclipse.persistence.internal.jpa.EJBQueryImpl;
 import org.eclipse.persistence.jpa.JpaQuery;
 import org.eclipse.persistence.queries.DatabaseQuery;
 import org.eclipse.persistence.queries.ObjectLevelReadQuery;
+import org.eclipse.persistence.queries.ScrollableCursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.config.BeanDefinition;
@@ -419,6 +420,46 @@ public class QueryImpl<T> implements TypedQuery<T> {
         return resultList;
     }
 
+    @Override
+    public void forEachChunk(int chunkSize, Consumer<List> action) {
+        if (log.isDebugEnabled())
+            log.debug(queryString.replaceAll("[\\t\\n\\x0B\\f\\r]", " "));
+
+        Preconditions.checkNotNull(action);
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("chunkSize must be positive");
+
+        singleResultExpected = false;
+
+        JpaQuery<T> query = getQuery();
+        preExecute(query);
+        query.setHint(QueryHints.SCROLLABLE_CURSOR, HintValues.TRUE);
+        query.setHint(QueryHints.JDBC_FETCH_SIZE, chunkSize);
+
+        ScrollableCursor cursor = (ScrollableCursor) query.getSingleResult();
+        try {
+            List<Object> chunk = new ArrayList<>(chunkSize);
+            while (cursor.hasNext()) {
+                Object item = cursor.next();
+                if (item instanceof Entity) {
+                    for (View view : views) {
+                        entityFetcher.fetch((Entity) item, view);
+                    }
+                }
+                chunk.add(item);
+                if (chunk.size() == chunkSize) {
+                    action.accept(chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                action.accept(chunk);
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
     @Override
     public T getSingleResult() {
         if (log.isDebugEnabled())
@@ -746,16 +787,19 @@ public class QueryImpl<T> implements TypedQuery<T> {
                     return result;
                 }
             }
+            long startTime = System.nanoTime();
             try {
                 result = singleResult ? jpaQuery.getSingleResult() : jpaQuery.getResultList();
             } catch (NoResultException | NonUniqueResultException ex) {
                 if (useQueryCache && singleResult) {
+                    queryCacheMgr.registerCacheMiss(entityName, System.nanoTime() - startTime);
                     queryCacheMgr.putResultToCache(queryKey, null, entityName, parser.getAllEntityNames(), ex);
                 }
                 throw ex;
             }
             fetcher.accept(result);
             if (useQueryCache) {
+                queryCacheMgr.registerCacheMiss(entityName, System.nanoTime() - startTime);
                 queryCacheMgr.putResultToCache(queryKey,
                         singleResult ? Collections.singletonList(result) : (List) result,
                         entityName, parser.getAllEntityNames());
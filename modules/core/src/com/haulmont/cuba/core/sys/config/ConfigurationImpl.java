@@ -41,18 +41,26 @@ public class ConfigurationImpl implements Configuration, BeanFactoryPostProcesso
 
     protected Map<Class, ConfigHandler> cache = new ConcurrentHashMap<>();
 
+    protected Map<Class, Config> proxies = new ConcurrentHashMap<>();
+
     protected ApplicationContext applicationContext;
 
     @Override
     public <T extends Config> T getConfig(Class<T> configInterface) {
-        ConfigHandler handler = cache.get(configInterface);
-        if (handler == null) {
-            handler = new ConfigHandler(createPersister(), configInterface);
-            cache.put(configInterface, handler);
+        Config config = proxies.get(configInterface);
+        if (config == null) {
+            ConfigHandler handler = cache.get(configInterface);
+            if (handler == null) {
+                // the server persister sees all changes of application and database properties,
+                // so typed values can be cached until ConfigHandler.invalidateCachedValues() is invoked
+                handler = new ConfigHandler(createPersister(), configInterface, true);
+                cache.put(configInterface, handler);
+            }
+            ClassLoader classLoader = configInterface.getClassLoader();
+            config = (Config) Proxy.newProxyInstance(classLoader, new Class[]{configInterface}, handler);
+            proxies.put(configInterface, config);
         }
-        ClassLoader classLoader = configInterface.getClassLoader();
-        Object proxy = Proxy.newProxyInstance(classLoader, new Class[]{configInterface}, handler);
-        return configInterface.cast(proxy);
+        return configInterface.cast(config);
     }
 
     @Override
@@ -17,6 +17,7 @@
 package com.haulmont.cuba.core.sys.entitycache;
 
 
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -80,9 +81,48 @@ public interface QueryCache {
      */
     long getMaxSize();
 
+    /**
+     * Returns the total weight of entries in this cache, where the weight of an entry is the number of
+     * identifiers in the query result plus one.
+     */
+    default long getWeight() {
+        return asMap().values().stream()
+                .mapToLong(queryResult -> 1 + (queryResult.getResult() == null ? 0 : queryResult.getResult().size()))
+                .sum();
+    }
+
+    /**
+     * Returns the maximum total weight of entries the cache may contain, or zero if the cache is bounded
+     * by the number of entries.
+     */
+    default long getMaxWeight() {
+        return 0;
+    }
+
     /**
      * Returns a view of the entries stored in this cache as a map. Modifications made to
      * the map doesn't affect the cache.
      */
     Map<QueryKey, QueryResult> asMap();
+
+    /**
+     * Returns number of cached query keys indexed for each metaClass name.
+     */
+    default Map<String, Integer> getTypeIndexSizes() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Returns number of query keys indexed by query identifier.
+     */
+    default long getIdIndexSize() {
+        return 0;
+    }
+
+    /**
+     * Returns total number of query keys removed from the indexes after their entries were discarded from the cache.
+     */
+    default long getPrunedKeysCount() {
+        return 0;
+    }
 }
@@ -34,4 +34,28 @@ public interface QueryCacheConfig extends Config {
     @Property("cuba.queryCache.maxSize")
     @DefaultInt(100)
     int getQueryCacheMaxSize();
+
+    /**
+     * Maximum total weight of cached queries, where the weight of a query is the number of identifiers in its result
+     * plus one. If set to a positive value, it is used instead of {@link #getQueryCacheMaxSize()}.
+     */
+    @Property("cuba.queryCache.maxWeight")
+    @DefaultInt(0)
+    int getQueryCacheMaxWeight();
+
+    /**
+     * Time in seconds after which cached query results are discarded since they were put into the cache.
+     * Zero means no expiration.
+     */
+    @Property("cuba.queryCache.expireAfterWriteSec")
+    @DefaultInt(0)
+    int getQueryCacheExpireAfterWriteSec();
+
+    /**
+     * Time in seconds after which cached query results are discarded since they were last read.
+     * Zero means no expiration.
+     */
+    @Property("cuba.queryCache.expireAfterAccessSec")
+    @DefaultInt(0)
+    int getQueryCacheExpireAfterAccessSec();
 }
@@ -54,6 +54,8 @@ public class QueryCacheManager {
     protected QueryCache queryCache;
     @Inject
     protected Metadata metadata;
+    @Inject
+    protected QueryCacheStatistics statistics;
 
     protected static final Logger log = LoggerFactory.getLogger(QueryCacheManager.class);
 
@@ -89,6 +91,7 @@ public class QueryCacheManager {
         List<T> resultList = null;
         QueryResult queryResult = queryCache.get(queryKey);
         if (queryResult != null) {
+            statistics.recordHit(queryResult.getType());
             MetaClass metaClass = metadata.getClassNN(queryResult.getType());
             String storeName = metadata.getTools().getStoreName(metaClass);
             EntityManager em = persistence.getEntityManager(storeName);
@@ -114,6 +117,7 @@ public class QueryCacheManager {
         log.debug("Looking for query in cache: {}", queryKey.printDescription());
         QueryResult queryResult = queryCache.get(queryKey);
         if (queryResult != null) {
+            statistics.recordHit(queryResult.getType());
             MetaClass metaClass = metadata.getClassNN(queryResult.getType());
             if (!metadata.getTools().isCacheable(metaClass)) {
                 log.warn("Using cacheable query without entity cache for {}", queryResult.getType());
@@ -177,6 +181,30 @@ public class QueryCacheManager {
         queryCache.put(queryKey, queryResult);
     }
 
+    /**
+     * Registers a query which results were not found in the cache and had to be loaded from the database.
+     *
+     * @param type          result entity type (metaClass name)
+     * @param loadTimeNanos time spent executing the query, in nanoseconds
+     */
+    public void registerCacheMiss(String type, long loadTimeNanos) {
+        statistics.recordMiss(type, loadTimeNanos);
+    }
+
+    /**
+     * Returns cache statistics collected for each result entity type.
+     */
+    public Map<String, QueryCacheStatistics.TypeStat> getStatistics() {
+        return statistics.getTypeStats();
+    }
+
+    /**
+     * Discards collected cache statistics.
+     */
+    public void resetStatistics() {
+        statistics.reset();
+    }
+
     /**
      * Discards cached query results for java class (associated with metaClass) {@code typeClass}
      *
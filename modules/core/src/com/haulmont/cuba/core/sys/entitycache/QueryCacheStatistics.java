@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.entitycache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects query cache hit, miss, load time and eviction counters for each result entity type.
+ */
+@Component(QueryCacheStatistics.NAME)
+public class QueryCacheStatistics {
+
+    public static final String NAME = "cuba_QueryCacheStatistics";
+
+    protected ConcurrentMap<String, TypeStat> typeStats = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a query results lookup found in the cache.
+     *
+     * @param type result entity type (metaClass name)
+     */
+    public void recordHit(String type) {
+        getTypeStat(type).hits.increment();
+    }
+
+    /**
+     * Registers a query results lookup not found in the cache and the time spent to load results from the database.
+     *
+     * @param type          result entity type (metaClass name)
+     * @param loadTimeNanos time spent executing the query, in nanoseconds
+     */
+    public void recordMiss(String type, long loadTimeNanos) {
+        TypeStat typeStat = getTypeStat(type);
+        typeStat.misses.increment();
+        typeStat.loadTime.add(loadTimeNanos);
+    }
+
+    /**
+     * Registers query results removed from the cache by size, weight or expiration policy.
+     *
+     * @param type result entity type (metaClass name)
+     */
+    public void recordEviction(String type) {
+        getTypeStat(type).evictions.increment();
+    }
+
+    /**
+     * @return counters for each result entity type, sorted by the type name
+     */
+    public Map<String, TypeStat> getTypeStats() {
+        return new TreeMap<>(typeStats);
+    }
+
+    /**
+     * Discards all collected counters.
+     */
+    public void reset() {
+        typeStats.clear();
+    }
+
+    protected TypeStat getTypeStat(String type) {
+        return typeStats.computeIfAbsent(type == null ? "" : type, t -> new TypeStat());
+    }
+
+    public static class TypeStat {
+        protected LongAdder hits = new LongAdder();
+        protected LongAdder misses = new LongAdder();
+        protected LongAdder loadTime = new LongAdder();
+        protected LongAdder evictions = new LongAdder();
+
+        public long getHits() {
+            return hits.longValue();
+        }
+
+        public long getMisses() {
+            return misses.longValue();
+        }
+
+        public long getEvictions() {
+            return evictions.longValue();
+        }
+
+        public double getHitRate() {
+            long hits = getHits();
+            long requests = hits + getMisses();
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+
+        /**
+         * @return average time of loading query results on a cache miss, in milliseconds
+         */
+        public double getAverageLoadTime() {
+            long misses = getMisses();
+            return misses == 0 ? 0 : (double) loadTime.longValue() / misses / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
@@ -18,8 +18,9 @@ package com.haulmont.cuba.core.sys.entitycache;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Striped;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -28,27 +29,84 @@ import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Standard implementation of the query cache based on Guava {@link Cache}. The cache is bounded either by the number
+ * of entries or by the total number of cached identifiers, see {@link QueryCacheConfig}.
+ * <p>
+ * Keys are additionally indexed by related entity type and by {@link QueryKey#getId()}. Entries removed from the
+ * Guava cache (evicted by size, invalidated or replaced) are queued by the removal listener and pruned from the
+ * indexes on subsequent cache operations, so the indexes never outgrow the cache itself.
+ */
 @Component(QueryCache.NAME)
 public class StandardQueryCache implements QueryCache {
 
+    protected static final int INDEX_LOCK_STRIPES = 64;
+
     protected Cache<QueryKey, QueryResult> data;
-    protected ConcurrentMap<String, CopyOnWriteArrayList<QueryKey>> typeIndex = new ConcurrentHashMap<>();
+    protected ConcurrentMap<String, Set<QueryKey>> typeIndex = new ConcurrentHashMap<>();
+    protected ConcurrentMap<UUID, QueryKey> idIndex = new ConcurrentHashMap<>();
+    protected ConcurrentMap<QueryKey, UUID> keyIds = new ConcurrentHashMap<>();
+    protected ConcurrentLinkedQueue<RemovalNotification<QueryKey, QueryResult>> removedEntries =
+            new ConcurrentLinkedQueue<>();
+    protected Striped<Lock> indexLocks = Striped.lock(INDEX_LOCK_STRIPES);
     protected ReadWriteLock lock = new ReentrantReadWriteLock();
 
+    protected AtomicLong prunedKeysCount = new AtomicLong();
+
     @Inject
     protected QueryCacheConfig queryCacheConfig;
+    @Inject
+    protected QueryCacheStatistics statistics;
 
     protected static final Logger log = LoggerFactory.getLogger(QueryCache.class);
 
     @PostConstruct
     protected void init() {
-        data = CacheBuilder.newBuilder().maximumSize(queryCacheConfig.getQueryCacheMaxSize()).build();
+        CacheBuilder<QueryKey, QueryResult> builder = CacheBuilder.newBuilder()
+                .<QueryKey, QueryResult>removalListener(this::onRemoval);
+
+        int maxWeight = queryCacheConfig.getQueryCacheMaxWeight();
+        if (maxWeight > 0) {
+            builder.maximumWeight(maxWeight).weigher(this::weigh);
+        } else {
+            builder.maximumSize(queryCacheConfig.getQueryCacheMaxSize());
+        }
+
+        int expireAfterWriteSec = queryCacheConfig.getQueryCacheExpireAfterWriteSec();
+        if (expireAfterWriteSec > 0) {
+            builder.expireAfterWrite(expireAfterWriteSec, TimeUnit.SECONDS);
+        }
+        int expireAfterAccessSec = queryCacheConfig.getQueryCacheExpireAfterAccessSec();
+        if (expireAfterAccessSec > 0) {
+            builder.expireAfterAccess(expireAfterAccessSec, TimeUnit.SECONDS);
+        }
+
+        data = builder.build();
+    }
+
+    protected int weigh(QueryKey queryKey, QueryResult queryResult) {
+        return 1 + (queryResult.getResult() == null ? 0 : queryResult.getResult().size());
+    }
+
+    /**
+     * Removal listener of the Guava cache. It can be invoked by any thread performing cache maintenance, so it only
+     * queues the notification, and the indexes are pruned by {@link #pruneIndexes()} under the key lock.
+     */
+    protected void onRemoval(RemovalNotification<QueryKey, QueryResult> notification) {
+        if (notification.getKey() != null) {
+            removedEntries.add(notification);
+        }
+        if (notification.wasEvicted() && notification.getValue() != null) {
+            statistics.recordEviction(notification.getValue().getType());
+        }
     }
 
     @Override
@@ -61,16 +119,27 @@ public class StandardQueryCache implements QueryCache {
         Lock readLock = lock.readLock();
         readLock.lock();
         try {
-            data.put(queryKey, queryResult);
+            Lock keyLock = indexLocks.get(queryKey);
+            keyLock.lock();
+            try {
+                // remove the previous entry explicitly, so the cache holds the same key instance as the id index
+                data.invalidate(queryKey);
+                data.put(queryKey, queryResult);
 
-            for (String type : queryResult.getRelatedTypes()) {
-                CopyOnWriteArrayList<QueryKey> keys = typeIndex.get(type);
-                if (keys == null) {
-                    typeIndex.putIfAbsent(type, new CopyOnWriteArrayList<>());
-                    keys = typeIndex.get(type);
+                UUID previousId = keyIds.put(queryKey, queryKey.getId());
+                if (previousId != null && !previousId.equals(queryKey.getId())) {
+                    idIndex.remove(previousId);
+                }
+                idIndex.put(queryKey.getId(), queryKey);
+                if (queryResult.getRelatedTypes() != null) {
+                    for (String type : queryResult.getRelatedTypes()) {
+                        typeIndex.computeIfAbsent(type, t -> ConcurrentHashMap.newKeySet()).add(queryKey);
+                    }
                 }
-                keys.add(queryKey);
+            } finally {
+                keyLock.unlock();
             }
+            pruneIndexes();
         } finally {
             readLock.unlock();
         }
@@ -78,11 +147,9 @@ public class StandardQueryCache implements QueryCache {
 
     @Override
     public QueryKey findQueryKeyById(UUID queryId) {
-        Set<QueryKey> keys = Sets.newHashSet(data.asMap().keySet());
-        for (QueryKey key : keys) {
-            if (Objects.equals(queryId, key.getId())) {
-                return key;
-            }
+        QueryKey queryKey = idIndex.get(queryId);
+        if (queryKey != null && data.getIfPresent(queryKey) != null) {
+            return queryKey;
         }
         return null;
     }
@@ -94,6 +161,7 @@ public class StandardQueryCache implements QueryCache {
         try {
             log.debug("Invalidate query by key {}", queryKey.printDescription());
             data.invalidate(queryKey);
+            pruneIndexes();
         } finally {
             readLock.unlock();
         }
@@ -104,10 +172,8 @@ public class StandardQueryCache implements QueryCache {
         Lock readLock = lock.readLock();
         readLock.lock();
         try {
-            CopyOnWriteArrayList<QueryKey> keys = typeIndex.get(typeName);
-            if (keys == null) return;
-            log.debug("Invalidate cache for type {}", typeName);
-            Arrays.stream(keys.toArray()).forEach(it -> data.invalidate(it));
+            invalidateType(typeName);
+            pruneIndexes();
         } finally {
             readLock.unlock();
         }
@@ -118,30 +184,31 @@ public class StandardQueryCache implements QueryCache {
         Lock readLock = lock.readLock();
         readLock.lock();
         try {
-            typeNames.forEach(typeName -> {
-                        CopyOnWriteArrayList<QueryKey> keys = typeIndex.get(typeName);
-                        if (keys == null) return;
-                        log.debug("Invalidate cache for type {}", typeName);
-                        Arrays.stream(keys.toArray()).forEach(it -> data.invalidate(it));
-                    }
-            );
+            typeNames.forEach(this::invalidateType);
+            pruneIndexes();
         } finally {
             readLock.unlock();
         }
     }
 
+    protected void invalidateType(String typeName) {
+        Set<QueryKey> keys = typeIndex.get(typeName);
+        if (keys == null || keys.isEmpty()) return;
+        log.debug("Invalidate cache for type {}", typeName);
+        data.invalidateAll(keys);
+    }
+
     @Override
     public QueryKey invalidate(UUID queryId) {
         Lock readLock = lock.readLock();
         readLock.lock();
         try {
-            Set<QueryKey> keys = Sets.newHashSet(data.asMap().keySet());
-            for (QueryKey key : keys) {
-                if (Objects.equals(queryId, key.getId())) {
-                    log.debug("Invalidate query by identifier {}", queryId);
-                    data.invalidate(key);
-                    return key;
-                }
+            QueryKey key = idIndex.get(queryId);
+            if (key != null && data.getIfPresent(key) != null) {
+                log.debug("Invalidate query by identifier {}", queryId);
+                data.invalidate(key);
+                pruneIndexes();
+                return key;
             }
         } finally {
             readLock.unlock();
@@ -157,11 +224,49 @@ public class StandardQueryCache implements QueryCache {
             log.debug("Invalidate all cache");
             data.invalidateAll();
             typeIndex.clear();
+            idIndex.clear();
+            keyIds.clear();
+            removedEntries.clear();
         } finally {
             writeLock.unlock();
         }
     }
 
+    /**
+     * Removes keys of the entries discarded from the cache from the type and identifier indexes. A key is pruned only
+     * if the cache does not contain it anymore, which is checked under the same lock that {@link #put} holds while
+     * adding the key to the indexes.
+     */
+    protected void pruneIndexes() {
+        RemovalNotification<QueryKey, QueryResult> notification;
+        while ((notification = removedEntries.poll()) != null) {
+            QueryKey queryKey = notification.getKey();
+            Lock keyLock = indexLocks.get(queryKey);
+            keyLock.lock();
+            try {
+                if (data.asMap().containsKey(queryKey)) {
+                    continue;
+                }
+                UUID id = keyIds.remove(queryKey);
+                if (id != null) {
+                    idIndex.remove(id);
+                }
+                QueryResult queryResult = notification.getValue();
+                Collection<String> types = queryResult != null && queryResult.getRelatedTypes() != null
+                        ? queryResult.getRelatedTypes() : typeIndex.keySet();
+                for (String type : types) {
+                    Set<QueryKey> keys = typeIndex.get(type);
+                    if (keys != null) {
+                        keys.remove(queryKey);
+                    }
+                }
+                prunedKeysCount.incrementAndGet();
+            } finally {
+                keyLock.unlock();
+            }
+        }
+    }
+
     @Override
     public long size() {
         return data.size();
@@ -172,8 +277,34 @@ public class StandardQueryCache implements QueryCache {
         return queryCacheConfig.getQueryCacheMaxSize();
     }
 
+    @Override
+    public long getMaxWeight() {
+        return Math.max(queryCacheConfig.getQueryCacheMaxWeight(), 0);
+    }
+
     @Override
     public Map<QueryKey, QueryResult> asMap() {
         return Maps.newHashMap(data.asMap());
     }
+
+    @Override
+    public Map<String, Integer> getTypeIndexSizes() {
+        Map<String, Integer> sizes = new TreeMap<>();
+        typeIndex.forEach((type, keys) -> {
+            if (!keys.isEmpty()) {
+                sizes.put(type, keys.size());
+            }
+        });
+        return sizes;
+    }
+
+    @Override
+    public long getIdIndexSize() {
+        return idIndex.size();
+    }
+
+    @Override
+    public long getPrunedKeysCount() {
+        return prunedKeysCount.get();
+    }
 }
@@ -120,6 +120,8 @@ public class EntityListenerManager {
 
     protected ThreadLocal<List<ListenerExecution>> threadLocalExecutions = new ThreadLocal<>();
 
+    protected ThreadLocal<Set<Entity>> threadLocalBulkInserts = new ThreadLocal<>();
+
     /**
      * Register an entity listener by its class. The listener instance will be instantiated as a plain object.
      *
@@ -238,6 +240,8 @@ public class EntityListenerManager {
                         ((BeforeAttachEntityListener) listener).onBeforeAttach(entity);
                         break;
                     case BEFORE_INSERT:
+                        if (listener instanceof BulkBeforeInsertEntityListener && isBulkInsert(entity))
+                            break;
                         logExecution(type, entity);
                         ((BeforeInsertEntityListener) listener).onBeforeInsert(entity, persistence.getEntityManager(storeName));
                         break;
@@ -272,6 +276,56 @@ public class EntityListenerManager {
         }
     }
 
+    /**
+     * Invokes {@link BulkBeforeInsertEntityListener}s for a batch of new instances. The per-instance invocations of these
+     * listeners for the same instances are skipped until {@link #clearBulkInserts()} is called.
+     *
+     * @param entities  new instances to be inserted
+     * @param storeName data store name
+     */
+    @SuppressWarnings("unchecked")
+    public void fireBulkBeforeInsertListeners(Collection<? extends Entity> entities, String storeName) {
+        if (!enabled)
+            return;
+
+        Set<Entity> bulkInserts = threadLocalBulkInserts.get();
+        if (bulkInserts == null) {
+            bulkInserts = Collections.newSetFromMap(new IdentityHashMap<>());
+            threadLocalBulkInserts.set(bulkInserts);
+        }
+
+        Map<Class<? extends Entity>, List<Entity>> entitiesByClass = new LinkedHashMap<>();
+        for (Entity entity : entities) {
+            entitiesByClass.computeIfAbsent(entity.getClass(), k -> new ArrayList<>()).add(entity);
+        }
+
+        for (Map.Entry<Class<? extends Entity>, List<Entity>> entry : entitiesByClass.entrySet()) {
+            for (Object listener : getListener(entry.getKey(), EntityListenerType.BEFORE_INSERT)) {
+                if (listener instanceof BulkBeforeInsertEntityListener) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Executing bulk BEFORE_INSERT entity listener for {} instances of {}",
+                                entry.getValue().size(), entry.getKey().getName());
+                    }
+                    ((BulkBeforeInsertEntityListener) listener).onBeforeInsert(entry.getValue(),
+                            persistence.getEntityManager(storeName));
+                }
+            }
+            bulkInserts.addAll(entry.getValue());
+        }
+    }
+
+    /**
+     * Ends the bulk processing started by {@link #fireBulkBeforeInsertListeners(Collection, String)}.
+     */
+    public void clearBulkInserts() {
+        threadLocalBulkInserts.remove();
+    }
+
+    protected boolean isBulkInsert(Entity entity) {
+        Set<Entity> bulkInserts = threadLocalBulkInserts.get();
+        return bulkInserts != null && bulkInserts.contains(entity);
+    }
+
     public void enable(boolean enable) {
         this.enabled = enable;
     }
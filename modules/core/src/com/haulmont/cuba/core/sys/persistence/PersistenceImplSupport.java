@@ -291,6 +291,18 @@ public class PersistenceImplSupport implements ApplicationContextAware {
         makeDetached(entity);
     }
 
+    /**
+     * Detaches an instance that has already been flushed to the database before the transaction commit, keeping it
+     * known to the transaction: its type is invalidated in the query cache and the instance is passed to the
+     * transaction listeners when the transaction completes.
+     */
+    public void detachFlushed(EntityManager entityManager, Entity entity) {
+        entityManager.detach(entity);
+
+        UnitOfWork unitOfWork = entityManager.getDelegate().unwrap(UnitOfWork.class);
+        getInstanceContainerResourceHolder(getStorageName(unitOfWork)).getFlushedInstances().add(entity);
+    }
+
     protected void makeDetached(Object instance) {
         if (instance instanceof BaseGenericIdEntity) {
             BaseEntityInternalAccess.setNew((BaseGenericIdEntity) instance, false);
@@ -317,6 +329,8 @@ public class PersistenceImplSupport implements ApplicationContextAware {
 
         protected Set<Entity> newDetachedInstances = createEntitySet();
 
+        protected Set<Entity> flushedInstances = createEntitySet();
+
         protected String storeName;
 
         public ContainerResourceHolder(String storeName) {
@@ -375,6 +389,10 @@ public class PersistenceImplSupport implements ApplicationContextAware {
             return newDetachedInstances;
         }
 
+        public Set<Entity> getFlushedInstances() {
+            return flushedInstances;
+        }
+
         @Override
         public String toString() {
             return "ContainerResourceHolder@" + Integer.toHexString(hashCode()) + "{" +
@@ -397,6 +415,7 @@ public class PersistenceImplSupport implements ApplicationContextAware {
         protected void cleanupResource(ContainerResourceHolder resourceHolder, String resourceKey, boolean committed) {
             resourceHolder.unitOfWorkMap.clear();
             resourceHolder.savedInstances.clear();
+            resourceHolder.flushedInstances.clear();
         }
 
         @Override
@@ -439,8 +458,13 @@ public class PersistenceImplSupport implements ApplicationContextAware {
                 }
             }
 
+            for (Entity entity : container.getFlushedInstances()) {
+                typeNames.add(entity.getMetaClass().getName());
+            }
+
             if (!readOnly) {
                 Collection<Entity> allInstances = container.getAllInstances();
+                allInstances.addAll(container.getFlushedInstances());
                 for (BeforeCommitTransactionListener transactionListener : beforeCommitTxListeners) {
                     transactionListener.beforeCommit(persistence.getEntityManager(container.getStoreName()), allInstances);
                 }
@@ -475,6 +499,9 @@ public class PersistenceImplSupport implements ApplicationContextAware {
                         }
                     }
                 }
+                if (!container.getFlushedInstances().isEmpty()) {
+                    instances.addAll(container.getFlushedInstances());
+                }
                 for (AfterCompleteTransactionListener listener : afterCompleteTxListeners) {
                     listener.afterComplete(status == TransactionSynchronization.STATUS_COMMITTED, instances);
                 }
@@ -29,10 +29,8 @@ import org.springframework.web.util.NestedServletException;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.OptionalDataException;
+import java.io.*;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Exports a middleware service bean as an HTTP invoker service endpoint.
@@ -105,6 +103,44 @@ public class HttpServiceExporter extends HttpInvokerServiceExporter implements B
         }
     }
 
+    @Override
+    protected InputStream decorateInputStream(HttpServletRequest request, InputStream is) throws IOException {
+        if (RemotingCompression.GZIP.equalsIgnoreCase(request.getHeader("Content-Encoding"))) {
+            return new GZIPInputStream(is);
+        }
+        return is;
+    }
+
+    /*
+     * Compresses the result if the client accepts gzip and the serialized result exceeds
+     * cuba.remoting.compressionThreshold.
+     */
+    @Override
+    protected void writeRemoteInvocationResult(HttpServletRequest request, HttpServletResponse response,
+                                               RemoteInvocationResult result) throws IOException {
+        response.setHeader(RemotingCompression.ACCEPT_ENCODING_HEADER, RemotingCompression.GZIP);
+
+        int threshold = RemotingCompression.getThreshold();
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (threshold <= 0 || acceptEncoding == null || !acceptEncoding.contains(RemotingCompression.GZIP)) {
+            super.writeRemoteInvocationResult(request, response, result);
+            return;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        try (ObjectOutputStream oos = createObjectOutputStream(bytes)) {
+            doWriteRemoteInvocationResult(result, oos);
+        }
+        byte[] data = bytes.toByteArray();
+        if (data.length > threshold) {
+            data = RemotingCompression.gzip(data);
+            response.setHeader("Content-Encoding", RemotingCompression.GZIP);
+        }
+        response.setContentType(getContentType());
+        response.setContentLength(data.length);
+        response.getOutputStream().write(data);
+    }
+
     @Override
     protected void doWriteRemoteInvocationResult(RemoteInvocationResult result, ObjectOutputStream oos) throws IOException {
         SerializationSupport.serialize(result, oos);
@@ -25,12 +25,17 @@ import org.apache.commons.lang3.ClassUtils;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class LocalServiceInvokerImpl implements LocalServiceInvoker {
 
     private Object target;
 
+    private final Map<String, Method> methods = new ConcurrentHashMap<>();
+
     public LocalServiceInvokerImpl(Object target) {
         if (target == null) {
             throw new IllegalArgumentException("Target object is null");
@@ -51,13 +56,6 @@ public class LocalServiceInvokerImpl implements LocalServiceInvoker {
             ClassLoader classLoader = target.getClass().getClassLoader();
             Thread.currentThread().setContextClassLoader(classLoader);
 
-            String[] parameterTypeNames = invocation.getParameterTypeNames();
-            Class[] parameterTypes = new Class[parameterTypeNames.length];
-            for (int i = 0; i < parameterTypeNames.length; i++) {
-                Class<?> paramClass = ClassUtils.getClass(classLoader, parameterTypeNames[i]);
-                parameterTypes[i] = paramClass;
-            }
-
             byte[][] argumentsData = invocation.getArgumentsData();
             Object[] notSerializableArguments = invocation.getNotSerializableArguments();
             Object[] arguments;
@@ -90,10 +88,10 @@ public class LocalServiceInvokerImpl implements LocalServiceInvoker {
                         invocation.getAddress(), invocation.getClientInfo());
             }
 
-            Method method = target.getClass().getMethod(invocation.getMethodName(), parameterTypes);
+            Method method = getMethod(invocation, classLoader);
             Object data = method.invoke(target, arguments);
 
-            if (invocation.canResultBypassSerialization()) {
+            if (invocation.canResultBypassSerialization() || LocalServiceInvocation.canPassByReference(data)) {
                 result.setNotSerializableData(data);
             } else {
                 result.setData(SerializationSupport.serialize(data));
@@ -110,4 +108,24 @@ public class LocalServiceInvokerImpl implements LocalServiceInvoker {
             UserInvocationContext.clearRequestScopeInfo();
         }
     }
+
+    protected Method getMethod(LocalServiceInvocation invocation, ClassLoader classLoader)
+            throws ClassNotFoundException, NoSuchMethodException {
+        String signature = invocation.getMethodSignature();
+        if (signature == null) {
+            signature = invocation.getMethodName() + Arrays.toString(invocation.getParameterTypeNames());
+        }
+        Method method = methods.get(signature);
+        if (method == null) {
+            String[] parameterTypeNames = invocation.getParameterTypeNames();
+            Class[] parameterTypes = new Class[parameterTypeNames.length];
+            for (int i = 0; i < parameterTypeNames.length; i++) {
+                Class<?> paramClass = ClassUtils.getClass(classLoader, parameterTypeNames[i]);
+                parameterTypes[i] = paramClass;
+            }
+            method = target.getClass().getMethod(invocation.getMethodName(), parameterTypes);
+            methods.put(signature, method);
+        }
+        return method;
+    }
 }
\ No newline at end of file
@@ -78,6 +78,8 @@ public class EntityLog implements EntityLogAPI {
     protected DataManager dataManager;
     @Inject
     protected ServerConfig serverConfig;
+    @Inject
+    protected EntityLogWriter entityLogWriter;
 
     protected volatile boolean loaded;
     protected EntityLogConfig config;
@@ -112,58 +114,85 @@ public class EntityLog implements EntityLogAPI {
         if (items == null || items.isEmpty())
             return;
 
-        Set<EntityLogItem> saved = new LinkedHashSet<>();
-        for (EntityLogItem item : items) {
-            List<EntityLogItem> sameEntityList = items.stream()
-                    .filter(entityLogItem -> entityLogItem.getDbGeneratedIdEntity() != null ?
-                            entityLogItem.getDbGeneratedIdEntity().equals(item.getDbGeneratedIdEntity()) :
-                            entityLogItem.getObjectEntityId().equals(item.getObjectEntityId()))
-                    .collect(Collectors.toList());
+        Collection<List<EntityLogItem>> sameEntityLists = groupItems(items);
+        List<EntityLogItem> itemsToSave = new ArrayList<>(sameEntityLists.size());
+        for (List<EntityLogItem> sameEntityList : sameEntityLists) {
             EntityLogItem itemToSave = sameEntityList.get(0);
-            if (!saved.contains(itemToSave)) {
-                computeChanges(itemToSave, sameEntityList);
-                saved.add(itemToSave);
-                saveItem(itemToSave);
-            }
+            computeChanges(itemToSave, sameEntityList);
+            itemsToSave.add(itemToSave);
         }
+        saveItems(itemsToSave);
     }
 
-    protected void computeChanges(EntityLogItem itemToSave, List<EntityLogItem> sameEntityList) {
-        Set<String> notDynamicAttributes = sameEntityList.stream()
-                .flatMap(entityLogItem -> entityLogItem.getAttributes().stream().map(EntityLogAttr::getName))
-                .filter(attr -> !DynamicAttributesUtils.isDynamicAttribute(attr))
-                .collect(Collectors.toSet());
+    /**
+     * Groups log items registered in the current transaction by the changed entity instance, preserving the order
+     * in which instances were registered first.
+     */
+    protected Collection<List<EntityLogItem>> groupItems(List<EntityLogItem> items) {
+        Map<Object, List<EntityLogItem>> sameEntityLists = new LinkedHashMap<>();
+        for (EntityLogItem item : items) {
+            sameEntityLists.computeIfAbsent(getGroupingKey(item), key -> new ArrayList<>()).add(item);
+        }
+        return sameEntityLists.values();
+    }
 
-        List<EntityLogItem> dynamicAttributeChanges = sameEntityList.stream()
-                .filter(item -> item.getAttributes().stream()
-                        .allMatch(attr -> DynamicAttributesUtils.isDynamicAttribute(attr.getName())))
-                .collect(Collectors.toList());
+    protected Object getGroupingKey(EntityLogItem item) {
+        if (item.getDbGeneratedIdEntity() != null) {
+            return item.getDbGeneratedIdEntity();
+        }
+        return new AbstractMap.SimpleImmutableEntry<>(item.getEntity(), item.getObjectEntityId());
+    }
 
-        sameEntityList.removeAll(dynamicAttributeChanges);
+    protected void computeChanges(EntityLogItem itemToSave, List<EntityLogItem> sameEntityList) {
+        Map<String, EntityLogAttr> attrsToSave = getAttributesByName(itemToSave);
+
+        if (sameEntityList.size() > 1) {
+            List<EntityLogItem> attributeChanges = new ArrayList<>(sameEntityList.size());
+            List<EntityLogItem> dynamicAttributeChanges = new ArrayList<>();
+            for (EntityLogItem item : sameEntityList) {
+                boolean dynamicOnly = item.getAttributes().stream()
+                        .allMatch(attr -> DynamicAttributesUtils.isDynamicAttribute(attr.getName()));
+                if (dynamicOnly) {
+                    dynamicAttributeChanges.add(item);
+                } else {
+                    attributeChanges.add(item);
+                }
+            }
 
-        for (String attributeName : notDynamicAttributes) {
-            // old value from the first item
-            sameEntityList.get(0).getAttributes().stream()
-                    .filter(entityLogAttr -> entityLogAttr.getName().equals(attributeName))
-                    .findFirst()
-                    .ifPresent(entityLogAttr -> setAttributeOldValue(entityLogAttr, itemToSave));
-            // new value from the last item
-            sameEntityList.get(sameEntityList.size() - 1).getAttributes().stream()
-                    .filter(entityLogAttr -> entityLogAttr.getName().equals(attributeName))
-                    .findFirst()
-                    .ifPresent(entityLogAttr -> setAttributeNewValue(entityLogAttr, itemToSave));
-        }
+            if (!attributeChanges.isEmpty()) {
+                Set<String> notDynamicAttributes = new HashSet<>();
+                for (EntityLogItem item : attributeChanges) {
+                    for (EntityLogAttr attr : item.getAttributes()) {
+                        if (!DynamicAttributesUtils.isDynamicAttribute(attr.getName())) {
+                            notDynamicAttributes.add(attr.getName());
+                        }
+                    }
+                }
 
-        for (EntityLogItem dynamicAttributeLogItem : dynamicAttributeChanges) {
-            dynamicAttributeLogItem.getAttributes().stream()
-                    .findFirst()
-                    .ifPresent(attr -> {
-                        setAttributeOldValue(attr, itemToSave);
-                        setAttributeNewValue(attr, itemToSave);
-                    });
-        }
+                // old values from the first item, new values from the last item
+                Map<String, EntityLogAttr> firstItemAttrs = getAttributesByName(attributeChanges.get(0));
+                Map<String, EntityLogAttr> lastItemAttrs = getAttributesByName(attributeChanges.get(attributeChanges.size() - 1));
+                for (String attributeName : notDynamicAttributes) {
+                    EntityLogAttr oldValueAttr = firstItemAttrs.get(attributeName);
+                    if (oldValueAttr != null) {
+                        setAttributeOldValue(oldValueAttr, itemToSave, attrsToSave);
+                    }
+                    EntityLogAttr newValueAttr = lastItemAttrs.get(attributeName);
+                    if (newValueAttr != null) {
+                        setAttributeNewValue(newValueAttr, itemToSave, attrsToSave);
+                    }
+                }
+            }
 
-        sameEntityList.addAll(dynamicAttributeChanges);
+            for (EntityLogItem dynamicAttributeLogItem : dynamicAttributeChanges) {
+                dynamicAttributeLogItem.getAttributes().stream()
+                        .findFirst()
+                        .ifPresent(attr -> {
+                            setAttributeOldValue(attr, itemToSave, attrsToSave);
+                            setAttributeNewValue(attr, itemToSave, attrsToSave);
+                        });
+            }
+        }
 
         Properties properties = new Properties();
 
@@ -192,33 +221,88 @@ public class EntityLog implements EntityLogAPI {
         itemToSave.setChanges(getChanges(properties));
     }
 
-    protected void setAttributeOldValue(EntityLogAttr entityLogAttr, EntityLogItem itemToSave) {
-        EntityLogAttr attr = getAttrToSave(entityLogAttr, itemToSave);
+    protected Map<String, EntityLogAttr> getAttributesByName(EntityLogItem item) {
+        Map<String, EntityLogAttr> attributes = new HashMap<>();
+        for (EntityLogAttr attr : item.getAttributes()) {
+            attributes.putIfAbsent(attr.getName(), attr);
+        }
+        return attributes;
+    }
+
+    protected void setAttributeOldValue(EntityLogAttr entityLogAttr, EntityLogItem itemToSave,
+                                        Map<String, EntityLogAttr> attrsToSave) {
+        EntityLogAttr attr = getAttrToSave(entityLogAttr, itemToSave, attrsToSave);
         attr.setOldValue(entityLogAttr.getOldValue());
         attr.setOldValueId(entityLogAttr.getOldValueId());
     }
 
-    protected void setAttributeNewValue(EntityLogAttr entityLogAttr, EntityLogItem itemToSave) {
-        EntityLogAttr attr = getAttrToSave(entityLogAttr, itemToSave);
+    protected void setAttributeNewValue(EntityLogAttr entityLogAttr, EntityLogItem itemToSave,
+                                        Map<String, EntityLogAttr> attrsToSave) {
+        EntityLogAttr attr = getAttrToSave(entityLogAttr, itemToSave, attrsToSave);
         attr.setValue(entityLogAttr.getValue());
         attr.setValueId(entityLogAttr.getValueId());
     }
 
-    protected EntityLogAttr getAttrToSave(EntityLogAttr entityLogAttr, EntityLogItem itemToSave) {
-        EntityLogAttr attr = itemToSave.getAttributes().stream()
-                .filter(a -> a.getName().equals(entityLogAttr.getName()))
-                .findFirst()
-                .orElse(null);
-        if (attr == null) {
-            attr = metadata.create(EntityLogAttr.class);
-            attr.setName(entityLogAttr.getName());
+    protected EntityLogAttr getAttrToSave(EntityLogAttr entityLogAttr, EntityLogItem itemToSave,
+                                          Map<String, EntityLogAttr> attrsToSave) {
+        return attrsToSave.computeIfAbsent(entityLogAttr.getName(), name -> {
+            EntityLogAttr attr = metadata.create(EntityLogAttr.class);
+            attr.setName(name);
             itemToSave.getAttributes().add(attr);
+            return attr;
+        });
+    }
+
+    protected void saveItems(List<EntityLogItem> items) {
+        if (config.getAsyncMode()) {
+            enqueueItemsAfterCommit(items);
+            return;
+        }
+
+        List<EntityLogItem> batchItems = new ArrayList<>(items.size());
+        for (EntityLogItem item : items) {
+            if (item.getDbGeneratedIdEntity() == null && Stores.isMain(getStoreName(item))) {
+                batchItems.add(item);
+            } else {
+                saveItem(item);
+            }
         }
-        return attr;
+
+        int batchThreshold = config.getJdbcBatchThreshold();
+        if (batchThreshold > 0 && batchItems.size() >= batchThreshold && entityLogWriter.isJdbcBatchApplicable()) {
+            entityLogWriter.insertItems(batchItems);
+        } else {
+            for (EntityLogItem item : batchItems) {
+                saveItem(item);
+            }
+        }
+    }
+
+    /**
+     * Hands over the items to {@link EntityLogWriter} after the current transaction is committed.
+     * The items are written to the main database by a background thread.
+     */
+    protected void enqueueItemsAfterCommit(List<EntityLogItem> items) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                for (EntityLogItem item : items) {
+                    if (item.getDbGeneratedIdEntity() != null) {
+                        Number id = item.getDbGeneratedIdEntity().getId().getNN();
+                        item.setObjectEntityId(id);
+                    }
+                }
+                entityLogWriter.enqueue(items);
+            }
+        });
+    }
+
+    protected String getStoreName(EntityLogItem item) {
+        return metadataTools.getStoreName(metadata.getClassNN(item.getEntity()));
     }
 
     protected void saveItem(EntityLogItem item) {
-        String storeName = metadataTools.getStoreName(metadata.getClassNN(item.getEntity()));
+        String storeName = getStoreName(item);
         if (item.getDbGeneratedIdEntity() == null) {
             if (Stores.isMain(storeName)) {
                 EntityManager em = persistence.getEntityManager();
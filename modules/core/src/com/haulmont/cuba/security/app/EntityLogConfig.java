@@ -21,6 +21,7 @@ import com.haulmont.cuba.core.config.Property;
 import com.haulmont.cuba.core.config.Source;
 import com.haulmont.cuba.core.config.SourceType;
 import com.haulmont.cuba.core.config.defaults.DefaultBoolean;
+import com.haulmont.cuba.core.config.defaults.DefaultInt;
 
 /**
  * {@link com.haulmont.cuba.security.app.EntityLog} configuration parameters
@@ -35,4 +36,42 @@ public interface EntityLogConfig extends Config {
     @DefaultBoolean(true)
     boolean getEnabled();
     void setEnabled(boolean value);
+
+    /**
+     * @return Minimum number of log records saved on a transaction commit to insert them by JDBC batches instead
+     * of persisting each record by EntityManager. 0 disables JDBC batch inserts.
+     */
+    @Property("cuba.entityLog.jdbcBatchThreshold")
+    @DefaultInt(0)
+    int getJdbcBatchThreshold();
+
+    /**
+     * @return Number of log records inserted by a single JDBC batch
+     */
+    @Property("cuba.entityLog.jdbcBatchSize")
+    @DefaultInt(500)
+    int getJdbcBatchSize();
+
+    /**
+     * @return Whether log records are written to the database asynchronously after the transaction commit
+     * by {@link EntityLogWriter}
+     */
+    @Property("cuba.entityLog.asyncMode")
+    @DefaultBoolean(false)
+    boolean getAsyncMode();
+
+    /**
+     * @return Maximum number of log records waiting in memory to be written in the asynchronous mode
+     */
+    @Property("cuba.entityLog.asyncQueueCapacity")
+    @DefaultInt(10000)
+    int getAsyncQueueCapacity();
+
+    /**
+     * @return Time in milliseconds a committing thread waits for free space in the full queue before the log records
+     * are spilled to disk
+     */
+    @Property("cuba.entityLog.asyncQueueOfferTimeoutMs")
+    @DefaultInt(100)
+    int getAsyncQueueOfferTimeoutMs();
 }
\ No newline at end of file
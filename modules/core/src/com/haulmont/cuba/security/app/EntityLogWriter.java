@@ -0,0 +1,560 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.security.app;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.haulmont.bali.db.QueryRunner;
+import com.haulmont.cuba.core.EntityManager;
+import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.entity.ReferenceToEntity;
+import com.haulmont.cuba.core.global.Configuration;
+import com.haulmont.cuba.core.global.GlobalConfig;
+import com.haulmont.cuba.core.global.Metadata;
+import com.haulmont.cuba.core.global.TimeSource;
+import com.haulmont.cuba.core.sys.AuditInfoProvider;
+import com.haulmont.cuba.core.sys.events.AppContextStartedEvent;
+import com.haulmont.cuba.core.sys.events.AppContextStoppedEvent;
+import com.haulmont.cuba.core.sys.persistence.DbTypeConverter;
+import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
+import com.haulmont.cuba.security.entity.EntityLogItem;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.io.*;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes {@link EntityLogItem}s to the database.
+ * <p>
+ * Items can be inserted synchronously by JDBC batches on the connection of the current transaction, see
+ * {@link #insertItems(List)}, or handed over after commit to a bounded in-memory queue which is drained by a background
+ * thread, see {@link #enqueue(List)}. When the queue is full, the calling thread waits for
+ * {@link EntityLogConfig#getAsyncQueueOfferTimeoutMs()} and then spills the items to a file in the data directory.
+ * The spilled items are written after the queue is drained, including after server restart. The offset of the
+ * written part of the spilled items is saved after each batch, so a failed write is resumed from that offset.
+ */
+@Component(EntityLogWriter.NAME)
+public class EntityLogWriter {
+
+    public static final String NAME = "cuba_EntityLogWriter";
+
+    protected static final String SPILL_FILE_NAME = "entity-log-queue.dat";
+    protected static final String PROCESSING_FILE_NAME = "entity-log-queue.processing";
+    protected static final String OFFSET_FILE_NAME = "entity-log-queue.offset";
+    protected static final String QUARANTINE_FILE_PREFIX = "entity-log-queue.failed-";
+
+    protected static final long SPILL_RETRY_INTERVAL_MS = 10000;
+
+    private static final Logger log = LoggerFactory.getLogger(EntityLogWriter.class);
+
+    @Inject
+    protected Persistence persistence;
+    @Inject
+    protected Metadata metadata;
+    @Inject
+    protected TimeSource timeSource;
+    @Inject
+    protected AuditInfoProvider auditInfoProvider;
+
+    protected EntityLogConfig config;
+    protected GlobalConfig globalConfig;
+
+    protected volatile BlockingQueue<QueuedItem> queue;
+    protected volatile ExecutorService writerExecutor;
+    protected volatile boolean stopped;
+
+    protected final Object spillLock = new Object();
+    protected final Object spillProcessingLock = new Object();
+
+    protected volatile long spillRetryTime;
+
+    protected AtomicLong enqueuedCount = new AtomicLong();
+    protected AtomicLong writtenCount = new AtomicLong();
+    protected AtomicLong spilledCount = new AtomicLong();
+    protected AtomicLong failedCount = new AtomicLong();
+    protected volatile long lastWriteLagMs;
+
+    @Inject
+    public void setConfiguration(Configuration configuration) {
+        config = configuration.getConfig(EntityLogConfig.class);
+        globalConfig = configuration.getConfig(GlobalConfig.class);
+    }
+
+    @EventListener(AppContextStartedEvent.class)
+    protected void applicationStarted() {
+        if (getSpillFile().exists() || getProcessingFile().exists()) {
+            log.info("Found entity log items spilled to disk, starting writer");
+            startWriter();
+        }
+    }
+
+    @EventListener(AppContextStoppedEvent.class)
+    protected void applicationStopped() {
+        stopped = true;
+        ExecutorService executor = writerExecutor;
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        BlockingQueue<QueuedItem> currentQueue = queue;
+        if (currentQueue != null && !currentQueue.isEmpty()) {
+            List<QueuedItem> remaining = new ArrayList<>(currentQueue.size());
+            currentQueue.drainTo(remaining);
+            log.info("Spilling {} queued entity log items to disk on shutdown", remaining.size());
+            spill(toItems(remaining));
+        }
+    }
+
+    /**
+     * Hands over the items of a committed transaction to the background writer.
+     * Blocks for at most {@link EntityLogConfig#getAsyncQueueOfferTimeoutMs()} if the queue is full and then spills
+     * the rest of the items to disk.
+     */
+    public void enqueue(List<EntityLogItem> items) {
+        if (items.isEmpty())
+            return;
+
+        startWriter();
+
+        Date createTs = timeSource.currentTimestamp();
+        String createdBy = auditInfoProvider.getCurrentUserLogin();
+        long offerTimeoutMs = config.getAsyncQueueOfferTimeoutMs();
+        long now = System.currentTimeMillis();
+
+        for (int i = 0; i < items.size(); i++) {
+            EntityLogItem item = items.get(i);
+            item.setCreateTs(createTs);
+            item.setCreatedBy(createdBy);
+            boolean offered;
+            try {
+                offered = !stopped && queue.offer(new QueuedItem(item, now), offerTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                offered = false;
+            }
+            if (!offered) {
+                spill(new ArrayList<>(items.subList(i, items.size())));
+                break;
+            }
+            enqueuedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Inserts log items by JDBC batches on the connection of the current transaction in the main database.
+     */
+    public void insertItems(List<EntityLogItem> items) {
+        long start = System.currentTimeMillis();
+        EntityManager em = persistence.getEntityManager();
+        DbTypeConverter converter = persistence.getDbTypeConverter();
+
+        Date createTs = timeSource.currentTimestamp();
+        String createdBy = auditInfoProvider.getCurrentUserLogin();
+
+        String sql = "insert into SEC_ENTITY_LOG (ID, CREATE_TS, CREATED_BY, EVENT_TS, USER_ID, CHANGE_TYPE, ENTITY, " +
+                "ENTITY_INSTANCE_NAME, ENTITY_ID, STRING_ENTITY_ID, INT_ENTITY_ID, LONG_ENTITY_ID, CHANGES) " +
+                "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        int uuidType = converter.getSqlType(UUID.class);
+        int dateType = converter.getSqlType(Date.class);
+        int stringType = converter.getSqlType(String.class);
+        int[] paramTypes = new int[]{uuidType, dateType, stringType, dateType, uuidType, stringType, stringType,
+                stringType, uuidType, stringType, converter.getSqlType(Integer.class), converter.getSqlType(Long.class),
+                stringType};
+
+        int batchSize = Math.max(config.getJdbcBatchSize(), 1);
+        QueryRunner runner = new QueryRunner();
+        try {
+            for (int i = 0; i < items.size(); i += batchSize) {
+                List<EntityLogItem> batch = items.subList(i, Math.min(i + batchSize, items.size()));
+                Object[][] params = new Object[batch.size()][];
+                for (int j = 0; j < batch.size(); j++) {
+                    EntityLogItem item = batch.get(j);
+                    if (item.getCreateTs() == null) {
+                        item.setCreateTs(createTs);
+                        item.setCreatedBy(createdBy);
+                    }
+                    ReferenceToEntity entityRef = item.getEntityRef();
+                    params[j] = new Object[]{
+                            converter.getSqlObject(item.getId()),
+                            converter.getSqlObject(item.getCreateTs()),
+                            item.getCreatedBy(),
+                            converter.getSqlObject(item.getEventTs()),
+                            item.getUser() == null ? null : converter.getSqlObject(item.getUser().getId()),
+                            item.getType() == null ? null : item.getType().getId(),
+                            item.getEntity(),
+                            item.getEntityInstanceName(),
+                            converter.getSqlObject(entityRef.getEntityId()),
+                            entityRef.getStringEntityId(),
+                            entityRef.getIntEntityId(),
+                            entityRef.getLongEntityId(),
+                            item.getChanges()
+                    };
+                }
+                runner.batch(em.getConnection(), sql, params, paramTypes);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error saving entity log items", e);
+        }
+        log.debug("Inserted {} entity log items in {} ms", items.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * @return true if the log items can be saved by JDBC batches, i.e. the log item entity is not extended
+     */
+    public boolean isJdbcBatchApplicable() {
+        return metadata.getExtendedEntities().getExtendedClass(metadata.getClassNN(EntityLogItem.class)) == null;
+    }
+
+    /**
+     * @return number of items waiting in the in-memory queue
+     */
+    public int getQueueSize() {
+        BlockingQueue<QueuedItem> currentQueue = queue;
+        return currentQueue == null ? 0 : currentQueue.size();
+    }
+
+    /**
+     * @return time in milliseconds the oldest item waits in the in-memory queue
+     */
+    public long getQueueLagMs() {
+        BlockingQueue<QueuedItem> currentQueue = queue;
+        QueuedItem oldest = currentQueue == null ? null : currentQueue.peek();
+        return oldest == null ? 0 : System.currentTimeMillis() - oldest.enqueueTime;
+    }
+
+    /**
+     * @return time in milliseconds between commit and writing of the last written batch
+     */
+    public long getLastWriteLagMs() {
+        return lastWriteLagMs;
+    }
+
+    public long getEnqueuedCount() {
+        return enqueuedCount.get();
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    public long getSpilledCount() {
+        return spilledCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    protected void startWriter() {
+        if (writerExecutor == null) {
+            synchronized (this) {
+                if (writerExecutor == null && !stopped) {
+                    queue = new ArrayBlockingQueue<>(Math.max(config.getAsyncQueueCapacity(), 1));
+                    ExecutorService executor = Executors.newSingleThreadExecutor(
+                            new ThreadFactoryBuilder().setNameFormat("EntityLogWriter-%d").setDaemon(true).build());
+                    executor.submit(this::runWriter);
+                    writerExecutor = executor;
+                }
+            }
+        }
+    }
+
+    protected void runWriter() {
+        int batchSize = Math.max(config.getJdbcBatchSize(), 1);
+        List<QueuedItem> batch = new ArrayList<>(batchSize);
+        while (!stopped && !Thread.currentThread().isInterrupted()) {
+            try {
+                QueuedItem first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    writeSpilledItems(batchSize);
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+
+                List<EntityLogItem> items = toItems(batch);
+                if (writeBatch(items)) {
+                    lastWriteLagMs = System.currentTimeMillis() - first.enqueueTime;
+                } else {
+                    spill(items);
+                }
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                log.error("Error in entity log writer", e);
+                if (!batch.isEmpty()) {
+                    spill(toItems(batch));
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the items in a separate transaction. If the batch fails, the items are written one by one, so a single
+     * broken or already written item does not block the others.
+     *
+     * @return false if none of the items could be written, e.g. the database is not available
+     */
+    protected boolean writeBatch(List<EntityLogItem> items) {
+        try {
+            writeItems(items);
+            writtenCount.addAndGet(items.size());
+            return true;
+        } catch (Exception e) {
+            log.warn("Unable to write a batch of {} entity log items, writing them one by one: {}", items.size(), e.toString());
+        }
+
+        int written = 0;
+        int alreadyWritten = 0;
+        for (EntityLogItem item : items) {
+            try {
+                writeItems(Collections.singletonList(item));
+                written++;
+            } catch (Exception e) {
+                if (isWritten(item)) {
+                    // e.g. the item was written before a failure in the middle of a spill file
+                    alreadyWritten++;
+                } else {
+                    log.error("Unable to write entity log item {} for {}, id={}", item.getId(), item.getEntity(),
+                            item.getObjectEntityId(), e);
+                }
+            }
+        }
+        if (written == 0 && alreadyWritten == 0) {
+            return false;
+        }
+        writtenCount.addAndGet(written);
+        failedCount.addAndGet(items.size() - written - alreadyWritten);
+        return true;
+    }
+
+    /**
+     * @return true if the item with the same id exists in the database
+     */
+    protected boolean isWritten(EntityLogItem item) {
+        try {
+            return persistence.callInTransaction(em -> em.find(EntityLogItem.class, item.getId()) != null);
+        } catch (Exception e) {
+            log.debug("Unable to check existence of entity log item {}: {}", item.getId(), e.toString());
+            return false;
+        }
+    }
+
+    protected void writeItems(List<EntityLogItem> items) {
+        try (Transaction tx = persistence.createTransaction()) {
+            if (isJdbcBatchApplicable()) {
+                insertItems(items);
+            } else {
+                EntityManager em = persistence.getEntityManager();
+                for (EntityLogItem item : items) {
+                    em.persist(item);
+                }
+            }
+            tx.commit();
+        }
+    }
+
+    protected void spill(List<EntityLogItem> items) {
+        synchronized (spillLock) {
+            File file = getSpillFile();
+            try (FileOutputStream fos = new FileOutputStream(file, true);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+                for (EntityLogItem item : items) {
+                    byte[] bytes = SerializationSupport.serialize(item);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+                out.flush();
+                fos.getFD().sync();
+                spilledCount.addAndGet(items.size());
+                log.debug("Spilled {} entity log items to {}", items.size(), file);
+            } catch (IOException e) {
+                failedCount.addAndGet(items.size());
+                log.error("Unable to spill {} entity log items to {}", items.size(), file, e);
+            }
+        }
+    }
+
+    /**
+     * Writes items spilled to disk while the in-memory queue is empty. The spill file is renamed before reading,
+     * so new items can be spilled concurrently. The offset of written items is saved after each batch, and the
+     * renamed file is deleted only after all its items are written. If the database is not available, writing is
+     * retried not earlier than in {@link #SPILL_RETRY_INTERVAL_MS}. A file which cannot be read is moved aside, so
+     * the items spilled later are not blocked by it.
+     */
+    protected void writeSpilledItems(int batchSize) {
+        if (System.currentTimeMillis() < spillRetryTime) {
+            return;
+        }
+        synchronized (spillProcessingLock) {
+            File processingFile = getProcessingFile();
+            synchronized (spillLock) {
+                if (!processingFile.exists()) {
+                    File file = getSpillFile();
+                    if (!file.exists() || !file.renameTo(processingFile)) {
+                        return;
+                    }
+                    FileUtils.deleteQuietly(getOffsetFile());
+                }
+            }
+
+            long offset = readSpillOffset();
+            log.info("Writing entity log items spilled to {} starting from offset {}", processingFile, offset);
+            try (FileInputStream fis = new FileInputStream(processingFile)) {
+                fis.getChannel().position(offset);
+                CountingInputStream counter = new CountingInputStream(new BufferedInputStream(fis));
+                DataInputStream in = new DataInputStream(counter);
+                List<EntityLogItem> items = new ArrayList<>(batchSize);
+                while (true) {
+                    EntityLogItem item = readItem(in);
+                    if (item != null) {
+                        items.add(item);
+                    }
+                    if (item == null || items.size() == batchSize) {
+                        if (!items.isEmpty()) {
+                            if (!writeBatch(items)) {
+                                log.warn("Unable to write entity log items spilled to {}, will retry later",
+                                        processingFile);
+                                spillRetryTime = System.currentTimeMillis() + SPILL_RETRY_INTERVAL_MS;
+                                return;
+                            }
+                            saveSpillOffset(offset + counter.getByteCount());
+                        }
+                        items.clear();
+                    }
+                    if (item == null) {
+                        break;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                File quarantineFile = new File(getSpillDir(), QUARANTINE_FILE_PREFIX + System.currentTimeMillis());
+                log.error("Error reading entity log items spilled to {}, moving the file to {}",
+                        processingFile, quarantineFile, e);
+                if (!processingFile.renameTo(quarantineFile)) {
+                    log.error("Unable to move {} to {}, will retry later", processingFile, quarantineFile);
+                    spillRetryTime = System.currentTimeMillis() + SPILL_RETRY_INTERVAL_MS;
+                    return;
+                }
+                FileUtils.deleteQuietly(getOffsetFile());
+                return;
+            }
+            FileUtils.deleteQuietly(processingFile);
+            FileUtils.deleteQuietly(getOffsetFile());
+            spillRetryTime = 0;
+        }
+    }
+
+    /**
+     * @return offset of the first item of the processing file which is not written yet
+     */
+    protected long readSpillOffset() {
+        File file = getOffsetFile();
+        if (!file.exists()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(FileUtils.readFileToString(file, "UTF-8").trim());
+        } catch (IOException | NumberFormatException e) {
+            log.warn("Unable to read entity log spill offset from {}, starting from the beginning", file, e);
+            return 0;
+        }
+    }
+
+    /**
+     * Saves the offset of written items. If the offset is lost, the items are read again and skipped as already
+     * written.
+     */
+    protected void saveSpillOffset(long offset) {
+        File file = getOffsetFile();
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            fos.write(String.valueOf(offset).getBytes("UTF-8"));
+            fos.flush();
+            fos.getFD().sync();
+        } catch (IOException e) {
+            log.warn("Unable to save entity log spill offset to {}", file, e);
+        }
+    }
+
+    @Nullable
+    protected EntityLogItem readItem(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return (EntityLogItem) SerializationSupport.deserialize(bytes);
+    }
+
+    protected File getSpillFile() {
+        return new File(getSpillDir(), SPILL_FILE_NAME);
+    }
+
+    protected File getProcessingFile() {
+        return new File(getSpillDir(), PROCESSING_FILE_NAME);
+    }
+
+    protected File getOffsetFile() {
+        return new File(getSpillDir(), OFFSET_FILE_NAME);
+    }
+
+    protected File getSpillDir() {
+        File dir = new File(globalConfig.getDataDir(), "entitylog");
+        dir.mkdirs();
+        return dir;
+    }
+
+    protected List<EntityLogItem> toItems(List<QueuedItem> queuedItems) {
+        List<EntityLogItem> items = new ArrayList<>(queuedItems.size());
+        for (QueuedItem queuedItem : queuedItems) {
+            items.add(queuedItem.item);
+        }
+        return items;
+    }
+
+    protected static class QueuedItem {
+        protected final EntityLogItem item;
+        protected final long enqueueTime;
+
+        public QueuedItem(EntityLogItem item, long enqueueTime) {
+            this.item = item;
+            this.enqueueTime = enqueueTime;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.security.app;
+
+import com.haulmont.cuba.core.app.ClusterMessageBatch;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * Cluster message containing last used timestamps of a number of user sessions.
+ * Replaces individual {@link UserSessions.UserSessionInfo} messages when {@code cuba.userSessionBatchPropagation}
+ * is enabled.
+ */
+public class UserSessionTouchBatch implements Serializable, ClusterMessageBatch {
+
+    private static final long serialVersionUID = 3818429614562519620L;
+
+    protected final long[] mostSigBits;
+    protected final long[] leastSigBits;
+    protected final long[] lastUsedTs;
+
+    public UserSessionTouchBatch(int size) {
+        mostSigBits = new long[size];
+        leastSigBits = new long[size];
+        lastUsedTs = new long[size];
+    }
+
+    public void set(int index, UUID sessionId, long lastUsedTs) {
+        this.mostSigBits[index] = sessionId.getMostSignificantBits();
+        this.leastSigBits[index] = sessionId.getLeastSignificantBits();
+        this.lastUsedTs[index] = lastUsedTs;
+    }
+
+    public int size() {
+        return lastUsedTs.length;
+    }
+
+    public UUID getSessionId(int index) {
+        return new UUID(mostSigBits[index], leastSigBits[index]);
+    }
+
+    public long getLastUsedTs(int index) {
+        return lastUsedTs[index];
+    }
+
+    @Override
+    public Class<? extends Serializable> getReplacedMessageClass() {
+        return UserSessions.UserSessionInfo.class;
+    }
+
+    @Override
+    public int getReplacedMessagesCount() {
+        return size();
+    }
+
+    @Override
+    public String toString() {
+        return "UserSessionTouchBatch{size=" + size() + "}";
+    }
+}
@@ -17,6 +17,7 @@ package com.haulmont.cuba.security.app;
 
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.cuba.core.app.ClusterListener;
+import com.haulmont.cuba.core.app.ClusterListenerAdapter;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
 import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.global.Configuration;
@@ -94,6 +95,14 @@ public class UserSessions implements UserSessionsAPI {
 
     protected volatile int touchTimeout = 1;
 
+    protected boolean batchPropagation;
+
+    protected Map<UUID, Long> touchedSessions = new ConcurrentHashMap<>();
+
+    protected ExpirationWheel expirationWheel;
+
+    protected static final int MAX_TOUCH_BATCH_SIZE = 5000;
+
     protected ClusterManagerAPI clusterManager;
 
     protected UserSession NO_USER_SESSION;
@@ -128,6 +137,10 @@ public class UserSessions implements UserSessionsAPI {
         setExpirationTimeoutSec(serverConfig.getUserSessionExpirationTimeoutSec());
         setSendTimeoutSec(serverConfig.getUserSessionSendTimeoutSec());
         touchTimeout = serverConfig.getUserSessionTouchTimeoutSec();
+        batchPropagation = serverConfig.getUserSessionBatchPropagation();
+        if (serverConfig.getUserSessionExpirationWheel()) {
+            expirationWheel = new ExpirationWheel(ExpirationWheel.DEFAULT_TICK_MILLIS);
+        }
     }
 
     @Inject
@@ -153,6 +166,27 @@ public class UserSessions implements UserSessionsAPI {
                     }
                 }
         );
+        this.clusterManager.addListener(
+                UserSessionTouchBatch.class,
+                new ClusterListenerAdapter<UserSessionTouchBatch>() {
+                    @Override
+                    public void receive(UserSessionTouchBatch message) {
+                        receiveTouchBatch(message);
+                    }
+                }
+        );
+    }
+
+    protected void receiveTouchBatch(UserSessionTouchBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            UUID id = batch.getSessionId(i);
+            long lastUsedTs = batch.getLastUsedTs(i);
+            UserSessionInfo usi = getSessionInfo(id);
+            if (usi != null && usi.lastUsedTs != 0 && usi.lastUsedTs < lastUsedTs) {
+                usi.lastUsedTs = lastUsedTs;
+                putSessionInfo(id, usi);
+            }
+        }
     }
 
     protected void receiveClusterMessage(UserSessionInfo message) {
@@ -292,7 +326,11 @@ public class UserSessions implements UserSessionsAPI {
                 if (propagate && !usi.session.isSystem()) {
                     if (now > (usi.lastSentTs + toMillis(sendTimeout))) {
                         usi.lastSentTs = now;
-                        clusterManager.send(usi);
+                        if (batchPropagation) {
+                            touchedSessions.put(id, usi.lastUsedTs);
+                        } else {
+                            clusterManager.send(usi);
+                        }
                     }
                 }
             }
@@ -321,6 +359,11 @@ public class UserSessions implements UserSessionsAPI {
     @Override
     public void setExpirationTimeoutSec(int value) {
         expirationTimeout = value;
+        if (expirationWheel != null) {
+            // sessions could be scheduled to expire later than the new timeout
+            expirationWheel.clear();
+            getSessionInfoStream().forEach(this::scheduleExpiration);
+        }
     }
 
     @Override
@@ -397,18 +440,61 @@ public class UserSessions implements UserSessionsAPI {
         log.trace("Processing eviction");
         long now = timeSource.currentTimeMillis();
 
+        if (expirationWheel != null) {
+            for (UUID id : expirationWheel.pollExpired(now)) {
+                UserSessionInfo usi = getSessionInfo(id);
+                if (usi == null || usi.session.isSystem())
+                    continue;
+
+                if (now > (usi.lastUsedTs + toMillis(expirationTimeout))) {
+                    expireSession(usi);
+                } else {
+                    // the session has been used after it was scheduled
+                    scheduleExpiration(usi);
+                }
+            }
+            return;
+        }
+
         getSessionInfoStream()
                 .filter(info -> !info.session.isSystem() && now > (info.lastUsedTs + toMillis(expirationTimeout)))
-                .forEach(usi -> {
-                    log.debug("Removing session due to timeout: {}", usi);
+                .forEach(this::expireSession);
+    }
+
+    protected void expireSession(UserSessionInfo usi) {
+        log.debug("Removing session due to timeout: {}", usi);
 
-                    userSessionLog.updateSessionLogRecord(usi.getSession(), SessionAction.EXPIRATION);
+        userSessionLog.updateSessionLogRecord(usi.getSession(), SessionAction.EXPIRATION);
 
-                    removeSessionInfo(usi.session.getId());
+        removeSessionInfo(usi.session.getId());
 
-                    usi.lastUsedTs = 0;
-                    clusterManager.send(usi);
-                });
+        usi.lastUsedTs = 0;
+        clusterManager.send(usi);
+    }
+
+    @Override
+    public void processTouchBatch() {
+        if (!batchPropagation || touchedSessions.isEmpty())
+            return;
+
+        List<Map.Entry<UUID, Long>> touched = new ArrayList<>(touchedSessions.entrySet());
+        for (int from = 0; from < touched.size(); from += MAX_TOUCH_BATCH_SIZE) {
+            List<Map.Entry<UUID, Long>> part = touched.subList(from, Math.min(from + MAX_TOUCH_BATCH_SIZE, touched.size()));
+            UserSessionTouchBatch batch = new UserSessionTouchBatch(part.size());
+            for (int i = 0; i < part.size(); i++) {
+                Map.Entry<UUID, Long> entry = part.get(i);
+                batch.set(i, entry.getKey(), entry.getValue());
+                // keep the entry if the session has been touched again meanwhile
+                touchedSessions.remove(entry.getKey(), entry.getValue());
+            }
+            clusterManager.send(batch);
+        }
+    }
+
+    protected void scheduleExpiration(UserSessionInfo usi) {
+        if (!usi.session.isSystem() && usi.lastUsedTs != 0) {
+            expirationWheel.schedule(usi.session.getId(), usi.lastUsedTs + toMillis(expirationTimeout));
+        }
     }
 
     protected UserSessionInfo getSessionInfo(UUID id) {
@@ -416,11 +502,15 @@ public class UserSessions implements UserSessionsAPI {
     }
 
     protected void putSessionInfo(UUID id, UserSessionInfo info) {
-        cache.put(id, info);
+        UserSessionInfo previous = cache.put(id, info);
+        if (previous == null && expirationWheel != null) {
+            scheduleExpiration(info);
+        }
     }
 
     @Nullable
     protected UserSessionInfo removeSessionInfo(UUID id) {
+        touchedSessions.remove(id);
         return cache.remove(id);
     }
 
@@ -431,4 +521,51 @@ public class UserSessions implements UserSessionsAPI {
     protected long toMillis(int seconds) {
         return seconds * 1000L;
     }
-}
\ No newline at end of file
+
+    /**
+     * Buckets of session ids by their expiration time. A session is put into a bucket when it is added to the cache
+     * and is checked again when the bucket expires, so touching a session does not require rescheduling it.
+     */
+    protected static class ExpirationWheel {
+
+        public static final long DEFAULT_TICK_MILLIS = 5000;
+
+        protected final long tickMillis;
+
+        protected final ConcurrentHashMap<Long, Set<UUID>> buckets = new ConcurrentHashMap<>();
+
+        public ExpirationWheel(long tickMillis) {
+            this.tickMillis = tickMillis;
+        }
+
+        public void schedule(UUID id, long expirationTs) {
+            long tick = expirationTs / tickMillis + 1;
+            // compute() is atomic for a key, so an id cannot be added to a bucket being polled
+            buckets.compute(tick, (key, bucket) -> {
+                if (bucket == null) {
+                    bucket = new HashSet<>();
+                }
+                bucket.add(id);
+                return bucket;
+            });
+        }
+
+        public List<UUID> pollExpired(long now) {
+            long currentTick = now / tickMillis;
+            List<UUID> expired = new ArrayList<>();
+            for (Long tick : buckets.keySet()) {
+                if (tick <= currentTick) {
+                    Set<UUID> bucket = buckets.remove(tick);
+                    if (bucket != null) {
+                        expired.addAll(bucket);
+                    }
+                }
+            }
+            return expired;
+        }
+
+        public void clear() {
+            buckets.clear();
+        }
+    }
+}
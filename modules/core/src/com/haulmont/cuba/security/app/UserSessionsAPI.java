@@ -184,4 +184,13 @@ public interface UserSessionsAPI extends UserSessionFinder {
      * Evict timed out sessions from the cache.
      */
     void processEviction();
-}
\ No newline at end of file
+
+    /**
+     * INTERNAL.
+     *
+     * Send last used timestamps of sessions refreshed since the previous invocation to the cluster.
+     * Does nothing unless {@code cuba.userSessionBatchPropagation} is enabled.
+     */
+    default void processTouchBatch() {
+    }
+}
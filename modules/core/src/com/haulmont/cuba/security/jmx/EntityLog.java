@@ -19,6 +19,7 @@ package com.haulmont.cuba.security.jmx;
 
 import com.haulmont.cuba.security.app.Authenticated;
 import com.haulmont.cuba.security.app.EntityLogAPI;
+import com.haulmont.cuba.security.app.EntityLogWriter;
 
 import org.springframework.stereotype.Component;
 import javax.inject.Inject;
@@ -28,6 +29,8 @@ public class EntityLog implements EntityLogMBean {
 
     @Inject
     protected EntityLogAPI entityLog;
+    @Inject
+    protected EntityLogWriter entityLogWriter;
 
     @Override
     public boolean isEnabled() {
@@ -44,4 +47,39 @@ public class EntityLog implements EntityLogMBean {
     public void invalidateCache() {
         entityLog.invalidateCache();
     }
-}
\ No newline at end of file
+
+    @Override
+    public int getAsyncQueueSize() {
+        return entityLogWriter.getQueueSize();
+    }
+
+    @Override
+    public long getAsyncQueueLagMs() {
+        return entityLogWriter.getQueueLagMs();
+    }
+
+    @Override
+    public long getAsyncLastWriteLagMs() {
+        return entityLogWriter.getLastWriteLagMs();
+    }
+
+    @Override
+    public long getAsyncEnqueuedCount() {
+        return entityLogWriter.getEnqueuedCount();
+    }
+
+    @Override
+    public long getAsyncWrittenCount() {
+        return entityLogWriter.getWrittenCount();
+    }
+
+    @Override
+    public long getAsyncSpilledCount() {
+        return entityLogWriter.getSpilledCount();
+    }
+
+    @Override
+    public long getAsyncFailedCount() {
+        return entityLogWriter.getFailedCount();
+    }
+}
@@ -36,4 +36,40 @@ public interface EntityLogMBean {
      * The configuration will be recreated from the database on next lifecycle event.
      */
     void invalidateCache();
+
+    /**
+     * Number of log records waiting in memory to be written in the asynchronous mode
+     */
+    int getAsyncQueueSize();
+
+    /**
+     * Time in milliseconds the oldest record waits in memory to be written in the asynchronous mode
+     */
+    long getAsyncQueueLagMs();
+
+    /**
+     * Time in milliseconds between transaction commit and writing of the last written batch of log records
+     */
+    long getAsyncLastWriteLagMs();
+
+    /**
+     * Number of log records handed over to the asynchronous writer queue
+     */
+    long getAsyncEnqueuedCount();
+
+    /**
+     * Number of log records written by the asynchronous writer
+     */
+    long getAsyncWrittenCount();
+
+    /**
+     * Number of log records spilled to disk because the asynchronous writer queue was full or the database
+     * was not available
+     */
+    long getAsyncSpilledCount();
+
+    /**
+     * Number of log records the asynchronous writer failed to save
+     */
+    long getAsyncFailedCount();
 }
@@ -24,7 +24,9 @@ import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.entity.QueryResult;
 import com.haulmont.cuba.core.global.AppBeans;
 import com.haulmont.cuba.core.global.LoadContext;
+import com.haulmont.cuba.core.global.Stores;
 import com.haulmont.cuba.core.global.View;
+import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.security.entity.Group;
 import com.haulmont.cuba.security.entity.User;
 import com.haulmont.cuba.testsupport.TestContainer;
@@ -218,6 +220,70 @@ public class QueryResultTest {
         assertEquals(5, entities.size());
     }
 
+    @Test
+    public void testSecondQueryInMemory() throws SQLException {
+        AppContext.setProperty("cuba.queryResults.inMemoryStores", Stores.MAIN);
+        try {
+            List<Entity> entities = loadSecondQuery(112);
+            assertEquals(10, entities.size());
+
+            List<Map<String, Object>> queryResults = getQueryResults();
+            assertEquals(0, queryResults.size());
+        } finally {
+            AppContext.setProperty("cuba.queryResults.inMemoryStores", null);
+        }
+    }
+
+    @Test
+    public void testSecondQueryInMemoryAboveMaxIdsInCondition() throws SQLException {
+        AppContext.setProperty("cuba.queryResults.inMemoryStores", Stores.MAIN);
+        AppContext.setProperty("cuba.queryResults.maxIdsInCondition", "5");
+        try {
+            List<Entity> entities = loadSecondQuery(113);
+            assertEquals(10, entities.size());
+
+            List<Map<String, Object>> queryResults = getQueryResults();
+            assertEquals(20, queryResults.size());
+        } finally {
+            AppContext.setProperty("cuba.queryResults.inMemoryStores", null);
+            AppContext.setProperty("cuba.queryResults.maxIdsInCondition", null);
+        }
+    }
+
+    @Test
+    public void testSecondQueryInMemoryAboveMaxIds() throws SQLException {
+        AppContext.setProperty("cuba.queryResults.inMemoryStores", Stores.MAIN);
+        AppContext.setProperty("cuba.queryResults.inMemoryMaxIds", "10");
+        try {
+            List<Entity> entities = loadSecondQuery(114);
+            assertEquals(10, entities.size());
+            assertEquals(20, getQueryResults().size());
+
+            // the results are kept in the database and are not inserted again
+            new QueryRunner(cont.persistence().getDataSource()).update("delete from SYS_QUERY_RESULT where ENTITY_ID = ?",
+                    userIds.get(0).toString());
+            entities = loadSecondQuery(114);
+            assertEquals(9, entities.size());
+            assertEquals(19, getQueryResults().size());
+        } finally {
+            AppContext.setProperty("cuba.queryResults.inMemoryStores", null);
+            AppContext.setProperty("cuba.queryResults.inMemoryMaxIds", null);
+        }
+    }
+
+    private List<Entity> loadSecondQuery(int queryKey) {
+        DataService dataService = AppBeans.get(DataService.class);
+        LoadContext context = new LoadContext(User.class).setView(View.LOCAL);
+        context.setQueryString("select u from sec$User u where u.email like :email").setParameter("email", "%aaa.com");
+
+        LoadContext.Query prevQuery = new LoadContext.Query("select u from sec$User u where u.name like :name")
+                .setParameter("name", "A-%");
+        context.getPrevQueries().add(prevQuery);
+        context.setQueryKey(queryKey);
+
+        return dataService.loadList(context);
+    }
+
     private List<Map<String, Object>> getQueryResults() throws SQLException {
         QueryRunner queryRunner = new QueryRunner(cont.persistence().getDataSource());
         return queryRunner.query("select * from SYS_QUERY_RESULT", new MapListHandler());
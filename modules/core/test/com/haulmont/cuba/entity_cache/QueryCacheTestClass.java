@@ -24,6 +24,7 @@ import com.haulmont.cuba.core.Transaction;
 import com.haulmont.cuba.core.TypedQuery;
 import com.haulmont.cuba.core.entity.AppFolder;
 import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.CommitContext;
 import com.haulmont.cuba.core.global.DataManager;
 import com.haulmont.cuba.core.global.LoadContext;
 import com.haulmont.cuba.core.global.View;
@@ -557,6 +558,25 @@ public class QueryCacheTestClass {
         assertEquals(1, appender.filterMessages(m -> m.contains("> SELECT")).count());
     }
 
+    @Test
+    public void testStaleData_bulkInsert() throws Exception {
+        newUser = cont.metadata().create(User.class);
+        newUser.setLogin("ECTest-" + newUser.getId());
+        newUser.setPassword("111");
+        newUser.setGroup(this.group);
+
+        assertNull(getResultListUserByLoginNamed(newUser, false, null, null));
+        assertEquals(1, queryCache.size());
+
+        DataManager dataManager = AppBeans.get(DataManager.NAME);
+        dataManager.commit(new CommitContext(newUser).setBulkMode(true));
+
+        assertEquals(0, queryCache.size());
+        User u = getResultListUserByLoginNamed(newUser, false, null, null);
+        assertNotNull(u);
+        assertEquals(newUser.getId(), u.getId());
+    }
+
     @Test
     public void testStaleData_update() throws Exception {
         appender.clearMessages();
@@ -19,6 +19,7 @@ package com.haulmont.cuba.security;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Transaction;
 import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.security.auth.AuthenticationManager;
 import com.haulmont.cuba.security.auth.Credentials;
 import com.haulmont.cuba.security.auth.LoginPasswordCredentials;
@@ -358,6 +359,33 @@ public class InMemoryConstraintTest {
     }
 
 
+    @Test
+    public void testParallelConstraints() throws LoginException {
+        AuthenticationManager lw = AppBeans.get(AuthenticationManager.NAME);
+        Credentials credentials = new LoginPasswordCredentials("constraintUser3", PASSWORD, Locale.getDefault());
+        UserSession userSession = lw.login(credentials).getSession();
+        assertNotNull(userSession);
+
+        UserSessionSource uss = AppBeans.get(UserSessionSource.class);
+        UserSession savedUserSession = uss.getUserSession();
+        ((TestUserSessionSource) uss).setUserSession(userSession);
+        try {
+            DataManager dataManager = AppBeans.get(DataManager.NAME);
+            dataManager = dataManager.secure();
+            LoadContext<User> loadContext = new LoadContext<>(User.class).setView(View.LOCAL);
+            loadContext.setQuery(new LoadContext.Query("select u from sec$User u where (u.login like 'user%' or u.login like 'constraintUser%') order by u.login asc"));
+
+            List<User> sequentialList = dataManager.loadList(loadContext);
+            assertEquals(38, sequentialList.size());
+
+            AppContext.setProperty("cuba.inMemoryConstraintsParallelThreshold", "10");
+            List<User> parallelList = dataManager.loadList(loadContext);
+            assertEquals(sequentialList, parallelList);
+        } finally {
+            AppContext.setProperty("cuba.inMemoryConstraintsParallelThreshold", null);
+            ((TestUserSessionSource) uss).setUserSession(savedUserSession);
+        }
+    }
 
     @AfterEach
     public void tearDown() throws Exception {
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package spec.cuba.core.cluster
+
+import com.haulmont.cuba.core.app.ClusterMessagePack
+import spock.lang.Specification
+
+class ClusterMessagePackTest extends Specification {
+
+    def "messages are unpacked in the order of packing"() {
+        def messages = [[1, 2, 3] as byte[], new byte[0], [4] as byte[]]
+
+        when:
+        def pack = ClusterMessagePack.pack(messages, 0)
+
+        then:
+        !pack.compressed
+        pack.count == 3
+        pack.unpack()*.toList() == messages*.toList()
+    }
+
+    def "frame is compressed above the threshold"() {
+        def messages = (1..50).collect { ('message ' * 20).bytes }
+
+        when:
+        def pack = ClusterMessagePack.pack(messages, 100)
+
+        then:
+        pack.compressed
+        pack.unpack()*.toList() == messages*.toList()
+    }
+
+    def "frame below the threshold is not compressed"() {
+        when:
+        def pack = ClusterMessagePack.pack([('message ' * 20).bytes], 1000)
+
+        then:
+        !pack.compressed
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package spec.cuba.core.config
+
+import com.haulmont.bali.db.QueryRunner
+import com.haulmont.cuba.core.app.ConfigStorageAPI
+import com.haulmont.cuba.core.config.TestConfig
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.Configuration
+import com.haulmont.cuba.core.sys.AppContext
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+class ConfigValuesCacheTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private Configuration configuration
+
+    void setup() {
+        configuration = AppBeans.get(Configuration)
+    }
+
+    void cleanup() {
+        AppContext.setProperty('cuba.test.stringProp', null)
+        new QueryRunner(cont.persistence().getDataSource()).update("delete from SYS_CONFIG where NAME = 'cuba.test.databaseProp'")
+        AppBeans.get(ConfigStorageAPI).clearCache()
+    }
+
+    def "config proxy is created once per interface"() {
+        expect:
+        configuration.getConfig(TestConfig).is(configuration.getConfig(TestConfig))
+    }
+
+    def "cached value is invalidated when app property changes"() {
+        def config = configuration.getConfig(TestConfig)
+
+        when:
+        AppContext.setProperty('cuba.test.stringProp', 'value1')
+
+        then:
+        config.getStringProp() == 'value1'
+
+        when:
+        AppContext.setProperty('cuba.test.stringProp', 'value2')
+
+        then:
+        config.getStringProp() == 'value2'
+    }
+
+    def "cached value is invalidated when database properties cache is cleared"() {
+        def config = configuration.getConfig(TestConfig)
+
+        when:
+        config.setDatabaseProp('value1')
+
+        then:
+        config.getDatabaseProp() == 'value1'
+
+        when: "the value is changed bypassing ConfigStorage"
+        new QueryRunner(cont.persistence().getDataSource())
+                .update("update SYS_CONFIG set VALUE_ = 'value2' where NAME = 'cuba.test.databaseProp'")
+
+        then: "the cached value is still returned"
+        config.getDatabaseProp() == 'value1'
+
+        when: "the cache is cleared as on receiving InvalidateCacheMsg"
+        AppBeans.get(ConfigStorageAPI).clearCache()
+
+        then:
+        config.getDatabaseProp() == 'value2'
+    }
+}
@@ -17,9 +17,16 @@
 package spec.cuba.core.data_manager
 
 
+import com.haulmont.cuba.core.app.MiddlewareStatisticsAccumulator
+import com.haulmont.cuba.core.entity.Entity
 import com.haulmont.cuba.core.entity.contracts.Id
 import com.haulmont.cuba.core.global.*
 import com.haulmont.cuba.core.sys.AppContext
+import com.haulmont.cuba.security.auth.AuthenticationManager
+import com.haulmont.cuba.security.auth.LoginPasswordCredentials
+import com.haulmont.cuba.security.entity.Constraint
+import com.haulmont.cuba.security.entity.ConstraintCheckType
+import com.haulmont.cuba.security.entity.ConstraintOperationType
 import com.haulmont.cuba.security.entity.Group
 import com.haulmont.cuba.security.entity.User
 import com.haulmont.cuba.testmodel.primary_keys.CompositeKeyEntity
@@ -28,6 +35,7 @@ import com.haulmont.cuba.testmodel.sales_1.OrderLine
 import com.haulmont.cuba.testmodel.sales_1.Product
 import com.haulmont.cuba.testsupport.TestContainer
 import com.haulmont.cuba.testsupport.TestSupport
+import com.haulmont.cuba.testsupport.TestUserSessionSource
 import groovy.sql.Sql
 import org.junit.ClassRule
 import spock.lang.Shared
@@ -363,6 +371,154 @@ class DataManagerTest extends Specification {
         sql.execute("delete from TEST_COMPOSITE_KEY where TENANT = $id2.tenant and ENTITY_ID = $id2.entityId")
     }
 
+    def "load by collection of composite ids in several batches"() {
+
+        AppContext.setProperty('cuba.embeddedIdsBatchSize', '2')
+
+        def ids = (1..5).collect { new EntityKey(tenant: 1, entityId: it) }
+        def entities = ids.collect { new CompositeKeyEntity(id: it, name: "e$it.entityId") }
+        dataManager.commit(new CommitContext(entities))
+
+        when:
+
+        def loadContext = LoadContext.create(CompositeKeyEntity).setIds(ids.reverse())
+        def list = dataManager.loadList(loadContext)
+
+        then:
+
+        list == entities.reverse()
+
+        cleanup:
+
+        AppContext.setProperty('cuba.embeddedIdsBatchSize', null)
+        Sql sql = new Sql(cont.persistence().getDataSource())
+        sql.execute("delete from TEST_COMPOSITE_KEY where TENANT = 1")
+    }
+
+    def "load by collection of ids in parallel batches"() {
+
+        AppContext.setProperty('cuba.loadByIdsBatchSize', '2')
+
+        def products = (1..7).collect { new Product(name: "parallel-$it", quantity: it) }
+        dataManager.commit(new CommitContext(products))
+        def ids = products.reverse().collect { it.id }
+
+        when:
+
+        def sequentialList = dataManager.loadList(LoadContext.create(Product).setIds(ids))
+
+        AppContext.setProperty('cuba.parallelLoadThreads', '2')
+        def parallelList = dataManager.loadList(LoadContext.create(Product).setIds(ids))
+
+        then:
+
+        sequentialList == products.reverse()
+        parallelList == sequentialList
+        parallelList.collect { it.name } == sequentialList.collect { it.name }
+
+        cleanup:
+
+        AppContext.setProperty('cuba.loadByIdsBatchSize', null)
+        AppContext.setProperty('cuba.parallelLoadThreads', null)
+        cont.deleteRecord(products as Entity[])
+    }
+
+    def "load by chunks"() {
+
+        def products = (1..5).collect { new Product(name: "chunk-$it", quantity: it) }
+        dataManager.commit(new CommitContext(products))
+
+        def loadContext = LoadContext.create(Product).setQuery(
+                LoadContext.createQuery('select e from sales1$Product e where e.name like :name order by e.quantity')
+                        .setParameter('name', 'chunk-%'))
+
+        when:
+
+        def chunks = []
+        dataManager.forEachChunk(loadContext, 2) { chunk -> chunks << new ArrayList<>(chunk) }
+
+        then:
+
+        chunks.collect { it.size() } == [2, 2, 1]
+        chunks.flatten() == products
+        chunks.flatten().every { AppBeans.get(EntityStates).isDetached(it) }
+
+        when:
+
+        def loaded = []
+        dataManager.forEach(loadContext) { loaded << it }
+
+        then:
+
+        loaded == products
+
+        cleanup:
+
+        cont.deleteRecord(products as Entity[])
+    }
+
+    def "commit in bulk mode"() {
+
+        AppContext.setProperty('cuba.bulkCommitBatchSize', '2')
+        def statistics = AppBeans.get(MiddlewareStatisticsAccumulator)
+        def batchesBefore = statistics.getBulkCommitBatchesCount()
+
+        def products = (1..5).collect { new Product(name: "bulk-$it", quantity: it) }
+
+        when:
+
+        def committed = dataManager.commit(new CommitContext(products).setBulkMode(true))
+
+        then:
+
+        committed.size() == 5
+        committed.every { AppBeans.get(EntityStates).isDetached(it) }
+        statistics.getBulkCommitBatchesCount() - batchesBefore == 3
+        dataManager.load(Product)
+                .query('select e from sales1$Product e where e.name like :name')
+                .parameter('name', 'bulk-%')
+                .list().size() == 5
+
+        cleanup:
+
+        AppContext.setProperty('cuba.bulkCommitBatchSize', null)
+        cont.deleteRecord(products as Entity[])
+    }
+
+    def "commit in bulk mode does not merge flushed instances"() {
+
+        def group = new Group(name: 'bulkConstraintGroup')
+        def constraint = new Constraint(entityName: 'sales1$Product', checkType: ConstraintCheckType.MEMORY,
+                operationType: ConstraintOperationType.UPDATE, groovyScript: 'false', group: group)
+        def user = new User(login: 'bulkconstraintuser', group: group)
+        user.password = AppBeans.get(PasswordEncryption).getPasswordHash(user.id, '1')
+        dataManager.commit(group, constraint, user)
+
+        AppContext.setProperty('cuba.bulkCommitBatchSize', '2')
+        def products = (1..3).collect { new Product(name: "bulk-secure-$it", quantity: it) }
+
+        def userSessionSource = AppBeans.get(UserSessionSource) as TestUserSessionSource
+        def savedUserSession = userSessionSource.getUserSession()
+        userSessionSource.setUserSession(AppBeans.get(AuthenticationManager).login(
+                new LoginPasswordCredentials('bulkconstraintuser', '1', Locale.getDefault())).session)
+
+        when: "the update constraint would reject any merged instance"
+
+        def committed = dataManager.secure().commit(new CommitContext(products).setBulkMode(true))
+
+        then:
+
+        noExceptionThrown()
+        committed.size() == 3
+
+        cleanup:
+
+        userSessionSource.setUserSession(savedUserSession)
+        AppContext.setProperty('cuba.bulkCommitBatchSize', null)
+        cont.deleteRecord(products as Entity[])
+        cont.deleteRecord(user, constraint, group)
+    }
+
     def "load by null id"() {
 
         when:
@@ -24,10 +24,13 @@ import com.haulmont.cuba.core.TypedQuery
 import com.haulmont.cuba.core.entity.BaseDbGeneratedIdEntity
 import com.haulmont.cuba.core.entity.BaseStringIdEntity
 import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.Metadata
 import com.haulmont.cuba.core.global.MetadataTools
 import com.haulmont.cuba.security.app.EntityLogAPI
+import com.haulmont.cuba.security.entity.EntityLogAttr
 import com.haulmont.cuba.security.entity.EntityLogItem
 import com.haulmont.cuba.security.entity.Group
+import com.haulmont.cuba.security.entity.User
 import com.haulmont.cuba.security.entity.LoggedAttribute
 import com.haulmont.cuba.security.entity.LoggedEntity
 import com.haulmont.cuba.testsupport.TestContainer
@@ -152,4 +155,28 @@ class AbstractEntityLogTest extends Specification {
     protected void clearTable(String tableName) {
         runSqlUpdate("delete from $tableName")
     }
+
+    protected EntityLogItem createModifyItem(User user, UUID entityId, String attribute, String oldValue, String value) {
+        Metadata metadata = AppBeans.get(Metadata)
+        EntityLogItem item = metadata.create(EntityLogItem)
+        item.eventTs = new Date()
+        item.user = user
+        item.type = EntityLogItem.Type.MODIFY
+        item.entity = 'sec$User'
+        item.entityInstanceName = "user-$entityId"
+        item.objectEntityId = entityId
+
+        EntityLogAttr attr = metadata.create(EntityLogAttr)
+        attr.name = attribute
+        attr.oldValue = oldValue
+        attr.value = value
+        item.attributes = [attr] as Set
+        return item
+    }
+
+    protected long runSqlCount(String sql) {
+        cont.persistence().callInTransaction { em ->
+            ((Number) em.createNativeQuery(sql).getSingleResult()).longValue()
+        }
+    }
 }
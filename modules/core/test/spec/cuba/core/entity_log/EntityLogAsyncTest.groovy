@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.entity_log
+
+import com.haulmont.cuba.core.EntityManager
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.sys.AppContext
+import com.haulmont.cuba.security.app.EntityLogWriter
+import com.haulmont.cuba.security.entity.EntityLogItem
+import com.haulmont.cuba.security.entity.User
+import com.haulmont.cuba.testsupport.TestSupport
+
+class EntityLogAsyncTest extends AbstractEntityLogTest {
+
+    private UUID userId
+
+    void setup() {
+        clearTables("SEC_LOGGED_ATTR", "SEC_LOGGED_ENTITY", "SEC_ENTITY_LOG")
+
+        withTransaction { EntityManager em ->
+            saveEntityLogAutoConfFor(em, 'sec$User', 'name', 'email')
+        }
+
+        initEntityLogAPI()
+        AppContext.setProperty('cuba.entityLog.asyncMode', 'true')
+    }
+
+    void cleanup() {
+        AppContext.setProperty('cuba.entityLog.asyncMode', null)
+        clearTables("SEC_LOGGED_ATTR", "SEC_LOGGED_ENTITY", "SEC_ENTITY_LOG")
+
+        if (userId != null)
+            cont.deleteRecord("SEC_USER", userId)
+    }
+
+    def "entity log items are written after commit by the background writer"() {
+
+        def writer = AppBeans.get(EntityLogWriter)
+        def writtenBefore = writer.writtenCount
+
+        when:
+
+        withTransaction { EntityManager em ->
+            User user = cont.metadata().create(User)
+            user.login = 'asyncEntityLogUser'
+            user.name = 'name'
+            user.group = findCompanyGroup()
+            em.persist(user)
+            userId = user.id
+        }
+
+        and:
+
+        for (int i = 0; i < 50 && getEntityLogItems('sec$User', userId).isEmpty(); i++) {
+            Thread.sleep(100)
+        }
+
+        then:
+
+        getEntityLogItems('sec$User', userId).size() == 1
+        writer.writtenCount == writtenBefore + 1
+        writer.queueSize == 0
+    }
+
+    def "spilled items are written once after a failure in the middle of the spill file"() {
+
+        def writer = AppBeans.get(EntityLogWriter)
+        User admin = cont.persistence().callInTransaction { em -> em.find(User, TestSupport.ADMIN_USER_ID) }
+        List<EntityLogItem> items = (0..4).collect {
+            createModifyItem(admin, UUID.randomUUID(), 'name', "old-$it", "new-$it")
+        }
+
+        and: "the first batch is written before the failure"
+
+        writer.writeItems(items.subList(0, 2))
+        writer.spill(items)
+        writer.spillRetryTime = 0
+
+        when:
+
+        writer.writeSpilledItems(2)
+
+        then:
+
+        runSqlCount("select count(*) from SEC_ENTITY_LOG") == 5
+        !writer.spillFile.exists()
+        !writer.processingFile.exists()
+        !writer.offsetFile.exists()
+    }
+
+    def "unreadable spill file is moved aside"() {
+
+        def writer = AppBeans.get(EntityLogWriter)
+        writer.spillFile.bytes = [0, 0, 0, 10, 1, 2] as byte[]
+        writer.spillRetryTime = 0
+
+        when:
+
+        writer.writeSpilledItems(2)
+
+        then:
+
+        !writer.processingFile.exists()
+        writer.spillDir.listFiles().any { it.name.startsWith('entity-log-queue.failed-') }
+
+        cleanup:
+
+        writer.spillDir.listFiles().findAll { it.name.startsWith('entity-log-queue.failed-') }*.delete()
+    }
+}
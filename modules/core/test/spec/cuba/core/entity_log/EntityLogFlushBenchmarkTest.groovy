@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.entity_log
+
+import com.haulmont.cuba.core.EntityManager
+import com.haulmont.cuba.core.global.Stores
+import com.haulmont.cuba.core.sys.AppContext
+import com.haulmont.cuba.security.app.EntityLog
+import com.haulmont.cuba.security.entity.EntityLogItem
+import com.haulmont.cuba.security.entity.User
+import com.haulmont.cuba.testsupport.TestSupport
+import spock.lang.Requires
+import spock.lang.Unroll
+
+/**
+ * Flush of large numbers of entity log modifications. Not a part of the regular test run, enabled by the
+ * {@code cuba.test.benchmarks} system property.
+ */
+@Requires({ System.getProperty('cuba.test.benchmarks') })
+class EntityLogFlushBenchmarkTest extends AbstractEntityLogTest {
+
+    void setup() {
+        clearTable("SEC_ENTITY_LOG")
+    }
+
+    void cleanup() {
+        AppContext.setProperty('cuba.entityLog.jdbcBatchThreshold', null)
+        clearTable("SEC_ENTITY_LOG")
+    }
+
+    @Unroll
+    def "flush of #count modifications, JDBC batches: #jdbcBatch"() {
+
+        AppContext.setProperty('cuba.entityLog.jdbcBatchThreshold', jdbcBatch ? '1' : '0')
+
+        when:
+
+        withTransaction { EntityManager em ->
+            User user = em.getReference(User, TestSupport.ADMIN_USER_ID)
+            List<EntityLogItem> items = new ArrayList<>(count)
+            for (int i = 0; i < count / 2; i++) {
+                UUID entityId = UUID.randomUUID()
+                items.add(createModifyItem(user, entityId, 'name', "old-$i", "new-$i"))
+                items.add(createModifyItem(user, entityId, 'email', "old-$i@mail", "new-$i@mail"))
+            }
+            cont.persistence().getEntityManagerContext(Stores.MAIN).setAttribute(EntityLog.class.name, items)
+        }
+
+        then:
+
+        runSqlCount("select count(*) from SEC_ENTITY_LOG") == count / 2
+
+        where:
+
+        count  | jdbcBatch
+        1000   | false
+        1000   | true
+        10000  | false
+        10000  | true
+        100000 | true
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.entity_log
+
+import com.haulmont.cuba.core.EntityManager
+import com.haulmont.cuba.core.global.Stores
+import com.haulmont.cuba.core.sys.AppContext
+import com.haulmont.cuba.security.app.EntityLog
+import com.haulmont.cuba.security.entity.EntityLogItem
+import com.haulmont.cuba.security.entity.User
+import com.haulmont.cuba.testsupport.TestSupport
+import spock.lang.Unroll
+
+class EntityLogFlushTest extends AbstractEntityLogTest {
+
+    void setup() {
+        clearTable("SEC_ENTITY_LOG")
+    }
+
+    void cleanup() {
+        AppContext.setProperty('cuba.entityLog.jdbcBatchThreshold', null)
+        clearTable("SEC_ENTITY_LOG")
+    }
+
+    @Unroll
+    def "modifications of the same entity are grouped on flush, JDBC batches: #jdbcBatch"() {
+
+        AppContext.setProperty('cuba.entityLog.jdbcBatchThreshold', jdbcBatch ? '1' : '0')
+
+        List<UUID> entityIds = (1..10).collect { UUID.randomUUID() }
+
+        when:
+
+        withTransaction { EntityManager em ->
+            User user = em.getReference(User, TestSupport.ADMIN_USER_ID)
+            List<EntityLogItem> items = []
+            entityIds.eachWithIndex { UUID entityId, int i ->
+                items.add(createModifyItem(user, entityId, 'name', "old-$i", "new-$i"))
+                items.add(createModifyItem(user, entityId, 'email', "old-$i@mail", "new-$i@mail"))
+            }
+            cont.persistence().getEntityManagerContext(Stores.MAIN).setAttribute(EntityLog.class.name, items)
+        }
+
+        then: "one item is written for each entity"
+
+        runSqlCount("select count(*) from SEC_ENTITY_LOG") == entityIds.size()
+
+        and: "the item contains changes of both attributes"
+
+        entityIds.eachWithIndex { UUID entityId, int i ->
+            List<EntityLogItem> logItems = getEntityLogItems('sec$User', entityId)
+            assert logItems.size() == 1
+            assert logItems[0].attributes*.name as Set == ['name', 'email'] as Set
+            assert loggedValueMatches(logItems[0], 'name', "new-$i")
+            assert loggedOldValueMatches(logItems[0], 'email', "old-$i@mail")
+        }
+
+        where:
+
+        jdbcBatch << [false, true]
+    }
+}
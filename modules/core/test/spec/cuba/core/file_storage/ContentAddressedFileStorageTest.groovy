@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package spec.cuba.core.file_storage
+
+import com.haulmont.cuba.core.app.ServerConfig
+import com.haulmont.cuba.core.app.filestorage.ContentAddressedFileStorage
+import com.haulmont.cuba.core.entity.FileDescriptor
+import com.haulmont.cuba.core.global.Configuration
+import com.haulmont.cuba.core.global.FileStorageException
+import com.haulmont.cuba.core.global.TimeSource
+import com.haulmont.cuba.core.global.UserSessionSource
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.util.concurrent.ScheduledExecutorService
+
+class ContentAddressedFileStorageTest extends Specification {
+
+    File primaryDir
+    File secondaryDir
+    ContentAddressedFileStorage storage
+
+    void setup() {
+        primaryDir = Files.createTempDirectory('primary').toFile()
+        secondaryDir = Files.createTempDirectory('secondary').toFile()
+
+        def serverConfig = Stub(ServerConfig) {
+            getFileStorageDir() >> "$primaryDir.absolutePath, $secondaryDir.absolutePath"
+            getImmutableFileStorage() >> true
+        }
+        storage = new ContentAddressedFileStorage()
+        storage.configuration = Stub(Configuration) {
+            getConfig(ServerConfig) >> serverConfig
+        }
+        storage.userSessionSource = Stub(UserSessionSource) {
+            checkCurrentUserSession() >> false
+        }
+        storage.timeSource = Stub(TimeSource) {
+            currentTimestamp() >> new Date()
+            currentTimeMillis() >> { System.currentTimeMillis() }
+        }
+        // replication is processed explicitly by the test
+        storage.replicationExecutor = Mock(ScheduledExecutorService)
+    }
+
+    void cleanup() {
+        primaryDir.deleteDir()
+        secondaryDir.deleteDir()
+    }
+
+    def "equal files share the content"() {
+        def fd1 = createDescriptor()
+        def fd2 = createDescriptor()
+
+        when:
+        storage.saveFile(fd1, 'content'.bytes)
+        storage.saveFile(fd2, 'content'.bytes)
+
+        then:
+        storage.findFile(fd1) == storage.findFile(fd2)
+        storage.getReferencesCount(fd1) == 2
+        new String(storage.loadFile(fd2)) == 'content'
+
+        when:
+        storage.removeFile(fd1)
+
+        then:
+        !storage.fileExists(fd1)
+        storage.fileExists(fd2)
+        storage.getReferencesCount(fd2) == 1
+
+        when:
+        def blobFile = storage.findFile(fd2)
+        storage.removeFile(fd2)
+
+        then:
+        !storage.fileExists(fd2)
+        !blobFile.exists()
+    }
+
+    def "existing file cannot be overwritten in immutable storage"() {
+        def fd = createDescriptor()
+        storage.saveFile(fd, 'content'.bytes)
+
+        when:
+        storage.saveFile(fd, 'other'.bytes)
+
+        then:
+        def e = thrown(FileStorageException)
+        e.type == FileStorageException.Type.FILE_ALREADY_EXISTS
+    }
+
+    def "files are replicated through the persistent queue"() {
+        def fd = createDescriptor()
+
+        when:
+        storage.saveFile(fd, 'content'.bytes)
+
+        then:
+        new File(primaryDir, 'replication').list().length == 1
+        !new File(secondaryDir, 'refs').exists()
+
+        when: "the queue is processed, e.g. after restart"
+        storage.processReplicationQueue()
+
+        then:
+        new File(primaryDir, 'replication').list().length == 0
+        new File(secondaryDir, "refs/${fd.id.toString().substring(0, 2)}/$fd.id").exists()
+
+        when:
+        storage.removeFile(fd)
+        storage.processReplicationQueue()
+
+        then:
+        !new File(secondaryDir, "refs/${fd.id.toString().substring(0, 2)}/$fd.id").exists()
+    }
+
+    def "operations are logged"() {
+        def fd = createDescriptor()
+
+        when:
+        storage.saveFile(fd, 'content'.bytes)
+        storage.flushLogs()
+
+        then:
+        new File(primaryDir, 'storage.log').readLines().size() == 2
+    }
+
+    private static FileDescriptor createDescriptor() {
+        def fd = new FileDescriptor()
+        fd.name = 'test.txt'
+        fd.extension = 'txt'
+        fd.createDate = new Date()
+        return fd
+    }
+}
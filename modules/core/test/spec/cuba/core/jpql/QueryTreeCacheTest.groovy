@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.jpql
+
+import com.google.common.cache.CacheBuilder
+import com.haulmont.cuba.core.sys.jpql.DomainModel
+import com.haulmont.cuba.core.sys.jpql.QueryTreeCache
+import com.haulmont.cuba.core.sys.jpql.model.EntityBuilder
+import com.haulmont.cuba.core.sys.jpql.transform.QueryTransformerAstBased
+import spock.lang.Specification
+
+class QueryTreeCacheTest extends Specification {
+
+    QueryTreeCache queryTreeCache
+    DomainModel model
+
+    void setup() {
+        queryTreeCache = new QueryTreeCache()
+        queryTreeCache.cache = CacheBuilder.newBuilder().maximumSize(10).recordStats().build()
+
+        def builder = new EntityBuilder()
+        def teamEntity = builder.produceImmediately('Team', 'name')
+        builder.startNewEntity('Player')
+        builder.addStringAttribute('name')
+        builder.addReferenceAttribute('team', 'Team')
+        def playerEntity = builder.produce()
+        model = new DomainModel(playerEntity, teamEntity)
+    }
+
+    def "transformers modify copies of the cached tree"() {
+        def query = 'select p from Player p join p.team t where t.name = :teamName'
+
+        when:
+
+        def transformer1 = createTransformer(query)
+        transformer1.addWhere('{E}.name = :name')
+        transformer1.replaceWithCount()
+
+        def transformer2 = createTransformer(query)
+
+        then:
+
+        transformer1.getResult() == 'select count(p) from Player p join p.team t where (t.name = :teamName) and (p.name = :name)'
+        transformer2.getResult() == query
+        queryTreeCache.size == 1
+        queryTreeCache.stats.hitCount() == 1
+        queryTreeCache.stats.missCount() == 1
+    }
+
+    def "tree is parsed again after clearing the cache"() {
+        def query = 'select p from Player p order by p.name'
+
+        when:
+
+        createTransformer(query).getResult()
+        queryTreeCache.clear()
+        def result = createTransformer(query).getResult()
+
+        then:
+
+        result == query
+        queryTreeCache.stats.missCount() == 2
+    }
+
+    private QueryTransformerAstBased createTransformer(String query) {
+        def transformer = new QueryTransformerAstBased(model, query)
+        transformer.queryTreeCache = queryTreeCache
+        return transformer
+    }
+}
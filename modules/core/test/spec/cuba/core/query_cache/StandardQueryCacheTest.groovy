@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.query_cache
+
+import com.haulmont.cuba.core.sys.entitycache.QueryCacheConfig
+import com.haulmont.cuba.core.sys.entitycache.QueryCacheStatistics
+import com.haulmont.cuba.core.sys.entitycache.QueryKey
+import com.haulmont.cuba.core.sys.entitycache.QueryResult
+import com.haulmont.cuba.core.sys.entitycache.StandardQueryCache
+import spock.lang.Specification
+
+class StandardQueryCacheTest extends Specification {
+
+    private StandardQueryCache queryCache
+
+    void setup() {
+        def config = Stub(QueryCacheConfig) {
+            getQueryCacheMaxSize() >> 2
+        }
+        queryCache = new StandardQueryCache(queryCacheConfig: config, statistics: new QueryCacheStatistics())
+        queryCache.init()
+    }
+
+    def "evicted keys are pruned from indexes"() {
+        def key1 = createKey('select u from sec$User u')
+        def key2 = createKey('select g from sec$Group g')
+        def key3 = createKey('select r from sec$Role r')
+
+        when:
+        queryCache.put(key1, createResult('sec$User'))
+        queryCache.put(key2, createResult('sec$Group'))
+        queryCache.put(key3, createResult('sec$Role'))
+        queryCache.put(key3, createResult('sec$Role'))
+
+        then:
+        queryCache.size() == 2
+        queryCache.idIndexSize == 2
+        queryCache.typeIndexSizes.values().sum() == 2
+        queryCache.prunedKeysCount >= 1
+        queryCache.statistics.typeStats['sec$User'].evictions == 1
+    }
+
+    def "cache is bounded by weight"() {
+        def config = Stub(QueryCacheConfig) {
+            getQueryCacheMaxWeight() >> 10
+        }
+        queryCache = new StandardQueryCache(queryCacheConfig: config, statistics: new QueryCacheStatistics())
+        queryCache.init()
+
+        def key1 = createKey('select u from sec$User u')
+        def key2 = createKey('select g from sec$Group g')
+
+        when:
+        queryCache.put(key1, new QueryResult((1..6).collect { UUID.randomUUID() }, 'sec$User', ['sec$User'] as Set))
+        queryCache.put(key2, new QueryResult((1..6).collect { UUID.randomUUID() }, 'sec$Group', ['sec$Group'] as Set))
+
+        then:
+        queryCache.size() == 1
+        queryCache.get(key2) != null
+        queryCache.weight == 7
+        queryCache.idIndexSize == 1
+    }
+
+    def "query is found and invalidated by id"() {
+        def key = createKey('select u from sec$User u')
+        queryCache.put(key, createResult('sec$User'))
+
+        expect:
+        queryCache.findQueryKeyById(key.id) == key
+
+        when:
+        def invalidated = queryCache.invalidate(key.id)
+
+        then:
+        invalidated == key
+        queryCache.size() == 0
+        queryCache.findQueryKeyById(key.id) == null
+        queryCache.idIndexSize == 0
+    }
+
+    def "replaced query is indexed by the new key id"() {
+        def key1 = createKey('select u from sec$User u')
+        def key2 = createKey('select u from sec$User u')
+
+        when:
+        queryCache.put(key1, createResult('sec$User'))
+        queryCache.put(key2, createResult('sec$User'))
+
+        then:
+        queryCache.size() == 1
+        queryCache.findQueryKeyById(key1.id) == null
+        queryCache.findQueryKeyById(key2.id) == key2
+        queryCache.idIndexSize == 1
+    }
+
+    def "queries are invalidated by related type"() {
+        def key1 = createKey('select u from sec$User u join u.group g')
+        def key2 = createKey('select r from sec$Role r')
+        queryCache.put(key1, createResult('sec$User', 'sec$Group'))
+        queryCache.put(key2, createResult('sec$Role'))
+
+        when:
+        queryCache.invalidate('sec$Group')
+
+        then:
+        queryCache.size() == 1
+        queryCache.get(key2) != null
+        queryCache.typeIndexSizes == ['sec$Role': 1]
+    }
+
+    private static QueryKey createKey(String queryString) {
+        new QueryKey(queryString, 0, 0, true, false, null, null)
+    }
+
+    private static QueryResult createResult(String type, String... relatedTypes) {
+        new QueryResult([UUID.randomUUID()], type, ([type] + relatedTypes.toList()) as Set)
+    }
+}
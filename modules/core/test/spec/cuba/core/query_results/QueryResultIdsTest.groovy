@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.query_results
+
+import com.haulmont.cuba.core.app.queryresults.QueryResultIds
+import spock.lang.Specification
+
+class QueryResultIdsTest extends Specification {
+
+    def "UUID ids are sorted and deduplicated"() {
+        def id1 = UUID.randomUUID()
+        def id2 = UUID.randomUUID()
+
+        when:
+
+        def ids = QueryResultIds.of([id1, id2, id1])
+
+        then:
+
+        ids.size() == 2
+        ids.contains(id1)
+        ids.contains(id2)
+        !ids.contains(UUID.randomUUID())
+        ids.getIds() as Set == [id1, id2] as Set
+    }
+
+    def "numeric ids keep their type"() {
+
+        when:
+
+        def intIds = QueryResultIds.of([3, 1, 2])
+        def longIds = QueryResultIds.of([3L, 1L])
+
+        then:
+
+        intIds.getIds() == [1, 2, 3]
+        intIds.getIds()[0] instanceof Integer
+        longIds.getIds() == [1L, 3L]
+        longIds.getIds()[0] instanceof Long
+        longIds.contains(3L)
+    }
+
+    def "string ids"() {
+
+        when:
+
+        def ids = QueryResultIds.of(['b', 'a', 'b'])
+
+        then:
+
+        ids.size() == 2
+        ids.getIds() == ['a', 'b']
+        ids.getIds(1, 2) == ['b']
+    }
+
+    def "empty ids"() {
+
+        when:
+
+        def ids = QueryResultIds.of([])
+
+        then:
+
+        ids.size() == 0
+        ids.getIds().isEmpty()
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package spec.cuba.core.remoting
+
+import com.haulmont.cuba.core.sys.AppContext
+import com.haulmont.cuba.core.sys.remoting.HttpServiceExporter
+import com.haulmont.cuba.core.sys.remoting.RemotingCompression
+import com.haulmont.cuba.core.sys.serialization.SerializationSupport
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import org.springframework.remoting.support.RemoteInvocation
+import org.springframework.remoting.support.RemoteInvocationResult
+import spock.lang.Shared
+import spock.lang.Specification
+
+import javax.servlet.ReadListener
+import javax.servlet.ServletInputStream
+import javax.servlet.ServletOutputStream
+import javax.servlet.WriteListener
+import javax.servlet.http.HttpServletRequest
+import javax.servlet.http.HttpServletResponse
+import java.util.zip.GZIPInputStream
+
+class HttpServiceExporterCompressionTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private HttpServiceExporter exporter = new HttpServiceExporter()
+
+    private String payload = 'payload ' * 1000
+
+    void setup() {
+        AppContext.setProperty('cuba.remoting.compressionThreshold', '100')
+    }
+
+    void cleanup() {
+        AppContext.setProperty('cuba.remoting.compressionThreshold', null)
+    }
+
+    def "result is compressed if the client accepts gzip and the result exceeds the threshold"() {
+        def output = new ByteArrayOutputStream()
+        def request = Stub(HttpServletRequest) {
+            getHeader('Accept-Encoding') >> 'gzip, deflate'
+        }
+        def response = Mock(HttpServletResponse) {
+            getOutputStream() >> servletOutputStream(output)
+        }
+
+        when:
+
+        exporter.writeRemoteInvocationResult(request, response, new RemoteInvocationResult(payload))
+
+        then:
+
+        1 * response.setHeader(RemotingCompression.ACCEPT_ENCODING_HEADER, RemotingCompression.GZIP)
+        1 * response.setHeader('Content-Encoding', RemotingCompression.GZIP)
+        output.size() < payload.length()
+        readResult(new GZIPInputStream(new ByteArrayInputStream(output.toByteArray()))).value == payload
+    }
+
+    def "result is not compressed if the client does not accept gzip or the result is small"() {
+        def output = new ByteArrayOutputStream()
+        def request = Stub(HttpServletRequest) {
+            getHeader('Accept-Encoding') >> acceptEncoding
+        }
+        def response = Mock(HttpServletResponse) {
+            getOutputStream() >> servletOutputStream(output)
+        }
+
+        when:
+
+        exporter.writeRemoteInvocationResult(request, response, new RemoteInvocationResult(value))
+
+        then:
+
+        1 * response.setHeader(RemotingCompression.ACCEPT_ENCODING_HEADER, RemotingCompression.GZIP)
+        0 * response.setHeader('Content-Encoding', _)
+        readResult(new ByteArrayInputStream(output.toByteArray())).value == value
+
+        where:
+
+        acceptEncoding | value
+        null           | 'payload ' * 1000
+        'gzip'         | 'small'
+    }
+
+    def "compressed request is read"() {
+        def bytes = new ByteArrayOutputStream()
+        def oos = new ObjectOutputStream(bytes)
+        SerializationSupport.serialize(new RemoteInvocation('echo', [String] as Class[], [payload] as Object[]), oos)
+        oos.close()
+        def compressed = RemotingCompression.gzip(bytes.toByteArray())
+
+        def request = Stub(HttpServletRequest) {
+            getHeader('Content-Encoding') >> RemotingCompression.GZIP
+            getInputStream() >> servletInputStream(compressed)
+        }
+
+        when:
+
+        def invocation = exporter.readRemoteInvocation(request)
+
+        then:
+
+        invocation.methodName == 'echo'
+        invocation.arguments[0] == payload
+    }
+
+    private static RemoteInvocationResult readResult(InputStream inputStream) {
+        return (RemoteInvocationResult) SerializationSupport.deserialize(new ObjectInputStream(inputStream))
+    }
+
+    private static ServletOutputStream servletOutputStream(OutputStream output) {
+        return new ServletOutputStream() {
+            @Override
+            void write(int b) throws IOException {
+                output.write(b)
+            }
+
+            @Override
+            boolean isReady() {
+                return true
+            }
+
+            @Override
+            void setWriteListener(WriteListener writeListener) {
+            }
+        }
+    }
+
+    private static ServletInputStream servletInputStream(byte[] data) {
+        def input = new ByteArrayInputStream(data)
+        return new ServletInputStream() {
+            @Override
+            int read() throws IOException {
+                return input.read()
+            }
+
+            @Override
+            boolean isFinished() {
+                return input.available() == 0
+            }
+
+            @Override
+            boolean isReady() {
+                return true
+            }
+
+            @Override
+            void setReadListener(ReadListener readListener) {
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package spec.cuba.core.remoting
+
+import com.haulmont.cuba.core.sys.remoting.LocalServiceInvocation
+import com.haulmont.cuba.core.sys.remoting.LocalServiceInvokerImpl
+import com.haulmont.cuba.core.sys.serialization.SerializationSupport
+import spock.lang.Specification
+
+class LocalServiceInvokerTest extends Specification {
+
+    static class TestService {
+        String echo(String value) {
+            return value
+        }
+
+        List<String> list(Integer count) {
+            return (1..count).collect { it.toString() }
+        }
+    }
+
+    def "immutable values are passed by reference"() {
+        def invoker = new LocalServiceInvokerImpl(new TestService())
+        def value = new String('value')
+        def invocation = new LocalServiceInvocation('echo', [String.name] as String[],
+                [null] as byte[][], [value] as Object[], null)
+
+        when:
+        def result = invoker.invoke(invocation)
+
+        then:
+        result.exception == null
+        result.data == null
+        result.notSerializableData.is(value)
+    }
+
+    def "mutable results are serialized"() {
+        def invoker = new LocalServiceInvokerImpl(new TestService())
+        def invocation = new LocalServiceInvocation('list', [Integer.name] as String[],
+                [null] as byte[][], [2] as Object[], null)
+        invocation.setMethodSignature('list[java.lang.Integer]')
+
+        when:
+        def result = invoker.invoke(invocation)
+
+        then:
+        result.exception == null
+        result.notSerializableData == null
+        SerializationSupport.deserialize(result.data) == ['1', '2']
+    }
+
+    def "canPassByReference"() {
+        expect:
+        LocalServiceInvocation.canPassByReference(value) == expected
+
+        where:
+        value                | expected
+        'a'                  | true
+        1L                   | true
+        UUID.randomUUID()    | true
+        new BigDecimal('1')  | true
+        new Date()           | false
+        ['a']                | false
+        null                 | false
+    }
+}
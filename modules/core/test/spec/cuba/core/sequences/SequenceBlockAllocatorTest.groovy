@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.sequences
+
+import com.haulmont.cuba.core.sys.SequenceBlockAllocator
+import spock.lang.Specification
+
+import java.util.concurrent.Executor
+import java.util.concurrent.atomic.AtomicLong
+
+class SequenceBlockAllocatorTest extends Specification {
+
+    def "values are handed out from reserved blocks"() {
+        def sequence = new AtomicLong()
+        def allocator = new SequenceBlockAllocator('test', 10, 0.8,
+                { sequence.getAndAdd(10) }, { Runnable r -> r.run() } as Executor)
+
+        when:
+
+        def values = (1..25).collect { allocator.next() }
+
+        then:
+
+        values == (1L..25L).toList()
+        allocator.reservedBlocksCount == 3
+        allocator.prefetchedBlocksCount == 2
+    }
+
+    def "values are unique when requested concurrently"() {
+        def sequence = new AtomicLong()
+        def allocator = new SequenceBlockAllocator('test', 50, SequenceBlockAllocator.DEFAULT_PREFETCH_THRESHOLD,
+                { sequence.getAndAdd(50) }, { Runnable r -> new Thread(r).start() } as Executor)
+        def values = Collections.synchronizedList(new ArrayList<Long>())
+
+        when:
+
+        def threads = (1..8).collect {
+            Thread.start {
+                1000.times { values.add(allocator.next()) }
+            }
+        }
+        threads*.join()
+
+        then:
+
+        values.size() == 8000
+        values.toSet().size() == 8000
+    }
+}
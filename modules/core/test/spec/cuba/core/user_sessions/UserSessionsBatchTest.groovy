@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.user_sessions
+
+import com.haulmont.cuba.core.sys.serialization.SerializationSupport
+import com.haulmont.cuba.security.app.UserSessionTouchBatch
+import com.haulmont.cuba.security.app.UserSessions
+import spock.lang.Specification
+
+class UserSessionsBatchTest extends Specification {
+
+    def "expiration wheel returns sessions of expired buckets only"() {
+        def wheel = new UserSessions.ExpirationWheel(1000)
+        def id1 = UUID.randomUUID()
+        def id2 = UUID.randomUUID()
+
+        when:
+
+        wheel.schedule(id1, 10_500)
+        wheel.schedule(id2, 20_500)
+
+        then:
+
+        wheel.pollExpired(10_900).isEmpty()
+        wheel.pollExpired(11_000) == [id1]
+        wheel.pollExpired(11_000).isEmpty()
+        wheel.pollExpired(30_000) == [id2]
+    }
+
+    def "touch batch is serialized"() {
+        def id1 = UUID.randomUUID()
+        def id2 = UUID.randomUUID()
+
+        def batch = new UserSessionTouchBatch(2)
+        batch.set(0, id1, 100)
+        batch.set(1, id2, 200)
+
+        when:
+
+        UserSessionTouchBatch received = SerializationSupport.deserialize(SerializationSupport.serialize(batch))
+
+        then:
+
+        received.size() == 2
+        received.getSessionId(0) == id1
+        received.getLastUsedTs(0) == 100
+        received.getSessionId(1) == id2
+        received.getLastUsedTs(1) == 200
+        received.replacedMessagesCount == 2
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.views
+
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.View
+import com.haulmont.cuba.core.sys.AbstractViewRepository
+import com.haulmont.cuba.core.sys.FetchGroupManager
+import com.haulmont.cuba.testmodel.sales.Customer
+import com.haulmont.cuba.testmodel.sales.Order
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+class FetchGroupCacheTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    FetchGroupManager fetchGroupManager
+
+    void setup() {
+        fetchGroupManager = AppBeans.get(FetchGroupManager.NAME)
+    }
+
+    def "description is reused for the same query and view structure"() {
+        def query = 'select o from test$Order o'
+
+        when:
+
+        def description1 = fetchGroupManager.calculateFetchGroup(query, createView(), false, false)
+        def description2 = fetchGroupManager.calculateFetchGroup(query, createView(), false, false)
+        def description3 = fetchGroupManager.calculateFetchGroup(query, createView().addProperty('user'), false, false)
+
+        then:
+
+        description1.is(description2)
+        !description1.is(description3)
+        description1.hints.containsKey('o.customer')
+    }
+
+    def "cached descriptions are discarded when views are redeployed"() {
+        def query = 'select o from test$Order o where o.number = :number'
+        def description1 = fetchGroupManager.calculateFetchGroup(query, createView(), false, false)
+
+        when:
+
+        ((AbstractViewRepository) cont.metadata().viewRepository).deployViews(new StringReader('''
+            <views xmlns="http://schemas.haulmont.com/cuba/view.xsd">
+                <view entity="test$Customer" name="fetchGroupCacheTest" overwrite="true">
+                    <property name="name"/>
+                </view>
+            </views>'''))
+        def description2 = fetchGroupManager.calculateFetchGroup(query, createView(), false, false)
+
+        then:
+
+        !description1.is(description2)
+        description1.attributes == description2.attributes
+    }
+
+    private static View createView() {
+        return new View(Order, false)
+                .addProperty('number')
+                .addProperty('customer', new View(Customer, false).addProperty('name'))
+    }
+}
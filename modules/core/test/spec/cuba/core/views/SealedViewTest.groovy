@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.views
+
+import com.haulmont.cuba.core.global.View
+import com.haulmont.cuba.testmodel.sales.Customer
+import com.haulmont.cuba.testmodel.sales.Order
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+class SealedViewTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    View sealedView
+
+    void setup() {
+        sealedView = new View(Order, 'order-with-customer', false)
+                .addProperty('number')
+                .addProperty('customer', new View(Customer, false).addProperty('name'))
+                .seal()
+    }
+
+    def "sealed view cannot be modified"() {
+        when:
+
+        sealedView.getProperty('customer').view.addProperty('status')
+
+        then:
+
+        thrown(IllegalStateException)
+        sealedView.getProperty('customer').view.isSealed()
+    }
+
+    def "copy-on-write view copies properties on modification"() {
+        when:
+
+        def view = View.copyOnWrite(sealedView)
+        view.addProperty('date')
+
+        then:
+
+        !view.isSealed()
+        view.containsProperty('number')
+        view.containsProperty('date')
+        !sealedView.containsProperty('date')
+    }
+
+    def "extending sealed view does not modify it"() {
+        when:
+
+        def extension = new View(Order, false)
+                .addProperty('customer', new View(Customer, false).addProperty('status'))
+        def params = new View.ViewParams().entityClass(Order)
+        params.src([sealedView, extension])
+        def view = new View(params)
+
+        then:
+
+        view.getProperty('customer').view.containsProperty('name')
+        view.getProperty('customer').view.containsProperty('status')
+        !sealedView.getProperty('customer').view.containsProperty('status')
+    }
+
+    def "views returned by repository can be modified"() {
+        def viewRepository = cont.metadata().viewRepository
+
+        when:
+
+        def view1 = viewRepository.getView(Order, View.BASE)
+        view1.addProperty('user')
+        def view2 = viewRepository.getView(Order, View.BASE)
+
+        then:
+
+        !view1.is(view2)
+        !view2.containsProperty('user')
+        view2.containsProperty('number')
+    }
+}
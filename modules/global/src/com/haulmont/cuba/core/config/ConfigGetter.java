@@ -38,6 +38,8 @@ public class ConfigGetter extends ConfigAccessorMethod {
 
     private TypeFactory factory;
 
+    private final boolean valueCacheable;
+
     /**
      * Create a new ConfigGetter instance.
      *
@@ -51,6 +53,26 @@ public class ConfigGetter extends ConfigAccessorMethod {
         sourceType = ConfigUtil.getSourceType(configInterface, method);
 //        if (!String.class.equals(method.getReturnType()))
         factory = TypeFactory.getInstance(configInterface, method);
+        valueCacheable = sourceType != SourceType.SYSTEM && isImmutableType(method.getReturnType());
+    }
+
+    /**
+     * Whether the value returned by this getter can be cached by {@link ConfigHandler} until the application or
+     * database properties change. System properties can change at any time, and values of mutable types
+     * (collections, entities) are built anew on each call, so they are never cached.
+     */
+    public boolean isValueCacheable() {
+        return valueCacheable;
+    }
+
+    protected static boolean isImmutableType(Class<?> type) {
+        return type.isPrimitive()
+                || type.isEnum()
+                || String.class.equals(type)
+                || Boolean.class.equals(type)
+                || Character.class.equals(type)
+                || Number.class.isAssignableFrom(type) && type.getName().startsWith("java.lang.")
+                || Class.class.equals(type);
     }
 
     /**
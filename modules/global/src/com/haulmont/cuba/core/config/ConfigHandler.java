@@ -21,12 +21,20 @@ package com.haulmont.cuba.core.config;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Configuration interface method handler.
  *
  */
 public class ConfigHandler implements InvocationHandler {
+    /**
+     * Version of property values, incremented each time application or database properties change.
+     */
+    private static final AtomicLong valuesVersion = new AtomicLong();
+
     /**
      * The configuration source.
      */
@@ -35,6 +43,18 @@ public class ConfigHandler implements InvocationHandler {
      * The configuration interface.
      */
     private final Class<?> configInterface;
+    /**
+     * Whether typed values of getters are cached until properties change.
+     */
+    private final boolean cacheValues;
+    /**
+     * Method implementations resolved for the configuration interface.
+     */
+    private final Map<Method, ConfigMethod> methods = new ConcurrentHashMap<>();
+    /**
+     * Typed values of getters without arguments.
+     */
+    private final Map<Method, CachedValue> values = new ConcurrentHashMap<>();
 
     /**
      * Create a new ConfigHandler instance.
@@ -43,8 +63,29 @@ public class ConfigHandler implements InvocationHandler {
      * @param configInterface The configuration interface.
      */
     public ConfigHandler(ConfigPersister persister, Class<?> configInterface) {
+        this(persister, configInterface, false);
+    }
+
+    /**
+     * Create a new ConfigHandler instance.
+     *
+     * @param persister       The configuration source.
+     * @param configInterface The configuration interface.
+     * @param cacheValues     Whether to cache typed values of getters until {@link #invalidateCachedValues()}
+     *                        is invoked. Use only if the persister is notified of all property changes.
+     */
+    public ConfigHandler(ConfigPersister persister, Class<?> configInterface, boolean cacheValues) {
         this.persister = persister;
         this.configInterface = configInterface;
+        this.cacheValues = cacheValues;
+    }
+
+    /**
+     * Invalidate typed values cached by all handlers. Must be invoked when application or database
+     * properties change.
+     */
+    public static void invalidateCachedValues() {
+        valuesVersion.incrementAndGet();
     }
 
     /**
@@ -75,7 +116,35 @@ public class ConfigHandler implements InvocationHandler {
      */
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        ConfigMethod configMethod = ConfigMethods.getInstance(configInterface, method);
+        ConfigMethod configMethod = methods.get(method);
+        if (configMethod == null) {
+            configMethod = ConfigMethods.getInstance(configInterface, method);
+            methods.put(method, configMethod);
+        }
+
+        if (cacheValues && (args == null || args.length == 0)
+                && configMethod instanceof ConfigGetter && ((ConfigGetter) configMethod).isValueCacheable()) {
+            // read the version before the value, so a concurrent change leaves the stale value already outdated
+            long version = valuesVersion.get();
+            CachedValue cachedValue = values.get(method);
+            if (cachedValue != null && cachedValue.version == version) {
+                return cachedValue.value;
+            }
+            Object value = configMethod.invoke(this, args, proxy);
+            values.put(method, new CachedValue(value, version));
+            return value;
+        }
+
         return configMethod.invoke(this, args, proxy);
-  }
+    }
+
+    private static class CachedValue {
+        private final Object value;
+        private final long version;
+
+        private CachedValue(Object value, long version) {
+            this.value = value;
+            this.version = version;
+        }
+    }
 }
\ No newline at end of file
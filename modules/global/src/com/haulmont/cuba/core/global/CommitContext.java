@@ -40,6 +40,7 @@ public class CommitContext implements Serializable {
     protected boolean discardCommitted;
     protected boolean authorizationRequired;
     protected boolean joinTransaction;
+    protected boolean bulkMode;
     protected ValidationMode validationMode = ValidationMode.DEFAULT;
     protected Map<String, Object> dbHints = new HashMap<>();
     protected List<Class> validationGroups;
@@ -230,6 +231,25 @@ public class CommitContext implements Serializable {
         return this;
     }
 
+    /**
+     * @return true if new instances are committed in the bulk mode
+     */
+    public boolean isBulkMode() {
+        return bulkMode;
+    }
+
+    /**
+     * Sets the bulk mode for committing a large number of new instances. In this mode, new instances are flushed to
+     * the database and detached in batches of {@code cuba.bulkCommitBatchSize}, which keeps the persistence context
+     * small and allows the ORM to use JDBC batch writing if it is enabled by {@code eclipselink.jdbc.batch-writing}
+     * application property. {@link com.haulmont.cuba.core.listener.BulkBeforeInsertEntityListener}s receive each
+     * batch at once.
+     */
+    public CommitContext setBulkMode(boolean bulkMode) {
+        this.bulkMode = bulkMode;
+        return this;
+    }
+
     private View getViewFromRepository(Entity entity, String viewName) {
         Metadata metadata = AppBeans.get(Metadata.NAME);
         return metadata.getViewRepository().getView(metadata.getClass(entity.getClass()), viewName);
@@ -27,6 +27,7 @@ import com.haulmont.cuba.core.entity.contracts.Id;
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nullable;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Central interface to provide CRUD functionality. Can be used on both middle and client tiers.
@@ -42,6 +43,11 @@ public interface DataManager {
 
     String NAME = "cuba_DataManager";
 
+    /**
+     * Number of instances loaded at once by {@link #forEach(LoadContext, Consumer)}.
+     */
+    int DEFAULT_CHUNK_SIZE = 1000;
+
     /**
      * Loads a single entity instance.
      * <p>The depth of object graphs, starting from loaded instances, defined by {@link com.haulmont.cuba.core.global.View}
@@ -63,6 +69,63 @@ public interface DataManager {
     @CheckReturnValue
     <E extends Entity> List<E> loadList(LoadContext<E> context);
 
+    /**
+     * Loads collection of entity instances and passes them to the action in chunks, so that the whole result set is
+     * never kept in memory.
+     * <p>On the middleware, the instances are read through a database cursor inside a single transaction, and the
+     * action is invoked in this transaction. On the client tier, each chunk is loaded by a separate request using
+     * {@code firstResult} and {@code maxResults}, so the query should define a stable sort order.</p>
+     * @param context   {@link LoadContext} object, defining what and how to load
+     * @param chunkSize maximum number of instances passed to the action at once
+     * @param action    action receiving detached instances
+     */
+    @SuppressWarnings("unchecked")
+    default <E extends Entity> void forEachChunk(LoadContext<E> context, int chunkSize, Consumer<List<E>> action) {
+        Preconditions.checkNotNullArgument(context, "context is null");
+        Preconditions.checkNotNullArgument(action, "action is null");
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("chunkSize must be positive");
+
+        LoadContext.Query query = context.getQuery();
+        if (query == null || !context.getIds().isEmpty()) {
+            List<E> list = loadList(context);
+            for (int i = 0; i < list.size(); i += chunkSize) {
+                action.accept(list.subList(i, Math.min(i + chunkSize, list.size())));
+            }
+            return;
+        }
+
+        int loaded = 0;
+        while (true) {
+            int size = query.getMaxResults() > 0 ? Math.min(chunkSize, query.getMaxResults() - loaded) : chunkSize;
+            if (size <= 0)
+                break;
+
+            LoadContext<E> chunkContext = (LoadContext<E>) context.copy();
+            //noinspection ConstantConditions
+            chunkContext.getQuery().setFirstResult(query.getFirstResult() + loaded).setMaxResults(size);
+
+            List<E> chunk = loadList(chunkContext);
+            if (!chunk.isEmpty()) {
+                action.accept(chunk);
+            }
+            loaded += chunk.size();
+            if (chunk.size() < size)
+                break;
+        }
+    }
+
+    /**
+     * Loads collection of entity instances and passes each of them to the action, keeping in memory only a chunk
+     * of {@link #DEFAULT_CHUNK_SIZE} instances at a time.
+     * @param context   {@link LoadContext} object, defining what and how to load
+     * @param action    action receiving detached instances
+     * @see #forEachChunk(LoadContext, int, Consumer)
+     */
+    default <E extends Entity> void forEach(LoadContext<E> context, Consumer<? super E> action) {
+        forEachChunk(context, DEFAULT_CHUNK_SIZE, chunk -> chunk.forEach(action));
+    }
+
     /**
      * Returns the number of entity instances for the given query passed in the {@link LoadContext}.
      * @param context   defines the query
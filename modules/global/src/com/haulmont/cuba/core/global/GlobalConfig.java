@@ -177,6 +177,14 @@ public interface GlobalConfig extends Config {
     @DefaultInt(8)
     int getGroovyEvaluationPoolMaxIdle();
 
+    /**
+     * @return the maximum number of script classes compiled by {@code AbstractScripting.compileGroovy()} and kept in
+     * memory until {@code Scripting.clearCache()}
+     */
+    @Property("cuba.groovyCompiledScriptsCacheSize")
+    @DefaultInt(1000)
+    int getGroovyCompiledScriptsCacheSize();
+
     @Property("cuba.numberIdCacheSize")
     @DefaultInt(100)
     int getNumberIdCacheSize();
@@ -298,4 +306,11 @@ public interface GlobalConfig extends Config {
     @Default("MIXED")
     @Factory(factory = SecurityStorageModeFactory.class)
     SecurityStorageMode getAccessGroupsStorageMode();
-}
\ No newline at end of file
+
+    /**
+     * Maximum number of parsed JPQL queries kept in memory by {@link com.haulmont.cuba.core.sys.jpql.QueryTreeCache}.
+     */
+    @Property("cuba.jpqlTreeCacheSize")
+    @DefaultInt(1000)
+    int getJpqlTreeCacheSize();
+}
@@ -177,9 +177,7 @@ public interface Security {
 
     /**
      * Check if there are registered memory constraints of specified {@code operationTypes} for the metaClass or it's original metaClass
-     * @deprecated unused method
      */
-    @Deprecated
     boolean hasInMemoryConstraints(MetaClass metaClass, ConstraintOperationType... operationTypes);
 
     Object evaluateConstraintScript(Entity entity, String groovyScript);
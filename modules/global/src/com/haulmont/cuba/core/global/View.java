@@ -104,6 +104,10 @@ public class View implements Serializable {
 
     private boolean loadPartialEntities;
 
+    private transient boolean sealed;
+
+    private transient boolean sharedProperties;
+
     public View(Class<? extends Entity> entityClass) {
         this(entityClass, "", true);
     }
@@ -166,9 +170,16 @@ public class View implements Serializable {
                 View sourcePropertyView = sourceProperty.getView();
 
                 if (sourcePropertyView != null && isNotEmpty(sourcePropertyView.getProperties())) {
-
-                    Map<String, ViewProperty> thisViewProperties = thisProperties.get(sourcePropertyName).getView().properties;
-                    putProperties(thisViewProperties, sourcePropertyView.getProperties());
+                    ViewProperty thisProperty = thisProperties.get(sourcePropertyName);
+                    View thisPropertyView = thisProperty.getView();
+                    if (thisPropertyView.sealed) {
+                        // do not modify views shared by the repository
+                        thisPropertyView = copy(thisPropertyView);
+                        thisProperties.put(sourcePropertyName,
+                                new ViewProperty(sourcePropertyName, thisPropertyView, thisProperty.getFetchMode()));
+                    }
+                    thisPropertyView.beforeModification();
+                    putProperties(thisPropertyView.properties, sourcePropertyView.getProperties());
                 }
 
             } else {
@@ -193,6 +204,62 @@ public class View implements Serializable {
         return copy;
     }
 
+    /**
+     * Creates a view sharing properties with the given sealed view. The properties are copied only when the returned
+     * view is modified, nested views stay sealed.
+     *
+     * @param view sealed view
+     * @return new view instance
+     * @see #seal()
+     */
+    public static View copyOnWrite(View view) {
+        if (!view.sealed) {
+            throw new IllegalArgumentException("View is not sealed: " + view);
+        }
+        View result = new View(new ViewParams().entityClass(view.getEntityClass()).name(view.getName()));
+        result.properties = view.properties;
+        result.sharedProperties = true;
+        result.loadPartialEntities = view.loadPartialEntities;
+        return result;
+    }
+
+    /**
+     * Makes this view and all its nested views unmodifiable, so they can be shared between threads. Sealed views
+     * throw {@code IllegalStateException} on modification, use {@link #copy(View)} or {@link #copyOnWrite(View)}
+     * to get a modifiable view.
+     *
+     * @return this view instance for chaining
+     */
+    public View seal() {
+        if (!sealed) {
+            sealed = true;
+            for (ViewProperty property : properties.values()) {
+                if (property.getView() != null) {
+                    property.getView().seal();
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return true if the view cannot be modified
+     * @see #seal()
+     */
+    public boolean isSealed() {
+        return sealed;
+    }
+
+    protected void beforeModification() {
+        if (sealed) {
+            throw new IllegalStateException("View " + this + " is shared and cannot be modified, create a copy first");
+        }
+        if (sharedProperties) {
+            properties = new LinkedHashMap<>(properties);
+            sharedProperties = false;
+        }
+    }
+
     /**
      * @return entity class this view belongs to
      */
@@ -222,12 +289,14 @@ public class View implements Serializable {
      * @return      this view instance for chaining
      */
     public View addProperty(String name, @Nullable View view, FetchMode fetchMode) {
+        beforeModification();
         properties.put(name, new ViewProperty(name, view, fetchMode));
         return this;
     }
 
     @Deprecated
     public View addProperty(String name, @Nullable View view, boolean lazy) {
+        beforeModification();
         properties.put(name, new ViewProperty(name, view, lazy));
         return this;
     }
@@ -239,6 +308,7 @@ public class View implements Serializable {
      * @return      this view instance for chaining
      */
     public View addProperty(String name, View view) {
+        beforeModification();
         properties.put(name, new ViewProperty(name, view));
         return this;
     }
@@ -249,6 +319,7 @@ public class View implements Serializable {
      * @return      this view instance for chaining
      */
     public View addProperty(String name) {
+        beforeModification();
         properties.put(name, new ViewProperty(name, null));
         return this;
     }
@@ -312,6 +383,7 @@ public class View implements Serializable {
      * @return this view instance for chaining
      */
     public View setLoadPartialEntities(boolean loadPartialEntities) {
+        beforeModification();
         this.loadPartialEntities = loadPartialEntities;
         return this;
     }
@@ -17,6 +17,8 @@
 
 package com.haulmont.cuba.core.sys;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.haulmont.cuba.core.global.Configuration;
 import com.haulmont.cuba.core.global.GlobalConfig;
 import com.haulmont.cuba.core.global.ScriptExecutionPolicy;
@@ -68,6 +70,7 @@ public abstract class AbstractScripting implements Scripting {
     protected volatile GroovyScriptEngine gse;
     protected volatile CubaGroovyClassLoader gcl;
     protected GenericKeyedObjectPool<String, Script> pool;
+    protected Cache<String, Class<? extends Script>> compiledScripts;
 
     protected GlobalConfig globalConfig;
 
@@ -76,6 +79,9 @@ public abstract class AbstractScripting implements Scripting {
         this.springBeanLoader = springBeanLoader;
 
         this.globalConfig = configuration.getConfig(GlobalConfig.class);
+        this.compiledScripts = CacheBuilder.newBuilder()
+                .maximumSize(globalConfig.getGroovyCompiledScriptsCacheSize())
+                .build();
 
         StringBuilder groovyClassPathBuilder = new StringBuilder(globalConfig.getConfDir())
                 .append(File.pathSeparator);
@@ -234,6 +240,23 @@ public abstract class AbstractScripting implements Scripting {
         return evaluateGroovy(text, binding, (ScriptExecutionPolicy[]) null);
     }
 
+    /**
+     * Compiles Groovy expression to a script class which can be run many times with different bindings, see
+     * {@link org.codehaus.groovy.runtime.InvokerHelper#createScript(Class, Binding)}.
+     * The expression gets the same imports as in {@link #evaluateGroovy(String, Binding)}. Compiled classes are
+     * cached until {@link #clearCache()}.
+     * @param text      expression text
+     * @return          script class
+     */
+    public Class<? extends Script> compileGroovy(String text) {
+        Class<? extends Script> scriptClass = compiledScripts.getIfPresent(text);
+        if (scriptClass == null) {
+            scriptClass = createScript(text).getClass();
+            compiledScripts.put(text, scriptClass);
+        }
+        return scriptClass;
+    }
+
     @Override
     public <T> T evaluateGroovy(String text, Map<String, Object> context) {
         Binding binding = createBinding(context);
@@ -317,6 +340,7 @@ public abstract class AbstractScripting implements Scripting {
         getGroovyClassLoader().clearCache();
         javaClassLoader.clearCache();
         getPool().clear();
+        compiledScripts.invalidateAll();
         GroovyScriptEngine gse = getGroovyScriptEngine();
         try {
             Field scriptCacheField = gse.getClass().getDeclaredField("scriptCache");
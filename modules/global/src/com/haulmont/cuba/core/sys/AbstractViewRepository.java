@@ -43,6 +43,7 @@ import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -50,6 +51,10 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * Base implementation of the {@link ViewRepository}. Contains methods to store {@link View} objects and deploy
  * them from XML. <br>
  * <br> Don't replace this class completely, because the framework uses it directly.
+ * <br>
+ * <br> Views returned by {@code getView()} and {@code findView()} are copies of sealed views cached after the first
+ * lookup. If the {@code cuba.sharedViews} application property is set to true, the returned views share their
+ * properties with the cached view until they are modified, and their nested views cannot be modified.
  */
 public class AbstractViewRepository implements ViewRepository {
 
@@ -59,6 +64,12 @@ public class AbstractViewRepository implements ViewRepository {
 
     protected Map<MetaClass, Map<String, View>> storage = new ConcurrentHashMap<>();
 
+    protected Map<MetaClass, Map<String, View>> sealedViews = new ConcurrentHashMap<>();
+
+    protected volatile boolean sharedViews;
+
+    protected final AtomicLong changeCount = new AtomicLong();
+
     @Inject
     protected Metadata metadata;
 
@@ -93,7 +104,9 @@ public class AbstractViewRepository implements ViewRepository {
         StopWatch initTiming = new Slf4JStopWatch("ViewRepository.init." + getClass().getSimpleName());
 
         storage.clear();
+        viewsChanged();
         readFileNames.clear();
+        sharedViews = Boolean.parseBoolean(AppContext.getProperty("cuba.sharedViews"));
 
         String configName = AppContext.getProperty("cuba.viewsConfig");
         if (!StringUtils.isBlank(configName)) {
@@ -153,6 +166,7 @@ public class AbstractViewRepository implements ViewRepository {
 
     public void reset() {
         initialized = false;
+        viewsChanged();
     }
 
     /**
@@ -204,17 +218,50 @@ public class AbstractViewRepository implements ViewRepository {
             return null;
         }
 
+        if (initialized) {
+            Map<String, View> views = sealedViews.get(metaClass);
+            View sealedView = views == null ? null : views.get(name);
+            if (sealedView != null) {
+                return copySealedView(sealedView);
+            }
+        }
+
         lock.readLock().lock();
         try {
             checkInitialized();
 
             View view = retrieveView(metaClass, name, new HashSet<>());
-            return copyView(view);
+            if (view == null) {
+                return null;
+            }
+            View sealedView = copyView(view).seal();
+            sealedViews.computeIfAbsent(metaClass, k -> new ConcurrentHashMap<>()).put(name, sealedView);
+            return copySealedView(sealedView);
         } finally {
             lock.readLock().unlock();
         }
     }
 
+    /**
+     * Invoked when deployed views are replaced, so views returned before can differ from the current ones.
+     */
+    protected void viewsChanged() {
+        sealedViews.clear();
+        changeCount.incrementAndGet();
+    }
+
+    /**
+     * @return number incremented each time deployed views are replaced. Can be used to invalidate data calculated
+     * from views.
+     */
+    public long getChangeCount() {
+        return changeCount.get();
+    }
+
+    protected View copySealedView(View sealedView) {
+        return sharedViews ? View.copyOnWrite(sealedView) : copyView(sealedView);
+    }
+
     protected View copyView(@Nullable View view) {
         if (view == null) {
             return null;
@@ -481,6 +528,8 @@ public class AbstractViewRepository implements ViewRepository {
     protected void replaceOverridden(View replacementView) {
         StopWatch replaceTiming = new Slf4JStopWatch("ViewRepository.replaceOverridden");
 
+        viewsChanged();
+
         HashSet<View> checked = new HashSet<>();
 
         for (View view : getAllInitialized()) {
@@ -551,8 +600,13 @@ public class AbstractViewRepository implements ViewRepository {
             views = new ConcurrentHashMap<>();
         }
 
-        views.put(view.getName(), view);
+        View previous = views.put(view.getName(), view);
         storage.put(metaClass, views);
+
+        if (previous != null) {
+            // other views can reference the replaced one
+            viewsChanged();
+        }
     }
 
     protected List<View> getAllInitialized() {
@@ -17,6 +17,7 @@
 
 package com.haulmont.cuba.core.sys;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.cuba.core.entity.annotation.IdSequence;
 import com.haulmont.cuba.core.global.GlobalConfig;
@@ -24,13 +25,21 @@ import com.haulmont.cuba.core.global.Metadata;
 import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
 /**
  * Intermediate cache for generated ids of entities with long/integer PK.
  * The cache size is determined by the {@code cuba.numberIdCacheSize} app property.
+ * <p>
+ * Ids are handed out from blocks reserved in database sequences by {@link SequenceBlockAllocator}, the next block is
+ * reserved in background when 80% of the current one is used.
  */
 @Component(NumberIdCache.NAME)
 public class NumberIdCache {
@@ -41,12 +50,10 @@ public class NumberIdCache {
     protected Metadata metadata;
 
     protected class Generator {
-        protected long counter;
-        protected long sequenceValue;
         protected String entityName;
         protected String sequenceName;
-        protected boolean cached;
         protected NumberIdSequence numberIdSequence;
+        protected SequenceBlockAllocator allocator;
 
         public Generator(String entityName,
                          String sequenceName,
@@ -54,38 +61,30 @@ public class NumberIdCache {
                          NumberIdSequence sequence) {
             this.entityName = entityName;
             this.sequenceName = sequenceName;
-            this.cached = cached;
             this.numberIdSequence = sequence;
-            if (useIdCache()) {
-                createCachedCounter();
+            int cacheSize = config.getNumberIdCacheSize();
+            if (cacheSize != 0 && cached) {
+                allocator = new SequenceBlockAllocator(getCacheKey(entityName, sequenceName), cacheSize,
+                        SequenceBlockAllocator.DEFAULT_PREFETCH_THRESHOLD,
+                        () -> numberIdSequence.createCachedLongId(entityName, sequenceName),
+                        prefetchExecutor);
             }
         }
 
-        protected boolean useIdCache() {
-            return config.getNumberIdCacheSize() != 0 && cached;
-        }
-
-        protected void createCachedCounter() {
-            sequenceValue = numberIdSequence.createCachedLongId(entityName, sequenceName);
-            counter = sequenceValue;
-        }
-
-        public synchronized long getNext() {
-            if (!useIdCache()) {
+        public long getNext() {
+            if (allocator == null) {
                 return numberIdSequence.createLongId(entityName, sequenceName);
             } else {
-                long next = ++counter;
-                if (next > sequenceValue + config.getNumberIdCacheSize()) {
-                    createCachedCounter();
-                    next = ++counter;
-                }
-                return next;
+                return allocator.next();
             }
         }
     }
 
     protected ConcurrentMap<String, Generator> cache = new ConcurrentHashMap<>();
 
+    protected ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("NumberIdPrefetch-%d").setDaemon(true).build());
+
     @Inject
     protected GlobalConfig config;
 
@@ -118,6 +117,16 @@ public class NumberIdCache {
         return gen.getNext();
     }
 
+    /**
+     * @return allocators of cached sequences, used for statistics
+     */
+    public List<SequenceBlockAllocator> getAllocators() {
+        return cache.values().stream()
+                .map(generator -> generator.allocator)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
     /**
      * INTERNAL. Used by tests.
      */
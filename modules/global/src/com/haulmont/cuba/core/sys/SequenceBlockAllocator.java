@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.core.sys;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Hands out numbers from blocks reserved in a database sequence incremented by the block size.
+ * <p>
+ * A value {@code v} returned by the sequence reserves the block {@code [v + 1, v + blockSize]}. Numbers are taken from
+ * the current block without locking. When the given share of the current block is used, the next block is reserved
+ * asynchronously, so the threads requesting numbers normally do not wait for the database.
+ */
+public class SequenceBlockAllocator {
+
+    private static final Logger log = LoggerFactory.getLogger(SequenceBlockAllocator.class);
+
+    public static final double DEFAULT_PREFETCH_THRESHOLD = 0.8;
+
+    protected final String name;
+    protected final int blockSize;
+    protected final double prefetchThreshold;
+    protected final LongSupplier blockReserver;
+    protected final Executor prefetchExecutor;
+
+    protected volatile Block current;
+    protected CompletableFuture<Block> prefetchedBlock;
+
+    protected final LongAdder reservedBlocksCount = new LongAdder();
+    protected final LongAdder prefetchedBlocksCount = new LongAdder();
+    protected final LongAdder waitsCount = new LongAdder();
+
+    /**
+     * @param name              sequence name used in logs and statistics
+     * @param blockSize         number of values in a block, must be equal to the sequence increment
+     * @param prefetchThreshold share of a block after which the next block is reserved asynchronously
+     * @param blockReserver     returns the next value of the sequence
+     * @param prefetchExecutor  executor for asynchronous reservation of blocks
+     */
+    public SequenceBlockAllocator(String name, int blockSize, double prefetchThreshold,
+                                  LongSupplier blockReserver, Executor prefetchExecutor) {
+        if (blockSize <= 0)
+            throw new IllegalArgumentException("blockSize must be positive");
+        this.name = name;
+        this.blockSize = blockSize;
+        this.prefetchThreshold = prefetchThreshold;
+        this.blockReserver = blockReserver;
+        this.prefetchExecutor = prefetchExecutor;
+    }
+
+    public long next() {
+        while (true) {
+            Block block = current;
+            if (block != null) {
+                long value = block.next.getAndIncrement();
+                if (value <= block.last) {
+                    if (value >= block.prefetchFrom && block.prefetchRequested.compareAndSet(false, true)) {
+                        startPrefetch();
+                    }
+                    return value;
+                }
+            }
+            switchBlock(block);
+        }
+    }
+
+    protected synchronized void switchBlock(Block exhausted) {
+        if (current != exhausted) {
+            // another thread has already switched to the next block
+            return;
+        }
+
+        Block block = null;
+        if (prefetchedBlock != null) {
+            if (!prefetchedBlock.isDone()) {
+                waitsCount.increment();
+            }
+            try {
+                block = prefetchedBlock.join();
+            } catch (CompletionException | CancellationException e) {
+                log.warn("Unable to reserve next block of sequence {} asynchronously: {}", name, e.toString());
+            }
+            prefetchedBlock = null;
+        }
+        if (block == null) {
+            waitsCount.increment();
+            block = reserveBlock();
+        }
+        current = block;
+    }
+
+    protected synchronized void startPrefetch() {
+        if (prefetchedBlock != null)
+            return;
+
+        SecurityContext securityContext = AppContext.getSecurityContext();
+        prefetchedBlock = CompletableFuture.supplyAsync(() -> {
+            SecurityContext previousContext = AppContext.getSecurityContext();
+            AppContext.setSecurityContext(securityContext);
+            try {
+                Block block = reserveBlock();
+                prefetchedBlocksCount.increment();
+                return block;
+            } finally {
+                AppContext.setSecurityContext(previousContext);
+            }
+        }, prefetchExecutor);
+    }
+
+    protected Block reserveBlock() {
+        long value = blockReserver.getAsLong();
+        reservedBlocksCount.increment();
+        log.trace("Reserved block of sequence {} after {}", name, value);
+        return new Block(value + 1, value + blockSize, value + 1 + (long) (blockSize * prefetchThreshold));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * @return number of blocks reserved in the database, i.e. the number of database round-trips
+     */
+    public long getReservedBlocksCount() {
+        return reservedBlocksCount.sum();
+    }
+
+    /**
+     * @return number of blocks reserved asynchronously
+     */
+    public long getPrefetchedBlocksCount() {
+        return prefetchedBlocksCount.sum();
+    }
+
+    /**
+     * @return number of times a thread requesting a number had to wait for a block to be reserved
+     */
+    public long getWaitsCount() {
+        return waitsCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return name + ": blockSize=" + blockSize
+                + ", reservedBlocks=" + getReservedBlocksCount()
+                + ", prefetchedBlocks=" + getPrefetchedBlocksCount()
+                + ", waits=" + getWaitsCount();
+    }
+
+    protected static class Block {
+        protected final long last;
+        protected final long prefetchFrom;
+        protected final AtomicLong next;
+        protected final AtomicBoolean prefetchRequested = new AtomicBoolean();
+
+        protected Block(long first, long last, long prefetchFrom) {
+            this.last = last;
+            this.prefetchFrom = prefetchFrom;
+            this.next = new AtomicLong(first);
+        }
+    }
+}
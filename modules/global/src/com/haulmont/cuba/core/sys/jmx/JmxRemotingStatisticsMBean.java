@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys.jmx;
+
+/**
+ * MBean providing statistics of middleware service invocations made by the client tier.
+ */
+public interface JmxRemotingStatisticsMBean {
+
+    /**
+     * @return number of invocations, failures, bytes sent and received and average time for each service
+     */
+    String printServiceStatistics();
+
+    /**
+     * Resets the service invocation statistics.
+     */
+    void resetServiceStatistics();
+}
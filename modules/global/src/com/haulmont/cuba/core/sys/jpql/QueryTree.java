@@ -43,7 +43,7 @@ public class QueryTree {
 
     public QueryTree(DomainModel model, String query, boolean failOnErrors) {
         Preconditions.checkNotNull(query, "query is null");
-        String modifiedQuery = StringUtils.replaceChars(query, "\n\r\t", "   ");
+        String modifiedQuery = prepareQueryString(query);
 
         this.model = model;
         this.queryString = modifiedQuery;
@@ -57,6 +57,29 @@ public class QueryTree {
         new TreeVisitor().visit(tree, idVarSelector);
     }
 
+    /**
+     * Creates the query tree for already parsed AST. The tree becomes owned by this instance and can be modified.
+     *
+     * @param model       domain model
+     * @param queryString query string as returned by {@link #prepareQueryString(String)}
+     * @param tree        AST of the query
+     */
+    public QueryTree(DomainModel model, String queryString, CommonTree tree) {
+        this.model = model;
+        this.queryString = queryString;
+        this.tree = tree;
+
+        this.idVarSelector = new IdVarSelector(model);
+        new TreeVisitor().visit(tree, idVarSelector);
+    }
+
+    /**
+     * @return query string in the form passed to the parser
+     */
+    public static String prepareQueryString(String query) {
+        return StringUtils.replaceChars(query, "\n\r\t", "   ");
+    }
+
     public DomainModel getModel() {
         return model;
     }
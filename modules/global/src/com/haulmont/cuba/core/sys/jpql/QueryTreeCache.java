@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.core.sys.jpql;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.haulmont.cuba.core.global.GlobalConfig;
+import com.haulmont.cuba.core.sys.jpql.tree.BaseCustomNode;
+import org.antlr.runtime.RecognitionException;
+import org.antlr.runtime.tree.CommonTree;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+/**
+ * Cache of parsed JPQL queries used by {@link com.haulmont.cuba.core.global.QueryParser} and
+ * {@link com.haulmont.cuba.core.global.QueryTransformer} implementations.
+ * <p>
+ * Cached trees are never modified: each {@link QueryTree} returned by {@link #get(DomainModel, String)} contains
+ * its own copy of the tree, which is much cheaper than parsing the query again.
+ */
+@Component(QueryTreeCache.NAME)
+public class QueryTreeCache {
+
+    public static final String NAME = "cuba_QueryTreeCache";
+
+    @Inject
+    protected GlobalConfig globalConfig;
+
+    protected Cache<String, CommonTree> cache;
+
+    @PostConstruct
+    protected void init() {
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(globalConfig.getJpqlTreeCacheSize())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the tree of the given query, parsing the query only if it is not in the cache.
+     *
+     * @param model domain model
+     * @param query JPQL query
+     * @return query tree that can be modified by the caller
+     * @throws JPA2RecognitionException if the query cannot be parsed
+     */
+    public QueryTree get(DomainModel model, String query) {
+        Preconditions.checkNotNull(query, "query is null");
+        String queryString = QueryTree.prepareQueryString(query);
+
+        CommonTree tree = cache.getIfPresent(queryString);
+        if (tree == null) {
+            try {
+                tree = Parser.parse(queryString, true);
+            } catch (RecognitionException e) {
+                throw new JPA2RecognitionException("JPA grammar recognition error", e);
+            }
+            cache.put(queryString, tree);
+        }
+        return new QueryTree(model, queryString, BaseCustomNode.dupTree(tree));
+    }
+
+    public long getSize() {
+        return cache.size();
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+}
@@ -28,6 +28,8 @@ import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
+import javax.inject.Inject;
+
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -44,6 +46,9 @@ public class QueryTransformerAstBased implements QueryTransformer {
     protected QueryTree queryTree;
     protected QueryTreeTransformer queryTransformer;
     protected QueryTreeAnalyzer queryAnalyzer;
+
+    @Inject
+    protected QueryTreeCache queryTreeCache;
     protected Set<String> addedParams = new HashSet<>();
 
     public QueryTransformerAstBased(DomainModel model, String query) {
@@ -68,7 +73,7 @@ public class QueryTransformerAstBased implements QueryTransformer {
     protected QueryTree getTree() {
         if (queryTree == null) {
             try {
-                queryTree = new QueryTree(model, query);
+                queryTree = queryTreeCache != null ? queryTreeCache.get(model, query) : new QueryTree(model, query);
             } catch (JPA2RecognitionException e) {
                 throw new JpqlSyntaxException(format("Errors found for input JPQL:[%s]\n%s", StringUtils.strip(query), e.getMessage()));
             }
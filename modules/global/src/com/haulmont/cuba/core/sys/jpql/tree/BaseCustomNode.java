@@ -21,7 +21,6 @@ import com.haulmont.cuba.core.sys.jpql.ErrorRec;
 import com.haulmont.cuba.core.sys.jpql.QueryBuilder;
 import org.antlr.runtime.Token;
 import org.antlr.runtime.tree.CommonTree;
-import org.antlr.runtime.tree.Tree;
 
 import java.util.List;
 
@@ -53,10 +52,25 @@ public class BaseCustomNode extends CommonTree implements TreeToQueryCapable {
     }
 
     protected void dupChildren(CommonTree result) {
-        for (Object child : children) {
-            CommonTree t = (CommonTree) child;
-            Tree copy = t.dupNode();
-            result.addChild(copy);
+        for (int i = 0; i < getChildCount(); i++) {
+            result.addChild(dupTree((CommonTree) getChild(i)));
         }
     }
+
+    /**
+     * Copies the node with all its descendants. Custom nodes copy their children in {@link #dupNode()},
+     * children of other nodes are copied here.
+     *
+     * @param node node to copy
+     * @return copy of the subtree
+     */
+    public static CommonTree dupTree(CommonTree node) {
+        CommonTree copy = (CommonTree) node.dupNode();
+        if (copy.getChildCount() == 0) {
+            for (int i = 0; i < node.getChildCount(); i++) {
+                copy.addChild(dupTree((CommonTree) node.getChild(i)));
+            }
+        }
+        return copy;
+    }
 }
\ No newline at end of file
@@ -32,11 +32,15 @@ import org.springframework.util.StopWatch;
 import javax.annotation.Nullable;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
 
 /**
  * HttpInvokerRequestExecutor that executes a request on a server which is selected according to the current cluster
@@ -44,7 +48,16 @@ import java.net.URLConnection;
  */
 public class ClusteredHttpInvokerRequestExecutor extends SimpleHttpInvokerRequestExecutor {
 
-    private ServerSelector serverSelector;
+    protected ServerSelector serverSelector;
+
+    protected int connectTimeout;
+
+    protected int readTimeout;
+
+    /**
+     * Servers which have advertised that they accept compressed requests.
+     */
+    protected static final Set<String> compressingServers = ConcurrentHashMap.newKeySet();
 
     private static final Logger log = LoggerFactory.getLogger(ClusteredHttpInvokerRequestExecutor.class);
 
@@ -52,48 +65,29 @@ public class ClusteredHttpInvokerRequestExecutor extends SimpleHttpInvokerReques
         this.serverSelector = serverSelector;
 
         String connectTimeoutProp = AppContext.getProperty("cuba.connectionTimeout");
-        setConnectTimeout(connectTimeoutProp == null ? -1 : Integer.parseInt(connectTimeoutProp));
+        connectTimeout = connectTimeoutProp == null ? -1 : Integer.parseInt(connectTimeoutProp);
+        setConnectTimeout(connectTimeout);
 
         String readTimeoutProp = AppContext.getProperty("cuba.connectionReadTimeout");
-        setReadTimeout(readTimeoutProp == null ? -1 : Integer.parseInt(readTimeoutProp));
+        readTimeout = readTimeoutProp == null ? -1 : Integer.parseInt(readTimeoutProp);
+        setReadTimeout(readTimeout);
     }
 
     @Override
     protected RemoteInvocationResult doExecuteRequest(HttpInvokerClientConfiguration config, ByteArrayOutputStream baos)
             throws IOException, ClassNotFoundException {
 
-        RemoteInvocationResult result;
-
         Object context = serverSelector.initContext();
         String url = currentServiceUrl(serverSelector.getUrl(context), config);
         if (url == null)
             throw new IllegalStateException("Server URL list is empty");
 
         while (true) {
-            HttpURLConnection con = openConnection(url);
             try {
-                StopWatch sw = new StopWatch();
-                prepareConnection(con, baos.size());
-                writeRequestBody(config, con, baos);
-                sw.start("waiting time");
-                validateResponse(config, con);
-                CountingInputStream responseInputStream = new CountingInputStream(readResponseBody(config, con));
-                sw.stop();
-
-                serverSelector.success(context);
-
-                sw.start("reading time");
-                try (ObjectInputStream ois = createObjectInputStream(decorateInputStream(responseInputStream), config.getCodebaseUrl())) {
-                    result = doReadRemoteInvocationResult(ois);
-                }
-                sw.stop();
-                if (log.isDebugEnabled()) {
-                    log.debug(String.format("Receiving HTTP invoker response for service at [%s], with size %s, %s", config.getServiceUrl(),
-                            responseInputStream.getCount(), printStopWatch(sw)));
-                }
-                break;
+                return executeRequest(url, context, config, baos);
             } catch (IOException e) {
                 log.info(String.format("Invocation of %s failed: %s", url, e));
+                HttpServiceStatistics.updateFailed(config.getServiceUrl());
 
                 serverSelector.fail(context);
                 url = currentServiceUrl(serverSelector.getUrl(context), config);
@@ -105,9 +99,78 @@ public class ClusteredHttpInvokerRequestExecutor extends SimpleHttpInvokerReques
                 throw e;
             }
         }
+    }
+
+    /**
+     * Executes the request on the given server URL. An {@code IOException} makes the caller try the next server
+     * provided by {@link ServerSelector}.
+     */
+    protected RemoteInvocationResult executeRequest(String url, Object context, HttpInvokerClientConfiguration config,
+                                                    ByteArrayOutputStream baos) throws IOException, ClassNotFoundException {
+        RemoteInvocationResult result;
+        long startTime = System.nanoTime();
+
+        byte[] body = baos.toByteArray();
+        byte[] compressedBody = compressRequestBody(url, body);
+
+        HttpURLConnection con = openConnection(url);
+        StopWatch sw = new StopWatch();
+        if (compressedBody != null) {
+            prepareConnection(con, compressedBody.length);
+            con.setRequestProperty(HTTP_HEADER_CONTENT_ENCODING, RemotingCompression.GZIP);
+            con.getOutputStream().write(compressedBody);
+        } else {
+            prepareConnection(con, body.length);
+            writeRequestBody(config, con, baos);
+        }
+        sw.start("waiting time");
+        validateResponse(config, con);
+        updateCompressionSupport(url, con.getHeaderField(RemotingCompression.ACCEPT_ENCODING_HEADER));
+        // count the bytes received over the network, before decompression
+        CountingInputStream responseInputStream = new CountingInputStream(con.getInputStream());
+        InputStream responseBody = isGzipResponse(con) ? new GZIPInputStream(responseInputStream) : responseInputStream;
+        sw.stop();
+
+        serverSelector.success(context);
+
+        sw.start("reading time");
+        try (ObjectInputStream ois = createObjectInputStream(decorateInputStream(responseBody), config.getCodebaseUrl())) {
+            result = doReadRemoteInvocationResult(ois);
+        }
+        sw.stop();
+        if (log.isDebugEnabled()) {
+            log.debug(String.format("Receiving HTTP invoker response for service at [%s], with size %s, %s", config.getServiceUrl(),
+                    responseInputStream.getCount(), printStopWatch(sw)));
+        }
+        HttpServiceStatistics.updateInvoked(config.getServiceUrl(),
+                compressedBody != null ? compressedBody.length : body.length,
+                responseInputStream.getCount(), System.nanoTime() - startTime);
         return result;
     }
 
+    /**
+     * @return compressed request body, or null if the body should be sent as is
+     */
+    @Nullable
+    protected byte[] compressRequestBody(String url, byte[] body) throws IOException {
+        int threshold = RemotingCompression.getThreshold();
+        if (threshold > 0 && body.length > threshold && compressingServers.contains(getServerKey(url))) {
+            return RemotingCompression.gzip(body);
+        }
+        return null;
+    }
+
+    protected void updateCompressionSupport(String url, @Nullable String acceptEncoding) {
+        if (acceptEncoding != null && acceptEncoding.contains(RemotingCompression.GZIP)) {
+            compressingServers.add(getServerKey(url));
+        }
+    }
+
+    protected String getServerKey(String url) {
+        int slash = url.lastIndexOf('/');
+        return slash > 0 ? url.substring(0, slash) : url;
+    }
+
     @Nullable
     protected String currentServiceUrl(String url, HttpInvokerClientConfiguration config) {
         return url == null ? null :  url + "/" + config.getServiceUrl();
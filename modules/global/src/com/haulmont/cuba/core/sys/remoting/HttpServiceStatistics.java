@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * INTERNAL.
+ * Counters of middleware service invocations made by the client tier over HTTP.
+ */
+public final class HttpServiceStatistics {
+
+    private static final ConcurrentMap<String, ServiceStat> stats = new ConcurrentHashMap<>();
+
+    private HttpServiceStatistics() {
+    }
+
+    public static void updateInvoked(String serviceUrl, long sentBytes, long receivedBytes, long elapsedNanos) {
+        ServiceStat stat = stats.computeIfAbsent(serviceUrl, s -> new ServiceStat());
+        stat.invocations.increment();
+        stat.sentBytes.add(sentBytes);
+        stat.receivedBytes.add(receivedBytes);
+        stat.elapsedNanos.add(elapsedNanos);
+    }
+
+    public static void updateFailed(String serviceUrl) {
+        stats.computeIfAbsent(serviceUrl, s -> new ServiceStat()).failures.increment();
+    }
+
+    public static String print() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, ServiceStat> entry : new TreeMap<>(stats).entrySet()) {
+            ServiceStat stat = entry.getValue();
+            long invocations = stat.invocations.longValue();
+            sb.append(String.format("Service: %s; invocations: %s, failures: %s, sent: %s bytes, received: %s bytes, avg time: %s ms\n",
+                    entry.getKey(), invocations, stat.failures.longValue(),
+                    stat.sentBytes.longValue(), stat.receivedBytes.longValue(),
+                    invocations > 0 ? TimeUnit.NANOSECONDS.toMillis(stat.elapsedNanos.longValue() / invocations) : 0));
+        }
+        return sb.toString();
+    }
+
+    public static void reset() {
+        stats.clear();
+    }
+
+    private static class ServiceStat {
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder sentBytes = new LongAdder();
+        private final LongAdder receivedBytes = new LongAdder();
+        private final LongAdder elapsedNanos = new LongAdder();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import com.google.common.io.CountingInputStream;
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.remoting.discovery.ServerSelector;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.StatusLine;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.remoting.httpinvoker.HttpInvokerClientConfiguration;
+import org.springframework.remoting.support.RemoteInvocationResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * {@link ClusteredHttpInvokerRequestExecutor} which sends requests through a pool of persistent connections shared by
+ * all service proxies. Used if {@code cuba.remoting.pooledConnections} app property is true.
+ * <p>
+ * The pool size is set by {@code cuba.remoting.maxConnections} and {@code cuba.remoting.maxConnectionsPerHost}
+ * app properties. The pool is closed when the application context is stopped.
+ */
+public class PooledHttpInvokerRequestExecutor extends ClusteredHttpInvokerRequestExecutor {
+
+    protected static CloseableHttpClient httpClient;
+
+    protected RequestConfig requestConfig;
+
+    private static final Logger log = LoggerFactory.getLogger(PooledHttpInvokerRequestExecutor.class);
+
+    public PooledHttpInvokerRequestExecutor(ServerSelector serverSelector) {
+        super(serverSelector);
+        requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setSocketTimeout(readTimeout)
+                .build();
+    }
+
+    protected static synchronized CloseableHttpClient getHttpClient() {
+        if (httpClient == null) {
+            PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+            connectionManager.setMaxTotal(getIntProperty("cuba.remoting.maxConnections", 100));
+            connectionManager.setDefaultMaxPerRoute(getIntProperty("cuba.remoting.maxConnectionsPerHost", 20));
+            // keep-alive is enabled by default; responses are decompressed by the executor to count the received bytes
+            httpClient = HttpClientBuilder.create()
+                    .setConnectionManager(connectionManager)
+                    .disableCookieManagement()
+                    .disableContentCompression()
+                    .build();
+
+            AppContext.addListener(new AppContext.Listener() {
+                @Override
+                public void applicationStarted() {
+                }
+
+                @Override
+                public void applicationStopped() {
+                    closeHttpClient();
+                }
+            });
+        }
+        return httpClient;
+    }
+
+    /**
+     * Closes the shared client and its pooled connections. Called on application shutdown.
+     */
+    protected static synchronized void closeHttpClient() {
+        if (httpClient != null) {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                log.warn("Error closing HTTP client", e);
+            }
+            httpClient = null;
+        }
+    }
+
+    protected static int getIntProperty(String name, int defaultValue) {
+        String value = AppContext.getProperty(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    @Override
+    protected RemoteInvocationResult executeRequest(String url, Object context, HttpInvokerClientConfiguration config,
+                                                    ByteArrayOutputStream baos) throws IOException, ClassNotFoundException {
+        long startTime = System.nanoTime();
+
+        byte[] body = baos.toByteArray();
+        byte[] compressedBody = compressRequestBody(url, body);
+
+        ByteArrayEntity entity = new ByteArrayEntity(compressedBody != null ? compressedBody : body);
+        if (compressedBody != null) {
+            entity.setContentEncoding(RemotingCompression.GZIP);
+        }
+        HttpPost post = new HttpPost(url);
+        post.setConfig(requestConfig);
+        post.setHeader(HTTP_HEADER_CONTENT_TYPE, getContentType());
+        if (isAcceptGzipEncoding()) {
+            post.setHeader(HTTP_HEADER_ACCEPT_ENCODING, ENCODING_GZIP);
+        }
+        post.setEntity(entity);
+
+        try (CloseableHttpResponse response = getHttpClient().execute(post)) {
+            StatusLine status = response.getStatusLine();
+            if (status.getStatusCode() >= 300) {
+                throw new IOException(String.format("Did not receive successful HTTP response: status code = %s, status message = [%s]",
+                        status.getStatusCode(), status.getReasonPhrase()));
+            }
+            Header acceptEncoding = response.getFirstHeader(RemotingCompression.ACCEPT_ENCODING_HEADER);
+            updateCompressionSupport(url, acceptEncoding != null ? acceptEncoding.getValue() : null);
+
+            serverSelector.success(context);
+
+            RemoteInvocationResult result;
+            // count the bytes received over the network, before decompression
+            HttpEntity responseEntity = response.getEntity();
+            CountingInputStream responseInputStream = new CountingInputStream(responseEntity.getContent());
+            Header contentEncoding = responseEntity.getContentEncoding();
+            InputStream responseBody = contentEncoding != null && contentEncoding.getValue().toLowerCase().contains(ENCODING_GZIP)
+                    ? new GZIPInputStream(responseInputStream) : responseInputStream;
+            try (ObjectInputStream ois = createObjectInputStream(decorateInputStream(responseBody), config.getCodebaseUrl())) {
+                result = doReadRemoteInvocationResult(ois);
+            }
+            HttpServiceStatistics.updateInvoked(config.getServiceUrl(), entity.getContentLength(),
+                    responseInputStream.getCount(), System.nanoTime() - startTime);
+            return result;
+        }
+    }
+}
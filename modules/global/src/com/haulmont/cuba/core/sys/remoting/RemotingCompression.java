@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import com.haulmont.cuba.core.sys.AppContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * INTERNAL.
+ * Compression of HTTP remoting request and response bodies. The middleware advertises that it accepts compressed
+ * requests by the {@link #ACCEPT_ENCODING_HEADER} response header, so clients compress requests only after the first
+ * response from a server. Responses are compressed if the client sends {@code Accept-Encoding: gzip}.
+ */
+public final class RemotingCompression {
+
+    public static final String ACCEPT_ENCODING_HEADER = "X-Cuba-Accept-Encoding";
+
+    public static final String GZIP = "gzip";
+
+    private RemotingCompression() {
+    }
+
+    /**
+     * @return size of a request or response body in bytes above which the body is compressed, 0 if compression
+     * is disabled. Set by {@code cuba.remoting.compressionThreshold} app property.
+     */
+    public static int getThreshold() {
+        String value = AppContext.getProperty("cuba.remoting.compressionThreshold");
+        return value == null ? 0 : Integer.parseInt(value);
+    }
+
+    public static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 2);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys.servlet;
+
+import com.haulmont.cuba.core.entity.FileDescriptor;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nullable;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * INTERNAL.
+ * Support of conditional and partial requests (HTTP {@code ETag}, {@code Last-Modified}, {@code Range},
+ * {@code If-Range}) for file download controllers.
+ */
+public final class HttpRanges {
+
+    /**
+     * Part of the content to be sent.
+     */
+    public static class Range {
+        protected final long start;
+        protected final long length;
+
+        public Range(long start, long length) {
+            this.start = start;
+            this.length = length;
+        }
+
+        /**
+         * @return offset of the first byte to send
+         */
+        public long getStart() {
+            return start;
+        }
+
+        /**
+         * @return number of bytes to send, or -1 to send the content up to the end
+         */
+        public long getLength() {
+            return length;
+        }
+
+        @Override
+        public String toString() {
+            return "Range{start=" + start + ", length=" + length + '}';
+        }
+    }
+
+    private HttpRanges() {
+    }
+
+    /**
+     * @return entity tag of the file content. Files in the storage are never changed, so the tag is based on
+     * the file descriptor identity, size and creation date.
+     */
+    public static String createETag(FileDescriptor fd) {
+        return "\"" + fd.getId()
+                + "-" + (fd.getSize() != null ? fd.getSize() : 0)
+                + "-" + (fd.getCreateDate() != null ? fd.getCreateDate().getTime() : 0) + "\"";
+    }
+
+    /**
+     * @return entity tag of the file content based on the file name, size and modification time
+     */
+    public static String createETag(File file) {
+        return "\"" + Integer.toHexString(file.getAbsolutePath().hashCode())
+                + "-" + file.length() + "-" + file.lastModified() + "\"";
+    }
+
+    /**
+     * Sets the validation headers and resolves which part of the content must be sent.
+     * Sets {@code 304 Not Modified} if the client copy is up to date and {@code 206 Partial Content} or
+     * {@code 416 Range Not Satisfiable} if a single byte range is requested.
+     *
+     * @param eTag         entity tag of the content
+     * @param lastModified last modification time of the content in milliseconds, or 0 if unknown
+     * @param length       content length in bytes, or -1 if unknown. Ranges are not supported for unknown length.
+     * @return part of the content to send, or null if the response must not contain a body
+     */
+    @Nullable
+    public static Range prepareResponse(HttpServletRequest request, HttpServletResponse response,
+                                        String eTag, long lastModified, long length) {
+        response.setHeader("ETag", eTag);
+        if (lastModified > 0) {
+            response.setDateHeader("Last-Modified", lastModified);
+        }
+
+        if (isNotModified(request, eTag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return null;
+        }
+
+        if (length < 0) {
+            return new Range(0, -1);
+        }
+
+        response.setHeader("Accept-Ranges", "bytes");
+
+        String rangeHeader = request.getHeader("Range");
+        if (rangeHeader == null || !isIfRangeMatched(request, eTag, lastModified)) {
+            response.setHeader("Content-Length", String.valueOf(length));
+            return new Range(0, length);
+        }
+
+        Range range = parseRange(rangeHeader, length);
+        if (range == null) {
+            // unsupported syntax or several ranges, send the whole content
+            response.setHeader("Content-Length", String.valueOf(length));
+            return new Range(0, length);
+        }
+        if (range.getLength() <= 0) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader("Content-Range", "bytes */" + length);
+            return null;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setHeader("Content-Range", "bytes " + range.getStart() + "-"
+                + (range.getStart() + range.getLength() - 1) + "/" + length);
+        response.setHeader("Content-Length", String.valueOf(range.getLength()));
+        return range;
+    }
+
+    /**
+     * Parses a single byte range specification.
+     *
+     * @return the range, a range of zero length if it cannot be satisfied, or null if the header
+     * is malformed or requests several ranges
+     */
+    @Nullable
+    public static Range parseRange(String rangeHeader, long length) {
+        if (!rangeHeader.startsWith("bytes=") || rangeHeader.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = rangeHeader.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // suffix range: last N bytes
+                long suffixLength = Long.parseLong(last);
+                start = Math.max(length - suffixLength, 0);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? length - 1 : Long.parseLong(last);
+                if (end < start) {
+                    return null;
+                }
+                end = Math.min(end, length - 1);
+            }
+            if (start >= length) {
+                return new Range(start, 0);
+            }
+            return new Range(start, end - start + 1);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the range of the file using {@link FileChannel#transferTo}, which avoids copying the content through
+     * heap buffers when the platform and the servlet container allow it.
+     */
+    public static void transfer(File file, OutputStream outputStream, Range range) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(outputStream);
+            long position = range.getStart();
+            long remaining = range.getLength() < 0 ? channel.size() - position : range.getLength();
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    /**
+     * Writes the range of the stream content.
+     */
+    public static void copy(InputStream inputStream, OutputStream outputStream, Range range) throws IOException {
+        if (range.getLength() < 0) {
+            IOUtils.copyLarge(inputStream, outputStream, range.getStart(), -1);
+        } else {
+            IOUtils.copyLarge(inputStream, outputStream, range.getStart(), range.getLength());
+        }
+    }
+
+    private static boolean isNotModified(HttpServletRequest request, String eTag, long lastModified) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return "*".equals(ifNoneMatch.trim()) || containsETag(ifNoneMatch, eTag);
+        }
+        long ifModifiedSince = getDateHeader(request, "If-Modified-Since");
+        return lastModified > 0 && ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    private static boolean isIfRangeMatched(HttpServletRequest request, String eTag, long lastModified) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.trim().startsWith("\"") || ifRange.trim().startsWith("W/")) {
+            return eTag.equals(ifRange.trim());
+        }
+        long date = getDateHeader(request, "If-Range");
+        return lastModified > 0 && date >= 0 && lastModified / 1000 == date / 1000;
+    }
+
+    private static boolean containsETag(String header, String eTag) {
+        for (String tag : StringUtils.split(header, ',')) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long getDateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package spec.cuba.global.remoting
+
+import com.haulmont.cuba.core.sys.AppContext
+import com.haulmont.cuba.core.sys.remoting.ClusteredHttpInvokerRequestExecutor
+import com.haulmont.cuba.core.sys.remoting.HttpServiceStatistics
+import com.haulmont.cuba.core.sys.remoting.PooledHttpInvokerRequestExecutor
+import com.haulmont.cuba.core.sys.remoting.RemotingCompression
+import com.haulmont.cuba.core.sys.remoting.discovery.ServerSelector
+import com.haulmont.cuba.core.sys.serialization.SerializationSupport
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpHandler
+import com.sun.net.httpserver.HttpServer
+import org.springframework.remoting.httpinvoker.HttpInvokerClientConfiguration
+import org.springframework.remoting.support.RemoteInvocation
+import org.springframework.remoting.support.RemoteInvocationResult
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.zip.GZIPInputStream
+
+class HttpInvokerCompressionTest extends Specification {
+
+    private HttpServer server
+    private List<String> requestEncodings = []
+    private List<Integer> responseSizes = []
+
+    void setup() {
+        AppContext.setProperty('cuba.remoting.compressionThreshold', '100')
+
+        // replies like HttpServiceExporter: accepts gzip requests and compresses results for clients accepting gzip
+        server = HttpServer.create(new InetSocketAddress('localhost', 0), 0)
+        server.createContext('/remoting/test_Service', { HttpExchange exchange ->
+            def contentEncoding = exchange.requestHeaders.getFirst('Content-Encoding')
+            requestEncodings << contentEncoding
+            def requestBody = contentEncoding == RemotingCompression.GZIP ?
+                    new GZIPInputStream(exchange.requestBody) : exchange.requestBody
+            def invocation = (RemoteInvocation) SerializationSupport.deserialize(new ObjectInputStream(requestBody))
+
+            def bytes = new ByteArrayOutputStream()
+            def oos = new ObjectOutputStream(bytes)
+            SerializationSupport.serialize(new RemoteInvocationResult(invocation.arguments[0]), oos)
+            oos.close()
+            byte[] data = bytes.toByteArray()
+
+            exchange.responseHeaders.set(RemotingCompression.ACCEPT_ENCODING_HEADER, RemotingCompression.GZIP)
+            if (exchange.requestHeaders.getFirst('Accept-Encoding')?.contains(RemotingCompression.GZIP)) {
+                data = RemotingCompression.gzip(data)
+                exchange.responseHeaders.set('Content-Encoding', RemotingCompression.GZIP)
+            }
+            responseSizes << data.length
+            exchange.sendResponseHeaders(200, data.length)
+            exchange.responseBody.write(data)
+            exchange.close()
+        } as HttpHandler)
+        server.start()
+    }
+
+    void cleanup() {
+        server.stop(0)
+        AppContext.setProperty('cuba.remoting.compressionThreshold', null)
+        HttpServiceStatistics.reset()
+        PooledHttpInvokerRequestExecutor.closeHttpClient()
+    }
+
+    @Unroll
+    def "#executorClass.simpleName compresses requests after the server accepts them and counts received bytes"() {
+        def serverSelector = Stub(ServerSelector) {
+            initContext() >> new Object()
+            getUrl(_) >> "http://localhost:$server.address.port/remoting"
+        }
+        def config = Stub(HttpInvokerClientConfiguration) {
+            getServiceUrl() >> 'test_Service'
+        }
+        def executor = executorClass.newInstance(serverSelector)
+        def payload = 'payload ' * 1000
+
+        when: "the first request is sent before the server advertises compression"
+
+        def result = executor.executeRequest(config, new RemoteInvocation('echo', [String] as Class[], [payload] as Object[]))
+
+        then:
+
+        result.value == payload
+        requestEncodings == [null]
+        responseSizes[0] < payload.length()
+        HttpServiceStatistics.print().contains("received: ${responseSizes[0]} bytes")
+
+        when:
+
+        result = executor.executeRequest(config, new RemoteInvocation('echo', [String] as Class[], [payload] as Object[]))
+
+        then:
+
+        result.value == payload
+        requestEncodings == [null, RemotingCompression.GZIP]
+
+        where:
+
+        executorClass << [ClusteredHttpInvokerRequestExecutor, PooledHttpInvokerRequestExecutor]
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package spec.cuba.global.remoting
+
+import com.haulmont.cuba.core.sys.remoting.HttpServiceStatistics
+import com.haulmont.cuba.core.sys.remoting.RemotingCompression
+import spock.lang.Specification
+
+import java.util.zip.GZIPInputStream
+
+class HttpServiceStatisticsTest extends Specification {
+
+    void cleanup() {
+        HttpServiceStatistics.reset()
+    }
+
+    def "invocations are counted per service"() {
+        when:
+        HttpServiceStatistics.updateInvoked('cuba_DataService', 100, 1000, 2_000_000)
+        HttpServiceStatistics.updateInvoked('cuba_DataService', 100, 3000, 4_000_000)
+        HttpServiceStatistics.updateFailed('cuba_LoginService')
+
+        then:
+        HttpServiceStatistics.print() ==
+                'Service: cuba_DataService; invocations: 2, failures: 0, sent: 200 bytes, received: 4000 bytes, avg time: 3 ms\n' +
+                'Service: cuba_LoginService; invocations: 0, failures: 1, sent: 0 bytes, received: 0 bytes, avg time: 0 ms\n'
+    }
+
+    def "compressed body can be read by GZIPInputStream"() {
+        def data = ('payload ' * 1000).bytes
+
+        when:
+        def compressed = RemotingCompression.gzip(data)
+
+        then:
+        compressed.length < data.length
+        new GZIPInputStream(new ByteArrayInputStream(compressed)).bytes == data
+    }
+}
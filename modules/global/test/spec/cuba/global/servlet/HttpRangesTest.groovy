@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package spec.cuba.global.servlet
+
+import com.haulmont.cuba.core.sys.servlet.HttpRanges
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import javax.servlet.http.HttpServletRequest
+import javax.servlet.http.HttpServletResponse
+
+class HttpRangesTest extends Specification {
+
+    @Unroll
+    def "range '#header' of 1000 bytes"() {
+        when:
+        def range = HttpRanges.parseRange(header, 1000)
+
+        then:
+        range?.start == start
+        range?.length == length
+
+        where:
+        header             | start | length
+        'bytes=0-499'      | 0     | 500
+        'bytes=500-'       | 500   | 500
+        'bytes=-100'       | 900   | 100
+        'bytes=900-2000'   | 900   | 100
+        'bytes=1000-'      | 1000  | 0
+        'bytes=5-1'        | null  | null
+        'bytes=0-1,5-6'    | null  | null
+        'items=0-1'        | null  | null
+        'bytes=a-b'        | null  | null
+    }
+
+    def "partial content is returned for a range request"() {
+        def request = Stub(HttpServletRequest) {
+            getHeader('Range') >> 'bytes=10-19'
+            getDateHeader(_) >> -1
+        }
+        def response = Mock(HttpServletResponse)
+
+        when:
+        def range = HttpRanges.prepareResponse(request, response, '"tag"', 1000, 100)
+
+        then:
+        range.start == 10
+        range.length == 10
+        1 * response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT)
+        1 * response.setHeader('Content-Range', 'bytes 10-19/100')
+    }
+
+    def "whole content is returned if If-Range does not match"() {
+        def request = Stub(HttpServletRequest) {
+            getHeader('Range') >> 'bytes=10-19'
+            getHeader('If-Range') >> '"old-tag"'
+            getDateHeader(_) >> -1
+        }
+        def response = Mock(HttpServletResponse)
+
+        when:
+        def range = HttpRanges.prepareResponse(request, response, '"tag"', 1000, 100)
+
+        then:
+        range.start == 0
+        range.length == 100
+        0 * response.setStatus(_)
+    }
+
+    def "not modified is returned for matching ETag"() {
+        def request = Stub(HttpServletRequest) {
+            getHeader('If-None-Match') >> 'W/"other", "tag"'
+            getDateHeader(_) >> -1
+        }
+        def response = Mock(HttpServletResponse)
+
+        when:
+        def range = HttpRanges.prepareResponse(request, response, '"tag"', 1000, 100)
+
+        then:
+        range == null
+        1 * response.setStatus(HttpServletResponse.SC_NOT_MODIFIED)
+    }
+
+    def "not satisfiable range"() {
+        def request = Stub(HttpServletRequest) {
+            getHeader('Range') >> 'bytes=200-'
+            getDateHeader(_) >> -1
+        }
+        def response = Mock(HttpServletResponse)
+
+        when:
+        def range = HttpRanges.prepareResponse(request, response, '"tag"', 1000, 100)
+
+        then:
+        range == null
+        1 * response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE)
+        1 * response.setHeader('Content-Range', 'bytes */100')
+    }
+
+    def "file range is transferred"() {
+        def file = File.createTempFile('range', '.txt')
+        file.text = '0123456789'
+        def output = new ByteArrayOutputStream()
+
+        when:
+        HttpRanges.transfer(file, output, new HttpRanges.Range(3, 4))
+
+        then:
+        new String(output.toByteArray()) == '3456'
+
+        cleanup:
+        file.delete()
+    }
+}
@@ -26,6 +26,7 @@ import com.haulmont.cuba.gui.Notifications.NotificationType;
 import com.haulmont.cuba.gui.components.*;
 import com.haulmont.cuba.gui.components.actions.ListAction;
 import com.haulmont.cuba.gui.components.data.meta.ContainerDataUnit;
+import com.haulmont.cuba.gui.export.CsvExporter;
 import com.haulmont.cuba.gui.export.ExcelExporter;
 import com.haulmont.cuba.gui.export.ExportDisplay;
 import com.haulmont.cuba.gui.icons.CubaIcon;
@@ -59,6 +60,13 @@ public class ExcelAction extends ListAction {
      */
     protected boolean exportAggregation = true;
 
+    /**
+     * If true, all rows are exported to a CSV file by {@link CsvExporter} in a background task. Column formatters,
+     * printables and generators are then invoked outside of the UI thread. Targets other than {@link Table} and
+     * {@link DataGrid} are always exported by {@link ExcelExporter}.
+     */
+    protected boolean streamingExport = false;
+
     public ExcelAction() {
         super(ID);
     }
@@ -154,6 +162,15 @@ public class ExcelAction extends ListAction {
         this.exportAggregation = exportAggregation;
     }
 
+    public boolean isStreamingExport() {
+        return streamingExport;
+    }
+
+    @StudioPropertiesItem(defaultValue = "false")
+    public void setStreamingExport(boolean streamingExport) {
+        this.streamingExport = streamingExport;
+    }
+
     public String getFileName() {
         return fileName;
     }
@@ -167,6 +184,12 @@ public class ExcelAction extends ListAction {
      * Export via {@link ExcelExporter}.
      */
     protected void export(ExcelExporter.ExportMode exportMode) {
+        if (streamingExport && exportMode == ExcelExporter.ExportMode.ALL_ROWS
+                && (target instanceof Table || target instanceof DataGrid)) {
+            exportStreaming();
+            return;
+        }
+
         ExcelExporter exporter = new ExcelExporter();
         exporter.setExportAggregation(exportAggregation);
 
@@ -199,4 +222,29 @@ public class ExcelAction extends ListAction {
                     .show();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Export all rows via {@link CsvExporter}.
+     */
+    protected void exportStreaming() {
+        CsvExporter exporter = new CsvExporter();
+
+        Window window = ComponentsHelper.getWindowNN(target);
+
+        ExportDisplay display = beanLocator.get(ExportDisplay.NAME);
+        display.setFrame(window);
+
+        if (target instanceof Table) {
+            @SuppressWarnings("unchecked")
+            Table<Entity> table = (Table<Entity>) target;
+            exporter.exportTable(table, table.getNotCollapsedColumns(), display, fileName);
+        } else if (target instanceof DataGrid) {
+            @SuppressWarnings("unchecked")
+            DataGrid<Entity> dataGrid = (DataGrid<Entity>) target;
+            List<DataGrid.Column> columns = dataGrid.getVisibleColumns().stream()
+                    .filter(col -> !col.isCollapsed())
+                    .collect(Collectors.toList());
+            exporter.exportDataGrid(dataGrid, columns, display, fileName);
+        }
+    }
+}
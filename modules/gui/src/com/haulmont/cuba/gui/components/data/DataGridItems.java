@@ -134,6 +134,20 @@ public interface DataGridItems<T> extends DataUnit {
         }
     }
 
+    /**
+     * The DataGridItems that loads items on demand. Only the items requested by
+     * {@link #getItems(int, int)} are guaranteed to be available, {@link #getItems()} returns loaded items only.
+     *
+     * @param <T> items type
+     */
+    interface Lazy<T> extends DataGridItems<T> {
+
+        /**
+         * Discards loaded items and the cached size, so they are loaded again when requested.
+         */
+        void refresh();
+    }
+
     /**
      * An event that is fired when value of item property is changed.
      *
@@ -16,11 +16,13 @@
 
 package com.haulmont.cuba.gui.components.data;
 
+import com.haulmont.cuba.gui.components.AggregationInfo;
 import com.haulmont.cuba.gui.data.GroupInfo;
 
 import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface GroupTableItems<I> extends TableItems.Sortable<I> {
     /**
@@ -98,4 +100,30 @@ public interface GroupTableItems<I> extends TableItems.Sortable<I> {
      * Indicates that a group is contained in the groups tree
      */
     boolean containsGroup(GroupInfo groupId);
+
+    /**
+     * The GroupTableItems that calculates aggregation values of groups without enumerating items of the groups.
+     *
+     * @param <I> items type
+     */
+    interface Aggregatable<I> extends GroupTableItems<I> {
+
+        /**
+         * Perform aggregation for the group and return map with formatted string values.
+         *
+         * @param aggregationInfos aggregation infos
+         * @param groupId          group, or null for total aggregation
+         * @return map with aggregation info and formatted string values
+         */
+        Map<AggregationInfo, String> aggregateGroup(AggregationInfo[] aggregationInfos, @Nullable GroupInfo groupId);
+
+        /**
+         * Perform aggregation for the group and return map with aggregation info and aggregation values.
+         *
+         * @param aggregationInfos aggregation infos
+         * @param groupId          group, or null for total aggregation
+         * @return map with aggregation info and aggregation values
+         */
+        Map<AggregationInfo, Object> aggregateGroupValues(AggregationInfo[] aggregationInfos, @Nullable GroupInfo groupId);
+    }
 }
\ No newline at end of file
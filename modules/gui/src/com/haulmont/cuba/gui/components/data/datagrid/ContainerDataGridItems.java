@@ -28,6 +28,7 @@ import com.haulmont.cuba.gui.components.data.BindingState;
 import com.haulmont.cuba.gui.components.data.DataGridItems;
 import com.haulmont.cuba.gui.components.data.meta.ContainerDataUnit;
 import com.haulmont.cuba.gui.components.data.meta.EntityDataGridItems;
+import com.haulmont.cuba.gui.data.aggregation.LoaderAggregationQuery;
 import com.haulmont.cuba.gui.data.impl.AggregatableDelegate;
 import com.haulmont.cuba.gui.model.CollectionContainer;
 import com.haulmont.cuba.gui.model.CollectionLoader;
@@ -233,7 +234,7 @@ public class ContainerDataGridItems<E extends Entity>
     }
 
     protected AggregatableDelegate createAggregatableDelegate() {
-        return new AggregatableDelegate() {
+        return new AggregatableDelegate<Object>() {
             @Override
             public Object getItem(Object itemId) {
                 return container.getItem(itemId);
@@ -243,6 +244,12 @@ public class ContainerDataGridItems<E extends Entity>
             public Object getItemValue(MetaPropertyPath property, Object itemId) {
                 return container.getItem(itemId).getValueEx(property);
             }
+
+            @Override
+            protected Map<AggregationInfo, Object> aggregateInDatabase(List<AggregationInfo> aggregationInfos,
+                                                                       Collection<Object> itemIds) {
+                return LoaderAggregationQuery.aggregateContainer(container, aggregationInfos, itemIds);
+            }
         };
     }
 }
\ No newline at end of file
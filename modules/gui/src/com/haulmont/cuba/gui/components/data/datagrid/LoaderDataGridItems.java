@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.gui.components.data.datagrid;
+
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.global.DataManager;
+import com.haulmont.cuba.core.global.LoadContext;
+import com.haulmont.cuba.core.global.Sort;
+import com.haulmont.cuba.gui.components.data.DataGridItems;
+import com.haulmont.cuba.gui.model.CollectionContainer;
+import com.haulmont.cuba.gui.model.CollectionLoader;
+import com.haulmont.cuba.gui.model.DataContext;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.haulmont.bali.util.Preconditions.checkNotNullArgument;
+
+/**
+ * {@link DataGridItems} which loads entities page by page using the query of a {@link CollectionLoader}.
+ * <p>
+ * The loader's query, parameters, condition and view are used to load pages of {@code pageSize} rows with
+ * {@code firstResult}/{@code maxResults}, the number of rows is obtained by a count query. Sorting is applied
+ * to the loader's query, so it is performed by the database. Up to {@code maxCachedPages} recently used pages are
+ * kept in memory, and the loader's container holds exactly the entities of these pages.
+ * <p>
+ * Loaded pages are added to the container and evicted pages are removed from it incrementally, so the current item
+ * of the container is kept while the grid is scrolled.
+ * <p>
+ * Do not call {@link CollectionLoader#load()} for the loader, use {@link #refresh()} instead. Aggregation is
+ * performed over the loaded entities only.
+ *
+ * @param <E> entity type
+ */
+public class LoaderDataGridItems<E extends Entity> extends ContainerDataGridItems<E> implements DataGridItems.Lazy<E> {
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int DEFAULT_MAX_CACHED_PAGES = 10;
+
+    protected CollectionLoader<E> loader;
+    protected DataManager dataManager;
+
+    protected int pageSize;
+    protected int maxCachedPages;
+
+    protected Map<Integer, List<E>> pages;
+    protected List<List<E>> evictedPages = new ArrayList<>();
+    protected Integer size;
+
+    protected boolean updatingContainer;
+
+    public LoaderDataGridItems(CollectionLoader<E> loader, DataManager dataManager) {
+        this(loader, dataManager, DEFAULT_PAGE_SIZE, DEFAULT_MAX_CACHED_PAGES);
+    }
+
+    public LoaderDataGridItems(CollectionLoader<E> loader, DataManager dataManager, int pageSize, int maxCachedPages) {
+        super(loader.getContainer());
+        checkNotNullArgument(dataManager, "dataManager is null");
+
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        if (maxCachedPages <= 0) {
+            throw new IllegalArgumentException("maxCachedPages must be positive");
+        }
+
+        this.loader = loader;
+        this.pageSize = pageSize;
+        this.maxCachedPages = maxCachedPages;
+        this.dataManager = dataManager;
+        this.pages = new LinkedHashMap<Integer, List<E>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<E>> eldest) {
+                if (size() > LoaderDataGridItems.this.maxCachedPages) {
+                    evictedPages.add(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public CollectionLoader<E> getLoader() {
+        return loader;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getMaxCachedPages() {
+        return maxCachedPages;
+    }
+
+    @Override
+    public void refresh() {
+        pages.clear();
+        size = null;
+        clearContainer();
+
+        events.publish(ItemSetChangeEvent.class, new ItemSetChangeEvent<>(this));
+    }
+
+    @Override
+    protected void containerCollectionChanged(CollectionContainer.CollectionChangeEvent<E> e) {
+        if (updatingContainer) {
+            return;
+        }
+        // the container has been changed by a client code, e.g. an entity is removed or added
+        pages.clear();
+        evictedPages.clear();
+        size = null;
+
+        super.containerCollectionChanged(e);
+    }
+
+    @Override
+    public int size() {
+        if (size == null) {
+            size = (int) dataManager.getCount(loader.createLoadContext());
+        }
+        return size;
+    }
+
+    @Nullable
+    @Override
+    public E getItemByIndex(int index) {
+        if (index < 0 || index >= size()) {
+            return null;
+        }
+        List<E> page = getPage(index / pageSize);
+        int pageOffset = index % pageSize;
+        return pageOffset < page.size() ? page.get(pageOffset) : null;
+    }
+
+    @Override
+    public List<E> getItems(int startIndex, int numberOfItems) {
+        int endIndex = Math.min(startIndex + numberOfItems, size());
+        if (startIndex >= endIndex) {
+            return Collections.emptyList();
+        }
+
+        List<E> items = new ArrayList<>(endIndex - startIndex);
+        int index = startIndex;
+        while (index < endIndex) {
+            List<E> page = getPage(index / pageSize);
+            int pageOffset = index % pageSize;
+            if (pageOffset >= page.size()) {
+                // the data has been changed since the count query
+                break;
+            }
+            int pageEnd = Math.min(page.size(), pageOffset + endIndex - index);
+            items.addAll(page.subList(pageOffset, pageEnd));
+            index += pageEnd - pageOffset;
+        }
+        return items;
+    }
+
+    /**
+     * @return loaded entities only
+     */
+    @Override
+    public Stream<E> getItems() {
+        return new TreeMap<>(pages).values().stream()
+                .flatMap(Collection::stream);
+    }
+
+    @Override
+    public int indexOfItem(E item) {
+        for (Map.Entry<Integer, List<E>> entry : pages.entrySet()) {
+            int pageOffset = entry.getValue().indexOf(item);
+            if (pageOffset >= 0) {
+                return entry.getKey() * pageSize + pageOffset;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void sort(Object[] propertyId, boolean[] ascending) {
+        loader.setSort(createSort(propertyId, ascending));
+        refresh();
+    }
+
+    @Override
+    public void resetSortOrder() {
+        loader.setSort(Sort.UNSORTED);
+        refresh();
+    }
+
+    protected List<E> getPage(int pageIndex) {
+        List<E> page = pages.get(pageIndex);
+        if (page == null) {
+            page = loadPage(pageIndex);
+            pages.put(pageIndex, page);
+            updateContainer(page);
+        }
+        return page;
+    }
+
+    protected List<E> loadPage(int pageIndex) {
+        LoadContext<E> loadContext = loader.createLoadContext();
+        loadContext.getQuery().setFirstResult(pageIndex * pageSize);
+        loadContext.getQuery().setMaxResults(pageSize);
+
+        List<E> list = dataManager.loadList(loadContext);
+
+        DataContext dataContext = loader.getDataContext();
+        if (dataContext != null) {
+            List<E> mergedList = new ArrayList<>(list.size());
+            for (E entity : list) {
+                mergedList.add(dataContext.merge(entity));
+            }
+            return mergedList;
+        }
+        return list;
+    }
+
+    /**
+     * Adds the entities of the loaded page to the container and removes the entities of evicted pages, so the
+     * container holds the entities of the cached pages and they can be selected and edited.
+     */
+    protected void updateContainer(List<E> loadedPage) {
+        Set<Object> removedIds = new HashSet<>();
+        for (List<E> evictedPage : evictedPages) {
+            for (E entity : evictedPage) {
+                removedIds.add(entity.getId());
+            }
+        }
+        evictedPages.clear();
+        if (!removedIds.isEmpty()) {
+            // entities can move between pages if the data has been changed
+            getItems().forEach(entity -> removedIds.remove(entity.getId()));
+            E currentItem = container.getItemOrNull();
+            if (currentItem != null) {
+                removedIds.remove(currentItem.getId());
+            }
+        }
+
+        updatingContainer = true;
+        try {
+            container.updateItems(loadedPage, removedIds);
+        } finally {
+            updatingContainer = false;
+        }
+    }
+
+    /**
+     * Removes all entities except the current item from the container.
+     */
+    protected void clearContainer() {
+        evictedPages.clear();
+        E currentItem = container.getItemOrNull();
+        List<Object> removedIds = container.getItems().stream()
+                .filter(entity -> entity != currentItem)
+                .map(Entity::getId)
+                .collect(Collectors.toList());
+
+        updatingContainer = true;
+        try {
+            container.updateItems(Collections.emptyList(), removedIds);
+        } finally {
+            updatingContainer = false;
+        }
+    }
+}
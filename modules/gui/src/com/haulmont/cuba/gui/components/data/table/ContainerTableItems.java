@@ -28,6 +28,7 @@ import com.haulmont.cuba.gui.components.data.BindingState;
 import com.haulmont.cuba.gui.components.data.TableItems;
 import com.haulmont.cuba.gui.components.data.meta.ContainerDataUnit;
 import com.haulmont.cuba.gui.components.data.meta.EntityTableItems;
+import com.haulmont.cuba.gui.data.aggregation.LoaderAggregationQuery;
 import com.haulmont.cuba.gui.data.impl.AggregatableDelegate;
 import com.haulmont.cuba.gui.model.CollectionContainer;
 import com.haulmont.cuba.gui.model.CollectionLoader;
@@ -68,7 +69,7 @@ public class ContainerTableItems<E extends Entity> implements EntityTableItems<E
     }
 
     public AggregatableDelegate createAggregatableDelegate() {
-        return new AggregatableDelegate() {
+        return new AggregatableDelegate<Object>() {
             @Override
             public Object getItem(Object itemId) {
                 return ContainerTableItems.this.getItem(itemId);
@@ -78,6 +79,12 @@ public class ContainerTableItems<E extends Entity> implements EntityTableItems<E
             public Object getItemValue(MetaPropertyPath property, Object itemId) {
                 return ContainerTableItems.this.getItemValue(itemId, property);
             }
+
+            @Override
+            protected Map<AggregationInfo, Object> aggregateInDatabase(List<AggregationInfo> aggregationInfos,
+                                                                       Collection<Object> itemIds) {
+                return LoaderAggregationQuery.aggregateContainer(container, aggregationInfos, itemIds);
+            }
         };
     }
 
@@ -0,0 +1,518 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.gui.components.data.table;
+
+import com.haulmont.chile.core.datatypes.impl.EnumClass;
+import com.haulmont.chile.core.model.MetaPropertyPath;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.KeyValueEntity;
+import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.global.queryconditions.JpqlCondition;
+import com.haulmont.cuba.core.global.queryconditions.LogicalCondition;
+import com.haulmont.cuba.gui.components.AggregationInfo;
+import com.haulmont.cuba.gui.components.data.GroupTableItems;
+import com.haulmont.cuba.gui.data.GroupInfo;
+import com.haulmont.cuba.gui.data.aggregation.LoaderAggregationQuery;
+import com.haulmont.cuba.gui.data.aggregation.LoaderAggregationQuery.AggregateValue;
+import com.haulmont.cuba.gui.model.CollectionContainer;
+import com.haulmont.cuba.gui.model.CollectionLoader;
+import com.haulmont.cuba.gui.model.DataContext;
+import org.apache.commons.collections4.map.LinkedMap;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.haulmont.bali.util.Preconditions.checkNotNullArgument;
+
+/**
+ * {@link GroupTableItems} which groups entities in the database.
+ * <p>
+ * The group hierarchy with the number of entities in each group is loaded by a {@code GROUP BY} query generated
+ * from the query of a {@link CollectionLoader}. Entities of a group are loaded when the group is expanded, by pages
+ * of {@code groupPageSize} rows, see {@link #loadNextGroupPage(GroupInfo)}. Aggregation values of groups are
+ * calculated by the same grouped query, except custom aggregations which use the loaded entities only.
+ * <p>
+ * The loader's container holds entities of the expanded groups only. Do not call {@link CollectionLoader#load()}
+ * for the loader, use {@link #refresh()} instead. When no grouping is applied, all entities are loaded by the loader's
+ * query.
+ * <p>
+ * If the grouped query cannot be built from the loader's query or the entity has in-memory read constraints, see
+ * {@link LoaderAggregationQuery#isApplicable()}, all entities are loaded and grouped in memory as by
+ * {@link ContainerGroupTableItems}. Otherwise group counts and aggregates would include entities hidden by the
+ * constraints, and pages of a group would skip entities filtered out of the previous pages.
+ *
+ * @param <E> entity type
+ * @param <K> entity id type
+ */
+public class LoaderGroupTableItems<E extends Entity<K>, K>
+        extends ContainerGroupTableItems<E, K>
+        implements GroupTableItems.Aggregatable<E> {
+
+    public static final int DEFAULT_GROUP_PAGE_SIZE = 100;
+
+    protected static final String GROUP_PARAMETER = "cuba_gp";
+
+    protected CollectionLoader<E> loader;
+    protected DataManager dataManager;
+
+    protected int groupPageSize;
+
+    protected Map<GroupInfo, Integer> groupCounts;
+
+    protected List<AggregationInfo> aggregatedInfos;
+    protected Map<GroupInfo, Map<AggregationInfo, AggregateValue>> groupAggregates;
+    protected Map<AggregationInfo, AggregateValue> totalAggregates;
+
+    protected boolean groupedInMemory;
+    protected boolean allItemsLoaded;
+
+    protected boolean updatingContainer;
+    protected boolean refreshingItems;
+
+    public LoaderGroupTableItems(CollectionLoader<E> loader) {
+        this(loader, DEFAULT_GROUP_PAGE_SIZE);
+    }
+
+    public LoaderGroupTableItems(CollectionLoader<E> loader, int groupPageSize) {
+        this(loader, AppBeans.get(DataManager.NAME), groupPageSize);
+    }
+
+    public LoaderGroupTableItems(CollectionLoader<E> loader, DataManager dataManager, int groupPageSize) {
+        super(loader.getContainer());
+        checkNotNullArgument(dataManager, "dataManager is null");
+
+        if (groupPageSize <= 0) {
+            throw new IllegalArgumentException("groupPageSize must be positive");
+        }
+
+        this.loader = loader;
+        this.groupPageSize = groupPageSize;
+        this.dataManager = dataManager;
+    }
+
+    public CollectionLoader<E> getLoader() {
+        return loader;
+    }
+
+    public int getGroupPageSize() {
+        return groupPageSize;
+    }
+
+    /**
+     * @return true if the groups have been built from all entities loaded into the container
+     */
+    public boolean isGroupedInMemory() {
+        return hasGroups() && groupedInMemory;
+    }
+
+    /**
+     * Reloads the groups, or all entities if no grouping is applied.
+     */
+    public void refresh() {
+        allItemsLoaded = false;
+        if (hasGroups()) {
+            doGroup();
+        } else {
+            loadAllItems();
+        }
+        fireItemSetChanged();
+    }
+
+    /**
+     * Loads the next page of entities of the group that does not contain nested groups.
+     *
+     * @return true if some entities have been loaded
+     */
+    public boolean loadNextGroupPage(GroupInfo groupId) {
+        if (isGroupedInMemory() || !containsGroup(groupId) || hasChildren(groupId)) {
+            return false;
+        }
+        List<K> itemIds = groupItems.get(groupId);
+        if (itemIds != null && itemIds.size() >= getGroupItemsCount(groupId)) {
+            return false;
+        }
+
+        boolean loaded = loadGroupPage(groupId);
+        if (loaded) {
+            fireItemSetChanged();
+        }
+        return loaded;
+    }
+
+    /**
+     * @return true if not all entities of the group have been loaded yet
+     */
+    public boolean hasMoreGroupItems(GroupInfo groupId) {
+        if (isGroupedInMemory() || !containsGroup(groupId) || hasChildren(groupId)) {
+            return false;
+        }
+        List<K> itemIds = groupItems.get(groupId);
+        return itemIds == null || itemIds.size() < getGroupItemsCount(groupId);
+    }
+
+    protected void fireItemSetChanged() {
+        refreshingItems = true;
+        try {
+            events.publish(ItemSetChangeEvent.class, new ItemSetChangeEvent<>(this));
+        } finally {
+            refreshingItems = false;
+        }
+    }
+
+    @Override
+    protected void containerCollectionChanged(CollectionContainer.CollectionChangeEvent<E> e) {
+        if (updatingContainer) {
+            return;
+        }
+        super.containerCollectionChanged(e);
+    }
+
+    @Override
+    public void groupBy(Object[] properties) {
+        boolean grouped = hasGroups();
+
+        super.groupBy(properties);
+
+        if (grouped && !hasGroups() && !allItemsLoaded) {
+            loadAllItems();
+        }
+    }
+
+    @Override
+    public void sort(Object[] propertyId, boolean[] ascending) {
+        loader.setSort(createSort(propertyId, ascending));
+        if (hasGroups()) {
+            sortProperties = propertyId;
+            sortAscending = ascending;
+            refresh();
+        } else {
+            super.sort(propertyId, ascending);
+        }
+    }
+
+    @Override
+    public void resetSortOrder() {
+        loader.setSort(Sort.UNSORTED);
+        if (hasGroups()) {
+            refresh();
+        } else {
+            super.resetSortOrder();
+        }
+    }
+
+    @Override
+    protected void doGroup() {
+        if (refreshingItems && hasGroups()) {
+            // the groups have just been loaded by refresh()
+            return;
+        }
+
+        aggregatedInfos = null;
+        groupAggregates = null;
+        totalAggregates = null;
+        groupCounts = null;
+
+        groupedInMemory = !createAggregationQuery(Collections.emptyList()).isApplicable();
+        if (groupedInMemory) {
+            if (!allItemsLoaded) {
+                loadAllItems();
+            }
+            super.doGroup();
+            return;
+        }
+
+        roots = new LinkedList<>();
+        parents = new LinkedHashMap<>();
+        children = new LinkedHashMap<>();
+        groupItems = new HashMap<>();
+        itemGroups = new HashMap<>();
+        groupCounts = new HashMap<>();
+
+        for (KeyValueEntity row : loadGroupRows(Collections.emptyList())) {
+            int count = ((Number) row.getValue(LoaderAggregationQuery.GROUP_COUNT)).intValue();
+
+            LinkedMap<MetaPropertyPath, Object> groupValues = new LinkedMap<>();
+            GroupInfo parent = null;
+            List<GroupInfo> siblings = roots;
+            for (int i = 0; i < groupProperties.length; i++) {
+                MetaPropertyPath property = (MetaPropertyPath) groupProperties[i];
+                groupValues.put(property, convertGroupValue(property, row.getValue(LoaderAggregationQuery.GROUP_VALUE + i)));
+                GroupInfo<MetaPropertyPath> groupInfo = new GroupInfo<>(groupValues);
+
+                if (!parents.containsKey(groupInfo)) {
+                    parents.put(groupInfo, parent);
+                    siblings.add(groupInfo);
+                }
+                groupCounts.merge(groupInfo, count, Integer::sum);
+
+                siblings = children.computeIfAbsent(groupInfo, k -> new ArrayList<>());
+                parent = groupInfo;
+            }
+        }
+
+        setContainerItems(Collections.emptyList());
+        allItemsLoaded = false;
+    }
+
+    @Override
+    public List<E> getOwnChildItems(GroupInfo groupId) {
+        ensureGroupItemsLoaded(groupId);
+        return super.getOwnChildItems(groupId);
+    }
+
+    @Override
+    public List<E> getChildItems(GroupInfo groupId) {
+        ensureGroupItemsLoaded(groupId);
+        return super.getChildItems(groupId);
+    }
+
+    @Override
+    public Collection<K> getGroupItemIds(GroupInfo groupId) {
+        ensureGroupItemsLoaded(groupId);
+        return super.getGroupItemIds(groupId);
+    }
+
+    @Override
+    public int getGroupItemsCount(GroupInfo groupId) {
+        if (isGroupedInMemory()) {
+            return super.getGroupItemsCount(groupId);
+        }
+        if (containsGroup(groupId)) {
+            return groupCounts.getOrDefault(groupId, 0);
+        }
+        return 0;
+    }
+
+    protected void ensureGroupItemsLoaded(GroupInfo groupId) {
+        if (!isGroupedInMemory() && containsGroup(groupId) && !hasChildren(groupId)
+                && !groupItems.containsKey(groupId)) {
+            loadGroupPage(groupId);
+        }
+    }
+
+    protected boolean loadGroupPage(GroupInfo groupId) {
+        List<K> itemIds = groupItems.computeIfAbsent(groupId, k -> new ArrayList<>());
+
+        List<E> items = loadGroupItems(groupId, itemIds.size());
+        for (E item : items) {
+            itemIds.add(item.getId());
+            itemGroups.put(item.getId(), groupId);
+        }
+
+        updatingContainer = true;
+        try {
+            container.getMutableItems().addAll(items);
+        } finally {
+            updatingContainer = false;
+        }
+        return !items.isEmpty();
+    }
+
+    @SuppressWarnings("unchecked")
+    protected List<E> loadGroupItems(GroupInfo groupId, int firstResult) {
+        LoadContext<E> loadContext = loader.createLoadContext();
+        LoadContext.Query query = loadContext.getQuery();
+
+        LogicalCondition condition = LogicalCondition.and();
+        if (query.getCondition() != null) {
+            condition.add(query.getCondition());
+        }
+
+        LoaderAggregationQuery aggregationQuery = createAggregationQuery(Collections.emptyList());
+        Map<String, String> joins = new LinkedHashMap<>();
+        List<String> where = new ArrayList<>();
+        for (int i = 0; i < groupProperties.length; i++) {
+            MetaPropertyPath property = (MetaPropertyPath) groupProperties[i];
+            String expression = aggregationQuery.createPropertyExpression(QueryTransformer.ALIAS_PLACEHOLDER, property, joins);
+
+            Object value = groupId.getPropertyValue(property);
+            if (value == null) {
+                where.add(expression + " is null");
+            } else {
+                String parameter = GROUP_PARAMETER + i;
+                where.add(expression + " = :" + parameter);
+                query.setParameter(parameter, value);
+            }
+        }
+        joins.forEach((path, alias) -> condition.add(JpqlCondition.where("left join " + path + " " + alias, null)));
+        where.forEach(w -> condition.add(JpqlCondition.where(w)));
+
+        query.setCondition(condition);
+        query.setFirstResult(firstResult);
+        query.setMaxResults(groupPageSize);
+
+        return mergeLoadedItems(dataManager.loadList(loadContext));
+    }
+
+    protected void loadAllItems() {
+        setContainerItems(mergeLoadedItems(dataManager.loadList(loader.createLoadContext())));
+        allItemsLoaded = true;
+    }
+
+    protected List<E> mergeLoadedItems(List<E> items) {
+        DataContext dataContext = loader.getDataContext();
+        if (dataContext == null) {
+            return items;
+        }
+        List<E> mergedList = new ArrayList<>(items.size());
+        for (E entity : items) {
+            mergedList.add(dataContext.merge(entity));
+        }
+        return mergedList;
+    }
+
+    protected void setContainerItems(List<E> items) {
+        updatingContainer = true;
+        try {
+            container.setItems(items);
+        } finally {
+            updatingContainer = false;
+        }
+    }
+
+    /**
+     * Loads one row per group of the last grouping level. Each row contains group values, the number of entities
+     * and the values required for the given aggregations.
+     */
+    protected List<KeyValueEntity> loadGroupRows(List<AggregationInfo> aggregationInfos) {
+        return createAggregationQuery(aggregationInfos).load();
+    }
+
+    protected LoaderAggregationQuery createAggregationQuery(List<AggregationInfo> aggregationInfos) {
+        List<MetaPropertyPath> properties = Arrays.stream(groupProperties)
+                .map(property -> (MetaPropertyPath) property)
+                .collect(Collectors.toList());
+        return new LoaderAggregationQuery(loader, properties, aggregationInfos, dataManager);
+    }
+
+    /**
+     * Enum attributes are selected by a query as their ids, converts them to the values returned by entities.
+     */
+    @Nullable
+    protected Object convertGroupValue(MetaPropertyPath property, @Nullable Object value) {
+        if (value != null && property.getRange().isEnum() && !(value instanceof EnumClass)) {
+            for (Object constant : property.getRangeJavaClass().getEnumConstants()) {
+                if (Objects.equals(((EnumClass) constant).getId(), value)) {
+                    return constant;
+                }
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public Map<AggregationInfo, String> aggregateGroup(AggregationInfo[] aggregationInfos, @Nullable GroupInfo groupId) {
+        Map<AggregationInfo, Object> values = aggregateGroupValues(aggregationInfos, groupId);
+
+        Map<AggregationInfo, String> results = new HashMap<>();
+        for (AggregationInfo aggregationInfo : aggregationInfos) {
+            Object value = values.get(aggregationInfo);
+            if (value == null && aggregationInfo.getFormatter() == null) {
+                results.put(aggregationInfo, "");
+            } else {
+                results.put(aggregationInfo, aggregatableDelegate.formatAggregationValue(aggregationInfo, value));
+            }
+        }
+        return results;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map<AggregationInfo, Object> aggregateGroupValues(AggregationInfo[] aggregationInfos, @Nullable GroupInfo groupId) {
+        if (!hasGroups()) {
+            return aggregatableDelegate.aggregateValues(aggregationInfos, getItemIds());
+        }
+        if (isGroupedInMemory()) {
+            Collection<?> itemIds = groupId == null ? getItemIds() : getGroupItemIds(groupId);
+            return aggregatableDelegate.aggregateValues(aggregationInfos, itemIds);
+        }
+
+        List<AggregationInfo> databaseInfos = new ArrayList<>();
+        List<AggregationInfo> customInfos = new ArrayList<>();
+        for (AggregationInfo aggregationInfo : aggregationInfos) {
+            if (LoaderAggregationQuery.isSupported(aggregationInfo)) {
+                databaseInfos.add(aggregationInfo);
+            } else {
+                customInfos.add(aggregationInfo);
+            }
+        }
+
+        Map<AggregationInfo, Object> results = new HashMap<>();
+        if (!databaseInfos.isEmpty()) {
+            Map<AggregationInfo, AggregateValue> aggregates = getGroupAggregates(databaseInfos, groupId);
+            for (AggregationInfo aggregationInfo : databaseInfos) {
+                AggregateValue aggregate = aggregates.get(aggregationInfo);
+                results.put(aggregationInfo, aggregate == null ? null : aggregate.getValue(aggregationInfo));
+            }
+        }
+        if (!customInfos.isEmpty()) {
+            Collection<?> itemIds = groupId == null ? getItemIds() : getGroupItemIds(groupId);
+            results.putAll(aggregatableDelegate.aggregateValues(customInfos.toArray(new AggregationInfo[0]), itemIds));
+        }
+        return results;
+    }
+
+    protected Map<AggregationInfo, AggregateValue> getGroupAggregates(List<AggregationInfo> aggregationInfos,
+                                                                     @Nullable GroupInfo groupId) {
+        if (aggregatedInfos == null || !aggregatedInfos.containsAll(aggregationInfos)) {
+            List<AggregationInfo> infos = new ArrayList<>(aggregationInfos);
+            if (aggregatedInfos != null) {
+                aggregatedInfos.stream()
+                        .filter(info -> !infos.contains(info))
+                        .forEach(infos::add);
+            }
+            loadGroupAggregates(infos);
+        }
+
+        if (groupId == null) {
+            return totalAggregates;
+        }
+        return groupAggregates.getOrDefault(groupId, Collections.emptyMap());
+    }
+
+    protected void loadGroupAggregates(List<AggregationInfo> aggregationInfos) {
+        aggregatedInfos = aggregationInfos;
+        groupAggregates = new HashMap<>();
+        totalAggregates = new HashMap<>();
+
+        LoaderAggregationQuery aggregationQuery = createAggregationQuery(aggregationInfos);
+        for (KeyValueEntity row : aggregationQuery.load()) {
+            Map<AggregationInfo, AggregateValue> rowAggregates = new HashMap<>();
+            for (int i = 0; i < aggregationInfos.size(); i++) {
+                rowAggregates.put(aggregationInfos.get(i), aggregationQuery.createAggregateValue(row, i));
+            }
+
+            LinkedMap<MetaPropertyPath, Object> groupValues = new LinkedMap<>();
+            for (int i = 0; i < groupProperties.length; i++) {
+                MetaPropertyPath property = (MetaPropertyPath) groupProperties[i];
+                groupValues.put(property, convertGroupValue(property, row.getValue(LoaderAggregationQuery.GROUP_VALUE + i)));
+                GroupInfo<MetaPropertyPath> groupInfo = new GroupInfo<>(groupValues);
+
+                mergeAggregates(groupAggregates.computeIfAbsent(groupInfo, k -> new HashMap<>()), rowAggregates);
+            }
+            mergeAggregates(totalAggregates, rowAggregates);
+        }
+    }
+
+    protected void mergeAggregates(Map<AggregationInfo, AggregateValue> target,
+                                   Map<AggregationInfo, AggregateValue> source) {
+        source.forEach((aggregationInfo, value) ->
+                target.computeIfAbsent(aggregationInfo, k -> new AggregateValue()).add(value));
+    }
+}
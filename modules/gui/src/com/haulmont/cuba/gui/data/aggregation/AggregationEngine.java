@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.gui.data.aggregation;
+
+import com.haulmont.chile.core.model.MetaPropertyPath;
+import com.haulmont.cuba.gui.components.AggregationInfo;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * Calculates standard aggregations of several properties in a single pass over items.
+ * <p>
+ * Values are accumulated in primitive {@code long} and {@code double} or {@link BigDecimal} accumulators instead of
+ * collecting them into lists. Results have the types returned by {@link Aggregation#getResultClass()}.
+ * Custom aggregations and aggregation strategies are not supported, see {@link #isSupported(AggregationInfo)}.
+ *
+ * @param <K> item id type
+ */
+public class AggregationEngine<K> {
+
+    protected List<AggregationInfo> aggregationInfos;
+    protected BiFunction<MetaPropertyPath, K, Object> valueProvider;
+
+    /**
+     * @param aggregationInfos aggregations supported by the engine
+     * @param valueProvider    function returning a value of the property of an item by its id
+     */
+    public AggregationEngine(List<AggregationInfo> aggregationInfos,
+                             BiFunction<MetaPropertyPath, K, Object> valueProvider) {
+        this.aggregationInfos = aggregationInfos;
+        this.valueProvider = valueProvider;
+    }
+
+    /**
+     * @return true if the aggregation can be calculated by the engine
+     */
+    public static boolean isSupported(AggregationInfo aggregationInfo) {
+        if (aggregationInfo.getStrategy() != null
+                || aggregationInfo.getType() == AggregationInfo.Type.CUSTOM
+                || aggregationInfo.getPropertyPath() == null) {
+            return false;
+        }
+
+        Class<?> javaClass = aggregationInfo.getPropertyPath().getRangeJavaClass();
+        Aggregation<?> aggregation = Aggregations.get(javaClass);
+        if (aggregation == null || !aggregation.getSupportedAggregationTypes().contains(aggregationInfo.getType())) {
+            return false;
+        }
+        return aggregationInfo.getType() == AggregationInfo.Type.COUNT || ValueKind.of(javaClass) != ValueKind.OTHER;
+    }
+
+    /**
+     * Calculates the aggregations.
+     *
+     * @param itemIds  ids of items to aggregate
+     * @param parallel whether to split the work between threads of the common fork-join pool
+     * @return map with aggregation info and aggregation value
+     */
+    public Map<AggregationInfo, Object> aggregate(Collection<K> itemIds, boolean parallel) {
+        Accumulator[] accumulators;
+        if (parallel) {
+            accumulators = itemIds.parallelStream()
+                    .collect(this::createAccumulators, this::accumulate, this::combine);
+        } else {
+            accumulators = createAccumulators();
+            for (K itemId : itemIds) {
+                accumulate(accumulators, itemId);
+            }
+        }
+
+        Map<AggregationInfo, Object> results = new HashMap<>();
+        for (Accumulator accumulator : accumulators) {
+            results.put(accumulator.aggregationInfo, accumulator.getResult());
+        }
+        return results;
+    }
+
+    protected Accumulator[] createAccumulators() {
+        Accumulator[] accumulators = new Accumulator[aggregationInfos.size()];
+        for (int i = 0; i < accumulators.length; i++) {
+            accumulators[i] = new Accumulator(aggregationInfos.get(i));
+        }
+        return accumulators;
+    }
+
+    protected void accumulate(Accumulator[] accumulators, K itemId) {
+        for (Accumulator accumulator : accumulators) {
+            accumulator.add(valueProvider.apply(accumulator.aggregationInfo.getPropertyPath(), itemId));
+        }
+    }
+
+    protected void combine(Accumulator[] accumulators, Accumulator[] others) {
+        for (int i = 0; i < accumulators.length; i++) {
+            accumulators[i].combine(others[i]);
+        }
+    }
+
+    protected enum ValueKind {
+        LONG,
+        DOUBLE,
+        DECIMAL,
+        DATE,
+        OTHER;
+
+        public static ValueKind of(Class<?> javaClass) {
+            if (Long.class.equals(javaClass) || Integer.class.equals(javaClass)) {
+                return LONG;
+            } else if (Double.class.equals(javaClass)) {
+                return DOUBLE;
+            } else if (BigDecimal.class.equals(javaClass)) {
+                return DECIMAL;
+            } else if (Date.class.isAssignableFrom(javaClass)) {
+                return DATE;
+            }
+            return OTHER;
+        }
+    }
+
+    /**
+     * Aggregation state of one property. Null values are skipped.
+     */
+    protected static class Accumulator {
+
+        protected final AggregationInfo aggregationInfo;
+        protected final AggregationInfo.Type type;
+        protected final ValueKind kind;
+
+        protected long count;
+
+        protected long longSum;
+        protected long longMin = Long.MAX_VALUE;
+        protected long longMax = Long.MIN_VALUE;
+
+        protected double doubleSum;
+        protected double doubleMin = Double.POSITIVE_INFINITY;
+        protected double doubleMax = Double.NEGATIVE_INFINITY;
+
+        protected BigDecimal decimalSum = BigDecimal.ZERO;
+        protected BigDecimal decimalMin;
+        protected BigDecimal decimalMax;
+
+        public Accumulator(AggregationInfo aggregationInfo) {
+            this.aggregationInfo = aggregationInfo;
+            this.type = aggregationInfo.getType();
+            this.kind = ValueKind.of(aggregationInfo.getPropertyPath().getRangeJavaClass());
+        }
+
+        public void add(Object value) {
+            if (value == null) {
+                return;
+            }
+            count++;
+
+            switch (kind) {
+                case LONG:
+                    addLong(((Number) value).longValue());
+                    break;
+                case DATE:
+                    addLong(((Date) value).getTime());
+                    break;
+                case DOUBLE:
+                    double doubleValue = ((Number) value).doubleValue();
+                    doubleSum += doubleValue;
+                    doubleMin = Math.min(doubleMin, doubleValue);
+                    doubleMax = Math.max(doubleMax, doubleValue);
+                    break;
+                case DECIMAL:
+                    addDecimal((BigDecimal) value);
+                    break;
+                default:
+                    // only count is supported
+            }
+        }
+
+        protected void addLong(long value) {
+            longSum += value;
+            if (value < longMin) {
+                longMin = value;
+            }
+            if (value > longMax) {
+                longMax = value;
+            }
+        }
+
+        protected void addDecimal(BigDecimal value) {
+            if (type == AggregationInfo.Type.SUM || type == AggregationInfo.Type.AVG) {
+                decimalSum = decimalSum.add(value);
+            } else if (type == AggregationInfo.Type.MIN) {
+                if (decimalMin == null || value.compareTo(decimalMin) < 0) {
+                    decimalMin = value;
+                }
+            } else if (type == AggregationInfo.Type.MAX) {
+                if (decimalMax == null || value.compareTo(decimalMax) > 0) {
+                    decimalMax = value;
+                }
+            }
+        }
+
+        public void combine(Accumulator other) {
+            count += other.count;
+
+            longSum += other.longSum;
+            longMin = Math.min(longMin, other.longMin);
+            longMax = Math.max(longMax, other.longMax);
+
+            doubleSum += other.doubleSum;
+            doubleMin = Math.min(doubleMin, other.doubleMin);
+            doubleMax = Math.max(doubleMax, other.doubleMax);
+
+            decimalSum = decimalSum.add(other.decimalSum);
+            if (other.decimalMin != null && (decimalMin == null || other.decimalMin.compareTo(decimalMin) < 0)) {
+                decimalMin = other.decimalMin;
+            }
+            if (other.decimalMax != null && (decimalMax == null || other.decimalMax.compareTo(decimalMax) > 0)) {
+                decimalMax = other.decimalMax;
+            }
+        }
+
+        public Object getResult() {
+            if (type == AggregationInfo.Type.COUNT) {
+                return (int) count;
+            }
+            if (count == 0 && type != AggregationInfo.Type.SUM) {
+                return null;
+            }
+
+            switch (kind) {
+                case LONG:
+                    return getLongResult();
+                case DATE:
+                    return type == AggregationInfo.Type.MIN ? new Date(longMin) : new Date(longMax);
+                case DOUBLE:
+                    return getDoubleResult();
+                case DECIMAL:
+                    return getDecimalResult();
+                default:
+                    throw new IllegalStateException(String.format("Unexpected value kind %s of aggregation type %s",
+                            kind, type));
+            }
+        }
+
+        protected Long getLongResult() {
+            switch (type) {
+                case SUM:
+                    return longSum;
+                case AVG:
+                    return longSum / count;
+                case MIN:
+                    return longMin;
+                case MAX:
+                    return longMax;
+                default:
+                    throw new IllegalArgumentException(String.format("Unknown aggregation type: %s", type));
+            }
+        }
+
+        protected Double getDoubleResult() {
+            switch (type) {
+                case SUM:
+                    return doubleSum;
+                case AVG:
+                    return doubleSum / count;
+                case MIN:
+                    return doubleMin;
+                case MAX:
+                    return doubleMax;
+                default:
+                    throw new IllegalArgumentException(String.format("Unknown aggregation type: %s", type));
+            }
+        }
+
+        protected BigDecimal getDecimalResult() {
+            switch (type) {
+                case SUM:
+                    return decimalSum;
+                case AVG:
+                    return decimalSum.divide(BigDecimal.valueOf(count), MathContext.DECIMAL64);
+                case MIN:
+                    return decimalMin;
+                case MAX:
+                    return decimalMax;
+                default:
+                    throw new IllegalArgumentException(String.format("Unknown aggregation type: %s", type));
+            }
+        }
+    }
+}
@@ -0,0 +1,435 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.gui.data.aggregation;
+
+import com.haulmont.chile.core.model.MetaProperty;
+import com.haulmont.chile.core.model.MetaPropertyPath;
+import com.haulmont.cuba.client.ClientConfig;
+import com.haulmont.cuba.core.entity.KeyValueEntity;
+import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.global.queryconditions.Condition;
+import com.haulmont.cuba.core.global.queryconditions.ConditionJpqlGenerator;
+import com.haulmont.cuba.gui.components.AggregationInfo;
+import com.haulmont.cuba.gui.model.CollectionContainer;
+import com.haulmont.cuba.gui.model.CollectionLoader;
+import com.haulmont.cuba.gui.model.DataContext;
+import com.haulmont.cuba.gui.model.DataLoader;
+import com.haulmont.cuba.gui.model.HasLoader;
+import com.haulmont.cuba.security.entity.ConstraintOperationType;
+
+import javax.annotation.Nullable;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * JPQL aggregate query generated from the query of a {@link CollectionLoader}.
+ * <p>
+ * The query selects values of the group properties, the number of entities and the values required for the
+ * given aggregations, grouped by the group properties. Without group properties it returns a single row for all
+ * entities of the loader's query. Reference properties are joined with left joins, so entities having null
+ * references are not lost.
+ * <p>
+ * The query can be built only if each row of the loader's query is a distinct entity, see {@link #isApplicable()}.
+ */
+public class LoaderAggregationQuery {
+
+    public static final String GROUP_VALUE = "groupValue";
+    public static final String GROUP_COUNT = "groupCount";
+    public static final String AGGREGATE_VALUE = "aggregateValue";
+    public static final String AGGREGATE_COUNT = "aggregateCount";
+
+    protected static final String JOIN_ALIAS = "cuba_gj";
+
+    protected static final Pattern DISTINCT_PATTERN = Pattern.compile("^\\s*select\\s+distinct\\s",
+            Pattern.CASE_INSENSITIVE);
+
+    protected CollectionLoader<?> loader;
+    protected List<MetaPropertyPath> groupProperties;
+    protected List<AggregationInfo> aggregationInfos;
+
+    protected DataManager dataManager;
+    protected MetadataTools metadataTools;
+    protected QueryTransformerFactory queryTransformerFactory;
+    protected ConditionJpqlGenerator conditionJpqlGenerator;
+    protected Security security;
+
+    public LoaderAggregationQuery(CollectionLoader<?> loader, List<MetaPropertyPath> groupProperties,
+                                  List<AggregationInfo> aggregationInfos) {
+        this(loader, groupProperties, aggregationInfos, AppBeans.get(DataManager.NAME));
+    }
+
+    public LoaderAggregationQuery(CollectionLoader<?> loader, List<MetaPropertyPath> groupProperties,
+                                  List<AggregationInfo> aggregationInfos, DataManager dataManager) {
+        this.loader = loader;
+        this.groupProperties = groupProperties;
+        this.aggregationInfos = aggregationInfos;
+
+        this.dataManager = dataManager;
+        this.metadataTools = AppBeans.get(MetadataTools.NAME);
+        this.queryTransformerFactory = AppBeans.get(QueryTransformerFactory.NAME);
+        this.conditionJpqlGenerator = AppBeans.get(ConditionJpqlGenerator.NAME);
+        this.security = AppBeans.get(Security.NAME);
+    }
+
+    /**
+     * @return true if the aggregation can be calculated by the query
+     */
+    public static boolean isSupported(AggregationInfo aggregationInfo) {
+        return aggregationInfo.getType() != AggregationInfo.Type.CUSTOM
+                && aggregationInfo.getStrategy() == null
+                && aggregationInfo.getPropertyPath() != null;
+    }
+
+    /**
+     * Calculates aggregations of all items of the container by a query of the container's loader, if
+     * {@link ClientConfig#getAggregationInDatabase()} is enabled and the items of the container are exactly the
+     * result of the loader's query.
+     *
+     * @return map with aggregation info and aggregation value, or null if the aggregation must be performed in memory
+     */
+    @Nullable
+    public static Map<AggregationInfo, Object> aggregateContainer(CollectionContainer<?> container,
+                                                                  List<AggregationInfo> aggregationInfos,
+                                                                  Collection<?> itemIds) {
+        if (aggregationInfos.isEmpty() || !(container instanceof HasLoader)) {
+            return null;
+        }
+        DataLoader dataLoader = ((HasLoader) container).getLoader();
+        if (!(dataLoader instanceof CollectionLoader)) {
+            return null;
+        }
+        CollectionLoader<?> loader = (CollectionLoader<?>) dataLoader;
+        if (loader.getLoadDelegate() != null
+                || loader.getFirstResult() > 0
+                || loader.getMaxResults() < Integer.MAX_VALUE
+                || itemIds.size() != container.getItems().size()) {
+            return null;
+        }
+        DataContext dataContext = loader.getDataContext();
+        if (dataContext != null && dataContext.hasChanges()) {
+            return null;
+        }
+
+        Configuration configuration = AppBeans.get(Configuration.NAME);
+        if (!configuration.getConfig(ClientConfig.class).getAggregationInDatabase()) {
+            return null;
+        }
+
+        LoaderAggregationQuery query = new LoaderAggregationQuery(loader, Collections.emptyList(), aggregationInfos);
+        if (!query.isApplicable()) {
+            return null;
+        }
+        Map<AggregationInfo, AggregateValue> aggregates = new HashMap<>();
+        for (KeyValueEntity row : query.load()) {
+            for (int i = 0; i < aggregationInfos.size(); i++) {
+                aggregates.computeIfAbsent(aggregationInfos.get(i), k -> new AggregateValue())
+                        .add(query.createAggregateValue(row, i));
+            }
+        }
+
+        Map<AggregationInfo, Object> results = new HashMap<>();
+        for (AggregationInfo aggregationInfo : aggregationInfos) {
+            AggregateValue aggregate = aggregates.get(aggregationInfo);
+            results.put(aggregationInfo, aggregate == null
+                    ? new AggregateValue().getValue(aggregationInfo)
+                    : aggregate.getValue(aggregationInfo));
+        }
+        return results;
+    }
+
+    /**
+     * Checks that the aggregate query returns the same values as the aggregation of the loaded entities. It is not
+     * so if the query of the loader or its condition contains joins or selects distinct entities: the aggregate
+     * query would count the entity once for every joined row. It is not so either if the entity has in-memory read
+     * constraints: they are applied to loaded entities only, so the aggregate query would include hidden rows.
+     *
+     * @return true if the query can be executed by {@link #load()}
+     */
+    public boolean isApplicable() {
+        if (security.hasInMemoryConstraints(loader.getContainer().getEntityMetaClass(),
+                ConstraintOperationType.READ, ConstraintOperationType.ALL)) {
+            return false;
+        }
+        LoadContext.Query query = loader.createLoadContext().getQuery();
+        if (query == null) {
+            return false;
+        }
+        String queryString = createSourceQuery(query);
+        if (DISTINCT_PATTERN.matcher(queryString).find()) {
+            return false;
+        }
+        QueryParser parser = queryTransformerFactory.parser(queryString);
+        return !parser.isQueryWithJoins()
+                && createSelectPattern(parser.getEntityAlias()).matcher(queryString).find();
+    }
+
+    /**
+     * Executes the query.
+     *
+     * @return rows with {@link #GROUP_VALUE}{@code i}, {@link #GROUP_COUNT}, {@link #AGGREGATE_VALUE}{@code i} and
+     * {@link #AGGREGATE_COUNT}{@code i} properties
+     * @throws IllegalStateException if the query is not {@link #isApplicable() applicable}
+     */
+    public List<KeyValueEntity> load() {
+        if (!isApplicable()) {
+            throw new IllegalStateException("Unable to create aggregation query for loader: " + loader);
+        }
+        LoadContext<?> loadContext = loader.createLoadContext();
+        LoadContext.Query query = loadContext.getQuery();
+        String sourceQuery = createSourceQuery(query);
+        String entityAlias = queryTransformerFactory.parser(sourceQuery).getEntityAlias();
+
+        Map<String, String> joins = new LinkedHashMap<>();
+        List<String> properties = new ArrayList<>();
+        List<String> selection = new ArrayList<>();
+        List<String> grouping = new ArrayList<>();
+
+        for (int i = 0; i < groupProperties.size(); i++) {
+            String expression = createPropertyExpression(entityAlias, groupProperties.get(i), joins);
+            grouping.add(expression);
+            selection.add(expression);
+            properties.add(GROUP_VALUE + i);
+        }
+
+        selection.add("count(" + entityAlias + ")");
+        properties.add(GROUP_COUNT);
+
+        for (int i = 0; i < aggregationInfos.size(); i++) {
+            AggregationInfo aggregationInfo = aggregationInfos.get(i);
+            String expression = createPropertyExpression(entityAlias, aggregationInfo.getPropertyPath(), joins);
+            switch (aggregationInfo.getType()) {
+                case SUM:
+                    selection.add("sum(" + expression + ")");
+                    properties.add(AGGREGATE_VALUE + i);
+                    break;
+                case AVG:
+                    selection.add("sum(" + expression + ")");
+                    properties.add(AGGREGATE_VALUE + i);
+                    selection.add("count(" + expression + ")");
+                    properties.add(AGGREGATE_COUNT + i);
+                    break;
+                case COUNT:
+                    selection.add("count(" + expression + ")");
+                    properties.add(AGGREGATE_COUNT + i);
+                    break;
+                case MIN:
+                    selection.add("min(" + expression + ")");
+                    properties.add(AGGREGATE_VALUE + i);
+                    break;
+                case MAX:
+                    selection.add("max(" + expression + ")");
+                    properties.add(AGGREGATE_VALUE + i);
+                    break;
+                default:
+                    throw new IllegalArgumentException(String.format("Unsupported aggregation type: %s",
+                            aggregationInfo.getType()));
+            }
+        }
+
+        String queryString = createQueryString(sourceQuery, entityAlias, joins, selection, grouping);
+
+        ValueLoadContext valueLoadContext = ValueLoadContext.create()
+                .setStoreName(metadataTools.getStoreName(loader.getContainer().getEntityMetaClass()))
+                .setQuery(ValueLoadContext.createQuery(queryString)
+                        .setParameters(query.getParameters()))
+                .setSoftDeletion(loadContext.isSoftDeletion())
+                .setProperties(properties);
+
+        return dataManager.loadValues(valueLoadContext);
+    }
+
+    /**
+     * Applies the condition of the loader to its query, so that joins added by the condition are taken into account.
+     */
+    protected String createSourceQuery(LoadContext.Query query) {
+        Condition condition = query.getCondition();
+        if (condition == null) {
+            return query.getQueryString();
+        }
+        Set<String> nonNullParamNames = query.getParameters().entrySet().stream()
+                .filter(e -> e.getValue() != null)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+        return conditionJpqlGenerator.processQuery(query.getQueryString(), condition.actualize(nonNullParamNames));
+    }
+
+    protected Pattern createSelectPattern(String entityAlias) {
+        return Pattern.compile("^\\s*select\\s+" + Pattern.quote(entityAlias) + "\\s+from\\s", Pattern.CASE_INSENSITIVE);
+    }
+
+    protected String createQueryString(String queryString, String entityAlias, Map<String, String> joins,
+                                       List<String> selection, List<String> grouping) {
+        QueryTransformer transformer = queryTransformerFactory.transformer(queryString);
+        transformer.removeOrderBy();
+        joins.forEach((path, alias) -> transformer.addJoin("left join " + path + " " + alias));
+        String result = transformer.getResult();
+
+        Matcher matcher = createSelectPattern(entityAlias).matcher(result);
+        if (!matcher.find()) {
+            throw new IllegalStateException("Unable to create aggregation query for: " + queryString);
+        }
+
+        StringBuilder sb = new StringBuilder("select ")
+                .append(String.join(", ", selection))
+                .append(" from ")
+                .append(result.substring(matcher.end()));
+
+        if (!grouping.isEmpty()) {
+            sb.append(" group by ").append(String.join(", ", grouping));
+
+            // entities are not comparable, groups of references keep the order of the database
+            List<String> ordering = grouping.stream()
+                    .filter(expression -> !joins.containsValue(expression))
+                    .collect(Collectors.toList());
+            if (!ordering.isEmpty()) {
+                sb.append(" order by ").append(String.join(", ", ordering));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Creates a JPQL expression for the property path, adding left joins for reference properties.
+     *
+     * @param entityAlias alias of the main entity, or {@link QueryTransformer#ALIAS_PLACEHOLDER}
+     * @param joins       joined paths mapped to their aliases, filled by the method
+     */
+    public String createPropertyExpression(String entityAlias, MetaPropertyPath propertyPath, Map<String, String> joins) {
+        String expression = entityAlias;
+        for (MetaProperty metaProperty : propertyPath.getMetaProperties()) {
+            String path = expression + "." + metaProperty.getName();
+            if (metaProperty.getRange().isClass() && !metadataTools.isEmbedded(metaProperty)) {
+                expression = joins.computeIfAbsent(path, p -> JOIN_ALIAS + joins.size());
+            } else {
+                expression = path;
+            }
+        }
+        return expression;
+    }
+
+    /**
+     * Creates a partial result of the aggregation with the given index from a row returned by {@link #load()}.
+     */
+    public AggregateValue createAggregateValue(KeyValueEntity row, int index) {
+        AggregationInfo aggregationInfo = aggregationInfos.get(index);
+
+        AggregateValue aggregate = new AggregateValue();
+        Object value = row.getValue(AGGREGATE_VALUE + index);
+        Number count = row.getValue(AGGREGATE_COUNT + index);
+        switch (aggregationInfo.getType()) {
+            case SUM:
+                aggregate.sum = toBigDecimal(value);
+                break;
+            case AVG:
+                aggregate.sum = toBigDecimal(value);
+                aggregate.count = count == null ? 0 : count.longValue();
+                break;
+            case COUNT:
+                aggregate.count = count == null ? 0 : count.longValue();
+                break;
+            case MIN:
+                aggregate.min = (Comparable) value;
+                break;
+            case MAX:
+                aggregate.max = (Comparable) value;
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("Unsupported aggregation type: %s",
+                        aggregationInfo.getType()));
+        }
+        return aggregate;
+    }
+
+    @Nullable
+    protected static BigDecimal toBigDecimal(@Nullable Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        return new BigDecimal(value.toString());
+    }
+
+    /**
+     * Partial aggregation result of a group, which can be combined with the results of other groups.
+     */
+    public static class AggregateValue {
+
+        protected BigDecimal sum;
+        protected long count;
+        protected Comparable min;
+        protected Comparable max;
+
+        @SuppressWarnings("unchecked")
+        public void add(AggregateValue other) {
+            if (other.sum != null) {
+                sum = sum == null ? other.sum : sum.add(other.sum);
+            }
+            count += other.count;
+            if (other.min != null && (min == null || other.min.compareTo(min) < 0)) {
+                min = other.min;
+            }
+            if (other.max != null && (max == null || other.max.compareTo(max) > 0)) {
+                max = other.max;
+            }
+        }
+
+        /**
+         * @return the aggregation value converted to {@link Aggregation#getResultClass()}
+         */
+        @Nullable
+        public Object getValue(AggregationInfo aggregationInfo) {
+            Class<?> resultClass = Aggregations.get(aggregationInfo.getPropertyPath().getRangeJavaClass()).getResultClass();
+            switch (aggregationInfo.getType()) {
+                case SUM:
+                    return convert(sum == null ? BigDecimal.ZERO : sum, resultClass);
+                case AVG:
+                    return count == 0 || sum == null
+                            ? null
+                            : convert(sum.divide(BigDecimal.valueOf(count), MathContext.DECIMAL64), resultClass);
+                case COUNT:
+                    return (int) count;
+                case MIN:
+                    return min instanceof Number ? convert(toBigDecimal(min), resultClass) : min;
+                case MAX:
+                    return max instanceof Number ? convert(toBigDecimal(max), resultClass) : max;
+                default:
+                    throw new IllegalArgumentException(String.format("Unsupported aggregation type: %s",
+                            aggregationInfo.getType()));
+            }
+        }
+
+        protected Object convert(BigDecimal value, Class<?> resultClass) {
+            if (Long.class.equals(resultClass)) {
+                return value.longValue();
+            } else if (Integer.class.equals(resultClass)) {
+                return value.intValue();
+            } else if (Double.class.equals(resultClass)) {
+                return value.doubleValue();
+            } else if (Float.class.equals(resultClass)) {
+                return value.floatValue();
+            }
+            return value;
+        }
+    }
+}
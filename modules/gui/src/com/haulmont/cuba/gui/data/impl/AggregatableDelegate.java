@@ -19,13 +19,18 @@ package com.haulmont.cuba.gui.data.impl;
 import com.haulmont.chile.core.datatypes.Datatypes;
 import com.haulmont.chile.core.model.MetaPropertyPath;
 import com.haulmont.chile.core.model.Range;
+import com.haulmont.cuba.client.ClientConfig;
 import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.Configuration;
 import com.haulmont.cuba.core.global.UserSessionSource;
 import com.haulmont.cuba.gui.components.AggregationInfo;
 import com.haulmont.cuba.gui.data.aggregation.Aggregation;
+import com.haulmont.cuba.gui.data.aggregation.AggregationEngine;
 import com.haulmont.cuba.gui.data.aggregation.AggregationStrategy;
 import com.haulmont.cuba.gui.data.aggregation.Aggregations;
+import com.haulmont.cuba.gui.data.aggregation.LoaderAggregationQuery;
 
+import javax.annotation.Nullable;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -39,51 +44,112 @@ public abstract class AggregatableDelegate<K> {
     }
 
     protected Map<AggregationInfo, String> doAggregation(Collection<K> itemIds, AggregationInfo[] aggregationInfos) {
+        Map<AggregationInfo, Object> values = doAggregationValues(itemIds, aggregationInfos);
+
         Map<AggregationInfo, String> aggregationResults = new HashMap<>();
         for (AggregationInfo aggregationInfo : aggregationInfos) {
-            final Object value = doPropertyAggregation(aggregationInfo, itemIds);
+            final Object value = values.get(aggregationInfo);
+            String formattedValue = formatAggregationValue(aggregationInfo, value);
 
-            String formattedValue;
-            if (aggregationInfo.getFormatter() != null) {
-                formattedValue = aggregationInfo.getFormatter().apply(value);
-            } else {
-                // propertyPath could be null in case of custom aggregation
-                MetaPropertyPath propertyPath = aggregationInfo.getPropertyPath();
-
-                Range range = propertyPath != null ? propertyPath.getRange() : null;
-                if (range != null && range.isDatatype()) {
-                    if (aggregationInfo.getType() != AggregationInfo.Type.COUNT) {
-                        Class resultClass;
-                        if (aggregationInfo.getStrategy() == null) {
-                            Class rangeJavaClass = propertyPath.getRangeJavaClass();
-                            Aggregation aggregation = Aggregations.get(rangeJavaClass);
-                            resultClass = aggregation.getResultClass();
-                        } else {
-                            resultClass = aggregationInfo.getStrategy().getResultClass();
-                        }
-
-                        UserSessionSource userSessionSource = AppBeans.get(UserSessionSource.NAME);
-                        Locale locale = userSessionSource.getLocale();
-                        formattedValue = Datatypes.getNN(resultClass).format(value, locale);
+            aggregationResults.put(aggregationInfo, formattedValue);
+        }
+        return aggregationResults;
+    }
+
+    /**
+     * Calculates standard aggregations in the database if possible, otherwise in a single pass over the items,
+     * and the rest of aggregations one by one.
+     */
+    protected Map<AggregationInfo, Object> doAggregationValues(Collection<K> itemIds, AggregationInfo[] aggregationInfos) {
+        Map<AggregationInfo, Object> aggregationResults = new HashMap<>();
+
+        List<AggregationInfo> databaseInfos = Arrays.stream(aggregationInfos)
+                .filter(LoaderAggregationQuery::isSupported)
+                .collect(Collectors.toList());
+        if (!databaseInfos.isEmpty()) {
+            Map<AggregationInfo, Object> databaseResults = aggregateInDatabase(databaseInfos, itemIds);
+            if (databaseResults != null) {
+                aggregationResults.putAll(databaseResults);
+            }
+        }
+
+        List<AggregationInfo> engineInfos = Arrays.stream(aggregationInfos)
+                .filter(aggregationInfo -> !aggregationResults.containsKey(aggregationInfo))
+                .filter(AggregationEngine::isSupported)
+                .collect(Collectors.toList());
+        if (!engineInfos.isEmpty()) {
+            AggregationEngine<K> engine = new AggregationEngine<>(engineInfos, this::getItemValue);
+            aggregationResults.putAll(engine.aggregate(itemIds, isParallelAggregation(itemIds)));
+        }
+
+        for (AggregationInfo aggregationInfo : aggregationInfos) {
+            if (!aggregationResults.containsKey(aggregationInfo)) {
+                aggregationResults.put(aggregationInfo, doPropertyAggregation(aggregationInfo, itemIds));
+            }
+        }
+        return aggregationResults;
+    }
+
+    /**
+     * Calculates aggregations by a database query instead of the items in memory.
+     *
+     * @param aggregationInfos aggregations supported by {@link LoaderAggregationQuery}
+     * @param itemIds          ids of items to aggregate
+     * @return map with aggregation info and aggregation value, or null if the aggregations cannot be calculated
+     * in the database
+     */
+    @Nullable
+    protected Map<AggregationInfo, Object> aggregateInDatabase(List<AggregationInfo> aggregationInfos,
+                                                               Collection<K> itemIds) {
+        return null;
+    }
+
+    protected boolean isParallelAggregation(Collection<K> itemIds) {
+        Configuration configuration = AppBeans.get(Configuration.NAME);
+        int threshold = configuration.getConfig(ClientConfig.class).getAggregationParallelThreshold();
+        return threshold > 0 && itemIds.size() >= threshold;
+    }
+
+    public String formatAggregationValue(AggregationInfo aggregationInfo, Object value) {
+        String formattedValue;
+        if (aggregationInfo.getFormatter() != null) {
+            formattedValue = aggregationInfo.getFormatter().apply(value);
+        } else {
+            // propertyPath could be null in case of custom aggregation
+            MetaPropertyPath propertyPath = aggregationInfo.getPropertyPath();
+
+            Range range = propertyPath != null ? propertyPath.getRange() : null;
+            if (range != null && range.isDatatype()) {
+                if (aggregationInfo.getType() != AggregationInfo.Type.COUNT) {
+                    Class resultClass;
+                    if (aggregationInfo.getStrategy() == null) {
+                        Class rangeJavaClass = propertyPath.getRangeJavaClass();
+                        Aggregation aggregation = Aggregations.get(rangeJavaClass);
+                        resultClass = aggregation.getResultClass();
                     } else {
-                        formattedValue = value.toString();
+                        resultClass = aggregationInfo.getStrategy().getResultClass();
                     }
+
+                    UserSessionSource userSessionSource = AppBeans.get(UserSessionSource.NAME);
+                    Locale locale = userSessionSource.getLocale();
+                    formattedValue = Datatypes.getNN(resultClass).format(value, locale);
                 } else {
-                    if (aggregationInfo.getStrategy() != null) {
-                        Class resultClass = aggregationInfo.getStrategy().getResultClass();
+                    formattedValue = value.toString();
+                }
+            } else {
+                if (aggregationInfo.getStrategy() != null) {
+                    Class resultClass = aggregationInfo.getStrategy().getResultClass();
 
-                        UserSessionSource userSessionSource = AppBeans.get(UserSessionSource.NAME);
-                        Locale locale = userSessionSource.getLocale();
-                        formattedValue = Datatypes.getNN(resultClass).format(value, locale);
-                    } else {
-                        formattedValue = value.toString();
-                    }
+                    UserSessionSource userSessionSource = AppBeans.get(UserSessionSource.NAME);
+                    Locale locale = userSessionSource.getLocale();
+                    formattedValue = Datatypes.getNN(resultClass).format(value, locale);
+                } else {
+                    formattedValue = value.toString();
                 }
             }
-
-            aggregationResults.put(aggregationInfo, formattedValue);
         }
-        return aggregationResults;
+
+        return formattedValue;
     }
 
     public Map<AggregationInfo, Object> aggregateValues(AggregationInfo[] aggregationInfos, Collection<K> itemIds) {
@@ -91,14 +157,7 @@ public abstract class AggregatableDelegate<K> {
             throw new NullPointerException("Aggregation must be executed at least by one field");
         }
 
-        Map<AggregationInfo, Object> aggregationResults = new HashMap<>();
-
-        for (AggregationInfo aggregationInfo : aggregationInfos) {
-            Object value = doPropertyAggregation(aggregationInfo, itemIds);
-            aggregationResults.put(aggregationInfo, value);
-        }
-
-        return aggregationResults;
+        return doAggregationValues(itemIds, aggregationInfos);
     }
 
     @SuppressWarnings("unchecked")
@@ -0,0 +1,630 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.gui.export;
+
+import com.haulmont.chile.core.datatypes.Datatype;
+import com.haulmont.chile.core.datatypes.Datatypes;
+import com.haulmont.chile.core.datatypes.TimeZoneAwareDatatype;
+import com.haulmont.chile.core.datatypes.impl.EnumClass;
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaProperty;
+import com.haulmont.chile.core.model.MetaPropertyPath;
+import com.haulmont.chile.core.model.utils.InstanceUtils;
+import com.haulmont.cuba.client.ClientConfig;
+import com.haulmont.cuba.core.app.keyvalue.KeyValueMetaClass;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.IdProxy;
+import com.haulmont.cuba.core.entity.KeyValueEntity;
+import com.haulmont.cuba.core.entity.annotation.IgnoreUserTimeZone;
+import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.gui.ComponentsHelper;
+import com.haulmont.cuba.gui.components.DataGrid;
+import com.haulmont.cuba.gui.components.Table;
+import com.haulmont.cuba.gui.components.data.DataGridItems;
+import com.haulmont.cuba.gui.components.data.DataUnit;
+import com.haulmont.cuba.gui.components.data.TableItems;
+import com.haulmont.cuba.gui.components.data.meta.ContainerDataUnit;
+import com.haulmont.cuba.gui.components.data.meta.EntityDataUnit;
+import com.haulmont.cuba.gui.executors.BackgroundTask;
+import com.haulmont.cuba.gui.executors.BackgroundTaskHandler;
+import com.haulmont.cuba.gui.executors.BackgroundWorker;
+import com.haulmont.cuba.gui.executors.TaskLifeCycle;
+import com.haulmont.cuba.gui.model.*;
+import com.haulmont.cuba.gui.model.impl.KeyValueContainerImpl;
+import com.haulmont.cuba.gui.screen.Screen;
+import com.haulmont.cuba.gui.upload.FileUploadingAPI;
+import org.apache.commons.lang3.StringUtils;
+import org.dom4j.Element;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Use this class to export {@link Table} or {@link DataGrid} into a CSV file without keeping the whole document in
+ * memory. The file is written row by row to a temporary file in a background task and shown by {@link ExportDisplay}
+ * when the task is completed, so the number of exported rows is not limited by {@link ExcelExporter#MAX_ROW_COUNT}.
+ * <p>
+ * If the items of the component are loaded by a {@link CollectionLoader}, all entities of the loader's query are
+ * exported regardless of the loader's first and max results: they are loaded by
+ * {@link DataManager#forEachChunk(LoadContext, int, Consumer)} with {@link ClientConfig#getExportPageSize()} entities
+ * per page, and each page is discarded after it is written. The primary key is appended to the loader's sort, or used
+ * as the sort order if the query defines none, so that pages do not overlap. Otherwise the items of the component are
+ * exported.
+ * <p>
+ * Cell values are obtained in the background thread: printables, formatters, value providers and column generators
+ * of exported columns are invoked outside of the UI thread, concurrently with the user's actions in the UI. They
+ * must not access UI components or the screen's data containers, and must be safe to call from another thread.
+ * <p>
+ * The file is written to the temporary directory of {@link FileUploadingAPI}, the result of the background task is
+ * its id. The file can be downloaded many times while the screen of the exported component is open, and it is
+ * deleted when the screen is closed.
+ * <p>
+ * The background task publishes the number of written rows, listeners added by
+ * {@link #addProgressListener(BackgroundTask.ProgressListener)} receive it.
+ */
+public class CsvExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(CsvExporter.class);
+
+    protected static final char SEPARATOR = ',';
+    protected static final char QUOTE = '"';
+    protected static final String LINE_SEPARATOR = "\r\n";
+    protected static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    protected final Messages messages;
+    protected final UserSessionSource userSessionSource;
+    protected final MetadataTools metadataTools;
+    protected final DataManager dataManager;
+    protected final BackgroundWorker backgroundWorker;
+    protected final FileUploadingAPI fileUploading;
+    protected final QueryTransformerFactory queryTransformerFactory;
+
+    protected String trueStr;
+    protected String falseStr;
+
+    protected int pageSize;
+    protected long timeoutSeconds;
+
+    protected List<BackgroundTask.ProgressListener<Long, UUID>> progressListeners = new ArrayList<>();
+
+    public CsvExporter() {
+        messages = AppBeans.get(Messages.NAME);
+        userSessionSource = AppBeans.get(UserSessionSource.NAME);
+        metadataTools = AppBeans.get(MetadataTools.NAME);
+        dataManager = AppBeans.get(DataManager.NAME);
+        backgroundWorker = AppBeans.get(BackgroundWorker.NAME);
+        fileUploading = AppBeans.get(FileUploadingAPI.NAME);
+        queryTransformerFactory = AppBeans.get(QueryTransformerFactory.NAME);
+
+        Configuration configuration = AppBeans.get(Configuration.NAME);
+        ClientConfig clientConfig = configuration.getConfig(ClientConfig.class);
+        pageSize = clientConfig.getExportPageSize();
+        timeoutSeconds = clientConfig.getExportTimeoutSec();
+
+        trueStr = messages.getMessage(ExcelExporter.class, "excelExporter.true");
+        falseStr = messages.getMessage(ExcelExporter.class, "excelExporter.false");
+    }
+
+    public BackgroundTaskHandler<UUID> exportTable(Table<Entity> table, List<Table.Column> columns,
+                                                   ExportDisplay display) {
+        return exportTable(table, columns, display, null);
+    }
+
+    /**
+     * Starts export of the table in a background task.
+     *
+     * @param table    table
+     * @param columns  exported columns
+     * @param display  display used to show the file when it is written
+     * @param fileName file name without extension, the entity caption is used if null
+     * @return handler of the started task
+     */
+    public BackgroundTaskHandler<UUID> exportTable(Table<Entity> table, List<Table.Column> columns,
+                                                   ExportDisplay display, @Nullable String fileName) {
+        if (display == null) {
+            throw new IllegalArgumentException("ExportDisplay is null");
+        }
+
+        List<ExportColumn> exportColumns = new ArrayList<>(columns.size());
+        for (Table.Column column : columns) {
+            exportColumns.add(createTableColumn(table, column));
+        }
+
+        Screen screen = ComponentsHelper.getWindowNN(table).getFrameOwner();
+        return export(table.getItems(), exportColumns, display, fileName, screen);
+    }
+
+    public BackgroundTaskHandler<UUID> exportDataGrid(DataGrid<Entity> dataGrid, List<DataGrid.Column> columns,
+                                                      ExportDisplay display) {
+        return exportDataGrid(dataGrid, columns, display, null);
+    }
+
+    /**
+     * Starts export of the data grid in a background task.
+     *
+     * @param dataGrid data grid
+     * @param columns  exported columns
+     * @param display  display used to show the file when it is written
+     * @param fileName file name without extension, the entity caption is used if null
+     * @return handler of the started task
+     */
+    public BackgroundTaskHandler<UUID> exportDataGrid(DataGrid<Entity> dataGrid, List<DataGrid.Column> columns,
+                                                      ExportDisplay display, @Nullable String fileName) {
+        if (display == null) {
+            throw new IllegalArgumentException("ExportDisplay is null");
+        }
+
+        List<ExportColumn> exportColumns = new ArrayList<>(columns.size());
+        for (DataGrid.Column<Entity> column : columns) {
+            exportColumns.add(createDataGridColumn(dataGrid, column));
+        }
+
+        Screen screen = ComponentsHelper.getWindowNN(dataGrid).getFrameOwner();
+        return export(dataGrid.getItems(), exportColumns, display, fileName, screen);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected ExportColumn createTableColumn(Table<Entity> table, Table.Column<Entity> column) {
+        Table.Printable printable = table.getPrintable(column);
+        if (column.getId() instanceof MetaPropertyPath) {
+            MetaPropertyPath propertyPath = (MetaPropertyPath) column.getId();
+            if (printable != null) {
+                return new ExportColumn(column.getCaption(), propertyPath, printable::getValue);
+            }
+
+            String path = propertyPath.toPathString();
+            Element xmlDescriptor = column.getXmlDescriptor();
+            if (xmlDescriptor != null && StringUtils.isNotEmpty(xmlDescriptor.attributeValue("captionProperty"))) {
+                path = xmlDescriptor.attributeValue("captionProperty");
+            }
+            String valuePath = path;
+            Function<Object, String> formatter = column.getFormatter();
+            return new ExportColumn(column.getCaption(), propertyPath, item -> {
+                Object value = InstanceUtils.getValueEx(item, valuePath);
+                return formatter != null ? formatter.apply(value) : value;
+            });
+        }
+
+        if (printable != null) {
+            return new ExportColumn(column.getCaption(), null, printable::getValue);
+        }
+        Function<Entity, Object> valueProvider = column.getValueProvider();
+        return new ExportColumn(column.getCaption(), null, valueProvider != null ? valueProvider : item -> null);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected ExportColumn createDataGridColumn(DataGrid<Entity> dataGrid, DataGrid.Column<Entity> column) {
+        MetaPropertyPath propertyPath = column.getPropertyPath();
+        if (propertyPath != null) {
+            String path = propertyPath.toPathString();
+            Function formatter = column.getFormatter();
+            return new ExportColumn(column.getCaption(), propertyPath, item -> {
+                Object value = InstanceUtils.getValueEx(item, path);
+                return formatter != null ? formatter.apply(value) : value;
+            });
+        }
+
+        DataGrid.ColumnGenerator<Entity, ?> generator = dataGrid.getColumnGenerator(column.getId());
+        if (generator != null) {
+            return new ExportColumn(column.getCaption(), null, item -> {
+                DataGrid.ColumnGeneratorEvent<Entity> event = new DataGrid.ColumnGeneratorEvent<>(dataGrid, item,
+                        column.getId(), this::createInstanceContainer);
+                Object value = generator.getValue(event);
+                return value == null && Boolean.class.equals(generator.getType()) ? false : value;
+            });
+        }
+        return new ExportColumn(column.getCaption(), null, item -> null);
+    }
+
+    /**
+     * Creates a container of an exported entity for {@link DataGrid.ColumnGeneratorEvent#getContainer()}.
+     */
+    @SuppressWarnings("unchecked")
+    protected InstanceContainer<Entity> createInstanceContainer(Entity entity) {
+        InstanceContainer<Entity> container;
+        if (entity instanceof KeyValueEntity) {
+            container = (InstanceContainer) new KeyValueContainerImpl((KeyValueMetaClass) entity.getMetaClass());
+        } else {
+            DataComponents dataComponents = AppBeans.get(DataComponents.class);
+            container = dataComponents.createInstanceContainer((Class<Entity>) entity.getClass());
+        }
+        container.setItem(entity);
+        return container;
+    }
+
+    protected BackgroundTaskHandler<UUID> export(DataUnit items, List<ExportColumn> columns, ExportDisplay display,
+                                                 @Nullable String fileName, @Nullable Screen screen) {
+        String name = fileName;
+        if (name == null && items instanceof EntityDataUnit) {
+            name = messages.getTools().getEntityCaption(((EntityDataUnit) items).getEntityMetaClass());
+        }
+        String exportFileName = (name != null ? name : "export") + "." + ExportFormat.CSV.getFileExt();
+
+        RowSource rowSource = createRowSource(items);
+
+        BackgroundTask<Long, UUID> task = new BackgroundTask<Long, UUID>(timeoutSeconds, screen) {
+            @Override
+            public UUID run(TaskLifeCycle<Long> taskLifeCycle) throws Exception {
+                return writeFile(rowSource, columns, taskLifeCycle);
+            }
+
+            @Override
+            public void done(UUID result) {
+                if (result != null) {
+                    TempFileDataProvider dataProvider = new TempFileDataProvider(result);
+                    try {
+                        display.show(dataProvider, exportFileName, ExportFormat.CSV);
+                    } catch (RuntimeException e) {
+                        dataProvider.deleteFile();
+                        throw e;
+                    }
+                    if (screen != null) {
+                        screen.addAfterCloseListener(event -> dataProvider.deleteFile());
+                    }
+                }
+            }
+        };
+        for (BackgroundTask.ProgressListener<Long, UUID> listener : progressListeners) {
+            task.addProgressListener(listener);
+        }
+
+        BackgroundTaskHandler<UUID> handler = backgroundWorker.handle(task);
+        handler.execute();
+        return handler;
+    }
+
+    /**
+     * Creates the source of exported entities. Must be invoked in UI thread, the returned source is used in the
+     * background task.
+     */
+    @SuppressWarnings("unchecked")
+    protected RowSource createRowSource(DataUnit items) {
+        if (items instanceof ContainerDataUnit) {
+            CollectionContainer<Entity> container = ((ContainerDataUnit<Entity>) items).getContainer();
+            if (container instanceof HasLoader) {
+                DataLoader loader = ((HasLoader) container).getLoader();
+                if (loader instanceof CollectionLoader
+                        && ((CollectionLoader) loader).getLoadDelegate() == null) {
+                    return new LoaderRowSource(createLoadContext((CollectionLoader<Entity>) loader));
+                }
+            }
+            return new ItemsRowSource(new ArrayList<>(container.getItems()));
+        }
+        if (items instanceof TableItems) {
+            TableItems<Entity> tableItems = (TableItems<Entity>) items;
+            List<Entity> entities = new ArrayList<>();
+            for (Object itemId : tableItems.getItemIds()) {
+                entities.add(tableItems.getItem(itemId));
+            }
+            return new ItemsRowSource(entities);
+        }
+        if (items instanceof DataGridItems) {
+            return new ItemsRowSource(((DataGridItems<Entity>) items).getItems()
+                    .collect(Collectors.toList()));
+        }
+        throw new IllegalArgumentException("Unsupported items: " + items);
+    }
+
+    /**
+     * Creates a load context of all entities of the loader's query, sorted so that they can be loaded page by page.
+     */
+    protected LoadContext<Entity> createLoadContext(CollectionLoader<Entity> loader) {
+        LoadContext<Entity> loadContext = loader.createLoadContext();
+        LoadContext.Query query = loadContext.getQuery();
+        query.setFirstResult(0);
+        query.setMaxResults(0);
+
+        MetaClass metaClass = loader.getContainer().getEntityMetaClass();
+        String pkName = metadataTools.getPrimaryKeyName(metaClass);
+        if (pkName == null || metadataTools.hasCompositePrimaryKey(metaClass)) {
+            return loadContext;
+        }
+
+        Sort sort = query.getSort();
+        if (sort != null && !sort.getOrders().isEmpty()) {
+            if (sort.getOrders().stream().noneMatch(order -> pkName.equals(order.getProperty()))) {
+                List<Sort.Order> orders = new ArrayList<>(sort.getOrders());
+                orders.add(Sort.Order.asc(pkName));
+                query.setSort(Sort.by(orders));
+            }
+        } else {
+            QueryTransformer transformer = queryTransformerFactory.transformer(query.getQueryString());
+            transformer.addOrderByIdIfNotExists(pkName);
+            query.setQueryString(transformer.getResult());
+        }
+        return loadContext;
+    }
+
+    /**
+     * Writes the exported entities to a new temporary file of {@link FileUploadingAPI}.
+     *
+     * @return id of the written file, or null if the task has been interrupted
+     */
+    @Nullable
+    protected UUID writeFile(RowSource rowSource, List<ExportColumn> columns,
+                             TaskLifeCycle<Long> taskLifeCycle) throws IOException, FileStorageException {
+        UUID fileId = fileUploading.createEmptyFile();
+        File file = fileUploading.getFile(fileId);
+
+        boolean completed = false;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file),
+                StandardCharsets.UTF_8))) {
+            writer.write(BYTE_ORDER_MARK);
+
+            List<String> captions = new ArrayList<>(columns.size());
+            for (ExportColumn column : columns) {
+                captions.add(column.caption);
+            }
+            writeLine(writer, captions);
+
+            Locale locale = userSessionSource.getLocale();
+            TimeZone timeZone = userSessionSource.getUserSession().getTimeZone();
+
+            long[] rowCount = {0};
+            List<String> values = new ArrayList<>(columns.size());
+            try {
+                rowSource.forEachPage(page -> {
+                    if (taskLifeCycle.isInterrupted()) {
+                        throw new ExportInterruptedException();
+                    }
+                    try {
+                        for (Entity item : page) {
+                            values.clear();
+                            for (ExportColumn column : columns) {
+                                values.add(formatValue(column.valueProvider.apply(item), column.propertyPath,
+                                        locale, timeZone));
+                            }
+                            writeLine(writer, values);
+                        }
+                        rowCount[0] += page.size();
+                        taskLifeCycle.publish(rowCount[0]);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new ExportInterruptedException();
+                    }
+                });
+            } catch (ExportInterruptedException e) {
+                return null;
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            log.debug("Exported {} rows to {}", rowCount[0], file.getAbsolutePath());
+            completed = true;
+            return fileId;
+        } finally {
+            if (!completed) {
+                fileUploading.deleteFile(fileId);
+            }
+        }
+    }
+
+    protected void writeLine(Writer writer, List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(SEPARATOR);
+            }
+            writeValue(writer, values.get(i));
+        }
+        writer.write(LINE_SEPARATOR);
+    }
+
+    protected void writeValue(Writer writer, String value) throws IOException {
+        if (StringUtils.containsAny(value, SEPARATOR, QUOTE, '\r', '\n')) {
+            writer.write(QUOTE);
+            writer.write(StringUtils.replace(value, String.valueOf(QUOTE), String.valueOf(QUOTE) + QUOTE));
+            writer.write(QUOTE);
+        } else {
+            writer.write(value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    protected String formatValue(@Nullable Object value, @Nullable MetaPropertyPath propertyPath,
+                                 Locale locale, @Nullable TimeZone timeZone) {
+        if (value == null) {
+            if (propertyPath != null
+                    && propertyPath.getRange().isDatatype()
+                    && Boolean.class.equals(propertyPath.getRange().asDatatype().getJavaClass())) {
+                return falseStr;
+            }
+            return "";
+        }
+
+        if (value instanceof IdProxy) {
+            value = ((IdProxy) value).get();
+        }
+
+        if (value instanceof Boolean) {
+            return ((Boolean) value) ? trueStr : falseStr;
+        } else if (value instanceof EnumClass) {
+            String nameKey = value.getClass().getSimpleName() + "." + value.toString();
+            return messages.getMessage(value.getClass(), nameKey);
+        } else if (value instanceof Entity) {
+            return metadataTools.getInstanceName((Entity) value);
+        } else if (value instanceof Collection) {
+            return "";
+        } else if (value instanceof Number || value instanceof Date) {
+            Datatype datatype = null;
+            boolean supportTimezones = false;
+            if (propertyPath != null) {
+                MetaProperty metaProperty = propertyPath.getMetaProperty();
+                if (metaProperty.getRange().isDatatype()) {
+                    datatype = metaProperty.getRange().asDatatype();
+                }
+                Boolean ignoreUserTimeZone = metadataTools.getMetaAnnotationValue(metaProperty, IgnoreUserTimeZone.class);
+                supportTimezones = timeZone != null && !Boolean.TRUE.equals(ignoreUserTimeZone);
+            }
+            if (datatype == null || !datatype.getJavaClass().isInstance(value)) {
+                datatype = Datatypes.getNN(value.getClass());
+            }
+            if (supportTimezones && datatype instanceof TimeZoneAwareDatatype) {
+                return ((TimeZoneAwareDatatype) datatype).format(value, locale, timeZone);
+            }
+            return datatype.format(value, locale);
+        }
+        return value.toString();
+    }
+
+    /**
+     * @return number of entities loaded by one query
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * @return timeout of the background task in seconds
+     */
+    public long getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    public void setTimeoutSeconds(long timeoutSeconds) {
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    /**
+     * Adds a listener of the export task. The listener receives the number of written rows in
+     * {@link BackgroundTask.ProgressListener#onProgress(List)} and the id of the written file in
+     * {@link BackgroundTask.ProgressListener#onDone(Object)}.
+     */
+    public void addProgressListener(BackgroundTask.ProgressListener<Long, UUID> listener) {
+        progressListeners.add(listener);
+    }
+
+    public void removeProgressListener(BackgroundTask.ProgressListener<Long, UUID> listener) {
+        progressListeners.remove(listener);
+    }
+
+    /**
+     * Exported column. The value provider is invoked in the background task.
+     */
+    protected static class ExportColumn {
+
+        protected final String caption;
+        protected final MetaPropertyPath propertyPath;
+        protected final Function<Entity, Object> valueProvider;
+
+        public ExportColumn(@Nullable String caption, @Nullable MetaPropertyPath propertyPath,
+                            Function<Entity, Object> valueProvider) {
+            this.caption = caption != null ? caption : "";
+            this.propertyPath = propertyPath;
+            this.valueProvider = valueProvider;
+        }
+    }
+
+    /**
+     * Source of exported entities, read page by page in the background task.
+     */
+    protected interface RowSource {
+
+        /**
+         * Passes non-empty pages of entities to the action.
+         */
+        void forEachPage(Consumer<List<Entity>> action);
+    }
+
+    /**
+     * Loads entities of a loader's query page by page.
+     */
+    protected class LoaderRowSource implements RowSource {
+
+        protected final LoadContext<Entity> loadContext;
+
+        public LoaderRowSource(LoadContext<Entity> loadContext) {
+            this.loadContext = loadContext;
+        }
+
+        @Override
+        public void forEachPage(Consumer<List<Entity>> action) {
+            dataManager.forEachChunk(loadContext, pageSize, action);
+        }
+    }
+
+    /**
+     * Returns items which are already in memory as a single page.
+     */
+    protected static class ItemsRowSource implements RowSource {
+
+        protected final List<Entity> items;
+
+        public ItemsRowSource(List<Entity> items) {
+            this.items = items;
+        }
+
+        @Override
+        public void forEachPage(Consumer<List<Entity>> action) {
+            if (!items.isEmpty()) {
+                action.accept(items);
+            }
+        }
+    }
+
+    /**
+     * Thrown from a page action to stop the export when the background task is interrupted.
+     */
+    protected static class ExportInterruptedException extends RuntimeException {
+    }
+
+    /**
+     * Provides content of a temporary file written by the exporter. The content can be read many times until the file
+     * is deleted by {@link #deleteFile()}.
+     */
+    protected class TempFileDataProvider implements ExportDataProvider {
+
+        protected final UUID fileId;
+
+        public TempFileDataProvider(UUID fileId) {
+            this.fileId = fileId;
+        }
+
+        @Override
+        public InputStream provide() {
+            File file = fileUploading.getFile(fileId);
+            if (file == null) {
+                throw new IllegalStateException("Exported file " + fileId + " has been deleted");
+            }
+            try {
+                return new FileInputStream(file);
+            } catch (FileNotFoundException e) {
+                throw new RuntimeException("Unable to read exported file " + file.getAbsolutePath(), e);
+            }
+        }
+
+        public void deleteFile() {
+            try {
+                fileUploading.deleteFile(fileId);
+            } catch (FileStorageException e) {
+                log.warn("Could not delete exported file {}", fileId, e);
+            }
+        }
+    }
+}
@@ -78,6 +78,19 @@ public interface CollectionContainer<E extends Entity> extends InstanceContainer
      */
     void replaceItem(E entity);
 
+    /**
+     * Applies incremental changes to the items list: removes entities with the given ids, replaces entities having
+     * the same ids as the given changed instances and adds the rest of changed instances to the end of the list.
+     * Other entities are left untouched.
+     * <p>
+     * Sends {@link CollectionChangeEvent} of the {@code REMOVE_ITEMS}, {@code SET_ITEM} and {@code ADD_ITEMS} types
+     * instead of {@code REFRESH}.
+     *
+     * @param changed    new or changed entities
+     * @param removedIds ids of entities to remove
+     */
+    void updateItems(Collection<E> changed, Collection<?> removedIds);
+
     /**
      * Returns sorter object currently set for the container.
      */
@@ -70,6 +70,26 @@ public interface CollectionLoader<E extends Entity> extends BaseCollectionLoader
      */
     void setCacheable(boolean cacheable);
 
+    /**
+     * Returns true if repeated loading with the same query fetches only entities changed since the previous load.
+     */
+    boolean isDeltaLoad();
+
+    /**
+     * Set to true to fetch only entities changed since the previous load when the loader is invoked repeatedly with
+     * the same query, parameters and condition. Entities are considered changed by their {@code updateTs} and
+     * {@code version} attributes, deleted entities are detected by a query of identifiers. Entities updated not earlier
+     * than {@code cuba.gui.deltaLoadSafetyWindowSec} before the latest loaded {@code updateTs} are read again, so that
+     * late commits are not missed, and skipped if not changed. The changes are applied to
+     * the container by {@link CollectionContainer#updateItems(java.util.Collection, java.util.Collection)}, so unchanged entities are
+     * left untouched.
+     * <p>
+     * Works only for {@code Updatable} entities loaded without a load delegate and without paging, otherwise all
+     * entities are reloaded. New entities are added to the end of the container.
+     * {@link PostLoadEvent#getLoadedEntities()} returns all items of the container after a delta load.
+     */
+    void setDeltaLoad(boolean deltaLoad);
+
     /**
      * Returns the view which is used when loading.
      */
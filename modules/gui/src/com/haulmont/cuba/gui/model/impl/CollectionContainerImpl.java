@@ -156,6 +156,61 @@ public class CollectionContainerImpl<E extends Entity>
         fireCollectionChanged(changeType, Collections.singletonList(entity));
     }
 
+    @Override
+    public void updateItems(Collection<E> changed, Collection<?> removedIds) {
+        checkNotNullArgument(changed, "changed is null");
+        checkNotNullArgument(removedIds, "removedIds is null");
+
+        List<E> removed = new ArrayList<>();
+        if (!removedIds.isEmpty()) {
+            Set<Object> ids = new HashSet<>(removedIds);
+            for (Iterator<E> it = collection.iterator(); it.hasNext(); ) {
+                E entity = it.next();
+                if (ids.contains(entity.getId())) {
+                    detachListener(entity);
+                    it.remove();
+                    removed.add(entity);
+                }
+            }
+            if (!removed.isEmpty()) {
+                buildIdMap();
+            }
+        }
+
+        List<E> replaced = new ArrayList<>();
+        List<E> added = new ArrayList<>();
+        for (E entity : changed) {
+            int idx = getItemIndex(entity.getId());
+            if (idx > -1) {
+                E prev = collection.get(idx);
+                // an instance merged into DataContext is updated in place and keeps its listener
+                if (prev != entity) {
+                    detachListener(prev);
+                    collection.set(idx, entity);
+                    attachListener(entity);
+                }
+                replaced.add(entity);
+            } else {
+                idMap.put(entity.getId(), collection.size());
+                collection.add(entity);
+                attachListener(entity);
+                added.add(entity);
+            }
+        }
+
+        clearItemIfNotExists();
+
+        if (!removed.isEmpty()) {
+            fireCollectionChanged(CollectionChangeType.REMOVE_ITEMS, removed);
+        }
+        for (E entity : replaced) {
+            fireCollectionChanged(CollectionChangeType.SET_ITEM, Collections.singletonList(entity));
+        }
+        if (!added.isEmpty()) {
+            fireCollectionChanged(CollectionChangeType.ADD_ITEMS, added);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public Subscription addCollectionChangeListener(Consumer<CollectionChangeEvent<E>> listener) {
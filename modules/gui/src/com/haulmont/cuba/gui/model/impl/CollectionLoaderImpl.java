@@ -18,9 +18,13 @@ package com.haulmont.cuba.gui.model.impl;
 
 import com.haulmont.bali.events.EventHub;
 import com.haulmont.bali.events.Subscription;
-import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.cuba.client.ClientConfig;
+import com.haulmont.cuba.core.entity.*;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.global.queryconditions.Condition;
+import com.haulmont.cuba.core.global.queryconditions.JpqlCondition;
+import com.haulmont.cuba.core.global.queryconditions.LogicalCondition;
 import com.haulmont.cuba.gui.model.*;
 import org.springframework.context.ApplicationContext;
 
@@ -34,6 +38,8 @@ import java.util.function.Function;
  */
 public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<E>, LoaderSupportsApplyToSelected {
 
+    protected static final String DELTA_UPDATE_TS_PARAM = "cuba_deltaUpdateTs";
+
     private ApplicationContext applicationContext;
 
     protected DataContext dataContext;
@@ -53,6 +59,9 @@ public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<
     protected LoadContext.Query lastQuery;
     protected List<LoadContext.Query> prevQueries;
     protected Integer queryKey;
+    protected boolean deltaLoad;
+    protected LoadContext<E> deltaLoadContext;
+    protected Date deltaTimestamp;
 
     protected EventHub events = new EventHub();
 
@@ -76,6 +85,18 @@ public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<
         return applicationContext.getBean(QueryStringProcessor.NAME, QueryStringProcessor.class);
     }
 
+    protected MetadataTools getMetadataTools() {
+        return applicationContext.getBean(MetadataTools.NAME, MetadataTools.class);
+    }
+
+    protected QueryTransformerFactory getQueryTransformerFactory() {
+        return applicationContext.getBean(QueryTransformerFactory.NAME, QueryTransformerFactory.class);
+    }
+
+    protected Configuration getConfiguration() {
+        return applicationContext.getBean(Configuration.NAME, Configuration.class);
+    }
+
     @Nullable
     @Override
     public DataContext getDataContext() {
@@ -102,6 +123,11 @@ public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<
 
         lastQuery = loadContext.getQuery();
 
+        if (isDeltaLoadApplicable(loadContext)) {
+            loadDelta(loadContext);
+            return;
+        }
+
         List<E> list;
         if (delegate == null) {
             list = getDataManager().loadList(loadContext);
@@ -119,9 +145,178 @@ public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<
             container.setItems(list);
         }
 
+        updateDeltaState(loadContext, list);
+
         sendPostLoadEvent(list);
     }
 
+    protected boolean isDeltaLoadApplicable(LoadContext<E> loadContext) {
+        return deltaLoad
+                && delegate == null
+                && deltaTimestamp != null
+                && deltaLoadContext != null
+                && isSameLoad(deltaLoadContext, loadContext);
+    }
+
+    protected boolean isSameLoad(LoadContext<E> prevContext, LoadContext<E> loadContext) {
+        LoadContext.Query prevQuery = prevContext.getQuery();
+        LoadContext.Query query = loadContext.getQuery();
+        return prevQuery.equals(query)
+                && Objects.equals(prevQuery.getCondition(), query.getCondition())
+                && Objects.equals(prevQuery.getSort(), query.getSort())
+                && Objects.equals(prevContext.getView(), loadContext.getView())
+                && prevContext.isSoftDeletion() == loadContext.isSoftDeletion()
+                && prevContext.isLoadDynamicAttributes() == loadContext.isLoadDynamicAttributes();
+    }
+
+    /**
+     * Remembers the load context and the latest {@code updateTs} of loaded entities for the next delta load.
+     */
+    protected void updateDeltaState(LoadContext<E> loadContext, Collection<E> entities) {
+        deltaLoadContext = null;
+        deltaTimestamp = null;
+
+        LoadContext.Query query = loadContext.getQuery();
+        if (!deltaLoad
+                || delegate != null
+                || query.getFirstResult() > 0
+                || query.getMaxResults() > 0
+                || !Updatable.class.isAssignableFrom(container.getEntityMetaClass().getJavaClass())) {
+            return;
+        }
+
+        deltaLoadContext = loadContext;
+        deltaTimestamp = getLatestUpdateTs(entities, null);
+    }
+
+    /**
+     * Loads entities updated since the previous load and identifiers of all entities of the query, and applies
+     * the difference to the container. Entities of the query that are neither in the container nor updated, for
+     * example matching the query because of changed references, are loaded by their identifiers.
+     */
+    @SuppressWarnings("unchecked")
+    protected void loadDelta(LoadContext<E> loadContext) {
+        LoadContext<E> changedContext = (LoadContext<E>) loadContext.copy();
+        LoadContext.Query changedQuery = changedContext.getQuery();
+        // entities updated within the safety window are loaded again and skipped if not changed
+        Condition deltaCondition = new JpqlCondition(
+                QueryTransformer.ALIAS_PLACEHOLDER + ".updateTs >= :" + DELTA_UPDATE_TS_PARAM);
+        if (changedQuery.getCondition() != null) {
+            deltaCondition = LogicalCondition.and()
+                    .add(changedQuery.getCondition())
+                    .add(deltaCondition);
+        }
+        changedQuery.setCondition(deltaCondition);
+        changedQuery.setParameter(DELTA_UPDATE_TS_PARAM, getDeltaLoadSince());
+
+        List<E> changed = getDataManager().loadList(changedContext);
+        Set<Object> ids = loadIds(loadContext);
+
+        Set<Object> missingIds = new HashSet<>(ids);
+        for (E entity : container.getItems()) {
+            missingIds.remove(getIdValue(entity));
+        }
+        for (E entity : changed) {
+            missingIds.remove(getIdValue(entity));
+        }
+        if (!missingIds.isEmpty()) {
+            changed = new ArrayList<>(changed);
+            changed.addAll(loadByIds(loadContext, missingIds));
+        }
+
+        List<E> updated = new ArrayList<>(changed.size());
+        for (E entity : changed) {
+            E existing = container.getItemOrNull(entity.getId());
+            if (existing == null || isChanged(existing, entity)) {
+                updated.add(dataContext != null ? dataContext.merge(entity) : entity);
+            }
+        }
+
+        List<Object> removedIds = new ArrayList<>();
+        for (E entity : container.getItems()) {
+            if (!ids.contains(getIdValue(entity))) {
+                removedIds.add(entity.getId());
+            }
+        }
+
+        if (!updated.isEmpty() || !removedIds.isEmpty()) {
+            container.updateItems(updated, removedIds);
+        }
+
+        deltaLoadContext = loadContext;
+        deltaTimestamp = getLatestUpdateTs(changed, deltaTimestamp);
+
+        sendPostLoadEvent(new ArrayList<>(container.getItems()));
+    }
+
+    /**
+     * @return the latest {@code updateTs} of loaded entities minus {@link ClientConfig#getDeltaLoadSafetyWindowSec()},
+     * so that entities committed later with an earlier {@code updateTs} are not missed
+     */
+    protected Date getDeltaLoadSince() {
+        int safetyWindowSec = getConfiguration().getConfig(ClientConfig.class).getDeltaLoadSafetyWindowSec();
+        return new Date(deltaTimestamp.getTime() - safetyWindowSec * 1000L);
+    }
+
+    protected Set<Object> loadIds(LoadContext<E> loadContext) {
+        MetaClass metaClass = container.getEntityMetaClass();
+        MetadataTools metadataTools = getMetadataTools();
+        String pkName = metadataTools.getPrimaryKeyName(metaClass);
+
+        LoadContext.Query query = loadContext.getQuery();
+        QueryTransformer transformer = getQueryTransformerFactory().transformer(query.getQueryString());
+        transformer.replaceWithSelectId(pkName);
+        transformer.removeOrderBy();
+
+        ValueLoadContext idsContext = ValueLoadContext.create()
+                .setStoreName(metadataTools.getStoreName(metaClass))
+                .setQuery(ValueLoadContext.createQuery(transformer.getResult())
+                        .setParameters(query.getParameters())
+                        .setCondition(query.getCondition()))
+                .setSoftDeletion(loadContext.isSoftDeletion())
+                .setProperties(Collections.singletonList(pkName));
+
+        Set<Object> ids = new HashSet<>();
+        for (KeyValueEntity row : getDataManager().loadValues(idsContext)) {
+            ids.add(row.getValue(pkName));
+        }
+        return ids;
+    }
+
+    protected List<E> loadByIds(LoadContext<E> loadContext, Collection<Object> ids) {
+        Class<E> entityClass = container.getEntityMetaClass().getJavaClass();
+        LoadContext<E> idsContext = LoadContext.create(entityClass)
+                .setIds(ids)
+                .setView(loadContext.getView())
+                .setSoftDeletion(loadContext.isSoftDeletion())
+                .setLoadDynamicAttributes(loadContext.isLoadDynamicAttributes());
+        return getDataManager().loadList(idsContext);
+    }
+
+    protected boolean isChanged(E existing, E loaded) {
+        if (existing instanceof Versioned && ((Versioned) existing).getVersion() != null) {
+            return !Objects.equals(((Versioned) existing).getVersion(), ((Versioned) loaded).getVersion());
+        }
+        return !Objects.equals(((Updatable) existing).getUpdateTs(), ((Updatable) loaded).getUpdateTs());
+    }
+
+    protected Object getIdValue(E entity) {
+        Object id = entity.getId();
+        return id instanceof IdProxy ? ((IdProxy) id).get() : id;
+    }
+
+    @Nullable
+    protected Date getLatestUpdateTs(Collection<E> entities, @Nullable Date timestamp) {
+        Date result = timestamp;
+        for (E entity : entities) {
+            Date updateTs = ((Updatable) entity).getUpdateTs();
+            if (updateTs != null && (result == null || updateTs.after(result))) {
+                result = updateTs;
+            }
+        }
+        return result;
+    }
+
     @Override
     public LoadContext<E> createLoadContext() {
         Class<E> entityClass = container.getEntityMetaClass().getJavaClass();
@@ -290,6 +485,20 @@ public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<
         this.cacheable = cacheable;
     }
 
+    @Override
+    public boolean isDeltaLoad() {
+        return deltaLoad;
+    }
+
+    @Override
+    public void setDeltaLoad(boolean deltaLoad) {
+        this.deltaLoad = deltaLoad;
+        if (!deltaLoad) {
+            deltaLoadContext = null;
+            deltaTimestamp = null;
+        }
+    }
+
     @Override
     public View getView() {
         return view;
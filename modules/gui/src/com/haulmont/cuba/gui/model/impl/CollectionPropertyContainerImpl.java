@@ -84,6 +84,14 @@ public class CollectionPropertyContainerImpl<E extends Entity>
         }
     }
 
+    @Override
+    public void updateItems(Collection<E> changed, Collection<?> removedIds) {
+        super.updateItems(changed, removedIds);
+        if (master.getItemOrNull() != null) {
+            updateMaster();
+        }
+    }
+
     protected void updateMaster() {
         MetaProperty masterProperty = getMasterProperty();
         Collection masterCollection = master.getItem().getValue(masterProperty.getName());
@@ -81,6 +81,14 @@ public class KeyValueCollectionContainerImpl
         super.setItems(entities);
     }
 
+    @Override
+    public void updateItems(Collection<KeyValueEntity> changed, Collection<?> removedIds) {
+        for (KeyValueEntity entity : changed) {
+            updateEntityMetadata(entity);
+        }
+        super.updateItems(changed, removedIds);
+    }
+
     @Override
     public List<KeyValueEntity> getMutableItems() {
         return new ObservableList<>(collection, idMap, (changeType, changes) -> {
@@ -313,6 +313,7 @@ public class ScreenDataXmlLoader {
             loadFirstResult(element, loader);
             loadMaxResults(element, loader);
             loadCacheable(element, loader);
+            loadDeltaLoad(element, loader);
         }
 
         screenData.registerLoader(loaderId, loader);
@@ -480,6 +481,12 @@ public class ScreenDataXmlLoader {
             loader.setCacheable(Boolean.valueOf(cacheableVal));
     }
 
+    protected void loadDeltaLoad(Element element, CollectionLoader<Entity> loader) {
+        String deltaLoadVal = element.attributeValue("deltaLoad");
+        if (!Strings.isNullOrEmpty(deltaLoadVal))
+            loader.setDeltaLoad(Boolean.valueOf(deltaLoadVal));
+    }
+
     protected String getRequiredAttr(Element element, String attributeName) {
         String id = element.attributeValue(attributeName);
         if (id == null)
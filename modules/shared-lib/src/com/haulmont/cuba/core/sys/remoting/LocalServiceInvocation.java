@@ -17,8 +17,10 @@
 
 package com.haulmont.cuba.core.sys.remoting;
 
-import java.util.TimeZone;
-import java.util.UUID;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.*;
+import java.util.*;
 
 /**
  * INTERNAL.
@@ -26,7 +28,20 @@ import java.util.UUID;
  * An object that is passed when invoking middleware services using {@link LocalServiceInvoker}.
  */
 public class LocalServiceInvocation {
+
+    /**
+     * Immutable value types loaded by the bootstrap class loader, so their instances can be passed between
+     * the client and middleware class loaders without serialization.
+     */
+    private static final Set<Class<?>> IMMUTABLE_VALUE_TYPES = new HashSet<>(Arrays.asList(
+            String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+            Float.class, Double.class, BigDecimal.class, BigInteger.class, UUID.class,
+            LocalDate.class, LocalTime.class, LocalDateTime.class, OffsetTime.class, OffsetDateTime.class,
+            ZonedDateTime.class, Instant.class, Duration.class, Period.class
+    ));
+
     private String methodName;
+    private String methodSignature;
     private String[] parameterTypeNames;
     private byte[][] argumentsData;
     private Object[] notSerializableArguments;
@@ -107,4 +122,22 @@ public class LocalServiceInvocation {
     public void setResultBypassSerialization(boolean resultBypassSerialization) {
         this.resultBypassSerialization = resultBypassSerialization;
     }
-}
\ No newline at end of file
+
+    /**
+     * @return method name and parameter type names, used by the invoker to cache resolved methods. Can be null.
+     */
+    public String getMethodSignature() {
+        return methodSignature;
+    }
+
+    public void setMethodSignature(String methodSignature) {
+        this.methodSignature = methodSignature;
+    }
+
+    /**
+     * @return true if the value is an instance of an immutable JDK type and can be passed by reference
+     */
+    public static boolean canPassByReference(Object value) {
+        return value != null && IMMUTABLE_VALUE_TYPES.contains(value.getClass());
+    }
+}
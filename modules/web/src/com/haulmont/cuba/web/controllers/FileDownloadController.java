@@ -25,10 +25,10 @@ import com.haulmont.cuba.core.global.FileTypesHelper;
 import com.haulmont.cuba.core.global.LoadContext;
 import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.SecurityContext;
+import com.haulmont.cuba.core.sys.servlet.HttpRanges;
 import com.haulmont.cuba.security.app.UserSessionService;
 import com.haulmont.cuba.security.global.NoUserSessionException;
 import com.haulmont.cuba.security.global.UserSession;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpHeaders;
 import org.slf4j.Logger;
@@ -102,7 +102,12 @@ public class FileDownloadController {
             response.setHeader("Content-Disposition", (attach ? "attachment" : "inline")
                     + "; filename=" + fileName);
 
-            downloadFromMiddlewareAndWriteResponse(fd, response);
+            HttpRanges.Range range = HttpRanges.prepareResponse(request, response, HttpRanges.createETag(fd),
+                    fd.getCreateDate() != null ? fd.getCreateDate().getTime() : 0,
+                    fd.getSize() != null ? fd.getSize() : -1);
+            if (range != null) {
+                downloadFromMiddlewareAndWriteResponse(fd, response, range);
+            }
         } finally {
             AppContext.setSecurityContext(null);
         }
@@ -110,9 +115,14 @@ public class FileDownloadController {
     }
 
     protected void downloadFromMiddlewareAndWriteResponse(FileDescriptor fd, HttpServletResponse response) throws IOException {
+        downloadFromMiddlewareAndWriteResponse(fd, response, new HttpRanges.Range(0, -1));
+    }
+
+    protected void downloadFromMiddlewareAndWriteResponse(FileDescriptor fd, HttpServletResponse response,
+                                                          HttpRanges.Range range) throws IOException {
         ServletOutputStream os = response.getOutputStream();
         try (InputStream is = fileLoader.openStream(fd)) {
-            IOUtils.copy(is, os);
+            HttpRanges.copy(is, os, range);
             os.flush();
         } catch (FileStorageException e) {
             log.error("Unable to load file from middleware", e);
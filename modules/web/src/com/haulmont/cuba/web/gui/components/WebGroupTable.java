@@ -23,6 +23,7 @@ import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaPropertyPath;
 import com.haulmont.cuba.core.app.dynamicattributes.DynamicAttributesUtils;
 import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.gui.components.AggregationInfo;
 import com.haulmont.cuba.gui.components.GroupTable;
 import com.haulmont.cuba.gui.components.Table;
 import com.haulmont.cuba.gui.components.columnmanager.GroupColumnManager;
@@ -526,6 +527,57 @@ public class WebGroupTable<E extends Entity> extends WebAbstractTable<CubaGroupT
         return component.aggregateValues(new GroupAggregationContext(component, info));
     }
 
+    @Override
+    protected Map<Object, Object> __aggregateValues(AggregationContainer container, AggregationContainer.Context context) {
+        if (!isGroupAggregatable()) {
+            return super.__aggregateValues(container, context);
+        }
+
+        List<AggregationInfo> aggregationInfos = getAggregationInfos(container);
+
+        Map<AggregationInfo, Object> results = ((GroupTableItems.Aggregatable<E>) getItems()).aggregateGroupValues(
+                aggregationInfos.toArray(new AggregationInfo[0]),
+                getAggregationGroup(context)
+        );
+
+        return convertAggregationKeyMapToColumnIdKeyMap(container, results);
+    }
+
+    @Override
+    protected Map<Object, Object> __aggregate(AggregationContainer container, AggregationContainer.Context context) {
+        if (!isGroupAggregatable()) {
+            return super.__aggregate(container, context);
+        }
+
+        List<AggregationInfo> aggregationInfos = getAggregationInfos(container);
+
+        Map<AggregationInfo, String> results = ((GroupTableItems.Aggregatable<E>) getItems()).aggregateGroup(
+                aggregationInfos.toArray(new AggregationInfo[0]),
+                getAggregationGroup(context)
+        );
+
+        Map<Object, Object> resultsByColumns = convertAggregationKeyMapToColumnIdKeyMap(container, results);
+
+        if (aggregationCells != null) {
+            resultsByColumns = __handleAggregationResults(context, resultsByColumns);
+        }
+        return resultsByColumns;
+    }
+
+    protected boolean isGroupAggregatable() {
+        return getItems() instanceof GroupTableItems.Aggregatable
+                && ((GroupTableItems) getItems()).hasGroups();
+    }
+
+    @Nullable
+    protected GroupInfo getAggregationGroup(AggregationContainer.Context context) {
+        if (context instanceof GroupAggregationContext) {
+            Object groupId = ((GroupAggregationContext) context).getGroupId();
+            return groupId instanceof GroupInfo ? (GroupInfo) groupId : null;
+        }
+        return null;
+    }
+
     @Override
     public void selectAll() {
         if (isMultiSelect()) {
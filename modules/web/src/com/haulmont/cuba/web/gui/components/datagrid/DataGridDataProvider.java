@@ -83,9 +83,12 @@ public class DataGridDataProvider<T> extends AbstractDataProvider<T, Serializabl
         return dataGridItems.getItemId(item);
     }
 
+    /**
+     * @return false if the items are loaded on demand, see {@link DataGridItems.Lazy}
+     */
     @Override
     public boolean isInMemory() {
-        return true;
+        return !(dataGridItems instanceof DataGridItems.Lazy);
     }
 
     @Override
@@ -104,6 +107,10 @@ public class DataGridDataProvider<T> extends AbstractDataProvider<T, Serializabl
             return Stream.empty();
         }
 
+        if (dataGridItems instanceof DataGridItems.Lazy) {
+            return dataGridItems.getItems(query.getOffset(), query.getLimit()).stream();
+        }
+
         return dataGridItems.getItems()
                 .skip(query.getOffset())
                 .limit(query.getLimit());
@@ -32,7 +32,10 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * INTERNAL.
@@ -89,6 +92,8 @@ public class LocalServiceProxy extends RemoteAccessor implements FactoryBean<Obj
 
         private String serviceName;
 
+        private final Map<Method, MethodInfo> methods = new ConcurrentHashMap<>();
+
         public LocalServiceInvocationHandler(String serviceName) {
             this.serviceName = serviceName;
         }
@@ -105,12 +110,7 @@ public class LocalServiceProxy extends RemoteAccessor implements FactoryBean<Obj
                 throw new LocalServiceAccessException(String.format(
                         "Unable to connect to middleware. Service %s is not registered in LocalServiceDirectory", entryName));
 
-            Parameter[] parameters = method.getParameters();
-            Class<?>[] parameterTypes = method.getParameterTypes();
-            String[] parameterTypeNames = new String[parameterTypes.length];
-            for (int i = 0; i < parameterTypes.length; i++) {
-                parameterTypeNames[i] = parameterTypes[i].getName();
-            }
+            MethodInfo methodInfo = methods.computeIfAbsent(method, MethodInfo::new);
 
             byte[][] argumentsData;
             Object[] notSerializableArguments;
@@ -121,9 +121,8 @@ public class LocalServiceProxy extends RemoteAccessor implements FactoryBean<Obj
                 argumentsData = new byte[args.length][];
                 notSerializableArguments = new Object[args.length];
                 for (int i = 0; i < args.length; i++) {
-                    Parameter parameter = parameters[i];
                     Object arg = args[i];
-                    if (canBypassSerialization(parameter)) {
+                    if (methodInfo.parameterBypassSerialization[i] || LocalServiceInvocation.canPassByReference(arg)) {
                         notSerializableArguments[i] = args[i];
                         argumentsData[i] = null;
                     } else if (arg != null) {
@@ -138,7 +137,8 @@ public class LocalServiceProxy extends RemoteAccessor implements FactoryBean<Obj
             UUID sessionId = securityContext == null ? null : securityContext.getSessionId();
 
             LocalServiceInvocation invocation = new LocalServiceInvocation(
-                    method.getName(), parameterTypeNames, argumentsData, notSerializableArguments, sessionId);
+                    method.getName(), methodInfo.parameterTypeNames, argumentsData, notSerializableArguments, sessionId);
+            invocation.setMethodSignature(methodInfo.signature);
 
             if (securityContext != null) {
                 UserSession session = securityContext.getSession();
@@ -150,7 +150,7 @@ public class LocalServiceProxy extends RemoteAccessor implements FactoryBean<Obj
                     invocation.setClientInfo(session.getClientInfo());
                 }
             }
-            invocation.setResultBypassSerialization(canMethodResultBypassSerialization(method));
+            invocation.setResultBypassSerialization(methodInfo.resultBypassSerialization);
 
             LocalServiceInvocationResult result = invoker.invoke(invocation);
             AppContext.setSecurityContext(AppContext.getSecurityContext()); // to reset application name in LogMDC for the current thread
@@ -175,12 +175,28 @@ public class LocalServiceProxy extends RemoteAccessor implements FactoryBean<Obj
             }
         }
 
-        private boolean canBypassSerialization(Parameter parameter) {
-            return parameter.getAnnotation(BypassSerialization.class) != null;
-        }
+    }
 
-        private boolean canMethodResultBypassSerialization(Method method) {
-            return method.getAnnotation(BypassSerialization.class) != null;
+    /**
+     * Invocation data of a service method which doesn't change between calls.
+     */
+    private static class MethodInfo {
+
+        private final String[] parameterTypeNames;
+        private final boolean[] parameterBypassSerialization;
+        private final boolean resultBypassSerialization;
+        private final String signature;
+
+        private MethodInfo(Method method) {
+            Parameter[] parameters = method.getParameters();
+            parameterTypeNames = new String[parameters.length];
+            parameterBypassSerialization = new boolean[parameters.length];
+            for (int i = 0; i < parameters.length; i++) {
+                parameterTypeNames[i] = parameters[i].getType().getName();
+                parameterBypassSerialization[i] = parameters[i].getAnnotation(BypassSerialization.class) != null;
+            }
+            resultBypassSerialization = method.getAnnotation(BypassSerialization.class) != null;
+            signature = method.getName() + Arrays.toString(parameterTypeNames);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.web.components.aggregation
+
+import com.haulmont.cuba.gui.components.AggregationInfo
+import com.haulmont.cuba.gui.data.aggregation.AggregationEngine
+import com.haulmont.cuba.gui.data.aggregation.AggregationStrategy
+import com.haulmont.cuba.web.testmodel.sample.GoodStatistic
+import spec.cuba.web.WebSpec
+
+class AggregationEngineTest extends WebSpec {
+
+    private List<GoodStatistic> items
+
+    void setup() {
+        items = [
+                new GoodStatistic(name: 'stat1', sales: 10, count: 5L, usages: 1.5d, price: 10.25,
+                        fromDate: new Date(2000)),
+                new GoodStatistic(name: 'stat2', sales: 20, usages: 2.5d, fromDate: new Date(3000)),
+                new GoodStatistic(),
+                new GoodStatistic(name: 'stat4', sales: 3, count: 7L, price: 4.75, fromDate: new Date(1000))
+        ]
+    }
+
+    def "aggregates values skipping nulls"(boolean parallel) {
+
+        def infos = [
+                aggregation('sales', AggregationInfo.Type.SUM),
+                aggregation('sales', AggregationInfo.Type.AVG),
+                aggregation('count', AggregationInfo.Type.MIN),
+                aggregation('count', AggregationInfo.Type.MAX),
+                aggregation('usages', AggregationInfo.Type.SUM),
+                aggregation('usages', AggregationInfo.Type.AVG),
+                aggregation('price', AggregationInfo.Type.SUM),
+                aggregation('price', AggregationInfo.Type.AVG),
+                aggregation('price', AggregationInfo.Type.MIN),
+                aggregation('price', AggregationInfo.Type.MAX),
+                aggregation('fromDate', AggregationInfo.Type.MIN),
+                aggregation('fromDate', AggregationInfo.Type.MAX),
+                aggregation('name', AggregationInfo.Type.COUNT)
+        ]
+
+        when:
+
+        def results = aggregate(infos, parallel)
+
+        then:
+
+        results[infos[0]] == 33L
+        results[infos[0]] instanceof Long
+        results[infos[1]] == 11L
+        results[infos[2]] == 5L
+        results[infos[3]] == 7L
+        results[infos[4]] == 4.0d
+        results[infos[4]] instanceof Double
+        results[infos[5]] == 2.0d
+        results[infos[6]] == 15.00
+        results[infos[6]] instanceof BigDecimal
+        results[infos[7]] == 7.5
+        results[infos[8]] == 4.75
+        results[infos[9]] == 10.25
+        results[infos[10]] == new Date(1000)
+        results[infos[11]] == new Date(3000)
+        results[infos[12]] == 3
+
+        where:
+
+        parallel << [false, true]
+    }
+
+    def "aggregates only null values"(boolean parallel) {
+
+        items = [new GoodStatistic(), new GoodStatistic()]
+
+        def infos = [
+                aggregation('sales', AggregationInfo.Type.SUM),
+                aggregation('usages', AggregationInfo.Type.AVG),
+                aggregation('price', AggregationInfo.Type.MIN),
+                aggregation('fromDate', AggregationInfo.Type.MAX),
+                aggregation('count', AggregationInfo.Type.COUNT)
+        ]
+
+        when:
+
+        def results = aggregate(infos, parallel)
+
+        then:
+
+        results[infos[0]] == 0L
+        results[infos[1]] == null
+        results[infos[2]] == null
+        results[infos[3]] == null
+        results[infos[4]] == 0
+
+        where:
+
+        parallel << [false, true]
+    }
+
+    def "parallel aggregation returns the same values as sequential"() {
+
+        items = (1..1000).collect {
+            new GoodStatistic(sales: it % 7 == 0 ? null : it, count: (long) it * 3, usages: it / 4d,
+                    price: it % 5 == 0 ? null : new BigDecimal(it).movePointLeft(2))
+        }
+
+        def infos = AggregationInfo.Type.values()
+                .findAll { it != AggregationInfo.Type.CUSTOM }
+                .collectMany { type -> ['sales', 'count', 'usages', 'price'].collect { aggregation(it, type) } }
+
+        expect:
+
+        aggregate(infos, true) == aggregate(infos, false)
+    }
+
+    def "custom aggregations and strategies are not supported"() {
+
+        def custom = aggregation('sales', AggregationInfo.Type.CUSTOM)
+        def strategy = aggregation('sales', AggregationInfo.Type.SUM)
+        strategy.setStrategy(Mock(AggregationStrategy))
+
+        expect:
+
+        !AggregationEngine.isSupported(custom)
+        !AggregationEngine.isSupported(strategy)
+        !AggregationEngine.isSupported(aggregation('name', AggregationInfo.Type.MIN))
+        AggregationEngine.isSupported(aggregation('name', AggregationInfo.Type.COUNT))
+        AggregationEngine.isSupported(aggregation('fromDate', AggregationInfo.Type.MAX))
+    }
+
+    protected Map<AggregationInfo, Object> aggregate(List<AggregationInfo> infos, boolean parallel) {
+        def engine = new AggregationEngine<Integer>(infos, { path, index ->
+            items[index].getValueEx(path.toPathString())
+        })
+        return engine.aggregate((0..<items.size()).toList(), parallel)
+    }
+
+    protected AggregationInfo aggregation(String property, AggregationInfo.Type type) {
+        def aggregationInfo = new AggregationInfo()
+        aggregationInfo.setPropertyPath(metadata.getClass(GoodStatistic).getPropertyPath(property))
+        aggregationInfo.setType(type)
+        return aggregationInfo
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.web.components.aggregation
+
+import com.haulmont.cuba.core.entity.KeyValueEntity
+import com.haulmont.cuba.core.global.DataManager
+import com.haulmont.cuba.core.global.Security
+import com.haulmont.cuba.core.global.ValueLoadContext
+import com.haulmont.cuba.gui.components.AggregationInfo
+import com.haulmont.cuba.gui.data.aggregation.LoaderAggregationQuery
+import com.haulmont.cuba.gui.model.CollectionLoader
+import com.haulmont.cuba.web.testmodel.sales.Order
+import spec.cuba.web.WebSpec
+
+import static com.haulmont.cuba.core.global.queryconditions.JpqlCondition.where
+
+@SuppressWarnings("GroovyAccessibility")
+class LoaderAggregationQueryTest extends WebSpec {
+
+    private CollectionLoader<Order> loader
+    private List<ValueLoadContext> loadContexts
+
+    void setup() {
+        def container = dataComponents.createCollectionContainer(Order)
+        loader = dataComponents.createCollectionLoader()
+        loader.setContainer(container)
+
+        loadContexts = []
+    }
+
+    def "query selects aggregates grouped by properties"() {
+
+        loader.setQuery('select e from test$Order e where e.number like :number order by e.date')
+        loader.setParameter('number', 'A%')
+
+        def query = createQuery(['number', 'customer'], [
+                aggregation('amount', AggregationInfo.Type.SUM),
+                aggregation('amount', AggregationInfo.Type.AVG),
+                aggregation('date', AggregationInfo.Type.MAX)
+        ])
+
+        when:
+
+        query.load()
+
+        then:
+
+        loadContexts.size() == 1
+
+        def queryString = loadContexts[0].query.queryString
+        queryString.startsWith('select e.number, cuba_gj0, count(e), sum(e.amount), sum(e.amount), count(e.amount), max(e.date) from ')
+        queryString.contains('left join e.customer cuba_gj0')
+        queryString.contains('e.number like :number')
+        queryString.endsWith(' group by e.number, cuba_gj0 order by e.number')
+
+        loadContexts[0].query.parameters == [number: 'A%']
+        loadContexts[0].properties == ['groupValue0', 'groupValue1', 'groupCount',
+                                       'aggregateValue0', 'aggregateValue1', 'aggregateCount1', 'aggregateValue2']
+    }
+
+    def "query without group properties returns a single row"() {
+
+        loader.setQuery('select e from test$Order e')
+
+        def query = createQuery([], [aggregation('amount', AggregationInfo.Type.COUNT)])
+
+        when:
+
+        query.load()
+
+        then:
+
+        def queryString = loadContexts[0].query.queryString
+        queryString.startsWith('select count(e), count(e.amount) from ')
+        !queryString.contains('group by')
+    }
+
+    def "condition of the loader is applied to the query"() {
+
+        loader.setQuery('select e from test$Order e')
+        loader.setCondition(where('e.number = :number'))
+        loader.setParameter('number', 'A1')
+
+        def query = createQuery([], [aggregation('amount', AggregationInfo.Type.SUM)])
+
+        when:
+
+        query.load()
+
+        then:
+
+        loadContexts[0].query.queryString.contains('e.number = :number')
+        loadContexts[0].query.condition == null
+    }
+
+    def "query is not applicable if rows of the loader are not distinct entities"(String queryString) {
+
+        loader.setQuery(queryString)
+
+        def query = createQuery([], [aggregation('amount', AggregationInfo.Type.SUM)])
+
+        when:
+
+        query.load()
+
+        then:
+
+        !query.isApplicable()
+        thrown(IllegalStateException)
+        loadContexts.isEmpty()
+
+        where:
+
+        queryString << [
+                'select distinct e from test$Order e',
+                'select e from test$Order e join e.customer c where c.name = :name',
+                'select e from test$Order e, test$Customer c where e.customer = c'
+        ]
+    }
+
+    def "query is not applicable if the condition of the loader adds a join"() {
+
+        loader.setQuery('select e from test$Order e')
+        loader.setCondition(where('join e.customer c', 'c.name = :name'))
+
+        def query = createQuery([], [aggregation('amount', AggregationInfo.Type.SUM)])
+
+        expect: "the condition is skipped without a parameter value"
+
+        query.isApplicable()
+
+        when:
+
+        loader.setParameter('name', 'Smith')
+
+        then:
+
+        !query.isApplicable()
+    }
+
+    def "query is not applicable if the entity has in-memory read constraints"() {
+
+        loader.setQuery('select e from test$Order e')
+
+        def query = createQuery([], [aggregation('amount', AggregationInfo.Type.SUM)])
+        query.security = Stub(Security) {
+            hasInMemoryConstraints(metadata.getClass(Order), *_) >> true
+        }
+
+        when:
+
+        query.load()
+
+        then:
+
+        !query.isApplicable()
+        thrown(IllegalStateException)
+        loadContexts.isEmpty()
+    }
+
+    def "partial results are combined"() {
+
+        loader.setQuery('select e from test$Order e')
+
+        def infos = [
+                aggregation('amount', AggregationInfo.Type.SUM),
+                aggregation('amount', AggregationInfo.Type.AVG),
+                aggregation('amount', AggregationInfo.Type.MIN)
+        ]
+        def query = createQuery([], infos)
+
+        def rows = [
+                row(aggregateValue0: 10.5, aggregateValue1: 10.5, aggregateCount1: 2L, aggregateValue2: 2.5),
+                row(aggregateValue0: null, aggregateValue1: null, aggregateCount1: 0L, aggregateValue2: null),
+                row(aggregateValue0: 4.5, aggregateValue1: 4.5, aggregateCount1: 1L, aggregateValue2: 4.5)
+        ]
+
+        when:
+
+        def aggregates = (0..2).collect { i ->
+            def aggregate = new LoaderAggregationQuery.AggregateValue()
+            rows.each { aggregate.add(query.createAggregateValue(it, i)) }
+            aggregate.getValue(infos[i])
+        }
+
+        then:
+
+        aggregates == [15.0, 5.0, 2.5]
+    }
+
+    protected LoaderAggregationQuery createQuery(List<String> groupProperties, List<AggregationInfo> infos) {
+        def metaClass = metadata.getClass(Order)
+        def query = new LoaderAggregationQuery(loader, groupProperties.collect { metaClass.getPropertyPath(it) }, infos)
+        query.dataManager = Stub(DataManager) {
+            loadValues(_) >> { ValueLoadContext context ->
+                loadContexts << context
+                []
+            }
+        }
+        return query
+    }
+
+    protected AggregationInfo aggregation(String property, AggregationInfo.Type type) {
+        def aggregationInfo = new AggregationInfo()
+        aggregationInfo.setPropertyPath(metadata.getClass(Order).getPropertyPath(property))
+        aggregationInfo.setType(type)
+        return aggregationInfo
+    }
+
+    protected static KeyValueEntity row(Map<String, Object> values) {
+        def entity = new KeyValueEntity()
+        values.each { name, value -> entity.setValue(name, value) }
+        return entity
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.web.components.datagrid
+
+import com.haulmont.cuba.core.global.DataManager
+import com.haulmont.cuba.core.global.LoadContext
+import com.haulmont.cuba.gui.components.data.datagrid.LoaderDataGridItems
+import com.haulmont.cuba.gui.model.CollectionChangeType
+import com.haulmont.cuba.gui.model.CollectionContainer
+import com.haulmont.cuba.gui.model.CollectionLoader
+import com.haulmont.cuba.web.testmodel.datacontext.Foo
+import spec.cuba.web.WebSpec
+
+import java.util.function.Consumer
+
+class LoaderDataGridItemsTest extends WebSpec {
+
+    private CollectionContainer<Foo> container
+    private CollectionLoader<Foo> loader
+    private List<Foo> foos
+    private List<Integer> loadedPages
+    private LoaderDataGridItems<Foo> items
+
+    void setup() {
+        container = dataComponents.createCollectionContainer(Foo)
+        loader = dataComponents.createCollectionLoader()
+        loader.setContainer(container)
+        loader.setQuery('select e from test$Foo e')
+
+        foos = (0..24).collect { new Foo(name: "foo$it") }
+        loadedPages = []
+
+        def dataManager = Stub(DataManager) {
+            getCount(_) >> foos.size()
+            loadList(_) >> { LoadContext<Foo> loadContext ->
+                int firstResult = loadContext.query.firstResult
+                loadedPages << firstResult.intdiv(10)
+                foos.subList(firstResult, Math.min(firstResult + loadContext.query.maxResults, foos.size()))
+            }
+        }
+        items = new LoaderDataGridItems<>(loader, dataManager, 10, 2)
+    }
+
+    def "pages are loaded on demand"() {
+
+        expect:
+
+        items.size() == 25
+        loadedPages.isEmpty()
+
+        items.getItemByIndex(12) == foos[12]
+        loadedPages == [1]
+
+        items.getItems(5, 10) == foos[5..14]
+        loadedPages == [1, 0]
+
+        items.getItems(20, 10) == foos[20..24]
+        loadedPages == [1, 0, 2]
+
+        items.getItemByIndex(25) == null
+        items.indexOfItem(foos[23]) == 23
+    }
+
+    def "container is updated incrementally and keeps the current item"() {
+
+        def changeTypes = []
+        container.addCollectionChangeListener({ e -> changeTypes << e.changeType } as Consumer)
+
+        when: "the first two pages are loaded"
+
+        items.getItemByIndex(0)
+        container.setItem(foos[1])
+        items.getItemByIndex(10)
+
+        then:
+
+        container.items as Set == foos[0..19] as Set
+        container.item == foos[1]
+
+        when: "the third page is loaded and the first one is evicted"
+
+        items.getItemByIndex(20)
+
+        then: "the entities of the evicted page are removed except the current item"
+
+        container.items as Set == (foos[10..24] + foos[1]) as Set
+        container.item == foos[1]
+        items.indexOfItem(foos[1]) == -1
+        !changeTypes.contains(CollectionChangeType.REFRESH)
+        changeTypes.contains(CollectionChangeType.REMOVE_ITEMS)
+    }
+
+    def "refresh reloads pages"() {
+
+        items.getItemByIndex(0)
+        container.setItem(foos[3])
+
+        when:
+
+        items.refresh()
+
+        then:
+
+        container.items == [foos[3]]
+        container.item == foos[3]
+
+        when:
+
+        items.getItemByIndex(3)
+
+        then:
+
+        loadedPages == [0, 0]
+        container.items.size() == 10
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.web.components.grouptable
+
+import com.haulmont.cuba.core.entity.KeyValueEntity
+import com.haulmont.cuba.core.global.DataManager
+import com.haulmont.cuba.core.global.LoadContext
+import com.haulmont.cuba.core.global.ValueLoadContext
+import com.haulmont.cuba.gui.components.AggregationInfo
+import com.haulmont.cuba.gui.components.data.table.LoaderGroupTableItems
+import com.haulmont.cuba.gui.data.GroupInfo
+import com.haulmont.cuba.gui.model.CollectionContainer
+import com.haulmont.cuba.gui.model.CollectionLoader
+import com.haulmont.cuba.security.entity.EntityOp
+import com.haulmont.cuba.security.group.BasicAccessConstraint
+import com.haulmont.cuba.security.group.BasicSetOfAccessConstraints
+import com.haulmont.cuba.web.testmodel.sales.Order
+import spec.cuba.web.WebSpec
+
+import java.util.function.Predicate
+
+@SuppressWarnings("GroovyAccessibility")
+class LoaderGroupTableItemsTest extends WebSpec {
+
+    private CollectionContainer<Order> container
+    private CollectionLoader<Order> loader
+    private List<Order> orders
+    private List<KeyValueEntity> groupRows
+    private List<ValueLoadContext> valueLoadContexts
+    private List<LoadContext<Order>> loadContexts
+    private LoaderGroupTableItems<Order, UUID> items
+
+    void setup() {
+        container = dataComponents.createCollectionContainer(Order)
+        loader = dataComponents.createCollectionLoader()
+        loader.setContainer(container)
+        loader.setQuery('select e from test$Order e')
+
+        orders = [
+                new Order(number: 'A', amount: 10.0),
+                new Order(number: 'A', amount: 10.0),
+                new Order(number: 'A', amount: 20.0),
+                new Order(number: 'B'),
+                new Order(number: 'B'),
+                new Order(number: 'B')
+        ]
+        groupRows = [
+                row(groupValue0: 'A', groupValue1: 10.0, groupCount: 2L, aggregateValue0: 20.0),
+                row(groupValue0: 'A', groupValue1: 20.0, groupCount: 1L, aggregateValue0: 20.0),
+                row(groupValue0: 'B', groupValue1: null, groupCount: 3L, aggregateValue0: null)
+        ]
+        valueLoadContexts = []
+        loadContexts = []
+
+        def dataManager = Stub(DataManager) {
+            loadValues(_) >> { ValueLoadContext context ->
+                valueLoadContexts << context
+                groupRows
+            }
+            loadList(_) >> { LoadContext<Order> context ->
+                loadContexts << context
+                def query = context.query
+                if (query.parameters.containsKey('cuba_gp0')) {
+                    def groupOrders = orders.findAll {
+                        it.number == query.parameters.cuba_gp0 && it.amount == query.parameters.cuba_gp1
+                    }
+                    return groupOrders.drop(query.firstResult).take(query.maxResults)
+                }
+                return orders
+            }
+        }
+        items = new LoaderGroupTableItems<>(loader, dataManager, 1)
+    }
+
+    def "groups and counts are loaded by a grouped query"() {
+
+        when:
+
+        items.groupBy(groupProperties('number', 'amount'))
+
+        then:
+
+        valueLoadContexts.size() == 1
+        loadContexts.isEmpty()
+        container.items.isEmpty()
+        !items.isGroupedInMemory()
+
+        def roots = items.rootGroups()
+        roots.collect { items.getGroupPropertyValue(it) } == ['A', 'B']
+        roots.collect { items.getGroupItemsCount(it) } == [3, 3]
+
+        def groupA = items.getChildren(roots[0])
+        groupA.collect { items.getGroupPropertyValue(it) } == [10.0, 20.0]
+        groupA.collect { items.getGroupItemsCount(it) } == [2, 1]
+
+        def groupB = items.getChildren(roots[1])
+        groupB.size() == 1
+        items.getGroupPropertyValue(groupB[0]) == null
+        items.getGroupItemsCount(groupB[0]) == 3
+        !items.hasChildren(groupB[0])
+    }
+
+    def "entities of a group are loaded by pages"() {
+
+        items.groupBy(groupProperties('number', 'amount'))
+        def group = items.getChildren(items.rootGroups()[0])[0]
+
+        when:
+
+        def groupItems = items.getOwnChildItems(group)
+
+        then:
+
+        groupItems == [orders[0]]
+        loadContexts.size() == 1
+        loadContexts[0].query.parameters.cuba_gp0 == 'A'
+        loadContexts[0].query.parameters.cuba_gp1 == 10.0
+        loadContexts[0].query.firstResult == 0
+        loadContexts[0].query.maxResults == 1
+        items.hasMoreGroupItems(group)
+
+        when:
+
+        def loaded = items.loadNextGroupPage(group)
+
+        then:
+
+        loaded
+        items.getOwnChildItems(group) == [orders[0], orders[1]]
+        loadContexts.size() == 2
+        loadContexts[1].query.firstResult == 1
+        !items.hasMoreGroupItems(group)
+        !items.loadNextGroupPage(group)
+        container.items == [orders[0], orders[1]]
+    }
+
+    def "group aggregates are loaded by a grouped query"() {
+
+        items.groupBy(groupProperties('number', 'amount'))
+        def roots = items.rootGroups()
+
+        def aggregationInfo = new AggregationInfo()
+        aggregationInfo.setPropertyPath(metadata.getClass(Order).getPropertyPath('amount'))
+        aggregationInfo.setType(AggregationInfo.Type.SUM)
+        AggregationInfo[] aggregationInfos = [aggregationInfo]
+
+        expect:
+
+        items.aggregateGroupValues(aggregationInfos, roots[0])[aggregationInfo] == 40.0
+        items.aggregateGroupValues(aggregationInfos, roots[1])[aggregationInfo] == 0
+        items.aggregateGroupValues(aggregationInfos, null)[aggregationInfo] == 40.0
+        valueLoadContexts.size() == 2
+        valueLoadContexts[1].query.queryString.contains('sum(e.amount)')
+    }
+
+    def "entities are grouped in memory if the query cannot be grouped"() {
+
+        loader.setQuery('select distinct e from test$Order e')
+
+        when:
+
+        items.groupBy(groupProperties('number', 'amount'))
+
+        then:
+
+        items.isGroupedInMemory()
+        valueLoadContexts.isEmpty()
+        loadContexts.size() == 1
+        container.items == orders
+
+        def roots = items.rootGroups()
+        roots.collect { items.getGroupPropertyValue(it) } == ['A', 'B']
+        roots.collect { items.getGroupItemsCount(it) } == [3, 3]
+
+        def groupA = items.getChildren(roots[0])
+        groupA.collect { items.getGroupItemsCount(it) } == [2, 1]
+        items.getOwnChildItems(groupA[0]) == [orders[0], orders[1]]
+        !items.hasMoreGroupItems(groupA[0])
+        loadContexts.size() == 1
+    }
+
+    def "entities are grouped in memory if they have in-memory read constraints"() {
+
+        def constraint = new BasicAccessConstraint(entityType: 'test$Order', operation: EntityOp.READ,
+                predicate: { Order order -> order.amount != null } as Predicate)
+        def constraints = new BasicSetOfAccessConstraints()
+        constraints.setConstraints(['test$Order': [constraint]])
+        sessionSource.session.setConstraints(constraints)
+
+        def aggregationInfo = new AggregationInfo()
+        aggregationInfo.setPropertyPath(metadata.getClass(Order).getPropertyPath('amount'))
+        aggregationInfo.setType(AggregationInfo.Type.COUNT)
+        AggregationInfo[] aggregationInfos = [aggregationInfo]
+
+        when:
+
+        items.groupBy(groupProperties('number', 'amount'))
+
+        then:
+
+        items.isGroupedInMemory()
+        loadContexts.size() == 1
+        container.items == orders
+
+        def roots = items.rootGroups()
+        roots.collect { items.getGroupItemsCount(it) } == [3, 3]
+        !items.hasMoreGroupItems(items.getChildren(roots[0])[0])
+
+        items.aggregateGroupValues(aggregationInfos, roots[0])[aggregationInfo] == 3
+        valueLoadContexts.isEmpty()
+    }
+
+    def "all entities are loaded when grouping is removed"() {
+
+        items.groupBy(groupProperties('number'))
+
+        when:
+
+        items.groupBy(new Object[0])
+
+        then:
+
+        !items.hasGroups()
+        container.items == orders
+    }
+
+    protected Object[] groupProperties(String... properties) {
+        def metaClass = metadata.getClass(Order)
+        return properties.collect { metaClass.getPropertyPath(it) }.toArray()
+    }
+
+    protected static KeyValueEntity row(Map<String, Object> values) {
+        def entity = new KeyValueEntity()
+        values.each { name, value -> entity.setValue(name, value) }
+        return entity
+    }
+}
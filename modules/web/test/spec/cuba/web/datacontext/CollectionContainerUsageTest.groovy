@@ -374,4 +374,38 @@ class CollectionContainerUsageTest extends WebSpec {
             assert event.value == '111'
         }
     }
-}
\ No newline at end of file
+
+    def "update items incrementally"() {
+        Foo foo1 = new Foo(name: 'foo1')
+        Foo foo2 = new Foo(name: 'foo2')
+        Foo foo3 = new Foo(name: 'foo3')
+
+        container.items = [foo1, foo2, foo3]
+        table.setSelected(foo2)
+
+        def events = []
+        container.addCollectionChangeListener({ events.add(it) } as Consumer)
+
+        Foo changedFoo2 = new Foo(id: foo2.id, name: 'foo2-changed')
+        Foo foo4 = new Foo(name: 'foo4')
+
+        when: "replacing, adding and removing items"
+
+        container.updateItems([changedFoo2, foo4], [foo3.id])
+
+        then: "unchanged items are kept and the changes are fired without refresh"
+
+        container.items == [foo1, changedFoo2, foo4]
+        container.items[0].is(foo1)
+        container.item.is(changedFoo2)
+
+        events.collect { it.changeType } == [
+                CollectionChangeType.REMOVE_ITEMS,
+                CollectionChangeType.SET_ITEM,
+                CollectionChangeType.ADD_ITEMS
+        ]
+        events[0].changes == [foo3]
+        events[1].changes == [changedFoo2]
+        events[2].changes == [foo4]
+    }
+}
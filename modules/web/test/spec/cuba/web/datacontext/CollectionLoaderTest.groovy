@@ -17,13 +17,18 @@
 package spec.cuba.web.datacontext
 
 import com.haulmont.cuba.core.app.DataService
+import com.haulmont.cuba.core.entity.KeyValueEntity
 import com.haulmont.cuba.core.global.DataManager
+import com.haulmont.cuba.core.global.LoadContext
 import com.haulmont.cuba.core.global.Metadata
+import com.haulmont.cuba.core.global.ValueLoadContext
+import com.haulmont.cuba.core.global.queryconditions.JpqlCondition
 import com.haulmont.cuba.gui.model.CollectionContainer
 import com.haulmont.cuba.gui.model.CollectionLoader
 import com.haulmont.cuba.gui.model.DataComponents
 import com.haulmont.cuba.web.container.CubaTestContainer
 import com.haulmont.cuba.web.testmodel.datacontext.Foo
+import com.haulmont.cuba.web.testmodel.sales.Order
 import com.haulmont.cuba.web.testsupport.TestContainer
 import com.haulmont.cuba.web.testsupport.proxy.TestServiceProxy
 import org.junit.ClassRule
@@ -132,4 +137,183 @@ class CollectionLoaderTest extends Specification {
 
         1 * preLoadListener.accept({ it.loadContext.query.queryString == 'select e from test$Foo e where e.name = :name' })
     }
+
+    def "delta load reads entities updated within the safety window and ids of all entities"() {
+        def order1 = new Order(number: '1', version: 1, updateTs: new Date(1_000_000))
+        def order2 = new Order(number: '2', version: 1, updateTs: new Date(2_000_000))
+        def order3 = new Order(number: '3', version: 1, updateTs: new Date(3_000_000))
+
+        List<Order> loadedOrders = [order1, order2, order3]
+        List<Order> allOrders = []
+        List<LoadContext> loadContexts = []
+        List<ValueLoadContext> valueLoadContexts = []
+
+        TestServiceProxy.mock(DataService, Mock(DataService) {
+            loadList(_) >> { LoadContext context ->
+                loadContexts << context
+                loadedOrders.collect { reserialize(it) }
+            }
+            loadValues(_) >> { ValueLoadContext context ->
+                valueLoadContexts << context
+                allOrders.collect { order ->
+                    def row = new KeyValueEntity()
+                    row.setValue('id', order.id)
+                    row
+                }
+            }
+        })
+
+        CollectionLoader<Order> loader = factory.createCollectionLoader()
+        CollectionContainer<Order> container = factory.createCollectionContainer(Order)
+        loader.setContainer(container)
+        loader.setQuery('select e from test$Order e')
+        loader.setDeltaLoad(true)
+
+        loader.load()
+        def loaded1 = container.getItem(order1.id)
+        def loaded3 = container.getItem(order3.id)
+
+        def changedOrder2 = new Order(id: order2.id, number: '2-changed', version: 2, updateTs: new Date(2_500_000))
+        def order4 = new Order(number: '4', version: 1, updateTs: new Date(4_000_000))
+
+        // order1 is read again within the safety window but its version is the same
+        loadedOrders = [order1, changedOrder2, order4]
+        allOrders = [order1, order2, order4]
+
+        when:
+
+        loader.load()
+
+        then: "the second load adds the updateTs condition"
+
+        loadContexts.size() == 2
+        loadContexts[0].query.condition == null
+        ((JpqlCondition) loadContexts[1].query.condition).getValue('where') == '{E}.updateTs >= :cuba_deltaUpdateTs'
+        loadContexts[1].query.parameters['cuba_deltaUpdateTs'] == new Date(3_000_000 - 60_000)
+
+        valueLoadContexts.size() == 1
+        valueLoadContexts[0].query.queryString == 'select e.id from test$Order e'
+
+        and: "unchanged entities keep their identity, deleted ones are removed"
+
+        container.items.collect { it.number } == ['1', '2-changed', '4']
+        container.getItem(order1.id).is(loaded1)
+        !container.items.any { it.is(loaded3) }
+        container.getItemOrNull(order3.id) == null
+
+        when: "the next delta load starts from the latest loaded updateTs"
+
+        loadedOrders = []
+        loader.load()
+
+        then:
+
+        loadContexts[2].query.parameters['cuba_deltaUpdateTs'] == new Date(4_000_000 - 60_000)
+    }
+
+    def "delta load reads by id entities that match the query but have not been updated"() {
+        def order1 = new Order(number: '1', version: 1, updateTs: new Date(1_000_000))
+        def order2 = new Order(number: '2', version: 1, updateTs: new Date(2_000_000))
+        // matches the query after a change of a referenced entity, or has been inserted without updateTs
+        def order3 = new Order(number: '3', version: 1, updateTs: new Date(500_000))
+        def order4 = new Order(number: '4', version: 1)
+
+        List<Order> loadedOrders = [order1, order2]
+        List<Order> allOrders = [order1, order2]
+        List<LoadContext> loadContexts = []
+
+        TestServiceProxy.mock(DataService, Mock(DataService) {
+            loadList(_) >> { LoadContext context ->
+                loadContexts << context
+                def orders = context.ids.isEmpty() ? loadedOrders : allOrders.findAll { context.ids.contains(it.id) }
+                orders.collect { reserialize(it) }
+            }
+            loadValues(_) >> { ValueLoadContext context ->
+                allOrders.collect { order ->
+                    def row = new KeyValueEntity()
+                    row.setValue('id', order.id)
+                    row
+                }
+            }
+        })
+
+        CollectionLoader<Order> loader = factory.createCollectionLoader()
+        CollectionContainer<Order> container = factory.createCollectionContainer(Order)
+        loader.setContainer(container)
+        loader.setQuery('select e from test$Order e')
+        loader.setDeltaLoad(true)
+
+        loader.load()
+
+        loadedOrders = []
+        allOrders = [order1, order2, order3, order4]
+
+        when:
+
+        loader.load()
+
+        then: "the container contains the same entities as after a full load"
+
+        loadContexts.size() == 3
+        loadContexts[2].query == null
+        loadContexts[2].ids as Set == [order3.id, order4.id] as Set
+
+        container.items.collect { it.number } as Set == ['1', '2', '3', '4'] as Set
+
+        when: "the entities are in the container already"
+
+        loader.load()
+
+        then: "they are not loaded again"
+
+        loadContexts.size() == 4
+        loadContexts[3].ids.isEmpty()
+    }
+
+    def "delta load falls back to full load with paging or a load delegate"() {
+        def order = new Order(number: '1', version: 1, updateTs: new Date(1_000_000))
+        List<LoadContext> loadContexts = []
+
+        TestServiceProxy.mock(DataService, Mock(DataService) {
+            loadList(_) >> { LoadContext context ->
+                loadContexts << context
+                [reserialize(order)]
+            }
+            0 * loadValues(_)
+        })
+
+        CollectionLoader<Order> loader = factory.createCollectionLoader()
+        CollectionContainer<Order> container = factory.createCollectionContainer(Order)
+        loader.setContainer(container)
+        loader.setQuery('select e from test$Order e')
+        loader.setDeltaLoad(true)
+
+        when: "the loader has max results"
+
+        loader.setMaxResults(10)
+        loader.load()
+        loader.load()
+
+        then:
+
+        loadContexts.size() == 2
+        loadContexts.every { it.query.condition == null }
+
+        when: "the loader has a load delegate"
+
+        List<LoadContext> delegateContexts = []
+        loader.setMaxResults(Integer.MAX_VALUE)
+        loader.setLoadDelegate({ LoadContext context ->
+            delegateContexts << context
+            [reserialize(order)]
+        })
+        loader.load()
+        loader.load()
+
+        then:
+
+        delegateContexts.size() == 2
+        delegateContexts.every { it.query.condition == null }
+        container.items == [order]
+    }
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.web.export
+
+import com.haulmont.chile.core.datatypes.Datatypes
+import com.haulmont.cuba.core.app.DataService
+import com.haulmont.cuba.core.global.LoadContext
+import com.haulmont.cuba.core.global.Sort
+import com.haulmont.cuba.gui.components.data.table.ContainerTableItems
+import com.haulmont.cuba.gui.executors.TaskLifeCycle
+import com.haulmont.cuba.gui.export.CsvExporter
+import com.haulmont.cuba.gui.model.CollectionLoader
+import com.haulmont.cuba.web.testmodel.sales.Order
+import com.haulmont.cuba.web.testsupport.proxy.TestServiceProxy
+import spec.cuba.web.WebSpec
+
+@SuppressWarnings("GroovyAccessibility")
+class CsvExporterTest extends WebSpec {
+
+    private CsvExporter exporter
+
+    void setup() {
+        exporter = new CsvExporter()
+    }
+
+    def "values containing separators, quotes and line breaks are quoted"() {
+
+        def writer = new StringWriter()
+
+        when:
+
+        exporter.writeLine(writer, ['plain', 'a,b', 'say "hi"', 'two\nlines', 'cr\r', ''])
+
+        then:
+
+        writer.toString() == 'plain,"a,b","say ""hi""","two\nlines","cr\r",\r\n'
+    }
+
+    def "values are formatted by their datatypes"() {
+
+        def metaClass = metadata.getClass(Order)
+        def timeZone = TimeZone.getTimeZone('GMT+5')
+        def date = new Date(0)
+        def order = new Order(number: '111')
+
+        expect:
+
+        exporter.formatValue(null, null, Locale.ENGLISH, null) == ''
+        exporter.formatValue(true, null, Locale.ENGLISH, null) == exporter.trueStr
+        exporter.formatValue(false, null, Locale.ENGLISH, null) == exporter.falseStr
+        exporter.formatValue('text', metaClass.getPropertyPath('number'), Locale.ENGLISH, null) == 'text'
+        exporter.formatValue(1234.5, metaClass.getPropertyPath('amount'), Locale.ENGLISH, null) ==
+                Datatypes.getNN(BigDecimal).format(1234.5, Locale.ENGLISH)
+        exporter.formatValue(42, null, Locale.ENGLISH, null) ==
+                Datatypes.getNN(Integer).format(42, Locale.ENGLISH)
+        exporter.formatValue(date, metaClass.getPropertyPath('date'), Locale.ENGLISH, timeZone) ==
+                metaClass.getPropertyPath('date').range.asDatatype().format(date, Locale.ENGLISH, timeZone)
+        exporter.formatValue(order, metaClass.getPropertyPath('customer'), Locale.ENGLISH, null) ==
+                metadataTools.getInstanceName(order)
+        exporter.formatValue([order], null, Locale.ENGLISH, null) == ''
+    }
+
+    def "entities of the loader are exported page by page regardless of first and max results"() {
+
+        def orders = (0..4).collect { new Order(number: "$it") }
+        def loadContexts = []
+
+        TestServiceProxy.mock(DataService, Mock(DataService) {
+            loadList(_) >> { LoadContext<Order> context ->
+                loadContexts << context
+                def query = context.query
+                orders.drop(query.firstResult).take(query.maxResults)
+            }
+        })
+
+        def loader = createLoader()
+        loader.setFirstResult(3)
+        loader.setMaxResults(1)
+
+        exporter.setPageSize(2)
+
+        when:
+
+        def pages = []
+        exporter.createRowSource(new ContainerTableItems(loader.container)).forEachPage { pages << it }
+
+        then:
+
+        pages == [orders[0..1], orders[2..3], orders[4..4]]
+        loadContexts.collect { it.query.firstResult } == [0, 2, 4]
+        loadContexts.every { it.query.maxResults == 2 }
+        loadContexts.every { it.query.queryString.contains('order by e.id') }
+    }
+
+    def "primary key is appended to the sort of the loader"() {
+
+        def loader = createLoader()
+        loader.setSort(Sort.by('number'))
+
+        when:
+
+        def loadContext = exporter.createLoadContext(loader)
+
+        then:
+
+        loadContext.query.sort.orders.collect { it.property } == ['number', 'id']
+        !loadContext.query.queryString.contains('order by')
+    }
+
+    def "exported file is written with a header and can be read until it is deleted"() {
+
+        def metaClass = metadata.getClass(Order)
+        def orders = [new Order(number: '1', amount: 10), new Order(number: '2,3')]
+        def columns = [
+                new CsvExporter.ExportColumn('Number', metaClass.getPropertyPath('number'), { it.number }),
+                new CsvExporter.ExportColumn('Amount', metaClass.getPropertyPath('amount'), { it.amount })
+        ]
+        def amount = Datatypes.getNN(BigDecimal).format(new BigDecimal(10), sessionSource.locale)
+
+        when:
+
+        def fileId = exporter.writeFile(new CsvExporter.ItemsRowSource(orders), columns, Stub(TaskLifeCycle))
+        def file = exporter.fileUploading.getFile(fileId)
+
+        then:
+
+        file.exists()
+
+        when: "the file is read twice, e.g. when the browser repeats the download"
+
+        def dataProvider = new CsvExporter.TempFileDataProvider(exporter, fileId)
+        def content = dataProvider.provide().withStream { it.getText('UTF-8') }
+        def repeatedContent = dataProvider.provide().withStream { it.getText('UTF-8') }
+
+        then:
+
+        content == "\uFEFFNumber,Amount\r\n1,$amount\r\n\"2,3\",\r\n"
+        repeatedContent == content
+        file.exists()
+
+        when:
+
+        dataProvider.deleteFile()
+
+        then:
+
+        !file.exists()
+        exporter.fileUploading.getFile(fileId) == null
+    }
+
+    def "export is stopped when the task is interrupted"() {
+
+        def orders = [new Order(number: '1')]
+        def columns = [new CsvExporter.ExportColumn('Number', null, { it.number })]
+        def taskLifeCycle = Stub(TaskLifeCycle) {
+            isInterrupted() >> true
+        }
+
+        expect:
+
+        exporter.writeFile(new CsvExporter.ItemsRowSource(orders), columns, taskLifeCycle) == null
+    }
+
+    protected CollectionLoader<Order> createLoader() {
+        def container = dataComponents.createCollectionContainer(Order)
+        CollectionLoader<Order> loader = dataComponents.createCollectionLoader()
+        loader.setContainer(container)
+        loader.setQuery('select e from test$Order e')
+        return loader
+    }
+}